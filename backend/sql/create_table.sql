@@ -194,6 +194,7 @@ CREATE TABLE IF NOT EXISTS recommendation_items (
     match_score FLOAT,
     `rank` INT,
     match_reason TEXT,
+    reason_codes INT,
     feedback TEXT,
     is_applied BOOLEAN DEFAULT FALSE,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
@@ -202,6 +203,12 @@ CREATE TABLE IF NOT EXISTS recommendation_items (
     FOREIGN KEY (program_id) REFERENCES school_programs(id) ON DELETE SET NULL
 );
 
+-- 推荐/推荐项ID号段表（Hibernate pooled序列在MySQL上的表模拟，步长50）
+CREATE TABLE IF NOT EXISTS recommendation_seq (next_val BIGINT);
+INSERT INTO recommendation_seq SELECT 1 FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM recommendation_seq);
+CREATE TABLE IF NOT EXISTS recommendation_item_seq (next_val BIGINT);
+INSERT INTO recommendation_item_seq SELECT 1 FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM recommendation_item_seq);
+
 -- 申请统计表
 CREATE TABLE IF NOT EXISTS application_statistics (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -0,0 +1,12 @@
+-- 推荐ID由自增改为号段分配后的升级脚本
+-- 已有数据的库需在新版本首次启动前执行，使号段从现有最大ID之后开始
+-- （pooled优化器取出的值为号段上界，因此起点为 MAX(id) + 50）
+USE admitgenius_db;
+
+CREATE TABLE IF NOT EXISTS recommendation_seq (next_val BIGINT);
+DELETE FROM recommendation_seq;
+INSERT INTO recommendation_seq SELECT COALESCE(MAX(id) + 50, 1) FROM recommendations;
+
+CREATE TABLE IF NOT EXISTS recommendation_item_seq (next_val BIGINT);
+DELETE FROM recommendation_item_seq;
+INSERT INTO recommendation_item_seq SELECT COALESCE(MAX(id) + 50, 1) FROM recommendation_items;
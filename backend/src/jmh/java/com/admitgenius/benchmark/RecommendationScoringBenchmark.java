@@ -0,0 +1,251 @@
+package com.admitgenius.benchmark;
+
+import com.admitgenius.dto.RecommendationRequestDTO;
+import com.admitgenius.index.LocationDictionary;
+import com.admitgenius.index.ProgramIndex;
+import com.admitgenius.index.SchoolFeatureIndex;
+import com.admitgenius.model.School;
+import com.admitgenius.model.SchoolProgram;
+import com.admitgenius.recommendation.SchoolMatchScorer;
+import com.admitgenius.recommendation.ScoringKernel;
+import com.admitgenius.recommendation.ScoringKernels;
+import com.admitgenius.recommendation.TopKSelector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 推荐打分热路径基准
+ * 在1k/10k/100k所学校的合成目录上测量整体打分、Top-K选择、各项子分数和专业匹配。
+ * 标量与向量内核各有一组对照基准（*Vector），启动时先校验两者分数逐位相同。
+ * 运行：mvn -Pbenchmark test-compile exec:exec（默认附带gc分析器，输出ops/s与分配速率）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class RecommendationScoringBenchmark {
+
+    private static final String[] LOCATIONS = {
+            "加利福尼亚州", "马萨诸塞州", "纽约州", "宾夕法尼亚州", "伊利诺伊州", "康涅狄格州", "新泽西州",
+            "华盛顿州", "德克萨斯州", "密歇根州", "北卡罗来纳州", "佐治亚州", "马里兰州", "俄亥俄州"
+    };
+
+    private static final String[][] PROGRAMS = {
+            {"计算机科学", "computer science", "人工智能", "软件工程"},
+            {"电子工程", "electrical engineering", "集成电路"},
+            {"金融学", "finance", "金融工程", "量化"},
+            {"工商管理", "mba", "管理", "市场营销"},
+            {"数据科学", "data science", "统计", "机器学习"},
+            {"机械工程", "mechanical engineering", "机器人"},
+            {"经济学", "economics", "计量经济"},
+            {"生物医学工程", "biomedical engineering", "生物"},
+            {"公共卫生", "public health", "流行病学"},
+            {"法学", "law", "国际法"},
+            {"教育学", "education", "教育技术"},
+            {"建筑学", "architecture", "城市规划"}
+    };
+
+    /** 每所学校的平均项目数 */
+    private static final int PROGRAMS_PER_SCHOOL = 8;
+
+    @Param({"1000", "10000", "100000"})
+    private int schools;
+
+    private SchoolFeatureIndex.Snapshot catalog;
+    private ProgramIndex programIndex;
+    private RecommendationRequestDTO request;
+    private String[] matchedPrograms;
+    private ScoringKernel vectorKernel;
+    private float[] scores;
+
+    private double[] gpas;
+    private int[] greScores;
+    private int[] gmatScores;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<SchoolFeatureIndex.SchoolFeatures> rows = new ArrayList<>(schools);
+        List<ProgramIndex.ProgramEntry> entries = new ArrayList<>(schools * PROGRAMS_PER_SCHOOL);
+        LocationDictionary locationDictionary = new LocationDictionary();
+        long programId = 1;
+        for (int i = 0; i < schools; i++) {
+            School school = new School();
+            school.setId((long) i + 1);
+            school.setName("学校" + i);
+            school.setLocation(LOCATIONS[random.nextInt(LOCATIONS.length)]);
+            school.setRanking(random.nextInt(10) == 0 ? null : 1 + random.nextInt(500));
+            school.setAverageGPA(random.nextInt(20) == 0 ? null : 3.0 + random.nextDouble());
+            school.setAverageGREVerbal(150 + random.nextInt(21));
+            school.setAverageGREQuant(150 + random.nextInt(21));
+            school.setAverageGREAW(3.0 + random.nextInt(7) * 0.5);
+            school.setAverageGMAT(random.nextInt(3) == 0 ? null : 550 + random.nextInt(231));
+            school.setIsIvyLeague(random.nextInt(50) == 0);
+            rows.add(SchoolFeatureIndex.SchoolFeatures.of(school, locationDictionary));
+
+            int programCount = PROGRAMS_PER_SCHOOL / 2 + random.nextInt(PROGRAMS_PER_SCHOOL + 1);
+            for (int p = 0; p < programCount; p++) {
+                String[] template = PROGRAMS[random.nextInt(PROGRAMS.length)];
+                SchoolProgram program = new SchoolProgram();
+                program.setId(programId++);
+                program.setSchool(school);
+                program.setName(template[0]);
+                program.setKeywords(new ArrayList<>(Arrays.asList(template).subList(1, template.length)));
+                entries.add(ProgramIndex.ProgramEntry.of(program));
+            }
+        }
+        catalog = SchoolFeatureIndex.Snapshot.of(rows, locationDictionary);
+        programIndex = new ProgramIndex();
+        programIndex.rebuild(entries);
+
+        request = new RecommendationRequestDTO();
+        request.setGpa(3.6);
+        request.setGreScore(325);
+        request.setGreVerbal(158);
+        request.setGreQuantitative(167);
+        request.setGreAnalytical(4.0);
+        request.setGmatScore(700);
+        request.setTargetMajor("计算机");
+        request.setLocationPreferences(List.of("加利福尼亚州", "纽约", "马萨诸塞州"));
+        request.setSchoolTypePreferences(List.of("Ivy League"));
+        request.setRankingRange(List.of(1, 300));
+
+        matchedPrograms = new String[catalog.size];
+        for (Map.Entry<Long, ProgramIndex.ProgramMatch> match : programIndex.matchBySchool(request.getTargetMajor()).entrySet()) {
+            int position = catalog.positionOf(match.getKey());
+            if (position >= 0) {
+                matchedPrograms[position] = match.getValue().getProgramName();
+            }
+        }
+
+        vectorKernel = ScoringKernels.vectorKernel();
+        if (vectorKernel == null) {
+            throw new IllegalStateException("jdk.incubator.vector 模块未启用");
+        }
+        scores = new float[catalog.size];
+        float[] vectorScores = new float[catalog.size];
+        SchoolMatchScorer scalar = new SchoolMatchScorer(catalog, request, matchedPrograms);
+        SchoolMatchScorer vector = new SchoolMatchScorer(catalog, request, matchedPrograms, vectorKernel);
+        scalar.scores(0, catalog.size, scores);
+        vector.scores(0, catalog.size, vectorScores);
+        for (int i = 0; i < catalog.size; i++) {
+            if (scalar.accepts(i) && Float.floatToRawIntBits(scores[i]) != Float.floatToRawIntBits(vectorScores[i])) {
+                throw new IllegalStateException("向量内核分数不一致: 位置" + i + " " + scores[i] + " != " + vectorScores[i]);
+            }
+        }
+
+        gpas = new double[schools];
+        greScores = new int[schools];
+        gmatScores = new int[schools];
+        for (int i = 0; i < schools; i++) {
+            gpas[i] = 2.8 + random.nextDouble() * 1.2;
+            greScores[i] = 140 + random.nextInt(31);
+            gmatScores[i] = 500 + random.nextInt(301);
+        }
+    }
+
+    /**
+     * 完整打分流程：构造打分器并选出Top-20
+     */
+    @Benchmark
+    public List<TopKSelector.Candidate> calculateMatchScores() {
+        SchoolMatchScorer scorer = new SchoolMatchScorer(catalog, request, matchedPrograms);
+        return TopKSelector.select(scorer, 20);
+    }
+
+    @Benchmark
+    public List<TopKSelector.Candidate> calculateMatchScoresVector() {
+        SchoolMatchScorer scorer = new SchoolMatchScorer(catalog, request, matchedPrograms, vectorKernel);
+        return TopKSelector.select(scorer, 20);
+    }
+
+    /**
+     * 单线程批量打分（不含选择），标量与向量内核对照
+     */
+    @Benchmark
+    public float[] scoresScalar() {
+        new SchoolMatchScorer(catalog, request, matchedPrograms).scores(0, catalog.size, scores);
+        return scores;
+    }
+
+    @Benchmark
+    public float[] scoresVector() {
+        new SchoolMatchScorer(catalog, request, matchedPrograms, vectorKernel).scores(0, catalog.size, scores);
+        return scores;
+    }
+
+    /**
+     * 单线程逐校打分（不含选择），衡量打分函数本身
+     */
+    @Benchmark
+    public float scoreAllSequential() {
+        SchoolMatchScorer scorer = new SchoolMatchScorer(catalog, request, matchedPrograms);
+        float sum = 0.0f;
+        for (int i = 0; i < catalog.size; i++) {
+            if (scorer.accepts(i)) {
+                sum += scorer.score(i);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public void calculateGPAScore(Blackhole blackhole) {
+        for (int i = 0; i < gpas.length; i++) {
+            blackhole.consume(SchoolMatchScorer.calculateGPAScore(3.6, gpas[i]));
+        }
+    }
+
+    @Benchmark
+    public void calculateGREScore(Blackhole blackhole) {
+        for (int i = 0; i < greScores.length; i++) {
+            blackhole.consume(SchoolMatchScorer.calculateGREScore(160, greScores[i]));
+        }
+    }
+
+    @Benchmark
+    public void calculateGMATScore(Blackhole blackhole) {
+        for (int i = 0; i < gmatScores.length; i++) {
+            blackhole.consume(SchoolMatchScorer.calculateGMATScore(700, gmatScores[i]));
+        }
+    }
+
+    /**
+     * 地点得分：按地点字典为每个节点计算一次偏好匹配度，再逐校按节点ID查表
+     */
+    @Benchmark
+    public void calculateLocationScore(Blackhole blackhole) {
+        float[] locationScores = catalog.locationDictionary.preferenceScores(request.getLocationPreferences());
+        for (int i = 0; i < catalog.size; i++) {
+            int locationId = catalog.locationId[i];
+            blackhole.consume(locationId != SchoolFeatureIndex.NO_VALUE ? locationScores[locationId] : 0.0f);
+        }
+    }
+
+    /**
+     * 专业匹配：原先逐校查询项目的 findBestProgram 已由倒排索引取代
+     */
+    @Benchmark
+    public Map<Long, ProgramIndex.ProgramMatch> findBestProgram() {
+        return programIndex.matchBySchool(request.getTargetMajor());
+    }
+}
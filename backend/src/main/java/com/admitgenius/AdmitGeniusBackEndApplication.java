@@ -3,9 +3,11 @@ package com.admitgenius;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @ComponentScan("com.admitgenius")
+@EnableScheduling
 public class AdmitGeniusBackEndApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,105 @@
+package com.admitgenius.config;
+
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ConfigurationBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 学校目录二级缓存
+ * School、SchoolProgram、EssayRequirement 实体及 topPrograms、keywords、文书要求集合缓存在Ehcache堆内区域，
+ * 每个区域按条目数限制大小，超出时淘汰。Hibernate以READ_WRITE策略在事务提交时按ID更新或移除被写入的实体和集合；
+ * 按学校查询项目的查询缓存在school_programs表有写入时失效。
+ * 绕过Hibernate的批量写入需调用 {@link com.admitgenius.service.CatalogCacheService#evictAll()}。
+ */
+@Configuration
+public class CatalogCacheConfig {
+    public static final String SCHOOL_REGION = "catalog.school";
+    public static final String SCHOOL_TOP_PROGRAMS_REGION = "catalog.school.top-programs";
+    public static final String SCHOOL_ESSAY_REQUIREMENTS_REGION = "catalog.school.essay-requirements";
+    public static final String PROGRAM_REGION = "catalog.program";
+    public static final String PROGRAM_KEYWORDS_REGION = "catalog.program.keywords";
+    public static final String PROGRAM_ESSAY_REQUIREMENTS_REGION = "catalog.program.essay-requirements";
+    public static final String ESSAY_REQUIREMENT_REGION = "catalog.essay-requirement";
+    public static final String PROGRAMS_BY_SCHOOL_REGION = "catalog.programs-by-school";
+
+    private static final URI CACHE_MANAGER_URI = URI.create("admitgenius-catalog");
+
+    @Value("${catalog.cache.school.max-entries:10000}")
+    private long schoolMaxEntries;
+
+    @Value("${catalog.cache.program.max-entries:50000}")
+    private long programMaxEntries;
+
+    @Value("${catalog.cache.essay-requirement.max-entries:20000}")
+    private long essayRequirementMaxEntries;
+
+    @Value("${catalog.cache.query.max-entries:10000}")
+    private long queryMaxEntries;
+
+    /**
+     * 目录区域及其条目上限（不含Hibernate内部的查询缓存区域）
+     */
+    public Map<String, Long> catalogRegions() {
+        Map<String, Long> regions = new LinkedHashMap<>();
+        regions.put(SCHOOL_REGION, schoolMaxEntries);
+        regions.put(SCHOOL_TOP_PROGRAMS_REGION, schoolMaxEntries);
+        regions.put(SCHOOL_ESSAY_REQUIREMENTS_REGION, schoolMaxEntries);
+        regions.put(PROGRAM_REGION, programMaxEntries);
+        regions.put(PROGRAM_KEYWORDS_REGION, programMaxEntries);
+        regions.put(PROGRAM_ESSAY_REQUIREMENTS_REGION, programMaxEntries);
+        regions.put(ESSAY_REQUIREMENT_REGION, essayRequirementMaxEntries);
+        regions.put(PROGRAMS_BY_SCHOOL_REGION, queryMaxEntries);
+        return Collections.unmodifiableMap(regions);
+    }
+
+    @Bean(destroyMethod = "close")
+    public CacheManager catalogCacheManager() {
+        Map<String, Long> regions = new LinkedHashMap<>(catalogRegions());
+        regions.put(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, queryMaxEntries);
+        // 记录各表最后写入时间，查询缓存据此判断结果是否过期；每张表一条，不能被淘汰，上限留足余量
+        regions.put(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, 10000L);
+
+        ConfigurationBuilder configuration = ConfigurationBuilder.newConfigurationBuilder();
+        for (Map.Entry<String, Long> region : regions.entrySet()) {
+            configuration = configuration.withCache(region.getKey(), CacheConfigurationBuilder
+                    .newCacheConfigurationBuilder(Object.class, Object.class,
+                            ResourcePoolsBuilder.heap(region.getValue())));
+        }
+        EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching
+                .getCachingProvider(EhcacheCachingProvider.class.getName());
+        CacheManager cacheManager = provider.getCacheManager(CACHE_MANAGER_URI, configuration.build());
+        for (String region : regions.keySet()) {
+            cacheManager.enableStatistics(region, true);
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer catalogCacheHibernateProperties(CacheManager catalogCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, catalogCacheManager);
+            // 所有区域都在上面声明了大小上限，未声明的区域视为配置错误
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            // 文书要求等反向集合在子实体写入时同样按所属实体移除
+            properties.put(AvailableSettings.AUTO_EVICT_COLLECTION_CACHE, true);
+        };
+    }
+}
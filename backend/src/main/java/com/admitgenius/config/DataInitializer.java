@@ -1,5 +1,6 @@
 package com.admitgenius.config;
 
+import com.admitgenius.index.CatalogIndexManager;
 import com.admitgenius.model.*;
 import com.admitgenius.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -34,6 +35,9 @@ public class DataInitializer implements ApplicationRunner {
         @Autowired
         private PasswordEncoder passwordEncoder;
 
+        @Autowired
+        private CatalogIndexManager catalogIndexManager;
+
         @Override
         public void run(ApplicationArguments args) throws Exception {
                 logger.info("开始初始化应用数据...");
@@ -45,6 +49,8 @@ public class DataInitializer implements ApplicationRunner {
                 if (schoolRepository.count() == 0) {
                         logger.info("数据库中没有学校数据，创建示例数据");
                         initializeSampleSchools();
+                        // 示例数据直接写入仓库，需要通知内存索引重建
+                        catalogIndexManager.rebuildAll();
                 } else {
                         logger.info("学校数据已存在，跳过示例数据创建");
                 }
@@ -1,9 +1,23 @@
 package com.admitgenius.controller;
 
+import com.admitgenius.dto.CatalogFilterDTO;
+import com.admitgenius.dto.FacetsDTO;
+import com.admitgenius.dto.RecommendationBatchResponseDTO;
+import com.admitgenius.dto.RecommendationHistoryDTO;
+import com.admitgenius.dto.RecommendationJobDTO;
 import com.admitgenius.dto.RecommendationRequestDTO;
 import com.admitgenius.dto.RecommendationResponseDTO;
+import com.admitgenius.dto.ReplayReportDTO;
+import com.admitgenius.dto.ReplayRequestDTO;
 import com.admitgenius.dto.SchoolDTO;
+import com.admitgenius.dto.SchoolFilterResponseDTO;
 import com.admitgenius.dto.SchoolProgramDTO;
+import com.admitgenius.dto.WhatIfRequestDTO;
+import com.admitgenius.dto.WhatIfResponseDTO;
+import com.admitgenius.recommendation.RecommendationStream;
+import com.admitgenius.service.RecommendationJobService;
+import com.admitgenius.service.RecommendationReplayService;
+import com.admitgenius.service.RecommendationRetentionService;
 import com.admitgenius.service.RecommendationService;
 import com.admitgenius.service.SchoolService;
 import jakarta.validation.Valid;
@@ -11,10 +25,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -28,11 +50,22 @@ public class RecommendationController {
     @Autowired
     private SchoolService schoolService;
 
+    @Autowired
+    private RecommendationJobService recommendationJobService;
+
+    @Autowired
+    private RecommendationReplayService recommendationReplayService;
+
+    @Autowired
+    private RecommendationRetentionService recommendationRetentionService;
+
     /**
      * 生成推荐
      * 文档 4.6.1: POST /api/recommendations/generate
      * 
      * 根据用户提供的信息生成学校或项目推荐
+     * 同步等待推荐任务完成，与异步任务共用线程池（不计入单用户任务数限制），
+     * 超过等待时间时返回错误并附带任务ID，可继续通过任务接口查询结果
      * 
      * @param request 包含用户背景和偏好的请求DTO
      * @return 推荐结果
@@ -40,25 +73,250 @@ public class RecommendationController {
     @PostMapping("/generate")
     public ResponseEntity<RecommendationResponseDTO> generateRecommendation(
             @Valid @RequestBody RecommendationRequestDTO request) {
-        RecommendationResponseDTO recommendation = recommendationService.generateRecommendation(request);
+        RecommendationResponseDTO recommendation = recommendationJobService.generateAndWait(request);
         return ResponseEntity.ok(recommendation);
     }
 
+    /**
+     * 流式生成推荐
+     * POST /api/recommendations/generate/stream
+     * 
+     * 以NDJSON逐行返回：progress（阶段变化）、item（推荐项，打分完成后立即推送，排名第一的最先到达）、
+     * completed（写库后的完整推荐结果，与 /generate 的响应相同）或 failed；服务繁忙时返回429
+     * 
+     * @param request 包含用户背景和偏好的请求DTO
+     * @return NDJSON连接
+     */
+    @PostMapping(value = "/generate/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> streamRecommendation(
+            @Valid @RequestBody RecommendationRequestDTO request) {
+        ResponseBodyEmitter emitter = recommendationJobService.stream(request);
+        return ResponseEntity.ok().contentType(RecommendationStream.NDJSON).body(emitter);
+    }
+
+    /**
+     * 假设分析
+     * POST /api/recommendations/what-if
+     * 
+     * 在基准请求上假设一组GPA/GRE/GMAT取值，返回每个取值点的前几名，
+     * 以及基准推荐中各学校的排名和分数变化；只读，不生成推荐记录
+     * 
+     * @param request 基准请求与各项成绩的假设取值
+     * @return 基准排名及各取值点结果
+     */
+    @PostMapping("/what-if")
+    public ResponseEntity<WhatIfResponseDTO> evaluateWhatIf(@Valid @RequestBody WhatIfRequestDTO request) {
+        return ResponseEntity.ok(recommendationService.evaluateWhatIf(request));
+    }
+
+    /**
+     * 批量生成推荐（顾问为多名学生生成）
+     * POST /api/recommendations/batch
+     * 
+     * 所有请求共享同一份学校目录快照并行打分，结果一次写库；
+     * 单个请求校验失败或用户不存在时只在对应结果中返回错误
+     * 
+     * @param requests 推荐请求列表
+     * @return 按请求顺序排列的结果
+     */
+    @PostMapping("/batch")
+    @PreAuthorize("hasAnyAuthority('ADMIN', 'SCHOOL_ASSISTANT', 'EXPERT')")
+    public ResponseEntity<RecommendationBatchResponseDTO> generateRecommendations(
+            @RequestBody List<RecommendationRequestDTO> requests) {
+        return ResponseEntity.ok(recommendationService.generateRecommendations(requests));
+    }
+
+    /**
+     * 提交异步推荐任务
+     * POST /api/recommendations/jobs
+     * 
+     * 立即返回任务ID，之后通过轮询或SSE订阅获取结果；服务繁忙时返回429
+     * 
+     * @param request 包含用户背景和偏好的请求DTO
+     * @return 任务状态
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<RecommendationJobDTO> submitRecommendationJob(
+            @Valid @RequestBody RecommendationRequestDTO request) {
+        RecommendationJobDTO job = recommendationJobService.submit(request);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+
+    /**
+     * 查询异步推荐任务状态，完成后包含推荐结果
+     * 
+     * @param jobId 任务ID
+     * @return 任务状态
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<RecommendationJobDTO> getRecommendationJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(recommendationJobService.getJob(jobId));
+    }
+
+    /**
+     * 订阅异步推荐任务进度（SSE）
+     * 事件：progress（阶段变化）、completed（含结果）、failed，任务结束后连接关闭
+     * 
+     * @param jobId 任务ID
+     * @return SSE连接
+     */
+    @GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeRecommendationJob(@PathVariable String jobId) {
+        return recommendationJobService.subscribe(jobId);
+    }
+
+    /**
+     * 推荐任务线程池统计
+     * 
+     * @return 线程池与任务统计
+     */
+    @GetMapping("/jobs/stats")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getRecommendationJobStats() {
+        return ResponseEntity.ok(recommendationJobService.getStats());
+    }
+
+    /**
+     * 打分引擎版本与影子比较统计
+     * 
+     * @return 主版本、影子版本、一致率与延迟差
+     */
+    @GetMapping("/engines/stats")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getEngineStats() {
+        return ResponseEntity.ok(recommendationService.getEngineStats());
+    }
+
+    /**
+     * 切换影子版本
+     * PUT /api/recommendations/engines/shadow?version=v2
+     * 
+     * 切换后比较统计清零；不传版本时停用影子
+     * 
+     * @param version 已登记的引擎版本号
+     * @return 切换后的统计
+     */
+    @PutMapping("/engines/shadow")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> setShadowVersion(@RequestParam(required = false) String version) {
+        recommendationService.setShadowVersion(version);
+        return ResponseEntity.ok(recommendationService.getEngineStats());
+    }
+
+    /**
+     * 推荐历史清理统计
+     * 
+     * @return 累计回收行数与最近一轮清理结果
+     */
+    @GetMapping("/retention/stats")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getRetentionStats() {
+        return ResponseEntity.ok(recommendationRetentionService.getStats());
+    }
+
+    /**
+     * 立即清理过期的推荐历史
+     * POST /api/recommendations/retention/purge
+     * 
+     * 平时由后台定时执行；已有清理在运行时返回429
+     * 
+     * @return 本轮清理结果
+     */
+    @PostMapping("/retention/purge")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> purgeRecommendationHistory() {
+        return ResponseEntity.ok(recommendationRetentionService.purge());
+    }
+
+    /**
+     * 离线回放历史推荐
+     * POST /api/recommendations/replay
+     * 
+     * 把数据库中的历史推荐请求交给一个或多个打分变体（如 scalar、vector:gpa=0.35）并行排名，
+     * 报告各变体的吞吐量、p50/p99延迟，以及以用户已申请学校计算的NDCG@k和Recall@k；
+     * 只读，同一时刻只允许一个回放，已有回放在运行时返回429
+     * 
+     * @param options 变体、时间范围、数量和评估深度
+     * @return 回放报告
+     */
+    @PostMapping("/replay")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<ReplayReportDTO> replayRecommendations(@Valid @RequestBody ReplayRequestDTO options) {
+        return ResponseEntity.ok(recommendationReplayService.replay(options));
+    }
+
+    /**
+     * 离线回放导出文件
+     * POST /api/recommendations/replay/import
+     * 
+     * 请求体为 /replay/export 导出的NDJSON，回放参数通过查询参数传入
+     * 
+     * @param options 变体、数量和评估深度
+     * @param export  导出文件内容
+     * @return 回放报告
+     */
+    @PostMapping(value = "/replay/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<ReplayReportDTO> replayExport(@Valid ReplayRequestDTO options, InputStream export) {
+        return ResponseEntity.ok(recommendationReplayService.replay(options, export));
+    }
+
+    /**
+     * 导出回放用例
+     * GET /api/recommendations/replay/export
+     * 
+     * 每行一条历史推荐的完整请求及已申请学校，可离线保存后通过 /replay/import 回放
+     * 
+     * @param options 时间范围、数量，以及是否只导出有申请的推荐
+     * @return NDJSON
+     */
+    @GetMapping(value = "/replay/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportReplayCases(@Valid ReplayRequestDTO options) {
+        StreamingResponseBody body = out -> recommendationReplayService.export(options, out);
+        return ResponseEntity.ok().contentType(RecommendationStream.NDJSON).body(body);
+    }
+
     /**
      * 获取特定用户的推荐
      * 文档 4.6.2: GET /api/recommendations/user/{userId}
      * 
-     * 获取特定用户的历史推荐结果
+     * 获取特定用户最近的推荐结果（最多50条，完整历史见 /user/{userId}/history）
      * 
      * @param userId 用户ID
+     * @param lang   匹配原因语言（zh, en），默认中文
      * @return 用户的推荐列表
      */
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<RecommendationResponseDTO>> getUserRecommendations(@PathVariable Long userId) {
-        List<RecommendationResponseDTO> recommendations = recommendationService.getUserRecommendations(userId);
+    public ResponseEntity<List<RecommendationResponseDTO>> getUserRecommendations(@PathVariable Long userId,
+            @RequestParam(value = "lang", required = false) String lang) {
+        List<RecommendationResponseDTO> recommendations = recommendationService.getUserRecommendations(userId, lang);
         return ResponseEntity.ok(recommendations);
     }
 
+    /**
+     * 分页获取用户的推荐历史
+     * GET /api/recommendations/user/{userId}/history?cursor=&size=10&summary=false
+     * 
+     * 按创建时间倒序的游标分页，推荐项及学校、项目信息以固定次数的查询取回
+     * 
+     * @param userId  用户ID
+     * @param cursor  上一页返回的nextCursor，第一页不传
+     * @param size    每页条数（最多50）
+     * @param summary 为true时只返回标题字段，不含推荐项
+     * @param lang    匹配原因语言（zh, en），默认中文
+     * @return 推荐历史分页
+     */
+    @GetMapping("/user/{userId}/history")
+    public ResponseEntity<RecommendationHistoryDTO> getRecommendationHistory(
+            @PathVariable Long userId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "10") int size,
+            @RequestParam(value = "summary", defaultValue = "false") boolean summary,
+            @RequestParam(value = "lang", required = false) String lang) {
+        return ResponseEntity.ok(recommendationService.getRecommendationHistory(userId, cursor, size, summary, lang));
+    }
+
     /**
      * 提交对推荐项目的反馈
      * 文档 4.6.3: POST /api/recommendations/feedback/{itemId}
@@ -136,7 +394,9 @@ public class RecommendationController {
     }
 
     /**
-     * 按名称搜索学校 (分页)
+     * 搜索学校 (分页)
+     * 
+     * 匹配名称、地区、热门专业和简介，按相关度排序；关键词为空时返回全部学校
      * 
      * @param query    搜索关键词
      * @param pageable 分页参数
@@ -176,31 +436,68 @@ public class RecommendationController {
     public ResponseEntity<Page<SchoolDTO>> getSchoolsByProgram(
             @PathVariable String programName,
             @PageableDefault(size = 10) Pageable pageable) {
-        System.out.println("收到专业筛选请求: " + programName);
         Page<SchoolDTO> schools = recommendationService.getSchoolsByProgram(programName, pageable);
-        System.out.println("返回学校数量: " + schools.getTotalElements());
         return ResponseEntity.ok(schools);
     }
 
+    /**
+     * 按组合条件筛选学校 (分页)：国家、地点、学校类型、专业、学位等级、排名/学费区间、常春藤、奖学金，
+     * 支持与/或组合，同时返回命中学校在各筛选项上的分布
+     * 
+     * @param filter   筛选条件
+     * @param pageable 分页参数
+     * @return 一页学校、命中总数和筛选项分布
+     */
+    @PostMapping("/schools/filter")
+    public ResponseEntity<SchoolFilterResponseDTO> filterSchools(
+            @RequestBody(required = false) CatalogFilterDTO filter,
+            @PageableDefault(size = 10) Pageable pageable) {
+        return ResponseEntity.ok(recommendationService.filterSchools(filter, pageable));
+    }
+
     /**
      * 获取所有可用专业列表
+     * 响应带ETag，客户端可用If-None-Match重新验证，未变化时返回304
      * 
      * @return 专业名称列表
      */
     @GetMapping("/programs")
     public ResponseEntity<List<String>> getAvailablePrograms() {
+        // 先取版本再取数据：两者之间目录发生变化时，客户端下次请求会因版本不符而重新获取
+        String version = recommendationService.getFacetVersion();
         List<String> programs = recommendationService.getAvailablePrograms();
-        return ResponseEntity.ok(programs);
+        return facetResponse(version, programs);
     }
 
     /**
      * 获取所有可用国家/地区列表
+     * 响应带ETag，客户端可用If-None-Match重新验证，未变化时返回304
      * 
      * @return 国家/地区名称列表
      */
     @GetMapping("/countries")
     public ResponseEntity<List<String>> getAvailableCountries() {
+        String version = recommendationService.getFacetVersion();
         List<String> countries = recommendationService.getAvailableCountries();
-        return ResponseEntity.ok(countries);
+        return facetResponse(version, countries);
+    }
+
+    /**
+     * 获取全部目录筛选项及计数
+     * 响应带ETag，客户端可用If-None-Match重新验证，未变化时返回304
+     * 
+     * @return 专业、国家、地点、学校类型、学位等级及计数
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<FacetsDTO> getFacets() {
+        FacetsDTO facets = recommendationService.getFacets();
+        return facetResponse(facets.getVersion(), facets);
+    }
+
+    private <T> ResponseEntity<T> facetResponse(String version, T body) {
+        return ResponseEntity.ok()
+                .eTag(version)
+                .cacheControl(CacheControl.noCache())
+                .body(body);
     }
-}
\ No newline at end of file
+}
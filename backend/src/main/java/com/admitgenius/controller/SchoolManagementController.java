@@ -1,25 +1,39 @@
 package com.admitgenius.controller;
 
+import com.admitgenius.dto.CatalogImportReportDTO;
 import com.admitgenius.dto.SchoolDTO;
 import com.admitgenius.dto.SchoolProgramDTO;
+import com.admitgenius.service.CatalogCacheService;
+import com.admitgenius.service.CatalogImportService;
 import com.admitgenius.service.SchoolService;
 import com.admitgenius.util.AuthUtil; // Assuming you have a utility to get current user ID
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/management/schools") // Base path for school management
 public class SchoolManagementController {
+    private static final String TEXT_CSV = "text/csv";
 
     @Autowired
     private SchoolService schoolService;
 
+    @Autowired
+    private CatalogImportService catalogImportService;
+
+    @Autowired
+    private CatalogCacheService catalogCacheService;
+
     @Autowired
     private AuthUtil authUtil; // Utility to get authenticated user's ID
 
@@ -33,6 +47,39 @@ public class SchoolManagementController {
         return ResponseEntity.status(HttpStatus.CREATED).body(newSchool);
     }
 
+    /**
+     * 批量导入学校和项目
+     * 请求体为NDJSON（每行一个SchoolImportDTO）或带表头的CSV，按Content-Type区分；
+     * 流式逐块读取，按学校名称更新或新增，返回逐行错误，全部完成后只重建一次目录索引
+     */
+    @PostMapping(value = "/import", consumes = { MediaType.APPLICATION_NDJSON_VALUE, TEXT_CSV })
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<CatalogImportReportDTO> importCatalog(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType, InputStream input) {
+        CatalogImportService.Format format = contentType.isCompatibleWith(MediaType.parseMediaType(TEXT_CSV))
+                ? CatalogImportService.Format.CSV : CatalogImportService.Format.NDJSON;
+        return ResponseEntity.ok(catalogImportService.importCatalog(format, input));
+    }
+
+    /**
+     * 学校目录二级缓存统计：各区域的命中、未命中、写入、移除和淘汰次数
+     */
+    @GetMapping("/cache/stats")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getCatalogCacheStats() {
+        return ResponseEntity.ok(catalogCacheService.getStats());
+    }
+
+    /**
+     * 清空学校目录二级缓存（直接修改数据库后使用）
+     */
+    @DeleteMapping("/cache")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> evictCatalogCache() {
+        catalogCacheService.evictAll();
+        return ResponseEntity.ok(catalogCacheService.getStats());
+    }
+
     @PutMapping("/{schoolId}")
     @PreAuthorize("hasAnyAuthority('ADMIN', 'SCHOOL_ASSISTANT')")
     public ResponseEntity<SchoolDTO> updateSchool(@PathVariable Long schoolId,
@@ -0,0 +1,29 @@
+package com.admitgenius.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 学校目录筛选条件
+ * 同一列表内的取值之间为“或”，不同条件之间为“且”；anyOf中的子条件之间为“或”，整体再与其余条件取“且”，
+ * 可嵌套表达任意与/或组合。取值与 /facets 返回的取值一致；未设置的条件不参与筛选。
+ */
+@Data
+public class CatalogFilterDTO {
+    private List<String> countries = new ArrayList<>();
+    private List<String> locations = new ArrayList<>();
+    private List<String> schoolTypes = new ArrayList<>();
+    private List<String> programs = new ArrayList<>(); // 开设的专业名称
+    private List<String> degreeLevels = new ArrayList<>(); // 开设项目的学位等级
+
+    private Integer minRanking; // 排名区间（含边界），设置后没有排名的学校不入选
+    private Integer maxRanking;
+    private Double minTuition; // 学费区间（含边界），设置后没有学费数据的学校不入选
+    private Double maxTuition;
+    private Boolean ivyLeague;
+    private Boolean hasScholarship;
+
+    private List<CatalogFilterDTO> anyOf = new ArrayList<>();
+}
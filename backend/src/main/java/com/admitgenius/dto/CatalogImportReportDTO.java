@@ -0,0 +1,30 @@
+package com.admitgenius.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 学校目录批量导入报告
+ * 错误明细最多保留 catalog.import.max-errors 条，超出部分只计入failedRows
+ */
+@Data
+public class CatalogImportReportDTO {
+    private int rows; // 读取的行数（不含空行和CSV表头）
+    private int failedRows; // 校验或写入失败的行数
+    private int schoolsInserted;
+    private int schoolsUpdated;
+    private int programsInserted;
+    private int programsUpdated;
+    private long elapsedMs;
+    private boolean errorsTruncated; // 错误明细是否因超出上限被截断
+    private List<RowError> errors = new ArrayList<>();
+
+    @Data
+    public static class RowError {
+        private int line; // 所在行号（从1开始，CSV含表头）
+        private String name; // 学校名称，无法解析时为null
+        private String message;
+    }
+}
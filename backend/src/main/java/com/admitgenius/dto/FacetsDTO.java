@@ -0,0 +1,35 @@
+package com.admitgenius.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 学校目录筛选项及各取值的计数
+ * 学校维度（国家、地点、学校类型、排名段、学费段、常春藤、奖学金）计学校数，
+ * 项目维度（专业、学位等级）计项目数；筛选结果中的分布一律计学校数
+ */
+@Data
+public class FacetsDTO {
+    private String version; // 与响应的ETag一致
+    private List<FacetValue> programs = new ArrayList<>();
+    private List<FacetValue> countries = new ArrayList<>();
+    private List<FacetValue> locations = new ArrayList<>();
+    private List<FacetValue> schoolTypes = new ArrayList<>();
+    private List<FacetValue> degreeLevels = new ArrayList<>();
+    private List<FacetValue> rankingRanges = new ArrayList<>(); // 如 "1-10"、"201+"
+    private List<FacetValue> tuitionRanges = new ArrayList<>(); // 如 "0-20000"、"60000+"
+    private List<FacetValue> ivyLeague = new ArrayList<>(); // "true"/"false"
+    private List<FacetValue> scholarship = new ArrayList<>(); // "true"/"false"
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FacetValue {
+        private String value;
+        private int count;
+    }
+}
@@ -0,0 +1,17 @@
+package com.admitgenius.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量推荐响应，结果顺序与请求一致
+ */
+@Data
+public class RecommendationBatchResponseDTO {
+    private int total;
+    private int succeeded;
+    private int failed;
+    private List<RecommendationBatchResultDTO> results = new ArrayList<>();
+}
@@ -0,0 +1,15 @@
+package com.admitgenius.dto;
+
+import lombok.Data;
+
+/**
+ * 批量推荐中单个请求的结果
+ */
+@Data
+public class RecommendationBatchResultDTO {
+    private int index; // 请求在批次中的位置
+    private Long userId;
+    private boolean success;
+    private RecommendationResponseDTO recommendation; // 成功时的推荐结果
+    private String error; // 失败原因
+}
@@ -0,0 +1,16 @@
+package com.admitgenius.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 推荐历史分页结果（游标分页）
+ */
+@Data
+public class RecommendationHistoryDTO {
+    private List<RecommendationSummaryDTO> recommendations = new ArrayList<>();
+    private boolean hasMore;
+    private String nextCursor; // 下一页游标，没有更多数据时为null
+}
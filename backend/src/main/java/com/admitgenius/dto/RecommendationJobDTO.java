@@ -0,0 +1,21 @@
+package com.admitgenius.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 异步推荐任务状态
+ */
+@Data
+public class RecommendationJobDTO {
+    private String jobId;
+    private Long userId;
+    private String status; // PENDING, RUNNING, SUCCEEDED, FAILED
+    private String stage;
+    private Integer progress;
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+    private RecommendationResponseDTO result;
+}
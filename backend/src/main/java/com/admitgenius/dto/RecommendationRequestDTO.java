@@ -54,6 +54,7 @@ public class RecommendationRequestDTO {
     private List<String> locationPreferences = new ArrayList<>();
     private List<String> schoolTypePreferences = new ArrayList<>();
     private List<Integer> rankingRange = new ArrayList<>();
+    private CatalogFilterDTO catalogFilter; // 候选学校的目录筛选条件，为空时不限制
 
     // 推荐类型和数量
     @NotBlank(message = "推荐类型不能为空")
@@ -84,6 +85,7 @@ public class RecommendationRequestDTO {
     private Boolean includeAdmissionStatistics = true;
     private Boolean includeMatchExplanation = true;
     private Boolean includeFacultyInfo = false;
+    private String language = "zh"; // 匹配原因展示语言：zh, en
 
     // 添加显式的getter和setter方法
 
@@ -342,4 +344,20 @@ public class RecommendationRequestDTO {
     public void setRankingRange(List<Integer> rankingRange) {
         this.rankingRange = rankingRange;
     }
-}
\ No newline at end of file
+
+    public CatalogFilterDTO getCatalogFilter() {
+        return catalogFilter;
+    }
+
+    public void setCatalogFilter(CatalogFilterDTO catalogFilter) {
+        this.catalogFilter = catalogFilter;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    public void setLanguage(String language) {
+        this.language = language;
+    }
+}
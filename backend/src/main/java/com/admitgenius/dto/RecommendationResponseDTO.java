@@ -80,6 +80,7 @@ public class RecommendationResponseDTO {
         private Float matchScore;
         private Integer rank;
         private String matchReason;
+        private List<String> reasonCodes; // 匹配原因代码，客户端可自行本地化
 
         // 可选详细信息
         private String tuitionFee;
@@ -0,0 +1,20 @@
+package com.admitgenius.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+/**
+ * 流式推荐的一帧（NDJSON每行一帧）
+ * type: progress（阶段变化）、item（一个推荐项）、completed（完整推荐结果）、failed
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RecommendationStreamFrameDTO {
+    private String type;
+    private String jobId;
+    private String stage;
+    private Integer progress;
+    private RecommendationResponseDTO.RecommendationItemDTO item;
+    private RecommendationResponseDTO result;
+    private String error;
+}
@@ -0,0 +1,26 @@
+package com.admitgenius.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 推荐历史中的一条推荐记录
+ * 摘要模式只包含标题字段，items为null
+ */
+@Data
+public class RecommendationSummaryDTO {
+    private Long id;
+    private LocalDateTime createdAt;
+    private String recommendationType;
+    private String inputSummary;
+    private String modelVersion;
+    private Integer itemCount;
+
+    // 排名第一的推荐学校
+    private String topSchoolName;
+    private Float topMatchScore;
+
+    private List<RecommendationResponseDTO.RecommendationItemDTO> items;
+}
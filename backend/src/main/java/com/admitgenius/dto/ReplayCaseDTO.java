@@ -0,0 +1,17 @@
+package com.admitgenius.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一条回放用例：历史推荐的请求及用户实际申请的学校，导出文件每行一条
+ */
+@Data
+public class ReplayCaseDTO {
+    private Long recommendationId;
+    private String modelVersion; // 生成该推荐的打分引擎版本（旧记录为空）
+    private RecommendationRequestDTO request;
+    private List<Long> appliedSchoolIds = new ArrayList<>();
+}
@@ -0,0 +1,33 @@
+package com.admitgenius.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 离线回放报告
+ * 排序质量只在有已申请学校的用例上计算（以已申请学校为相关结果）
+ */
+@Data
+public class ReplayReportDTO {
+    private int cases; // 回放的用例数
+    private int evaluatedCases; // 有已申请学校、参与质量评估的用例数
+    private int legacyCases; // 没有请求快照、由输入摘要重建请求的用例数
+    private int k;
+    private int threads;
+    private int catalogSize;
+    private List<VariantReport> variants = new ArrayList<>();
+
+    @Data
+    public static class VariantReport {
+        private String name;
+        private double throughput; // 每秒回放的请求数
+        private double meanLatencyMs;
+        private double p50LatencyMs;
+        private double p99LatencyMs;
+        private double ndcg; // NDCG@k 平均值
+        private double recall; // Recall@k 平均值
+        private double baselineAgreement; // 前k名（含顺序）与基准变体完全相同的用例比例
+    }
+}
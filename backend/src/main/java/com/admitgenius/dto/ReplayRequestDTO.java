@@ -0,0 +1,31 @@
+package com.admitgenius.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 离线回放参数
+ * 变体描述见 {@link com.admitgenius.recommendation.ScoringVariant}，第一个变体作为比较基准
+ */
+@Data
+public class ReplayRequestDTO {
+    private List<String> variants = new ArrayList<>();
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime since; // 只回放此时间之后生成的推荐
+
+    @Min(value = 1, message = "回放数量至少为1")
+    private Integer limit; // 为空时使用配置的上限
+
+    @Min(value = 1, message = "评估深度至少为1")
+    @Max(value = 100, message = "评估深度最多为100")
+    private Integer k = 10; // 计算NDCG/召回率的排名深度
+
+    private Boolean appliedOnly = false; // 只回放有已申请学校的推荐
+}
@@ -0,0 +1,18 @@
+package com.admitgenius.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 学校目录筛选结果：一页学校、命中总数，以及命中学校在各筛选项上的分布（均计学校数）
+ */
+@Data
+public class SchoolFilterResponseDTO {
+    private List<SchoolDTO> schools = new ArrayList<>();
+    private long total;
+    private int page;
+    private int size;
+    private FacetsDTO facets;
+}
@@ -0,0 +1,19 @@
+package com.admitgenius.dto;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * 批量导入的一行：学校信息及其项目
+ * 按学校名称更新已有学校，否则新增；项目按名称和学位等级在学校内更新或新增。
+ * 更新时为空的字段保留原值；topPrograms、项目的keywords为null时保留，否则整体替换。
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+public class SchoolImportDTO extends SchoolDTO {
+    private List<SchoolProgramDTO> programs;
+}
@@ -0,0 +1,24 @@
+package com.admitgenius.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 假设分析请求：在基准推荐请求上假设一组GPA/GRE/GMAT取值
+ * 各列表为该项成绩的假设取值，为空时沿用基准请求中的值；取值点为各列表的笛卡尔积
+ */
+@Data
+public class WhatIfRequestDTO {
+    @Valid
+    @NotNull(message = "基准推荐请求不能为空")
+    private RecommendationRequestDTO request;
+
+    private List<Double> gpaValues = new ArrayList<>();
+    private List<Integer> greVerbalValues = new ArrayList<>();
+    private List<Integer> greQuantitativeValues = new ArrayList<>();
+    private List<Integer> gmatValues = new ArrayList<>();
+}
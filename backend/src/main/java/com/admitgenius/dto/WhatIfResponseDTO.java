@@ -0,0 +1,43 @@
+package com.admitgenius.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 假设分析结果：基准排名，以及每个取值点上的前几名和基准学校的排名/分数变化
+ */
+@Data
+public class WhatIfResponseDTO {
+    private List<SchoolScore> baseline = new ArrayList<>();
+    private List<Point> points = new ArrayList<>();
+
+    @Data
+    public static class Point {
+        private Double gpa;
+        private Integer greVerbal;
+        private Integer greQuantitative;
+        private Integer gmatScore;
+        private List<SchoolScore> topSchools = new ArrayList<>();
+        private List<Movement> movements = new ArrayList<>(); // 基准学校在该点的排名和分数，顺序与baseline一致
+    }
+
+    @Data
+    public static class SchoolScore {
+        private Long schoolId;
+        private String schoolName;
+        private Integer rank;
+        private Float score;
+    }
+
+    @Data
+    public static class Movement {
+        private Long schoolId;
+        private String schoolName;
+        private Integer rank;
+        private Integer rankChange; // 正数表示排名上升
+        private Float score;
+        private Float scoreChange;
+    }
+}
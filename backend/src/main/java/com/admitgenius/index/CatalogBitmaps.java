@@ -0,0 +1,556 @@
+package com.admitgenius.index;
+
+import com.admitgenius.dto.CatalogFilterDTO;
+import com.admitgenius.dto.FacetsDTO;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+
+/**
+ * 目录筛选位图
+ * 与一份学校特征快照按位置对齐，每个筛选项取值对应一个位图（国家、地点、学校类型、开设的专业和学位等级，
+ * 以及排名段、学费段、常春藤、奖学金）。位图按密度选择表示：学校较少时存升序位置数组，否则存按位展开的long数组，
+ * 取值很多但各自只覆盖少数学校的维度（如地点）不会占用“取值数×目录规模”的空间。
+ * 筛选即位图的交、并运算，排名和学费区间先按整段合并，跨边界的段再逐校核对取值。不可变，可并发读取。
+ */
+public final class CatalogBitmaps {
+    /** 排名分段的下界（含），最后一段不设上界 */
+    private static final int[] RANKING_BUCKETS = { 1, 11, 26, 51, 101, 201 };
+    /** 学费分段的下界（含），最后一段不设上界 */
+    private static final double[] TUITION_BUCKETS = { 0, 20000, 40000, 60000 };
+
+    /** 位图对齐的快照 */
+    final SchoolFeatureIndex.Snapshot catalog;
+    private final String version;
+    private final int wordCount;
+    private final double[] tuition;
+    private final Map<FacetIndex.Facet, TreeMap<String, Bitmap>> values;
+    private final Bitmap[] rankingBuckets;
+    private final Bitmap[] tuitionBuckets;
+    private final Bitmap ivyLeague;
+    private final Bitmap scholarship;
+
+    private CatalogBitmaps(Builder builder) {
+        this.catalog = builder.catalog;
+        this.version = builder.version;
+        this.wordCount = (catalog.size + 63) >>> 6;
+        this.tuition = builder.tuition;
+
+        this.values = new EnumMap<>(FacetIndex.Facet.class);
+        builder.values.forEach((facet, byValue) -> {
+            TreeMap<String, Bitmap> bitmaps = new TreeMap<>();
+            byValue.forEach((value, positions) -> bitmaps.put(value, positions.toBitmap(wordCount)));
+            values.put(facet, bitmaps);
+        });
+
+        Positions[] ranking = newPositions(RANKING_BUCKETS.length);
+        Positions ivy = new Positions();
+        for (int i = 0; i < catalog.size; i++) {
+            if (catalog.ranking[i] != SchoolFeatureIndex.NO_VALUE) {
+                ranking[rankingBucketOf(catalog.ranking[i])].add(i);
+            }
+            if (catalog.ivyLeague[i]) {
+                ivy.add(i);
+            }
+        }
+        Positions[] fees = newPositions(TUITION_BUCKETS.length);
+        for (int i = 0; i < catalog.size; i++) {
+            if (!Double.isNaN(tuition[i])) {
+                fees[tuitionBucketOf(tuition[i])].add(i);
+            }
+        }
+        this.rankingBuckets = toBitmaps(ranking);
+        this.tuitionBuckets = toBitmaps(fees);
+        this.ivyLeague = ivy.toBitmap(wordCount);
+        this.scholarship = builder.scholarship.toBitmap(wordCount);
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * 全部学校
+     */
+    public Selection all() {
+        return new Selection(allWords());
+    }
+
+    /**
+     * 按筛选条件选出学校
+     *
+     * @throws IllegalArgumentException 排名或学费区间的下界大于上界
+     */
+    public Selection select(CatalogFilterDTO filter) {
+        return new Selection(evaluate(filter));
+    }
+
+    /**
+     * 排名在[minRanking, maxRanking]内的学校（没有排名的学校不入选）
+     */
+    public Selection rankingBetween(int minRanking, int maxRanking) {
+        return new Selection(rankingWords(minRanking, maxRanking));
+    }
+
+    /**
+     * 推荐打分的候选预筛：目录筛选与排名偏好区间（两个值时）的交集；都不限制时返回null
+     *
+     * @throws IllegalArgumentException 目录筛选的区间无效
+     */
+    public BitSet candidates(CatalogFilterDTO filter, List<Integer> rankingRange) {
+        boolean ranked = rankingRange != null && rankingRange.size() == 2
+                && rankingRange.get(0) != null && rankingRange.get(1) != null;
+        if (filter == null && !ranked) {
+            return null;
+        }
+        long[] words = evaluate(filter);
+        if (ranked) {
+            and(words, rankingWords(rankingRange.get(0), rankingRange.get(1)));
+        }
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * 某个筛选项中包含给定文本（不区分大小写）的所有取值
+     */
+    public List<String> valuesContaining(FacetIndex.Facet facet, String text) {
+        String query = text.toLowerCase();
+        List<String> matches = new ArrayList<>();
+        for (String value : values.get(facet).keySet()) {
+            if (value.toLowerCase().contains(query)) {
+                matches.add(value);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * 选中学校在各筛选项上的分布（计学校数），只列出计数大于0的取值；排名段、学费段列出全部分段
+     */
+    public FacetsDTO facets(Selection selection) {
+        long[] words = selection.words;
+        FacetsDTO facets = new FacetsDTO();
+        facets.setVersion(version);
+        facets.setPrograms(counts(FacetIndex.Facet.PROGRAM, words));
+        facets.setCountries(counts(FacetIndex.Facet.COUNTRY, words));
+        facets.setLocations(counts(FacetIndex.Facet.LOCATION, words));
+        facets.setSchoolTypes(counts(FacetIndex.Facet.SCHOOL_TYPE, words));
+        facets.setDegreeLevels(counts(FacetIndex.Facet.DEGREE_LEVEL, words));
+
+        List<FacetsDTO.FacetValue> ranking = new ArrayList<>();
+        for (int b = 0; b < rankingBuckets.length; b++) {
+            ranking.add(new FacetsDTO.FacetValue(rankingLabel(b), rankingBuckets[b].andCount(words)));
+        }
+        facets.setRankingRanges(ranking);
+        List<FacetsDTO.FacetValue> fees = new ArrayList<>();
+        for (int b = 0; b < tuitionBuckets.length; b++) {
+            fees.add(new FacetsDTO.FacetValue(tuitionLabel(b), tuitionBuckets[b].andCount(words)));
+        }
+        facets.setTuitionRanges(fees);
+        int total = selection.cardinality();
+        facets.setIvyLeague(booleanCounts(ivyLeague.andCount(words), total));
+        facets.setScholarship(booleanCounts(scholarship.andCount(words), total));
+        return facets;
+    }
+
+    private List<FacetsDTO.FacetValue> counts(FacetIndex.Facet facet, long[] words) {
+        List<FacetsDTO.FacetValue> counts = new ArrayList<>();
+        values.get(facet).forEach((value, bitmap) -> {
+            int count = bitmap.andCount(words);
+            if (count > 0) {
+                counts.add(new FacetsDTO.FacetValue(value, count));
+            }
+        });
+        return counts;
+    }
+
+    private static List<FacetsDTO.FacetValue> booleanCounts(int trueCount, int total) {
+        List<FacetsDTO.FacetValue> counts = new ArrayList<>();
+        counts.add(new FacetsDTO.FacetValue("true", trueCount));
+        counts.add(new FacetsDTO.FacetValue("false", total - trueCount));
+        return counts;
+    }
+
+    private long[] evaluate(CatalogFilterDTO filter) {
+        long[] result = allWords();
+        if (filter == null) {
+            return result;
+        }
+        andAny(result, FacetIndex.Facet.COUNTRY, filter.getCountries());
+        andAny(result, FacetIndex.Facet.LOCATION, filter.getLocations());
+        andAny(result, FacetIndex.Facet.SCHOOL_TYPE, filter.getSchoolTypes());
+        andAny(result, FacetIndex.Facet.PROGRAM, filter.getPrograms());
+        andAny(result, FacetIndex.Facet.DEGREE_LEVEL, filter.getDegreeLevels());
+
+        if (filter.getMinRanking() != null || filter.getMaxRanking() != null) {
+            int min = filter.getMinRanking() != null ? filter.getMinRanking() : Integer.MIN_VALUE;
+            int max = filter.getMaxRanking() != null ? filter.getMaxRanking() : Integer.MAX_VALUE;
+            if (min > max) {
+                throw new IllegalArgumentException("排名区间无效: " + min + " > " + max);
+            }
+            and(result, rankingWords(min, max));
+        }
+        if (filter.getMinTuition() != null || filter.getMaxTuition() != null) {
+            double min = filter.getMinTuition() != null ? filter.getMinTuition() : Double.NEGATIVE_INFINITY;
+            double max = filter.getMaxTuition() != null ? filter.getMaxTuition() : Double.POSITIVE_INFINITY;
+            if (min > max) {
+                throw new IllegalArgumentException("学费区间无效: " + min + " > " + max);
+            }
+            and(result, tuitionWords(min, max));
+        }
+        if (filter.getIvyLeague() != null) {
+            andFlag(result, ivyLeague, filter.getIvyLeague());
+        }
+        if (filter.getHasScholarship() != null) {
+            andFlag(result, scholarship, filter.getHasScholarship());
+        }
+        if (filter.getAnyOf() != null && !filter.getAnyOf().isEmpty()) {
+            long[] union = new long[wordCount];
+            for (CatalogFilterDTO branch : filter.getAnyOf()) {
+                or(union, evaluate(branch));
+            }
+            and(result, union);
+        }
+        return result;
+    }
+
+    /**
+     * 与给定取值的并集求交；未知取值不命中任何学校
+     */
+    private void andAny(long[] result, FacetIndex.Facet facet, List<String> selected) {
+        if (selected == null || selected.isEmpty()) {
+            return;
+        }
+        long[] union = new long[wordCount];
+        TreeMap<String, Bitmap> bitmaps = values.get(facet);
+        for (String value : selected) {
+            Bitmap bitmap = value != null ? bitmaps.get(value.trim()) : null;
+            if (bitmap != null) {
+                bitmap.orInto(union);
+            }
+        }
+        and(result, union);
+    }
+
+    private void andFlag(long[] result, Bitmap flag, boolean expected) {
+        long[] words = new long[wordCount];
+        flag.orInto(words);
+        if (expected) {
+            and(result, words);
+        } else {
+            for (int w = 0; w < wordCount; w++) {
+                result[w] &= ~words[w];
+            }
+        }
+    }
+
+    private long[] rankingWords(int min, int max) {
+        long[] words = new long[wordCount];
+        for (int b = 0; b < rankingBuckets.length; b++) {
+            int low = b == 0 ? Integer.MIN_VALUE : RANKING_BUCKETS[b];
+            int high = b + 1 < RANKING_BUCKETS.length ? RANKING_BUCKETS[b + 1] - 1 : Integer.MAX_VALUE;
+            if (high < min || low > max) {
+                continue;
+            }
+            if (min <= low && high <= max) {
+                rankingBuckets[b].orInto(words);
+            } else {
+                rankingBuckets[b].forEach(position -> {
+                    int ranking = catalog.ranking[position];
+                    if (ranking >= min && ranking <= max) {
+                        set(words, position);
+                    }
+                });
+            }
+        }
+        return words;
+    }
+
+    private long[] tuitionWords(double min, double max) {
+        long[] words = new long[wordCount];
+        for (int b = 0; b < tuitionBuckets.length; b++) {
+            double low = b == 0 ? Double.NEGATIVE_INFINITY : TUITION_BUCKETS[b];
+            // 分段上界不含
+            double high = b + 1 < TUITION_BUCKETS.length ? TUITION_BUCKETS[b + 1] : Double.POSITIVE_INFINITY;
+            if (high <= min || low > max) {
+                continue;
+            }
+            if (min <= low && high <= max) {
+                tuitionBuckets[b].orInto(words);
+            } else {
+                tuitionBuckets[b].forEach(position -> {
+                    double fee = tuition[position];
+                    if (fee >= min && fee <= max) {
+                        set(words, position);
+                    }
+                });
+            }
+        }
+        return words;
+    }
+
+    private long[] allWords() {
+        long[] words = new long[wordCount];
+        Arrays.fill(words, -1L);
+        int tail = catalog.size & 63;
+        if (tail != 0) {
+            words[wordCount - 1] = (1L << tail) - 1;
+        }
+        return words;
+    }
+
+    private static int rankingBucketOf(int ranking) {
+        int bucket = 0;
+        while (bucket + 1 < RANKING_BUCKETS.length && ranking >= RANKING_BUCKETS[bucket + 1]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private static int tuitionBucketOf(double fee) {
+        int bucket = 0;
+        while (bucket + 1 < TUITION_BUCKETS.length && fee >= TUITION_BUCKETS[bucket + 1]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private static String rankingLabel(int bucket) {
+        return bucket + 1 < RANKING_BUCKETS.length
+                ? RANKING_BUCKETS[bucket] + "-" + (RANKING_BUCKETS[bucket + 1] - 1)
+                : RANKING_BUCKETS[bucket] + "+";
+    }
+
+    private static String tuitionLabel(int bucket) {
+        return bucket + 1 < TUITION_BUCKETS.length
+                ? (long) TUITION_BUCKETS[bucket] + "-" + (long) TUITION_BUCKETS[bucket + 1]
+                : (long) TUITION_BUCKETS[bucket] + "+";
+    }
+
+    private static Positions[] newPositions(int count) {
+        Positions[] positions = new Positions[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = new Positions();
+        }
+        return positions;
+    }
+
+    private Bitmap[] toBitmaps(Positions[] positions) {
+        Bitmap[] bitmaps = new Bitmap[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            bitmaps[i] = positions[i].toBitmap(wordCount);
+        }
+        return bitmaps;
+    }
+
+    private static void and(long[] target, long[] other) {
+        for (int w = 0; w < target.length; w++) {
+            target[w] &= other[w];
+        }
+    }
+
+    private static void or(long[] target, long[] other) {
+        for (int w = 0; w < target.length; w++) {
+            target[w] |= other[w];
+        }
+    }
+
+    private static void set(long[] words, int position) {
+        words[position >>> 6] |= 1L << position;
+    }
+
+    /**
+     * 筛选结果：与快照位置对齐的位集合
+     */
+    public final class Selection {
+        private final long[] words;
+
+        private Selection(long[] words) {
+            this.words = words;
+        }
+
+        public int cardinality() {
+            int count = 0;
+            for (long word : words) {
+                count += Long.bitCount(word);
+            }
+            return count;
+        }
+
+        /**
+         * 与另一结果求交，返回新结果
+         */
+        public Selection and(Selection other) {
+            long[] result = words.clone();
+            CatalogBitmaps.and(result, other.words);
+            return new Selection(result);
+        }
+
+        /**
+         * 按快照位置顺序跳过offset所后取至多limit所学校的ID
+         */
+        public List<Long> schoolIds(int offset, int limit) {
+            List<Long> ids = new ArrayList<>();
+            int skipped = 0;
+            for (int w = 0; w < words.length && ids.size() < limit; w++) {
+                long word = words[w];
+                while (word != 0 && ids.size() < limit) {
+                    int position = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    if (skipped < offset) {
+                        skipped++;
+                    } else {
+                        ids.add(catalog.ids[position]);
+                    }
+                }
+            }
+            return ids;
+        }
+
+        /**
+         * 转为快照位置的BitSet（供打分时预筛候选学校）
+         */
+        public BitSet toBitSet() {
+            return BitSet.valueOf(words);
+        }
+    }
+
+    /**
+     * 一个取值的位图：稀疏时为升序位置数组，稠密时为按位展开的long数组
+     */
+    private static final class Bitmap {
+        private final int[] positions;
+        private final long[] words;
+
+        private Bitmap(int[] positions, long[] words) {
+            this.positions = positions;
+            this.words = words;
+        }
+
+        void orInto(long[] target) {
+            if (words != null) {
+                or(target, words);
+            } else {
+                for (int position : positions) {
+                    set(target, position);
+                }
+            }
+        }
+
+        /**
+         * 与target交集的大小
+         */
+        int andCount(long[] target) {
+            int count = 0;
+            if (words != null) {
+                for (int w = 0; w < words.length; w++) {
+                    count += Long.bitCount(words[w] & target[w]);
+                }
+            } else {
+                for (int position : positions) {
+                    if ((target[position >>> 6] & (1L << position)) != 0) {
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+
+        void forEach(IntConsumer action) {
+            if (words != null) {
+                for (int w = 0; w < words.length; w++) {
+                    long word = words[w];
+                    while (word != 0) {
+                        action.accept((w << 6) + Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+            } else {
+                for (int position : positions) {
+                    action.accept(position);
+                }
+            }
+        }
+    }
+
+    /**
+     * 构建中的位置列表
+     */
+    private static final class Positions {
+        private int[] positions = new int[4];
+        private int size;
+
+        void add(int position) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = position;
+        }
+
+        Bitmap toBitmap(int wordCount) {
+            int[] sorted = Arrays.copyOf(positions, size);
+            Arrays.sort(sorted);
+            int distinct = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    sorted[distinct++] = sorted[i];
+                }
+            }
+            // 数组占4字节/所，位图占8字节/64所：数组不比位图大时用数组
+            if (distinct <= wordCount * 2) {
+                return new Bitmap(Arrays.copyOf(sorted, distinct), null);
+            }
+            long[] words = new long[wordCount];
+            for (int i = 0; i < distinct; i++) {
+                set(words, sorted[i]);
+            }
+            return new Bitmap(null, words);
+        }
+    }
+
+    /**
+     * 由FacetIndex填充各校的取值后构建位图
+     */
+    static final class Builder {
+        private final SchoolFeatureIndex.Snapshot catalog;
+        private final String version;
+        private final Map<FacetIndex.Facet, Map<String, Positions>> values = new EnumMap<>(FacetIndex.Facet.class);
+        private final double[] tuition;
+        private final Positions scholarship = new Positions();
+
+        Builder(SchoolFeatureIndex.Snapshot catalog, String version) {
+            this.catalog = catalog;
+            this.version = version;
+            this.tuition = new double[catalog.size];
+            Arrays.fill(tuition, Double.NaN);
+            for (FacetIndex.Facet facet : FacetIndex.Facet.values()) {
+                values.put(facet, new HashMap<>());
+            }
+        }
+
+        void add(FacetIndex.Facet facet, String value, int position) {
+            if (value != null) {
+                values.get(facet).computeIfAbsent(value, key -> new Positions()).add(position);
+            }
+        }
+
+        void tuition(int position, double fee) {
+            tuition[position] = fee;
+        }
+
+        void scholarship(int position) {
+            scholarship.add(position);
+        }
+
+        CatalogBitmaps build() {
+            return new CatalogBitmaps(this);
+        }
+    }
+}
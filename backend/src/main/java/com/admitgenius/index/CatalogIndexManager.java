@@ -0,0 +1,113 @@
+package com.admitgenius.index;
+
+import com.admitgenius.model.School;
+import com.admitgenius.model.SchoolProgram;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 学校目录内存索引的统一入口
+ * 学校/项目写操作通过这里通知各索引，变更在事务提交后才生效，回滚不会污染索引。
+ * 每次变更生效后递增目录版本号，依赖目录的缓存据此失效。
+ */
+@Component
+public class CatalogIndexManager {
+
+    @Autowired
+    private SchoolFeatureIndex schoolFeatureIndex;
+
+    @Autowired
+    private ProgramIndex programIndex;
+
+    @Autowired
+    private LocationDictionary locationDictionary;
+
+    @Autowired
+    private FacetIndex facetIndex;
+
+    @Autowired
+    private SchoolSearchIndex schoolSearchIndex;
+
+    /** 从启动时间起算，重启后不会与此前进程的版本重合（预计算推荐按版本持久化） */
+    private final AtomicLong catalogVersion = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * 当前目录版本；在索引更新之后才递增，读到的版本不会比索引数据更新
+     */
+    public long getCatalogVersion() {
+        return catalogVersion.get();
+    }
+
+    /**
+     * 学校新增或修改后调用（需在实体保存之后）
+     */
+    public void schoolSaved(School school) {
+        SchoolSearchIndex.SearchDocument document = SchoolSearchIndex.SearchDocument.of(school);
+        afterCommit(() -> {
+            // 特征行和筛选项会把地点驻留进共享的地点字典，提交后才构建，回滚的写入不会留下地点节点；
+            // 用到的都是学校的基本字段，实体脱离会话后仍可读取
+            schoolFeatureIndex.upsert(SchoolFeatureIndex.SchoolFeatures.of(school, locationDictionary));
+            facetIndex.upsertSchool(FacetIndex.SchoolFacets.of(school, locationDictionary));
+            schoolSearchIndex.upsert(document);
+        });
+    }
+
+    public void schoolDeleted(Long schoolId) {
+        afterCommit(() -> {
+            schoolFeatureIndex.remove(schoolId);
+            programIndex.removeBySchool(schoolId);
+            facetIndex.removeSchool(schoolId);
+            schoolSearchIndex.remove(schoolId);
+        });
+    }
+
+    /**
+     * 项目新增或修改后调用（需在实体保存之后）
+     */
+    public void programSaved(SchoolProgram program) {
+        ProgramIndex.ProgramEntry entry = ProgramIndex.ProgramEntry.of(program);
+        FacetIndex.ProgramFacets facets = FacetIndex.ProgramFacets.of(program);
+        afterCommit(() -> {
+            programIndex.upsert(entry);
+            facetIndex.upsertProgram(facets);
+        });
+    }
+
+    public void programDeleted(Long programId) {
+        afterCommit(() -> {
+            programIndex.remove(programId);
+            facetIndex.removeProgram(programId);
+        });
+    }
+
+    /**
+     * 绕过SchoolService批量写入数据后调用，所有索引在下次访问时重建
+     */
+    public void rebuildAll() {
+        afterCommit(() -> {
+            schoolFeatureIndex.invalidate();
+            programIndex.invalidate();
+            facetIndex.invalidate();
+            schoolSearchIndex.invalidate();
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                    catalogVersion.incrementAndGet();
+                }
+            });
+        } else {
+            action.run();
+            catalogVersion.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.admitgenius.index;
+
+import com.admitgenius.dto.FacetsDTO;
+import com.admitgenius.model.School;
+import com.admitgenius.model.SchoolProgram;
+import com.admitgenius.repository.SchoolProgramRepository;
+import com.admitgenius.repository.SchoolRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * 目录筛选项字典
+ * 维护专业名称、国家、地点、学校类型、学位等级的取值及计数，随学校/项目写操作增量更新。
+ * 读取的是变更后生成的不可变视图，不访问数据库；视图附带版本号，可作为ETag供客户端重新验证。
+ * 同时按学校特征快照的位置生成筛选位图（见 {@link CatalogBitmaps}），供组合筛选和推荐候选预筛使用。
+ */
+@Component
+public class FacetIndex {
+
+    public enum Facet {
+        PROGRAM, COUNTRY, LOCATION, SCHOOL_TYPE, DEGREE_LEVEL
+    }
+
+    @Autowired
+    private SchoolRepository schoolRepository;
+
+    @Autowired
+    private SchoolProgramRepository schoolProgramRepository;
+
+    @Autowired
+    private LocationDictionary locationDictionary;
+
+    @Autowired
+    private SchoolFeatureIndex schoolFeatureIndex;
+
+    /** 进程启动标记，避免重启后版本号从头计数时与客户端缓存的ETag相撞 */
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final Map<Long, SchoolFacets> schools = new HashMap<>();
+    private final Map<Long, ProgramFacets> programs = new HashMap<>();
+    private final Map<Facet, TreeMap<String, Integer>> counts = new EnumMap<>(Facet.class);
+    private boolean loaded;
+    private long version;
+
+    private volatile View view;
+    private volatile CatalogBitmaps bitmaps;
+
+    public FacetIndex() {
+        for (Facet facet : Facet.values()) {
+            counts.put(facet, new TreeMap<>());
+        }
+    }
+
+    /**
+     * 当前视图；只在首次访问或变更后的第一次访问时构建
+     */
+    public View view() {
+        View current = view;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (view == null) {
+                ensureLoaded();
+                view = new View(epoch + "-" + version, counts, bitmapsLocked(schoolFeatureIndex.snapshot()));
+            }
+            return view;
+        }
+    }
+
+    /**
+     * 与给定快照按位置对齐的筛选位图；筛选项或快照变化后的第一次访问时重建
+     */
+    public CatalogBitmaps bitmaps(SchoolFeatureIndex.Snapshot catalog) {
+        CatalogBitmaps current = bitmaps;
+        if (current != null && current.catalog == catalog) {
+            return current;
+        }
+        synchronized (this) {
+            return bitmapsLocked(catalog);
+        }
+    }
+
+    private CatalogBitmaps bitmapsLocked(SchoolFeatureIndex.Snapshot catalog) {
+        CatalogBitmaps current = bitmaps;
+        if (current != null && current.catalog == catalog) {
+            return current;
+        }
+        ensureLoaded();
+        CatalogBitmaps.Builder builder = new CatalogBitmaps.Builder(catalog, epoch + "-" + version);
+        for (int i = 0; i < catalog.size; i++) {
+            SchoolFacets facets = schools.get(catalog.ids[i]);
+            if (facets == null) {
+                continue;
+            }
+            builder.add(Facet.COUNTRY, facets.country, i);
+            builder.add(Facet.LOCATION, facets.location, i);
+            builder.add(Facet.SCHOOL_TYPE, facets.schoolType, i);
+            builder.tuition(i, facets.tuitionFee);
+            if (facets.hasScholarship) {
+                builder.scholarship(i);
+            }
+        }
+        for (ProgramFacets program : programs.values()) {
+            int position = program.schoolId != null ? catalog.positionOf(program.schoolId) : -1;
+            if (position >= 0) {
+                builder.add(Facet.PROGRAM, program.name, position);
+                builder.add(Facet.DEGREE_LEVEL, program.degreeLevel, position);
+            }
+        }
+        current = builder.build();
+        // 只缓存当前快照的位图，正在使用旧快照的请求不替换新的
+        if (catalog == schoolFeatureIndex.snapshot()) {
+            bitmaps = current;
+        }
+        return current;
+    }
+
+    /**
+     * 新增或更新一所学校；索引尚未加载时忽略，首次访问会读到最新数据
+     */
+    public synchronized void upsertSchool(SchoolFacets facets) {
+        if (loaded) {
+            removeSchoolInternal(facets.id);
+            addSchoolInternal(facets);
+        }
+        changed();
+    }
+
+    /**
+     * 删除一所学校及其项目
+     */
+    public synchronized void removeSchool(Long schoolId) {
+        if (loaded) {
+            removeSchoolInternal(schoolId);
+            List<Long> programIds = new ArrayList<>();
+            for (ProgramFacets program : programs.values()) {
+                if (Objects.equals(program.schoolId, schoolId)) {
+                    programIds.add(program.id);
+                }
+            }
+            programIds.forEach(this::removeProgramInternal);
+        }
+        changed();
+    }
+
+    public synchronized void upsertProgram(ProgramFacets facets) {
+        if (loaded) {
+            removeProgramInternal(facets.id);
+            addProgramInternal(facets);
+        }
+        changed();
+    }
+
+    public synchronized void removeProgram(Long programId) {
+        if (loaded) {
+            removeProgramInternal(programId);
+        }
+        changed();
+    }
+
+    /**
+     * 清空字典，下次访问时整体重建
+     */
+    public synchronized void invalidate() {
+        schools.clear();
+        programs.clear();
+        counts.values().forEach(Map::clear);
+        loaded = false;
+        changed();
+    }
+
+    private void changed() {
+        version++;
+        view = null;
+        bitmaps = null;
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        for (School school : schoolRepository.findAll()) {
+            addSchoolInternal(SchoolFacets.of(school, locationDictionary));
+        }
+        for (SchoolProgram program : schoolProgramRepository.findAll()) {
+            addProgramInternal(ProgramFacets.of(program));
+        }
+        loaded = true;
+    }
+
+    private void addSchoolInternal(SchoolFacets facets) {
+        schools.put(facets.id, facets);
+        increment(Facet.COUNTRY, facets.country, 1);
+        increment(Facet.LOCATION, facets.location, 1);
+        increment(Facet.SCHOOL_TYPE, facets.schoolType, 1);
+    }
+
+    private void removeSchoolInternal(Long schoolId) {
+        SchoolFacets old = schools.remove(schoolId);
+        if (old != null) {
+            increment(Facet.COUNTRY, old.country, -1);
+            increment(Facet.LOCATION, old.location, -1);
+            increment(Facet.SCHOOL_TYPE, old.schoolType, -1);
+        }
+    }
+
+    private void addProgramInternal(ProgramFacets facets) {
+        programs.put(facets.id, facets);
+        increment(Facet.PROGRAM, facets.name, 1);
+        increment(Facet.DEGREE_LEVEL, facets.degreeLevel, 1);
+    }
+
+    private void removeProgramInternal(Long programId) {
+        ProgramFacets old = programs.remove(programId);
+        if (old != null) {
+            increment(Facet.PROGRAM, old.name, -1);
+            increment(Facet.DEGREE_LEVEL, old.degreeLevel, -1);
+        }
+    }
+
+    private void increment(Facet facet, String value, int delta) {
+        if (value != null) {
+            counts.get(facet).merge(value, delta, (a, b) -> a + b == 0 ? null : a + b);
+        }
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        return value.trim();
+    }
+
+    /**
+     * 学校的筛选项取值，在事务提交后从实体中提取（地点在此时驻留）
+     */
+    public static final class SchoolFacets {
+        private final long id;
+        private final String country;
+        private final String location;
+        private final String schoolType;
+        /** 学费，缺失时为NaN */
+        private final double tuitionFee;
+        private final boolean hasScholarship;
+
+        private SchoolFacets(long id, String country, String location, String schoolType, double tuitionFee,
+                boolean hasScholarship) {
+            this.id = id;
+            this.country = country;
+            this.location = location;
+            this.schoolType = schoolType;
+            this.tuitionFee = tuitionFee;
+            this.hasScholarship = hasScholarship;
+        }
+
+        public static SchoolFacets of(School school, LocationDictionary locationDictionary) {
+            int node = locationDictionary.intern(school.getLocation());
+            int country = node != LocationDictionary.NO_LOCATION
+                    ? locationDictionary.countryOf(node)
+                    : LocationDictionary.NO_LOCATION;
+            return new SchoolFacets(
+                    school.getId(),
+                    country != LocationDictionary.NO_LOCATION ? locationDictionary.nameOf(country) : null,
+                    trimToNull(school.getLocation()),
+                    school.getSchoolType() != null ? school.getSchoolType().name() : null,
+                    school.getTuitionFee() != null ? school.getTuitionFee() : Double.NaN,
+                    Boolean.TRUE.equals(school.getHasScholarship()));
+        }
+    }
+
+    /**
+     * 项目的筛选项取值，在事务内从实体中提取
+     */
+    public static final class ProgramFacets {
+        private final long id;
+        private final Long schoolId;
+        private final String name;
+        private final String degreeLevel;
+
+        private ProgramFacets(long id, Long schoolId, String name, String degreeLevel) {
+            this.id = id;
+            this.schoolId = schoolId;
+            this.name = name;
+            this.degreeLevel = degreeLevel;
+        }
+
+        public static ProgramFacets of(SchoolProgram program) {
+            return new ProgramFacets(
+                    program.getId(),
+                    program.getSchool() != null ? program.getSchool().getId() : null,
+                    trimToNull(program.getName()),
+                    program.getDegreeLevel() != null ? program.getDegreeLevel().name() : null);
+        }
+    }
+
+    /**
+     * 不可变视图：版本号、按名称排序的取值列表和带计数的DTO
+     */
+    public static final class View {
+        private final String version;
+        private final Map<Facet, List<String>> names = new EnumMap<>(Facet.class);
+        private final FacetsDTO facets = new FacetsDTO();
+
+        private View(String version, Map<Facet, TreeMap<String, Integer>> counts, CatalogBitmaps bitmaps) {
+            this.version = version;
+            Map<Facet, List<FacetsDTO.FacetValue>> values = new EnumMap<>(Facet.class);
+            for (Facet facet : Facet.values()) {
+                List<String> facetNames = new ArrayList<>();
+                List<FacetsDTO.FacetValue> facetValues = new ArrayList<>();
+                for (Map.Entry<String, Integer> entry : counts.get(facet).entrySet()) {
+                    facetNames.add(entry.getKey());
+                    facetValues.add(new FacetsDTO.FacetValue(entry.getKey(), entry.getValue()));
+                }
+                names.put(facet, Collections.unmodifiableList(facetNames));
+                values.put(facet, Collections.unmodifiableList(facetValues));
+            }
+            facets.setVersion(version);
+            facets.setPrograms(values.get(Facet.PROGRAM));
+            facets.setCountries(values.get(Facet.COUNTRY));
+            facets.setLocations(values.get(Facet.LOCATION));
+            facets.setSchoolTypes(values.get(Facet.SCHOOL_TYPE));
+            facets.setDegreeLevels(values.get(Facet.DEGREE_LEVEL));
+            // 分段和是否类筛选项只在位图中计数
+            FacetsDTO all = bitmaps.facets(bitmaps.all());
+            facets.setRankingRanges(all.getRankingRanges());
+            facets.setTuitionRanges(all.getTuitionRanges());
+            facets.setIvyLeague(all.getIvyLeague());
+            facets.setScholarship(all.getScholarship());
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        /**
+         * 某个筛选项的全部取值（按名称排序，不可修改）
+         */
+        public List<String> names(Facet facet) {
+            return names.get(facet);
+        }
+
+        public FacetsDTO getFacets() {
+            return facets;
+        }
+    }
+}
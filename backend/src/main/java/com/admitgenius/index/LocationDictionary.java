@@ -0,0 +1,432 @@
+package com.admitgenius.index;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 地点字典
+ * 把自由文本的学校地点解析为“国家/州(省)/城市”路径，每一级驻留为整数ID并记录父节点。
+ * 中英文名称和常见缩写（如“加州”、“California”、“CA”）归一到同一节点，
+ * 只有州名时根据别名表补全国家。地点偏好匹配因此只是整数的祖先关系判断。
+ * 节点只增不删，ID在进程内稳定；读操作无需加锁。
+ */
+@Component
+public class LocationDictionary {
+    /** 无法识别的地点 */
+    public static final int NO_LOCATION = SchoolFeatureIndex.NO_VALUE;
+
+    /** 偏好地点包含学校地点（学校在偏好地区内）时的匹配度 */
+    public static final float FULL_MATCH = 1.0f;
+    /** 学校地点只精确到偏好地点的上级地区时的匹配度 */
+    public static final float PARTIAL_MATCH = 0.7f;
+
+    public enum Level {
+        COUNTRY, STATE, CITY
+    }
+
+    private static final String SEPARATORS = "[,，、/|;；]+";
+    private static final String ADMINISTRATIVE_SUFFIXES = "国省州市县区";
+
+    /** 别名（小写）到规范名称及层级 */
+    private static final Map<String, Alias> ALIASES = new HashMap<>();
+
+    static {
+        country("美国", "usa", "us", "u.s.", "u.s.a.", "united states", "united states of america", "america");
+        country("英国", "uk", "u.k.", "united kingdom", "great britain", "england");
+        country("加拿大", "canada");
+        country("澳大利亚", "australia", "澳洲");
+        country("中国", "china", "prc", "中华人民共和国");
+        country("香港", "hong kong");
+        country("新加坡", "singapore");
+        country("日本", "japan");
+        country("德国", "germany");
+        country("法国", "france");
+        country("荷兰", "netherlands");
+        country("瑞士", "switzerland");
+        country("新西兰", "new zealand");
+        country("爱尔兰", "ireland");
+
+        String[][] states = {
+                { "阿拉巴马州", "alabama", "al" }, { "阿拉斯加州", "alaska", "ak" },
+                { "亚利桑那州", "arizona", "az" }, { "阿肯色州", "arkansas", "ar" },
+                { "加利福尼亚州", "california", "ca", "加州" }, { "科罗拉多州", "colorado", "co" },
+                { "康涅狄格州", "connecticut", "ct", "康州" }, { "特拉华州", "delaware", "de" },
+                { "佛罗里达州", "florida", "fl" }, { "佐治亚州", "georgia", "ga" },
+                { "夏威夷州", "hawaii", "hi" }, { "爱达荷州", "idaho", "id" },
+                { "伊利诺伊州", "illinois", "il" }, { "印第安纳州", "indiana", "in" },
+                { "艾奥瓦州", "iowa", "ia", "爱荷华州" }, { "堪萨斯州", "kansas", "ks" },
+                { "肯塔基州", "kentucky", "ky" }, { "路易斯安那州", "louisiana", "la" },
+                { "缅因州", "maine", "me" }, { "马里兰州", "maryland", "md" },
+                { "马萨诸塞州", "massachusetts", "ma", "麻省", "麻萨诸塞州" }, { "密歇根州", "michigan", "mi" },
+                { "明尼苏达州", "minnesota", "mn" }, { "密西西比州", "mississippi", "ms" },
+                { "密苏里州", "missouri", "mo" }, { "蒙大拿州", "montana", "mt" },
+                { "内布拉斯加州", "nebraska", "ne" }, { "内华达州", "nevada", "nv" },
+                { "新罕布什尔州", "new hampshire", "nh" }, { "新泽西州", "new jersey", "nj" },
+                { "新墨西哥州", "new mexico", "nm" }, { "纽约州", "new york state", "ny" },
+                { "北卡罗来纳州", "north carolina", "nc", "北卡" }, { "北达科他州", "north dakota", "nd" },
+                { "俄亥俄州", "ohio", "oh" }, { "俄克拉何马州", "oklahoma", "ok" },
+                { "俄勒冈州", "oregon", "or" }, { "宾夕法尼亚州", "pennsylvania", "pa", "宾州" },
+                { "罗得岛州", "rhode island", "ri" }, { "南卡罗来纳州", "south carolina", "sc" },
+                { "南达科他州", "south dakota", "sd" }, { "田纳西州", "tennessee", "tn" },
+                { "得克萨斯州", "texas", "tx", "德州", "德克萨斯州" }, { "犹他州", "utah", "ut" },
+                { "佛蒙特州", "vermont", "vt" }, { "弗吉尼亚州", "virginia", "va" },
+                { "华盛顿州", "washington state", "wa" }, { "西弗吉尼亚州", "west virginia", "wv" },
+                { "威斯康星州", "wisconsin", "wi" }, { "怀俄明州", "wyoming", "wy" },
+                { "华盛顿特区", "washington dc", "washington d.c.", "district of columbia", "dc" },
+        };
+        for (String[] state : states) {
+            state("美国", state);
+        }
+    }
+
+    private final Object lock = new Object();
+    /** 节点按ID存放，只追加；扩容时整体替换数组 */
+    private volatile Node[] nodes = new Node[64];
+    private volatile int size;
+    /** 父节点ID + 规范名称 -> 节点ID */
+    private final Map<String, Integer> byPath = new ConcurrentHashMap<>();
+    /** 规范名称 -> 同名节点（不同上级下可能有同名城市） */
+    private final Map<String, List<Integer>> byName = new ConcurrentHashMap<>();
+
+    /**
+     * 解析并驻留地点，返回最具体一级的节点ID
+     *
+     * @param location 自由文本地点，如“美国马萨诸塞州剑桥市”、“Cambridge, MA, USA”、“马萨诸塞州”
+     * @return 节点ID，无法解析时返回 {@link #NO_LOCATION}
+     */
+    public int intern(String location) {
+        List<Part> path = parse(location);
+        if (path.isEmpty()) {
+            return NO_LOCATION;
+        }
+        synchronized (lock) {
+            int parent = NO_LOCATION;
+            for (Part part : path) {
+                Integer existing = byPath.get(pathKey(parent, part.name));
+                parent = existing != null ? existing : add(part, parent);
+            }
+            return parent;
+        }
+    }
+
+    /**
+     * 解析地点偏好（不驻留）。路径完整存在时返回该节点；
+     * 否则按最后一级名称匹配所有同名节点（如只写城市名时）。
+     *
+     * @return 匹配的节点ID，可能为空
+     */
+    public int[] resolve(String location) {
+        return resolve(parse(location));
+    }
+
+    private int[] resolve(List<Part> path) {
+        if (path.isEmpty()) {
+            return new int[0];
+        }
+        int node = deepestKnown(path);
+        if (node != NO_LOCATION && nodes[node].name.equals(path.get(path.size() - 1).name)) {
+            return new int[] { node };
+        }
+        List<Integer> sameName = byName.getOrDefault(path.get(path.size() - 1).name, Collections.emptyList());
+        synchronized (sameName) {
+            return sameName.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * 路径中已存在的最长前缀对应的节点
+     */
+    private int deepestKnown(List<Part> path) {
+        int node = NO_LOCATION;
+        for (Part part : path) {
+            Integer child = byPath.get(pathKey(node, part.name));
+            if (child == null) {
+                break;
+            }
+            node = child;
+        }
+        return node;
+    }
+
+    /**
+     * 计算每个节点对一组地点偏好的匹配度，按节点ID索引。
+     * 偏好地点是节点自身或其上级时完全匹配；节点是偏好地点的上级（学校地点不够具体）时部分匹配。
+     *
+     * @return 匹配度数组；偏好为空时返回null
+     */
+    public float[] preferenceScores(List<String> preferences) {
+        if (preferences == null || preferences.isEmpty()) {
+            return null;
+        }
+        Node[] current = nodes;
+        int count = Math.min(size, current.length);
+        List<Integer> preferred = new ArrayList<>();
+        // 偏好地点的上级：学校只精确到这些地区时部分匹配
+        List<Integer> coarser = new ArrayList<>();
+        for (String preference : preferences) {
+            List<Part> path = parse(preference);
+            for (int node : resolve(path)) {
+                if (node < count) {
+                    preferred.add(node);
+                    coarser.add(current[node].parent);
+                }
+            }
+            // 偏好地点本身不在字典中（如没有学校位于该城市）时，其已知的上级同样部分匹配
+            int known = deepestKnown(path);
+            if (known != NO_LOCATION && known < count && !preferred.contains(known)) {
+                coarser.add(known);
+            }
+        }
+        float[] scores = new float[count];
+        for (int node : coarser) {
+            for (int ancestor = node; ancestor != NO_LOCATION; ancestor = current[ancestor].parent) {
+                scores[ancestor] = PARTIAL_MATCH;
+            }
+        }
+        for (int id = 0; id < count; id++) {
+            for (int node : preferred) {
+                if (isAncestorOrSelf(node, id, current)) {
+                    scores[id] = FULL_MATCH;
+                    break;
+                }
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * ancestor是否为node自身或其上级
+     */
+    public boolean isAncestorOrSelf(int ancestor, int node) {
+        return isAncestorOrSelf(ancestor, node, nodes);
+    }
+
+    /**
+     * 节点所在的国家，无法确定国家时返回 {@link #NO_LOCATION}
+     */
+    public int countryOf(int node) {
+        Node[] current = nodes;
+        for (int id = node; id != NO_LOCATION; id = current[id].parent) {
+            if (current[id].level == Level.COUNTRY) {
+                return id;
+            }
+        }
+        return NO_LOCATION;
+    }
+
+    /**
+     * 国家名称对应的节点，不存在时返回 {@link #NO_LOCATION}
+     */
+    public int findCountry(String country) {
+        List<Part> path = parse(country);
+        if (path.size() != 1 || path.get(0).level != Level.COUNTRY) {
+            return NO_LOCATION;
+        }
+        Integer id = byPath.get(pathKey(NO_LOCATION, path.get(0).name));
+        return id != null ? id : NO_LOCATION;
+    }
+
+    public String nameOf(int node) {
+        return nodes[node].name;
+    }
+
+    public Level levelOf(int node) {
+        return nodes[node].level;
+    }
+
+    public int parentOf(int node) {
+        return nodes[node].parent;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static boolean isAncestorOrSelf(int ancestor, int node, Node[] current) {
+        for (int id = node; id != NO_LOCATION; id = current[id].parent) {
+            if (id == ancestor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int add(Part part, int parent) {
+        int id = size;
+        Node[] current = nodes;
+        if (id == current.length) {
+            current = Arrays.copyOf(current, id * 2);
+        }
+        current[id] = new Node(part.name, part.level, parent);
+        nodes = current;
+        size = id + 1;
+        byPath.put(pathKey(parent, part.name), id);
+        List<Integer> sameName = byName.computeIfAbsent(part.name, key -> new ArrayList<>());
+        synchronized (sameName) {
+            sameName.add(id);
+        }
+        return id;
+    }
+
+    private static String pathKey(int parent, String name) {
+        return parent + ":" + name;
+    }
+
+    /**
+     * 把地点解析为从国家到城市的路径（上级在前）。
+     * 英文习惯“城市, 州, 国家”（小级在前），中文习惯“国家省市”（大级在前），
+     * 没有分隔符的中文按“国/省/州/市/县/区”后缀切分。
+     */
+    static List<Part> parse(String location) {
+        List<Part> path = new ArrayList<>();
+        if (location == null || location.trim().isEmpty()) {
+            return path;
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : location.trim().split(SEPARATORS)) {
+            token = token.trim();
+            if (ALIASES.containsKey(token.toLowerCase(Locale.ROOT))) {
+                tokens.add(token);
+            } else if (!token.isEmpty()) {
+                tokens.addAll(splitBySuffix(token));
+            }
+        }
+        // 英文逗号分隔的地点，或末尾是国家/州而开头不是（如“波士顿, 马萨诸塞州”），按小级在前处理
+        if (tokens.size() > 1 && (location.indexOf(',') >= 0 && isMostlyAscii(location)
+                || isRegion(tokens.get(tokens.size() - 1)) && !isRegion(tokens.get(0)))) {
+            Collections.reverse(tokens);
+        }
+
+        for (int t = 0; t < tokens.size(); t++) {
+            String token = tokens.get(t);
+            Alias alias = ALIASES.get(token.toLowerCase(Locale.ROOT));
+            Part previous = path.isEmpty() ? null : path.get(path.size() - 1);
+            if (alias == null) {
+                path.add(new Part(token, levelOf(token, previous, t == tokens.size() - 1)));
+                continue;
+            }
+            // 只写了州名时补全其所属国家
+            if (alias.country != null && previous == null) {
+                path.add(new Part(alias.country, Level.COUNTRY));
+            }
+            path.add(new Part(alias.name, alias.level));
+        }
+        return path;
+    }
+
+    /**
+     * 无分隔符的中文地点按行政区划后缀切分，如“美国马萨诸塞州剑桥市”；
+     * 后缀后紧跟另一个后缀字符时不切分（如“广州市”）
+     */
+    private static List<String> splitBySuffix(String token) {
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < token.length() - 1; i++) {
+            char c = token.charAt(i);
+            if (ADMINISTRATIVE_SUFFIXES.indexOf(c) >= 0 && i > start
+                    && ADMINISTRATIVE_SUFFIXES.indexOf(token.charAt(i + 1)) < 0
+                    && Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN) {
+                parts.add(token.substring(start, i + 1));
+                start = i + 1;
+            }
+        }
+        parts.add(token.substring(start));
+        return parts;
+    }
+
+    /**
+     * 不在别名表中的地点按后缀和位置推断层级：国家之后、且不是最后一级的视为州(省)，其余视为城市
+     */
+    private static Level levelOf(String token, Part previous, boolean last) {
+        char suffix = token.charAt(token.length() - 1);
+        if (suffix == '国') {
+            return Level.COUNTRY;
+        }
+        if (previous == null) {
+            return suffix == '省' || suffix == '州' ? Level.STATE : Level.CITY;
+        }
+        if (previous.level != Level.COUNTRY) {
+            return Level.CITY;
+        }
+        return suffix == '省' || suffix == '州' || !last ? Level.STATE : Level.CITY;
+    }
+
+    /**
+     * 是否为国家或州(省)一级的地点
+     */
+    private static boolean isRegion(String token) {
+        Alias alias = ALIASES.get(token.toLowerCase(Locale.ROOT));
+        if (alias != null) {
+            return true;
+        }
+        char suffix = token.charAt(token.length() - 1);
+        return suffix == '国' || suffix == '省' || suffix == '州' && token.length() > 2;
+    }
+
+    private static boolean isMostlyAscii(String text) {
+        int ascii = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) < 128) {
+                ascii++;
+            }
+        }
+        return ascii * 2 > text.length();
+    }
+
+    private static void country(String name, String... aliases) {
+        ALIASES.put(name.toLowerCase(Locale.ROOT), new Alias(name, Level.COUNTRY, null));
+        for (String alias : aliases) {
+            ALIASES.put(alias, new Alias(name, Level.COUNTRY, null));
+        }
+    }
+
+    private static void state(String country, String[] names) {
+        Alias alias = new Alias(names[0], Level.STATE, country);
+        for (String name : names) {
+            ALIASES.put(name.toLowerCase(Locale.ROOT), alias);
+        }
+    }
+
+    private static final class Alias {
+        private final String name;
+        private final Level level;
+        /** 州别名隐含的国家 */
+        private final String country;
+
+        Alias(String name, Level level, String country) {
+            this.name = name;
+            this.level = level;
+            this.country = country;
+        }
+    }
+
+    static final class Part {
+        final String name;
+        final Level level;
+
+        Part(String name, Level level) {
+            this.name = name;
+            this.level = level;
+        }
+    }
+
+    private static final class Node {
+        private final String name;
+        private final Level level;
+        private final int parent;
+
+        Node(String name, Level level, int parent) {
+            this.name = name;
+            this.level = level;
+            this.parent = parent;
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package com.admitgenius.index;
+
+import com.admitgenius.model.SchoolProgram;
+import com.admitgenius.repository.ProgramKeywordView;
+import com.admitgenius.repository.SchoolProgramRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 专业倒排索引
+ * 以项目名称和关键词的小写二元组(bigram)为键，倒排到项目ID。
+ * 查询时先对目标专业的所有二元组求交集得到候选，再用子串匹配校验，
+ * 与原先逐校 findBySchool + contains 的匹配语义一致。
+ * 二元组同时适用于中文（如“金融”）和英文。
+ */
+@Component
+public class ProgramIndex {
+    private static final int GRAM = 2;
+
+    @Autowired
+    private SchoolProgramRepository schoolProgramRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, ProgramEntry> programs = new HashMap<>();
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+    private volatile boolean loaded;
+
+    /**
+     * 查找每所学校与目标专业匹配的项目，同一学校有多个匹配时取ID最小者（与原查询顺序一致）
+     *
+     * @param targetMajor 目标专业
+     * @return 学校ID到匹配项目
+     */
+    public Map<Long, ProgramMatch> matchBySchool(String targetMajor) {
+        if (targetMajor == null || targetMajor.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        ensureLoaded();
+        String query = targetMajor.toLowerCase();
+        Map<Long, ProgramMatch> matches = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (Long programId : candidates(query)) {
+                ProgramEntry entry = programs.get(programId);
+                if (entry == null || !entry.matches(query)) {
+                    continue;
+                }
+                ProgramMatch existing = matches.get(entry.schoolId);
+                if (existing == null || entry.id < existing.getProgramId()) {
+                    matches.put(entry.schoolId, new ProgramMatch(entry.id, entry.name));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return matches;
+    }
+
+    /**
+     * 把按学校的匹配结果展开为按快照位置对齐的项目名称，快照中没有的学校忽略
+     */
+    public static String[] namesByPosition(SchoolFeatureIndex.Snapshot catalog, Map<Long, ProgramMatch> matches) {
+        String[] names = new String[catalog.size];
+        matches.forEach((schoolId, match) -> {
+            int position = catalog.positionOf(schoolId);
+            if (position >= 0) {
+                names[position] = match.getProgramName();
+            }
+        });
+        return names;
+    }
+
+    public void upsert(ProgramEntry entry) {
+        lock.writeLock().lock();
+        try {
+            // 在锁内判断，避免与首次加载交错时丢失变更
+            if (!loaded) {
+                return;
+            }
+            removeInternal(entry.id);
+            addInternal(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long programId) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            removeInternal(programId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeBySchool(Long schoolId) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            List<Long> programIds = new ArrayList<>();
+            for (ProgramEntry entry : programs.values()) {
+                if (Objects.equals(entry.schoolId, schoolId)) {
+                    programIds.add(entry.id);
+                }
+            }
+            programIds.forEach(this::removeInternal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 用给定条目整体替换索引内容
+     */
+    public void rebuild(Collection<ProgramEntry> entries) {
+        lock.writeLock().lock();
+        try {
+            programs.clear();
+            postings.clear();
+            entries.forEach(this::addInternal);
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 清空索引，下次查询时整体重建
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            programs.clear();
+            postings.clear();
+            loaded = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                // 每个关键词一行且按项目ID排序，相邻的行合并为一个项目
+                Long programId = null;
+                Long schoolId = null;
+                String name = null;
+                List<String> keywords = new ArrayList<>();
+                for (ProgramKeywordView row : schoolProgramRepository.findAllKeywordRows()) {
+                    if (!row.getProgramId().equals(programId)) {
+                        if (programId != null) {
+                            addInternal(ProgramEntry.of(programId, schoolId, name, keywords));
+                        }
+                        programId = row.getProgramId();
+                        schoolId = row.getSchoolId();
+                        name = row.getName();
+                        keywords = new ArrayList<>();
+                    }
+                    if (row.getKeyword() != null) {
+                        keywords.add(row.getKeyword());
+                    }
+                }
+                if (programId != null) {
+                    addInternal(ProgramEntry.of(programId, schoolId, name, keywords));
+                }
+                loaded = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 候选项目：查询串所有二元组倒排表的交集；查询过短时退化为全部项目
+     */
+    private Set<Long> candidates(String query) {
+        if (query.length() < GRAM) {
+            return programs.keySet();
+        }
+        List<Set<Long>> lists = new ArrayList<>();
+        for (String gram : gramsOf(query)) {
+            Set<Long> list = postings.get(gram);
+            if (list == null) {
+                return Collections.emptySet();
+            }
+            lists.add(list);
+        }
+        lists.sort((a, b) -> Integer.compare(a.size(), b.size()));
+        Set<Long> result = new HashSet<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+            result.retainAll(lists.get(i));
+        }
+        return result;
+    }
+
+    private void addInternal(ProgramEntry entry) {
+        programs.put(entry.id, entry);
+        for (String gram : entry.grams()) {
+            postings.computeIfAbsent(gram, key -> new HashSet<>()).add(entry.id);
+        }
+    }
+
+    private void removeInternal(Long programId) {
+        ProgramEntry old = programs.remove(programId);
+        if (old == null) {
+            return;
+        }
+        for (String gram : old.grams()) {
+            Set<Long> list = postings.get(gram);
+            if (list != null) {
+                list.remove(programId);
+                if (list.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static Set<String> gramsOf(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    /**
+     * 索引中的项目条目，在事务内从实体中提取
+     */
+    public static final class ProgramEntry {
+        private final long id;
+        private final Long schoolId;
+        private final String name;
+        private final String nameLower;
+        private final List<String> keywordsLower;
+
+        private ProgramEntry(long id, Long schoolId, String name, List<String> keywordsLower) {
+            this.id = id;
+            this.schoolId = schoolId;
+            this.name = name;
+            this.nameLower = name != null ? name.toLowerCase() : null;
+            this.keywordsLower = keywordsLower;
+        }
+
+        public static ProgramEntry of(SchoolProgram program) {
+            Long schoolId = program.getSchool() != null ? program.getSchool().getId() : null;
+            return of(program.getId(), schoolId, program.getName(), program.getKeywords());
+        }
+
+        public static ProgramEntry of(long id, Long schoolId, String name, Collection<String> keywords) {
+            List<String> keywordsLower = new ArrayList<>();
+            if (keywords != null) {
+                for (String keyword : keywords) {
+                    if (keyword != null) {
+                        keywordsLower.add(keyword.toLowerCase());
+                    }
+                }
+            }
+            return new ProgramEntry(id, schoolId, name, keywordsLower);
+        }
+
+        boolean matches(String query) {
+            if (schoolId == null) {
+                return false;
+            }
+            if (nameLower != null && nameLower.contains(query)) {
+                return true;
+            }
+            for (String keyword : keywordsLower) {
+                if (keyword.contains(query)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        Set<String> grams() {
+            Set<String> grams = nameLower != null ? gramsOf(nameLower) : new HashSet<>();
+            for (String keyword : keywordsLower) {
+                grams.addAll(gramsOf(keyword));
+            }
+            return grams;
+        }
+    }
+
+    /**
+     * 匹配结果：项目ID与名称
+     */
+    public static final class ProgramMatch {
+        private final long programId;
+        private final String programName;
+
+        ProgramMatch(long programId, String programName) {
+            this.programId = programId;
+            this.programName = programName;
+        }
+
+        public long getProgramId() {
+            return programId;
+        }
+
+        public String getProgramName() {
+            return programName;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.admitgenius.index;
+
+import com.admitgenius.model.School;
+import com.admitgenius.repository.SchoolRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 学校特征列式索引
+ * 将推荐打分用到的学校字段展开为基本类型数组，打分时不再加载JPA实体。
+ * 快照不可变，写操作以写时复制的方式生成新快照，读请求无需加锁。
+ * 单所学校的写入仍是O(N)：修改只复制各列数组（共享位置表），新增和删除还要复制位置表。
+ * 正在打分的请求和影子比较持有旧快照，不能原地修改；学校目录规模在万级、写入远少于读取，复制的代价可以接受。
+ */
+@Component
+public class SchoolFeatureIndex {
+    /** int列的缺失值标记（排名、GRE、GMAT均为非负数） */
+    public static final int NO_VALUE = -1;
+
+    @Autowired
+    private SchoolRepository schoolRepository;
+
+    @Autowired
+    private LocationDictionary locationDictionary;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * 获取当前快照，首次访问时从数据库加载
+     */
+    public Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    List<SchoolFeatures> rows = new ArrayList<>();
+                    for (School school : schoolRepository.findAll()) {
+                        rows.add(SchoolFeatures.of(school, locationDictionary));
+                    }
+                    current = Snapshot.of(rows, locationDictionary);
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 新增或更新一所学校的特征；索引尚未加载时忽略，首次访问会读到最新数据
+     */
+    public synchronized void upsert(SchoolFeatures features) {
+        Snapshot current = snapshot;
+        if (current != null) {
+            snapshot = current.with(features);
+        }
+    }
+
+    public synchronized void remove(Long schoolId) {
+        Snapshot current = snapshot;
+        if (current != null) {
+            snapshot = current.without(schoolId);
+        }
+    }
+
+    /**
+     * 丢弃当前快照，下次访问时整体重建
+     */
+    public synchronized void invalidate() {
+        snapshot = null;
+    }
+
+    /**
+     * 单所学校的打分特征，在事务提交后从实体中提取（地点在此时驻留）
+     */
+    public static final class SchoolFeatures {
+        private final long id;
+        private final int ranking;
+        private final double averageGPA;
+        private final int averageGREVerbal;
+        private final int averageGREQuant;
+        private final double averageGREAW;
+        private final int averageGMAT;
+        private final boolean ivyLeague;
+        private final int locationId;
+
+        private SchoolFeatures(long id, int ranking, double averageGPA, int averageGREVerbal, int averageGREQuant,
+                double averageGREAW, int averageGMAT, boolean ivyLeague, int locationId) {
+            this.id = id;
+            this.ranking = ranking;
+            this.averageGPA = averageGPA;
+            this.averageGREVerbal = averageGREVerbal;
+            this.averageGREQuant = averageGREQuant;
+            this.averageGREAW = averageGREAW;
+            this.averageGMAT = averageGMAT;
+            this.ivyLeague = ivyLeague;
+            this.locationId = locationId;
+        }
+
+        /**
+         * @param locationDictionary 地点字典，学校地点在此驻留为节点ID
+         */
+        public static SchoolFeatures of(School school, LocationDictionary locationDictionary) {
+            return new SchoolFeatures(
+                    school.getId(),
+                    intOrNone(school.getRanking()),
+                    doubleOrNaN(school.getAverageGPA()),
+                    intOrNone(school.getAverageGREVerbal()),
+                    intOrNone(school.getAverageGREQuant()),
+                    doubleOrNaN(school.getAverageGREAW()),
+                    intOrNone(school.getAverageGMAT()),
+                    Boolean.TRUE.equals(school.getIsIvyLeague()),
+                    locationDictionary.intern(school.getLocation()));
+        }
+
+        private static int intOrNone(Integer value) {
+            return value != null ? value : NO_VALUE;
+        }
+
+        private static double doubleOrNaN(Double value) {
+            return value != null ? value : Double.NaN;
+        }
+    }
+
+    /**
+     * 索引快照，所有数组按位置对齐，只读
+     */
+    public static final class Snapshot {
+        public final int size;
+        public final long[] ids;
+        public final int[] ranking;
+        public final double[] averageGPA;
+        public final int[] averageGREVerbal;
+        public final int[] averageGREQuant;
+        public final double[] averageGREAW;
+        public final int[] averageGMAT;
+        public final boolean[] ivyLeague;
+        /** 地点字典节点ID，无地点或无法解析时为 {@link #NO_VALUE} */
+        public final int[] locationId;
+        /** locationId所属的地点字典 */
+        public final LocationDictionary locationDictionary;
+
+        private final Map<Long, Integer> positions;
+
+        private Snapshot(int size, long[] ids, int[] ranking, double[] averageGPA, int[] averageGREVerbal,
+                int[] averageGREQuant, double[] averageGREAW, int[] averageGMAT, boolean[] ivyLeague,
+                int[] locationId, LocationDictionary locationDictionary, Map<Long, Integer> positions) {
+            this.size = size;
+            this.ids = ids;
+            this.ranking = ranking;
+            this.averageGPA = averageGPA;
+            this.averageGREVerbal = averageGREVerbal;
+            this.averageGREQuant = averageGREQuant;
+            this.averageGREAW = averageGREAW;
+            this.averageGMAT = averageGMAT;
+            this.ivyLeague = ivyLeague;
+            this.locationId = locationId;
+            this.locationDictionary = locationDictionary;
+            this.positions = positions != null ? positions : positionsOf(ids, size);
+        }
+
+        private static Map<Long, Integer> positionsOf(long[] ids, int size) {
+            Map<Long, Integer> positions = new HashMap<>(size * 2);
+            for (int i = 0; i < size; i++) {
+                positions.put(ids[i], i);
+            }
+            return positions;
+        }
+
+        /**
+         * 由特征行构建快照（行顺序即位置顺序）
+         */
+        public static Snapshot of(List<SchoolFeatures> rows, LocationDictionary locationDictionary) {
+            int n = rows.size();
+            long[] ids = new long[n];
+            int[] ranking = new int[n];
+            double[] gpa = new double[n];
+            int[] greVerbal = new int[n];
+            int[] greQuant = new int[n];
+            double[] greAW = new double[n];
+            int[] gmat = new int[n];
+            boolean[] ivy = new boolean[n];
+            int[] locationId = new int[n];
+            for (int i = 0; i < n; i++) {
+                SchoolFeatures row = rows.get(i);
+                ids[i] = row.id;
+                ranking[i] = row.ranking;
+                gpa[i] = row.averageGPA;
+                greVerbal[i] = row.averageGREVerbal;
+                greQuant[i] = row.averageGREQuant;
+                greAW[i] = row.averageGREAW;
+                gmat[i] = row.averageGMAT;
+                ivy[i] = row.ivyLeague;
+                locationId[i] = row.locationId;
+            }
+            return new Snapshot(n, ids, ranking, gpa, greVerbal, greQuant, greAW, gmat, ivy, locationId,
+                    locationDictionary, null);
+        }
+
+        /**
+         * 学校ID对应的位置，不存在时返回-1
+         */
+        public int positionOf(Long schoolId) {
+            Integer position = positions.get(schoolId);
+            return position != null ? position : -1;
+        }
+
+        /**
+         * 修改时复制各列后覆盖原位置，位置表不变可直接共享；新增时追加到末尾
+         */
+        Snapshot with(SchoolFeatures row) {
+            int position = positionOf(row.id);
+            Map<Long, Integer> newPositions = positions;
+            int newSize = size;
+            if (position < 0) {
+                position = size;
+                newSize = size + 1;
+                newPositions = new HashMap<>(positions);
+                newPositions.put(row.id, position);
+            }
+            Snapshot copy = new Snapshot(newSize, Arrays.copyOf(ids, newSize), Arrays.copyOf(ranking, newSize),
+                    Arrays.copyOf(averageGPA, newSize), Arrays.copyOf(averageGREVerbal, newSize),
+                    Arrays.copyOf(averageGREQuant, newSize), Arrays.copyOf(averageGREAW, newSize),
+                    Arrays.copyOf(averageGMAT, newSize), Arrays.copyOf(ivyLeague, newSize),
+                    Arrays.copyOf(locationId, newSize), locationDictionary, newPositions);
+            copy.ids[position] = row.id;
+            copy.ranking[position] = row.ranking;
+            copy.averageGPA[position] = row.averageGPA;
+            copy.averageGREVerbal[position] = row.averageGREVerbal;
+            copy.averageGREQuant[position] = row.averageGREQuant;
+            copy.averageGREAW[position] = row.averageGREAW;
+            copy.averageGMAT[position] = row.averageGMAT;
+            copy.ivyLeague[position] = row.ivyLeague;
+            copy.locationId[position] = row.locationId;
+            return copy;
+        }
+
+        /**
+         * 删除后其后的学校前移一位，保持原有顺序（同分学校按位置排序）
+         */
+        Snapshot without(Long schoolId) {
+            int position = positionOf(schoolId);
+            if (position < 0) {
+                return this;
+            }
+            int newSize = size - 1;
+            long[] newIds = remove(ids, new long[newSize], position);
+            return new Snapshot(newSize, newIds, remove(ranking, new int[newSize], position),
+                    remove(averageGPA, new double[newSize], position),
+                    remove(averageGREVerbal, new int[newSize], position),
+                    remove(averageGREQuant, new int[newSize], position),
+                    remove(averageGREAW, new double[newSize], position),
+                    remove(averageGMAT, new int[newSize], position),
+                    remove(ivyLeague, new boolean[newSize], position),
+                    remove(locationId, new int[newSize], position), locationDictionary, null);
+        }
+
+        private <T> T remove(T source, T target, int position) {
+            System.arraycopy(source, 0, target, 0, position);
+            System.arraycopy(source, position + 1, target, position, size - position - 1);
+            return target;
+        }
+    }
+}
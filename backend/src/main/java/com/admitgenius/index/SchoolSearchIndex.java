@@ -0,0 +1,408 @@
+package com.admitgenius.index;
+
+import com.admitgenius.model.School;
+import com.admitgenius.repository.SchoolRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 学校全文检索倒排索引
+ * 索引学校名称、地点、热门专业和简介，按BM25F（各字段分别做长度归一化后加权合并词频）排序。
+ * 分词：英文和数字按连续字母数字切词并转小写；中日韩文字切成重叠的二元组（如“斯坦福大学”→斯坦、坦福、福大、大学），
+ * 只有一个字的片段保留单字。查询的所有词都必须命中；查询末尾的英文词以及单个汉字按前缀匹配，
+ * 以支持边输入边搜索。查询只访问查询词的倒排表，耗时与目录规模无关。
+ */
+@Component
+public class SchoolSearchIndex {
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    /** 前缀最多展开的词数，避免过短的前缀展开到大半个词典 */
+    private static final int MAX_PREFIX_TERMS = 64;
+
+    /**
+     * 索引字段及其权重
+     */
+    enum Field {
+        NAME(3.0f),
+        LOCATION(1.5f),
+        PROGRAM(2.0f),
+        DESCRIPTION(1.0f);
+
+        private final float boost;
+
+        Field(float boost) {
+            this.boost = boost;
+        }
+    }
+
+    private static final Field[] FIELDS = Field.values();
+
+    @Autowired
+    private SchoolRepository schoolRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, SearchDocument> documents = new HashMap<>();
+    /** 词 → 学校ID → 各字段词频；有序以支持前缀展开 */
+    private final TreeMap<String, Map<Long, int[]>> postings = new TreeMap<>();
+    private final long[] fieldLengthSums = new long[FIELDS.length];
+    private volatile boolean loaded;
+
+    /**
+     * 检索并返回按相关度排序的一页学校ID
+     *
+     * @param query  查询串
+     * @param offset 跳过的结果数
+     * @param limit  返回的最大结果数
+     * @return 命中总数与本页学校ID
+     */
+    public SearchResult search(String query, int offset, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return new SearchResult(0, Collections.emptyList());
+        }
+        String prefix = prefixTermOf(query, tokens.get(tokens.size() - 1));
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokens));
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            List<Map<Long, int[]>> lists = new ArrayList<>();
+            for (String term : terms) {
+                Map<Long, int[]> list = term.equals(prefix) ? expandPrefix(term) : postings.get(term);
+                if (list == null || list.isEmpty()) {
+                    return new SearchResult(0, Collections.emptyList());
+                }
+                lists.add(list);
+            }
+            // 从最短的倒排表出发，逐个检查其余词是否命中
+            lists.sort((a, b) -> Integer.compare(a.size(), b.size()));
+            float[] idf = new float[lists.size()];
+            for (int t = 0; t < lists.size(); t++) {
+                idf[t] = idf(lists.get(t).size());
+            }
+            float[] averageLengths = averageLengths();
+
+            int wanted = (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+            PriorityQueue<Hit> top = new PriorityQueue<>(Hit::compareWorstFirst);
+            int total = 0;
+            candidates:
+            for (Map.Entry<Long, int[]> candidate : lists.get(0).entrySet()) {
+                Long schoolId = candidate.getKey();
+                SearchDocument document = documents.get(schoolId);
+                float score = termScore(candidate.getValue(), document, averageLengths, idf[0]);
+                for (int t = 1; t < lists.size(); t++) {
+                    int[] frequencies = lists.get(t).get(schoolId);
+                    if (frequencies == null) {
+                        continue candidates;
+                    }
+                    score += termScore(frequencies, document, averageLengths, idf[t]);
+                }
+                total++;
+                Hit hit = new Hit(schoolId, score);
+                if (top.size() < wanted) {
+                    top.add(hit);
+                } else if (Hit.compareWorstFirst(hit, top.peek()) > 0) {
+                    top.poll();
+                    top.add(hit);
+                }
+            }
+
+            List<Hit> ranked = new ArrayList<>(top);
+            ranked.sort((a, b) -> Hit.compareWorstFirst(b, a));
+            List<Long> schoolIds = new ArrayList<>();
+            for (int i = offset; i < ranked.size(); i++) {
+                schoolIds.add(ranked.get(i).schoolId);
+            }
+            return new SearchResult(total, schoolIds);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void upsert(SearchDocument document) {
+        lock.writeLock().lock();
+        try {
+            // 在锁内判断，避免与首次加载交错时丢失变更
+            if (!loaded) {
+                return;
+            }
+            removeInternal(document.id);
+            addInternal(document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long schoolId) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            removeInternal(schoolId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 清空索引，下次查询时整体重建
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            postings.clear();
+            Arrays.fill(fieldLengthSums, 0L);
+            loaded = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                for (School school : schoolRepository.findAllWithTopPrograms()) {
+                    addInternal(SearchDocument.of(school));
+                }
+                loaded = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查询末尾按前缀匹配的词：末尾是字母数字时取最后一个英文词；只有单个汉字时取该字
+     */
+    private static String prefixTermOf(String query, String lastToken) {
+        String trimmed = query.trim();
+        int last = trimmed.codePointBefore(trimmed.length());
+        if (isCjk(last)) {
+            return lastToken.codePointCount(0, lastToken.length()) == 1 ? lastToken : null;
+        }
+        return Character.isLetterOrDigit(last) ? lastToken : null;
+    }
+
+    /**
+     * 以prefix开头的所有词的倒排表合并（同一学校的字段词频相加）
+     */
+    private Map<Long, int[]> expandPrefix(String prefix) {
+        SortedMap<String, Map<Long, int[]>> range = postings.subMap(prefix, prefix + Character.MAX_VALUE);
+        if (range.size() == 1) {
+            return range.values().iterator().next();
+        }
+        Map<Long, int[]> merged = new HashMap<>();
+        int expanded = 0;
+        for (Map<Long, int[]> list : range.values()) {
+            if (expanded++ >= MAX_PREFIX_TERMS) {
+                break;
+            }
+            list.forEach((schoolId, frequencies) -> {
+                int[] sum = merged.computeIfAbsent(schoolId, key -> new int[FIELDS.length]);
+                for (int f = 0; f < sum.length; f++) {
+                    sum[f] += frequencies[f];
+                }
+            });
+        }
+        return merged;
+    }
+
+    private float idf(int documentFrequency) {
+        int n = documents.size();
+        return (float) Math.log(1.0 + (n - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    private float[] averageLengths() {
+        float[] averages = new float[FIELDS.length];
+        int n = Math.max(documents.size(), 1);
+        for (int f = 0; f < averages.length; f++) {
+            averages[f] = Math.max((float) fieldLengthSums[f] / n, 1.0f);
+        }
+        return averages;
+    }
+
+    /**
+     * BM25F：各字段词频按字段长度归一化并加权求和后，再做一次词频饱和
+     */
+    private static float termScore(int[] frequencies, SearchDocument document, float[] averageLengths, float idf) {
+        float weighted = 0.0f;
+        for (int f = 0; f < frequencies.length; f++) {
+            if (frequencies[f] > 0) {
+                float norm = 1.0f - B + B * document.lengths[f] / averageLengths[f];
+                weighted += FIELDS[f].boost * frequencies[f] / norm;
+            }
+        }
+        return idf * weighted * (K1 + 1.0f) / (K1 + weighted);
+    }
+
+    private void addInternal(SearchDocument document) {
+        documents.put(document.id, document);
+        for (int f = 0; f < FIELDS.length; f++) {
+            fieldLengthSums[f] += document.lengths[f];
+        }
+        document.frequencies.forEach((term, frequencies) ->
+                postings.computeIfAbsent(term, key -> new HashMap<>()).put(document.id, frequencies));
+    }
+
+    private void removeInternal(Long schoolId) {
+        SearchDocument old = documents.remove(schoolId);
+        if (old == null) {
+            return;
+        }
+        for (int f = 0; f < FIELDS.length; f++) {
+            fieldLengthSums[f] -= old.lengths[f];
+        }
+        for (String term : old.frequencies.keySet()) {
+            Map<Long, int[]> list = postings.get(term);
+            if (list != null) {
+                list.remove(schoolId);
+                if (list.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    /**
+     * 切词：连续的字母数字为一个英文词（小写），连续的中日韩文字切成重叠二元组，单字片段保留单字
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder word = new StringBuilder();
+        List<Integer> cjkRun = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            int codePoint = Character.toLowerCase(text.codePointAt(i));
+            i += Character.charCount(codePoint);
+            if (isCjk(codePoint)) {
+                flushWord(word, tokens);
+                cjkRun.add(codePoint);
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                flushCjk(cjkRun, tokens);
+                word.appendCodePoint(codePoint);
+            } else {
+                flushWord(word, tokens);
+                flushCjk(cjkRun, tokens);
+            }
+        }
+        flushWord(word, tokens);
+        flushCjk(cjkRun, tokens);
+        return tokens;
+    }
+
+    private static void flushWord(StringBuilder word, List<String> tokens) {
+        if (word.length() > 0) {
+            tokens.add(word.toString());
+            word.setLength(0);
+        }
+    }
+
+    private static void flushCjk(List<Integer> run, List<String> tokens) {
+        if (run.size() == 1) {
+            tokens.add(new String(Character.toChars(run.get(0))));
+        }
+        for (int i = 0; i + 1 < run.size(); i++) {
+            tokens.add(new StringBuilder().appendCodePoint(run.get(i)).appendCodePoint(run.get(i + 1)).toString());
+        }
+        run.clear();
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA || script == Character.UnicodeScript.HANGUL;
+    }
+
+    /**
+     * 一所学校的索引内容（各字段长度和词频），在事务内从实体中提取
+     */
+    public static final class SearchDocument {
+        private final long id;
+        private final int[] lengths = new int[FIELDS.length];
+        private final Map<String, int[]> frequencies = new HashMap<>();
+
+        private SearchDocument(long id) {
+            this.id = id;
+        }
+
+        public static SearchDocument of(School school) {
+            SearchDocument document = new SearchDocument(school.getId());
+            document.add(Field.NAME, school.getName());
+            document.add(Field.LOCATION, school.getLocation());
+            if (school.getTopPrograms() != null) {
+                for (String program : school.getTopPrograms()) {
+                    document.add(Field.PROGRAM, program);
+                }
+            }
+            document.add(Field.DESCRIPTION, school.getDescription());
+            return document;
+        }
+
+        private void add(Field field, String text) {
+            for (String token : tokenize(text)) {
+                frequencies.computeIfAbsent(token, key -> new int[FIELDS.length])[field.ordinal()]++;
+                lengths[field.ordinal()]++;
+            }
+        }
+    }
+
+    /**
+     * 检索结果：命中总数与按相关度排序的一页学校ID
+     */
+    public static final class SearchResult {
+        private final int total;
+        private final List<Long> schoolIds;
+
+        SearchResult(int total, List<Long> schoolIds) {
+            this.total = total;
+            this.schoolIds = schoolIds;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public List<Long> getSchoolIds() {
+            return schoolIds;
+        }
+    }
+
+    private static final class Hit {
+        private final Long schoolId;
+        private final float score;
+
+        Hit(Long schoolId, float score) {
+            this.schoolId = schoolId;
+            this.score = score;
+        }
+
+        /**
+         * 较差的排前面：分数低者在前，同分时ID大者在前
+         */
+        static int compareWorstFirst(Hit a, Hit b) {
+            int byScore = Float.compare(a.score, b.score);
+            return byScore != 0 ? byScore : Long.compare(b.schoolId, a.schoolId);
+        }
+    }
+}
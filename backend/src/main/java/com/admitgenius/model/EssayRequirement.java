@@ -1,11 +1,16 @@
 package com.admitgenius.model;
 
+import com.admitgenius.config.CatalogCacheConfig;
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Data
 @Entity
 @Table(name = "essay_requirements")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CatalogCacheConfig.ESSAY_REQUIREMENT_REGION)
 public class EssayRequirement {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
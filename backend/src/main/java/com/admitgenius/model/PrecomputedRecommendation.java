@@ -0,0 +1,33 @@
+package com.admitgenius.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 用户默认推荐的预计算结果
+ * 用户档案（GPA、GRE/GMAT、目标专业）变化后在后台重新计算，
+ * 简化推荐接口按主键读取一行即可返回，结果以JSON保存。
+ * 同时记录计算时的目录版本和协同过滤模型版本，学校目录变更或模型重训练后读取时重新计算。
+ */
+@Data
+@Entity
+@Table(name = "precomputed_recommendations")
+public class PrecomputedRecommendation {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Lob
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String schoolsJson;
+
+    @Column(name = "catalog_version")
+    private Long catalogVersion;
+
+    @Column(name = "model_version")
+    private Long modelVersion;
+
+    @Column(name = "computed_at", nullable = false)
+    private LocalDateTime computedAt = LocalDateTime.now();
+}
@@ -8,10 +8,14 @@ import java.util.List;
 
 @Data
 @Entity
-@Table(name = "recommendations")
+// 按用户取最近的推荐（历史分页、保留策略的游标）
+@Table(name = "recommendations", indexes = @Index(name = "idx_recommendations_user_created",
+        columnList = "user_id, createdAt"))
 public class Recommendation {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // 号段式ID分配（步长50），使Hibernate可以批量插入；IDENTITY会禁用JDBC批处理
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "recommendation_seq")
+    @SequenceGenerator(name = "recommendation_seq", sequenceName = "recommendation_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -25,10 +29,14 @@ public class Recommendation {
     @Column(columnDefinition = "TEXT")
     private String inputSummary;
 
+    @Column(columnDefinition = "TEXT")
+    private String requestSnapshot; // 生成时的完整推荐请求(JSON)，供离线回放重建请求
+
     @Enumerated(EnumType.STRING)
     private RecommendationType recommendationType;
 
     @OneToMany(mappedBy = "recommendation", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("rank ASC")
     private List<RecommendationItem> items = new ArrayList<>();
 
     public enum RecommendationType {
@@ -101,6 +109,14 @@ public class Recommendation {
         this.inputSummary = inputSummary;
     }
 
+    public String getRequestSnapshot() {
+        return requestSnapshot;
+    }
+
+    public void setRequestSnapshot(String requestSnapshot) {
+        this.requestSnapshot = requestSnapshot;
+    }
+
     public RecommendationType getRecommendationType() {
         return recommendationType;
     }
@@ -8,7 +8,9 @@ import lombok.Data;
 @Table(name = "recommendation_items")
 public class RecommendationItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // 号段式ID分配（步长50），使Hibernate可以批量插入；IDENTITY会禁用JDBC批处理
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "recommendation_item_seq")
+    @SequenceGenerator(name = "recommendation_item_seq", sequenceName = "recommendation_item_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -29,7 +31,10 @@ public class RecommendationItem {
     private Integer rank; // 在推荐列表中的排名
 
     @Column(columnDefinition = "TEXT")
-    private String matchReason; // 匹配原因说明
+    private String matchReason; // 匹配原因说明（旧数据；新推荐项只保存原因代码）
+
+    @Column(name = "reason_codes")
+    private Integer reasonCodes; // 匹配原因代码掩码，展示时按语言渲染，见ReasonCode
 
     @Column(columnDefinition = "TEXT")
     private String feedback; // 用户对推荐的反馈
@@ -104,6 +109,14 @@ public class RecommendationItem {
         this.matchReason = matchReason;
     }
 
+    public Integer getReasonCodes() {
+        return reasonCodes;
+    }
+
+    public void setReasonCodes(Integer reasonCodes) {
+        this.reasonCodes = reasonCodes;
+    }
+
     public String getFeedback() {
         return feedback;
     }
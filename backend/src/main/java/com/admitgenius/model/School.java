@@ -1,14 +1,19 @@
 package com.admitgenius.model;
 
+import com.admitgenius.config.CatalogCacheConfig;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.ArrayList;
 import java.util.List;
 
 @Data
 @Entity
-@Table(name = "schools")
+@Table(name = "schools", indexes = @Index(name = "idx_schools_name", columnList = "name"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CatalogCacheConfig.SCHOOL_REGION)
 public class School {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -72,10 +77,12 @@ public class School {
     @ElementCollection
     @CollectionTable(name = "school_top_programs", joinColumns = @JoinColumn(name = "school_id"))
     @Column(name = "program")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CatalogCacheConfig.SCHOOL_TOP_PROGRAMS_REGION)
     private List<String> topPrograms = new ArrayList<>();
 
     // 文书要求相关字段
     @OneToMany(mappedBy = "school", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CatalogCacheConfig.SCHOOL_ESSAY_REQUIREMENTS_REGION)
     private List<EssayRequirement> essayRequirements = new ArrayList<>();
 
     // 学校类型枚举
@@ -1,13 +1,18 @@
 package com.admitgenius.model;
 
+import com.admitgenius.config.CatalogCacheConfig;
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.ArrayList;
 import java.util.List;
 
 @Data
 @Entity
 @Table(name = "school_programs")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CatalogCacheConfig.PROGRAM_REGION)
 public class SchoolProgram {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -40,9 +45,11 @@ public class SchoolProgram {
     @ElementCollection
     @CollectionTable(name = "program_keywords", joinColumns = @JoinColumn(name = "program_id"))
     @Column(name = "keyword")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CatalogCacheConfig.PROGRAM_KEYWORDS_REGION)
     private List<String> keywords = new ArrayList<>();
 
     @OneToMany(mappedBy = "program")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CatalogCacheConfig.PROGRAM_ESSAY_REQUIREMENTS_REGION)
     private List<EssayRequirement> essayRequirements = new ArrayList<>();
 
     public enum DegreeLevel {
@@ -0,0 +1,528 @@
+package com.admitgenius.recommendation;
+
+import com.admitgenius.index.SchoolFeatureIndex;
+import com.admitgenius.repository.AppliedSchoolView;
+import com.admitgenius.repository.RecommendationItemRepository;
+import com.admitgenius.repository.SavedSchoolView;
+import com.admitgenius.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 协同过滤推荐来源
+ * 以用户×学校的隐式反馈（已申请的推荐项、收藏的学校）离线训练ALS矩阵分解模型（Hu, Koren, Volinsky 2008）。
+ * 训练数据按键集分块从数据库流式读取，不会一次加载全部行；只在有新反馈时定时重训练，
+ * 并以上一版因子为初值做少量迭代（增量）。模型不可变，训练完成后整体替换，
+ * 打分时只是用户因子与缓存的学校因子做点积，每个用户的分数向量在同一版模型内缓存。
+ * 除模型版本外还为每个用户记录版本：只有该用户自己的反馈变化时才更新，
+ * 其他用户的反馈只会让学校因子小幅漂移，不会使该用户的推荐缓存和预计算结果失效。
+ */
+@Component
+public class CollaborativeFilteringModel {
+    private static final Logger logger = LoggerFactory.getLogger(CollaborativeFilteringModel.class);
+
+    /** 各类信号的强度：申请比收藏更能说明偏好 */
+    private static final float APPLIED_STRENGTH = 2.0f;
+    private static final float SAVED_STRENGTH = 1.0f;
+
+    @Autowired
+    private RecommendationItemRepository recommendationItemRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${recommendation.cf.enabled:true}")
+    private boolean enabled;
+
+    @Value("${recommendation.cf.weight:0.1}")
+    private float weight;
+
+    @Value("${recommendation.cf.factors:16}")
+    private int factorCount;
+
+    @Value("${recommendation.cf.iterations:10}")
+    private int iterations;
+
+    @Value("${recommendation.cf.incremental-iterations:3}")
+    private int incrementalIterations;
+
+    @Value("${recommendation.cf.regularization:0.1}")
+    private double regularization;
+
+    @Value("${recommendation.cf.alpha:20}")
+    private double alpha;
+
+    @Value("${recommendation.cf.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${recommendation.cf.score-cache-size:256}")
+    private int scoreCacheSize;
+
+    private volatile Factors factors;
+    /** 自上次训练以来是否有新的反馈；启动后首次调度必定训练 */
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    /** 从启动时间起算，重启后不会与此前进程的模型版本重合 */
+    private long nextVersion = System.currentTimeMillis();
+
+    /**
+     * 当前模型；尚未训练或没有任何反馈时为null
+     */
+    public Factors current() {
+        return enabled ? factors : null;
+    }
+
+    /**
+     * 协同过滤分数在匹配分数中的权重
+     */
+    public float getWeight() {
+        return weight;
+    }
+
+    /**
+     * 用户申请、反馈或收藏学校后调用，下次调度时重训练；在事务中调用时于提交后生效
+     */
+    public void markDirty() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dirty.set(true);
+                }
+            });
+        } else {
+            dirty.set(true);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${recommendation.cf.initial-delay-ms:60000}",
+            fixedDelayString = "${recommendation.cf.retrain-interval-ms:3600000}")
+    public void retrain() {
+        if (!enabled || !dirty.getAndSet(false)) {
+            return;
+        }
+        try {
+            train();
+        } catch (RuntimeException e) {
+            dirty.set(true);
+            logger.warn("协同过滤模型训练失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 流式读取全部隐式反馈并训练，已有模型时以其因子为初值
+     */
+    public synchronized void train() {
+        long start = System.currentTimeMillis();
+        Interactions interactions = new Interactions();
+
+        Long afterId = 0L;
+        while (true) {
+            List<AppliedSchoolView> chunk = recommendationItemRepository.findAppliedAfter(afterId,
+                    PageRequest.of(0, chunkSize));
+            for (AppliedSchoolView row : chunk) {
+                interactions.add(row.getUserId(), row.getSchoolId(), APPLIED_STRENGTH);
+            }
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+            afterId = chunk.get(chunk.size() - 1).getId();
+        }
+
+        Long afterUserId = 0L;
+        Long afterSchoolId = 0L;
+        while (true) {
+            List<SavedSchoolView> chunk = userRepository.findSavedSchoolsAfter(afterUserId, afterSchoolId,
+                    PageRequest.of(0, chunkSize));
+            for (SavedSchoolView row : chunk) {
+                interactions.add(row.getUserId(), row.getSchoolId(), SAVED_STRENGTH);
+            }
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+            SavedSchoolView last = chunk.get(chunk.size() - 1);
+            afterUserId = last.getUserId();
+            afterSchoolId = last.getSchoolId();
+        }
+
+        if (interactions.pairs.isEmpty()) {
+            factors = null;
+            return;
+        }
+        // 因子维度变化后上一版因子不能作为初值，也不沿用用户版本
+        Factors previous = factors != null && factors.rank == factorCount ? factors : null;
+        int sweeps = previous != null ? incrementalIterations : iterations;
+        factors = fit(interactions, previous, sweeps);
+        logger.info("协同过滤模型训练完成: 用户{}，学校{}，反馈{}，迭代{}次，耗时{}ms", interactions.userIds.size(),
+                interactions.schoolIds.size(), interactions.pairs.size(), sweeps, System.currentTimeMillis() - start);
+    }
+
+    private Factors fit(Interactions interactions, Factors previous, int sweeps) {
+        int f = factorCount;
+        int userCount = interactions.userIds.size();
+        int schoolCount = interactions.schoolIds.size();
+
+        // 按用户、按学校各建一份稀疏行（CSR），两个方向的最小二乘都只遍历有反馈的格子
+        Sparse byUser = new Sparse(userCount, interactions.pairs.size());
+        Sparse bySchool = new Sparse(schoolCount, interactions.pairs.size());
+        interactions.pairs.forEach((key, strength) -> {
+            byUser.count((int) (key >>> 32));
+            bySchool.count((int) (long) key);
+        });
+        byUser.prepare();
+        bySchool.prepare();
+        interactions.pairs.forEach((key, strength) -> {
+            int user = (int) (key >>> 32);
+            int school = (int) (long) key;
+            float confidence = (float) (alpha * strength);
+            byUser.put(user, school, confidence);
+            bySchool.put(school, user, confidence);
+        });
+
+        Random random = new Random(42);
+        float[] userFactors = initial(interactions.userIds, previous != null ? previous.userRows : null,
+                previous != null ? previous.userFactors : null, f, random);
+        float[] schoolFactors = initial(interactions.schoolIds, previous != null ? previous.schoolRows : null,
+                previous != null ? previous.schoolFactors : null, f, random);
+
+        for (int sweep = 0; sweep < sweeps; sweep++) {
+            leastSquares(byUser, schoolFactors, userFactors, f);
+            leastSquares(bySchool, userFactors, schoolFactors, f);
+        }
+
+        long version = nextVersion++;
+        Map<Long, Long> signatures = interactions.signatures();
+        Map<Long, Long> userVersions = new HashMap<>();
+        signatures.forEach((userId, signature) -> {
+            boolean unchanged = previous != null && signature.equals(previous.userSignatures.get(userId));
+            userVersions.put(userId, unchanged ? previous.userVersions.get(userId) : version);
+        });
+        return new Factors(version, f, Map.copyOf(interactions.userIds), userFactors,
+                Map.copyOf(interactions.schoolIds), schoolFactors, Map.copyOf(signatures), Map.copyOf(userVersions),
+                scoreCacheSize);
+    }
+
+    /**
+     * 固定另一侧因子Y，逐行求解 (YᵀY + Yᵀ(Cu - I)Y + λI) x = YᵀCu p(u)，p(u)在有反馈处为1
+     *
+     * @param rows   本侧稀疏行，值为 c - 1 = alpha * 信号强度
+     * @param fixed  另一侧因子
+     * @param solved 本侧因子（原地更新）
+     */
+    private void leastSquares(Sparse rows, float[] fixed, float[] solved, int f) {
+        double[] gram = new double[f * f];
+        for (int offset = 0; offset < fixed.length; offset += f) {
+            for (int a = 0; a < f; a++) {
+                double ya = fixed[offset + a];
+                for (int b = 0; b < f; b++) {
+                    gram[a * f + b] += ya * fixed[offset + b];
+                }
+            }
+        }
+
+        double[] matrix = new double[f * f];
+        double[] vector = new double[f];
+        for (int row = 0; row < rows.size; row++) {
+            System.arraycopy(gram, 0, matrix, 0, f * f);
+            for (int a = 0; a < f; a++) {
+                matrix[a * f + a] += regularization;
+                vector[a] = 0;
+            }
+            for (int k = rows.start[row]; k < rows.start[row + 1]; k++) {
+                int offset = rows.column[k] * f;
+                double extra = rows.value[k];
+                for (int a = 0; a < f; a++) {
+                    double ya = fixed[offset + a];
+                    vector[a] += (1 + extra) * ya;
+                    for (int b = 0; b < f; b++) {
+                        matrix[a * f + b] += extra * ya * fixed[offset + b];
+                    }
+                }
+            }
+            choleskySolve(matrix, vector, f);
+            for (int a = 0; a < f; a++) {
+                solved[row * f + a] = (float) vector[a];
+            }
+        }
+    }
+
+    /**
+     * 原地求解对称正定方程组，结果写回vector
+     */
+    private static void choleskySolve(double[] matrix, double[] vector, int f) {
+        for (int j = 0; j < f; j++) {
+            double diagonal = matrix[j * f + j];
+            for (int k = 0; k < j; k++) {
+                diagonal -= matrix[j * f + k] * matrix[j * f + k];
+            }
+            diagonal = Math.sqrt(diagonal);
+            matrix[j * f + j] = diagonal;
+            for (int i = j + 1; i < f; i++) {
+                double sum = matrix[i * f + j];
+                for (int k = 0; k < j; k++) {
+                    sum -= matrix[i * f + k] * matrix[j * f + k];
+                }
+                matrix[i * f + j] = sum / diagonal;
+            }
+        }
+        for (int i = 0; i < f; i++) {
+            double sum = vector[i];
+            for (int k = 0; k < i; k++) {
+                sum -= matrix[i * f + k] * vector[k];
+            }
+            vector[i] = sum / matrix[i * f + i];
+        }
+        for (int i = f - 1; i >= 0; i--) {
+            double sum = vector[i];
+            for (int k = i + 1; k < f; k++) {
+                sum -= matrix[k * f + i] * vector[k];
+            }
+            vector[i] = sum / matrix[i * f + i];
+        }
+    }
+
+    /**
+     * 初始因子：沿用上一版模型中已有实体的因子，新实体取小随机数
+     */
+    private static float[] initial(Map<Long, Integer> ids, Map<Long, Integer> previousRows, float[] previousFactors,
+            int f, Random random) {
+        float[] result = new float[ids.size() * f];
+        ids.forEach((id, row) -> {
+            Integer previousRow = previousRows != null ? previousRows.get(id) : null;
+            if (previousRow != null) {
+                System.arraycopy(previousFactors, previousRow * f, result, row * f, f);
+            } else {
+                for (int a = 0; a < f; a++) {
+                    result[row * f + a] = (float) (random.nextGaussian() * 0.01);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 训练期间累积的（用户, 学校）信号，同一对的多次信号强度相加
+     */
+    private static final class Interactions {
+        private final Map<Long, Integer> userIds = new HashMap<>();
+        private final Map<Long, Integer> schoolIds = new HashMap<>();
+        private final Map<Long, Float> pairs = new HashMap<>();
+
+        void add(Long userId, Long schoolId, float strength) {
+            if (userId == null || schoolId == null) {
+                return;
+            }
+            int user = userIds.computeIfAbsent(userId, key -> userIds.size());
+            int school = schoolIds.computeIfAbsent(schoolId, key -> schoolIds.size());
+            pairs.merge(((long) user << 32) | school, strength, Float::sum);
+        }
+
+        /**
+         * 每个用户反馈集合的指纹（与顺序无关），用于判断用户自己的反馈是否变化
+         */
+        Map<Long, Long> signatures() {
+            long[] schools = new long[schoolIds.size()];
+            schoolIds.forEach((schoolId, school) -> schools[school] = schoolId);
+            long[] byUser = new long[userIds.size()];
+            pairs.forEach((key, strength) -> {
+                long pair = schools[(int) (long) key] * 31 + Float.floatToIntBits(strength);
+                byUser[(int) (key >>> 32)] += mix(pair);
+            });
+            Map<Long, Long> result = new HashMap<>();
+            userIds.forEach((userId, user) -> result.put(userId, byUser[user]));
+            return result;
+        }
+
+        private static long mix(long value) {
+            value ^= value >>> 33;
+            value *= 0xff51afd7ed558ccdL;
+            value ^= value >>> 33;
+            value *= 0xc4ceb9fe1a85ec53L;
+            return value ^ (value >>> 33);
+        }
+    }
+
+    /**
+     * 压缩稀疏行：先count统计每行个数，prepare后按行put
+     */
+    private static final class Sparse {
+        private final int size;
+        private final int[] start;
+        private final int[] fill;
+        private final int[] column;
+        private final float[] value;
+
+        Sparse(int size, int entries) {
+            this.size = size;
+            this.start = new int[size + 1];
+            this.fill = new int[size];
+            this.column = new int[entries];
+            this.value = new float[entries];
+        }
+
+        void count(int row) {
+            start[row + 1]++;
+        }
+
+        void prepare() {
+            for (int row = 0; row < size; row++) {
+                start[row + 1] += start[row];
+                fill[row] = start[row];
+            }
+        }
+
+        void put(int row, int col, float v) {
+            int k = fill[row]++;
+            column[k] = col;
+            value[k] = v;
+        }
+    }
+
+    /**
+     * 训练好的用户与学校因子（不可变）
+     */
+    public static final class Factors {
+        private final long version;
+        private final int rank;
+        private final Map<Long, Integer> userRows;
+        private final float[] userFactors;
+        private final Map<Long, Integer> schoolRows;
+        private final float[] schoolFactors;
+        private final Map<Long, Long> userSignatures;
+        private final Map<Long, Long> userVersions;
+        /** 学校因子按目录快照位置对齐的缓存，快照变化时重建 */
+        private volatile Alignment alignment;
+        /** 最近用到的用户分数向量（按访问顺序淘汰） */
+        private final Map<Long, UserScores> scoreCache;
+
+        Factors(long version, int rank, Map<Long, Integer> userRows, float[] userFactors,
+                Map<Long, Integer> schoolRows, float[] schoolFactors, Map<Long, Long> userSignatures,
+                Map<Long, Long> userVersions, int scoreCacheSize) {
+            this.version = version;
+            this.rank = rank;
+            this.userRows = userRows;
+            this.userFactors = userFactors;
+            this.schoolRows = schoolRows;
+            this.schoolFactors = schoolFactors;
+            this.userSignatures = userSignatures;
+            this.userVersions = userVersions;
+            this.scoreCache = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, UserScores> eldest) {
+                    return size() > scoreCacheSize;
+                }
+            };
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * 用户的协同过滤版本：该用户的反馈最后一次变化时的模型版本
+         *
+         * @return 用户不在模型中时返回null
+         */
+        public Long getUserVersion(Long userId) {
+            return userVersions.get(userId);
+        }
+
+        /**
+         * 模型中是否有该用户（没有任何反馈的用户不参与协同过滤）
+         */
+        public boolean hasUser(Long userId) {
+            return userRows.containsKey(userId);
+        }
+
+        /**
+         * 用户对目录中每所学校的偏好预测，裁剪到[0, 1]，按快照位置对齐；
+         * 结果在同一版模型和目录快照内缓存复用，调用方不得修改
+         *
+         * @return 用户不在模型中时返回null
+         */
+        public float[] scores(Long userId, SchoolFeatureIndex.Snapshot catalog) {
+            Integer userRow = userRows.get(userId);
+            if (userRow == null) {
+                return null;
+            }
+            UserScores cached;
+            synchronized (scoreCache) {
+                cached = scoreCache.get(userId);
+            }
+            if (cached != null && cached.catalog == catalog) {
+                return cached.scores;
+            }
+            float[] scores = compute(userRow, catalog);
+            synchronized (scoreCache) {
+                scoreCache.put(userId, new UserScores(catalog, scores));
+            }
+            return scores;
+        }
+
+        private float[] compute(int userRow, SchoolFeatureIndex.Snapshot catalog) {
+            int[] rows = alignedRows(catalog);
+            int userOffset = userRow * rank;
+            float[] scores = new float[catalog.size];
+            for (int i = 0; i < catalog.size; i++) {
+                int row = rows[i];
+                if (row < 0) {
+                    continue;
+                }
+                int offset = row * rank;
+                float dot = 0.0f;
+                for (int a = 0; a < rank; a++) {
+                    dot += userFactors[userOffset + a] * schoolFactors[offset + a];
+                }
+                scores[i] = Math.min(1.0f, Math.max(0.0f, dot));
+            }
+            return scores;
+        }
+
+        private int[] alignedRows(SchoolFeatureIndex.Snapshot catalog) {
+            Alignment current = alignment;
+            if (current != null && current.catalog == catalog) {
+                return current.rows;
+            }
+            int[] rows = new int[catalog.size];
+            for (int i = 0; i < catalog.size; i++) {
+                Integer row = schoolRows.get(catalog.ids[i]);
+                rows[i] = row != null ? row : -1;
+            }
+            alignment = new Alignment(catalog, rows);
+            return rows;
+        }
+    }
+
+    private static final class UserScores {
+        private final SchoolFeatureIndex.Snapshot catalog;
+        private final float[] scores;
+
+        UserScores(SchoolFeatureIndex.Snapshot catalog, float[] scores) {
+            this.catalog = catalog;
+            this.scores = scores;
+        }
+    }
+
+    private static final class Alignment {
+        private final SchoolFeatureIndex.Snapshot catalog;
+        private final int[] rows;
+
+        Alignment(SchoolFeatureIndex.Snapshot catalog, int[] rows) {
+            this.catalog = catalog;
+            this.rows = rows;
+        }
+    }
+}
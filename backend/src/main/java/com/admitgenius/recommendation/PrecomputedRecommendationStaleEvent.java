@@ -0,0 +1,16 @@
+package com.admitgenius.recommendation;
+
+/**
+ * 读取时发现用户的预计算推荐缺失或已过期（目录或协同过滤模型已变化），需要在后台重新计算
+ */
+public class PrecomputedRecommendationStaleEvent {
+    private final Long userId;
+
+    public PrecomputedRecommendationStaleEvent(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+}
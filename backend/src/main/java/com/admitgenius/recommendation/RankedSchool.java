@@ -0,0 +1,40 @@
+package com.admitgenius.recommendation;
+
+/**
+ * 排名结果中的一所学校（不可变，可在缓存中共享）
+ */
+public final class RankedSchool {
+    private final long schoolId;
+    private final Long programId;
+    private final float matchScore;
+    private final int reasonCodes;
+
+    public RankedSchool(long schoolId, Long programId, float matchScore, int reasonCodes) {
+        this.schoolId = schoolId;
+        this.programId = programId;
+        this.matchScore = matchScore;
+        this.reasonCodes = reasonCodes;
+    }
+
+    public long getSchoolId() {
+        return schoolId;
+    }
+
+    /**
+     * 与目标专业匹配的项目ID，无匹配时为null
+     */
+    public Long getProgramId() {
+        return programId;
+    }
+
+    public float getMatchScore() {
+        return matchScore;
+    }
+
+    /**
+     * 匹配原因掩码，见 {@link ReasonCode}
+     */
+    public int getReasonCodes() {
+        return reasonCodes;
+    }
+}
@@ -0,0 +1,88 @@
+package com.admitgenius.recommendation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 推荐匹配原因代码
+ * 打分时只记录位掩码，文本在展示时按语言渲染。掩码会持久化到推荐项，
+ * 已分配的位不能修改或复用，新增原因只能追加新的位；声明顺序即展示顺序。
+ */
+public enum ReasonCode {
+    RANKING_IN_RANGE(0, "学校排名在您的偏好范围内", "School ranking is within your preferred range"),
+    GPA_STRONG(1, "您的GPA与该校招生要求非常匹配", "Your GPA is a strong match for this school"),
+    GPA_IN_RANGE(2, "您的GPA在该校招生范围内", "Your GPA is within this school's admission range"),
+    GRE_VERBAL_HIGH(3, "您的GRE语文分数明显高于该校平均水平", "Your GRE Verbal score is well above this school's average"),
+    GRE_VERBAL_MEETS(4, "您的GRE语文分数符合该校招生要求", "Your GRE Verbal score meets this school's requirements"),
+    GRE_QUANT_HIGH(5, "您的GRE数学分数明显高于该校平均水平", "Your GRE Quantitative score is well above this school's average"),
+    GRE_QUANT_MEETS(6, "您的GRE数学分数符合该校招生要求", "Your GRE Quantitative score meets this school's requirements"),
+    GRE_AW_HIGH(7, "您的GRE分析性写作分数明显高于该校平均水平", "Your GRE Analytical Writing score is well above this school's average"),
+    GRE_AW_MEETS(8, "您的GRE分析性写作分数符合该校招生要求", "Your GRE Analytical Writing score meets this school's requirements"),
+    GMAT_HIGH(9, "您的GMAT分数明显高于该校平均水平", "Your GMAT score is well above this school's average"),
+    GMAT_MEETS(10, "您的GMAT分数符合该校招生要求", "Your GMAT score meets this school's requirements"),
+    LOCATION_FULL(11, "学校位置完全符合您的地区偏好", "School location fully matches your regional preference"),
+    LOCATION_PARTIAL(12, "学校位置与您的部分地区偏好相符", "School location partially matches your regional preferences"),
+    IVY_LEAGUE(13, "常春藤联盟院校符合您的学校类型偏好", "Ivy League school matches your school type preference"),
+    PROGRAM_OFFERED(14, "学校提供您感兴趣的 %s 专业", "School offers the %s program you are interested in"),
+    SIMILAR_APPLICANTS(15, "与您兴趣相似的用户也申请或收藏了该校", "Applicants with similar interests applied to or saved this school");
+
+    private static final ReasonCode[] VALUES = values();
+
+    private final int mask;
+    private final String chinese;
+    private final String english;
+
+    ReasonCode(int bit, String chinese, String english) {
+        this.mask = 1 << bit;
+        this.chinese = chinese;
+        this.english = english;
+    }
+
+    public int mask() {
+        return mask;
+    }
+
+    public boolean in(int codes) {
+        return (codes & mask) != 0;
+    }
+
+    /**
+     * 掩码中包含的原因代码，按展示顺序
+     */
+    public static List<ReasonCode> decode(int codes) {
+        List<ReasonCode> result = new ArrayList<>();
+        for (ReasonCode code : VALUES) {
+            if (code.in(codes)) {
+                result.add(code);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 渲染匹配原因文本
+     *
+     * @param codes       原因掩码
+     * @param language    语言，"en"为英文，其他为中文
+     * @param rankRange   排名偏好区间，如"1-50"；未知时为null
+     * @param programName 匹配的专业名称
+     * @return 以分隔符连接的原因文本
+     */
+    public static String render(int codes, String language, String rankRange, String programName) {
+        boolean english = "en".equalsIgnoreCase(language);
+        List<String> parts = new ArrayList<>();
+        for (ReasonCode code : VALUES) {
+            if (!code.in(codes)) {
+                continue;
+            }
+            String text = english ? code.english : code.chinese;
+            if (code == RANKING_IN_RANGE && rankRange != null) {
+                text = text + " (" + rankRange + ")";
+            } else if (code == PROGRAM_OFFERED) {
+                text = String.format(text, programName != null ? programName : "");
+            }
+            parts.add(text);
+        }
+        return String.join(english ? "; " : "；", parts);
+    }
+}
@@ -0,0 +1,143 @@
+package com.admitgenius.recommendation;
+
+import com.admitgenius.dto.RecommendationRequestDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 推荐排名缓存
+ * 以请求中影响打分的字段生成规范指纹作为键，缓存打分后的排名。
+ * 容量有界（LRU淘汰）并带TTL；条目记录生成时的目录版本，目录变更后自动失效。
+ */
+@Component
+public class RecommendationCache {
+
+    @Value("${recommendation.cache.max-entries:1000}")
+    private int maxEntries;
+
+    @Value("${recommendation.cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private final LinkedHashMap<String, CachedRanking> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedRanking> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    /**
+     * 查找缓存的排名
+     *
+     * @param fingerprint    请求指纹
+     * @param catalogVersion 当前目录版本
+     * @param depth          需要的排名深度
+     * @return 命中的排名；未命中、过期、深度不足或目录已变更时返回null
+     */
+    public List<RankedSchool> get(String fingerprint, long catalogVersion, int depth) {
+        CachedRanking cached;
+        synchronized (entries) {
+            cached = entries.get(fingerprint);
+            if (cached != null && (cached.catalogVersion != catalogVersion || isExpired(cached))) {
+                entries.remove(fingerprint);
+                cached = null;
+            }
+        }
+        if (cached == null || cached.depth < depth) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return cached.ranking;
+    }
+
+    /**
+     * @param depth 打分时选取的排名深度（目录较小时排名可能短于该值）
+     */
+    public void put(String fingerprint, long catalogVersion, int depth, List<RankedSchool> ranking) {
+        CachedRanking cached = new CachedRanking(catalogVersion, System.currentTimeMillis(), depth,
+                List.copyOf(ranking));
+        synchronized (entries) {
+            entries.put(fingerprint, cached);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (entries) {
+            stats.put("size", entries.size());
+        }
+        stats.put("maxEntries", maxEntries);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        return stats;
+    }
+
+    private boolean isExpired(CachedRanking cached) {
+        return System.currentTimeMillis() - cached.createdAt > ttlSeconds * 1000;
+    }
+
+    /**
+     * 生成请求的规范指纹，只包含影响排名的字段。
+     * 地区偏好与顺序无关，按排序去重；学校类型偏好只影响“是否有偏好”和“是否偏好常春藤”。
+     */
+    public static String fingerprint(RecommendationRequestDTO request) {
+        StringBuilder key = new StringBuilder();
+        key.append("gpa=").append(request.getGpa());
+        key.append("|gre=").append(request.getGreScore() != null);
+        key.append("|v=").append(request.getGreVerbal());
+        key.append("|q=").append(request.getGreQuantitative());
+        key.append("|aw=").append(request.getGreAnalytical());
+        key.append("|gmat=").append(request.getGmatScore());
+        key.append("|major=").append(request.getTargetMajor() != null ? request.getTargetMajor().toLowerCase() : null);
+
+        List<String> locations = request.getLocationPreferences();
+        key.append("|loc=");
+        if (locations != null && !locations.isEmpty()) {
+            key.append(new TreeSet<>(locations));
+        }
+
+        List<String> types = request.getSchoolTypePreferences();
+        boolean hasTypes = types != null && !types.isEmpty();
+        key.append("|type=").append(hasTypes).append(',').append(hasTypes && types.contains("Ivy League"));
+
+        key.append("|rank=");
+        if (request.getRankingRange() != null) {
+            key.append(new ArrayList<>(request.getRankingRange()));
+        }
+        key.append("|filter=");
+        if (request.getCatalogFilter() != null) {
+            key.append(request.getCatalogFilter());
+        }
+        return key.toString();
+    }
+
+    private static final class CachedRanking {
+        private final long catalogVersion;
+        private final long createdAt;
+        private final int depth;
+        private final List<RankedSchool> ranking;
+
+        CachedRanking(long catalogVersion, long createdAt, int depth, List<RankedSchool> ranking) {
+            this.catalogVersion = catalogVersion;
+            this.createdAt = createdAt;
+            this.depth = depth;
+            this.ranking = ranking;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.admitgenius.recommendation;
+
+import com.admitgenius.dto.RecommendationJobDTO;
+import com.admitgenius.dto.RecommendationRequestDTO;
+import com.admitgenius.dto.RecommendationResponseDTO;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 一次异步推荐任务
+ * 状态在工作线程中更新，轮询和SSE订阅在请求线程中读取；每次状态变化都推送给当前订阅者。
+ */
+public final class RecommendationJob implements RecommendationProgressListener {
+
+    public enum Status {
+        PENDING, RUNNING, SUCCEEDED, FAILED
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final RecommendationRequestDTO request;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    private final CompletableFuture<RecommendationResponseDTO> future = new CompletableFuture<>();
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    private volatile Status status = Status.PENDING;
+    private volatile String stage = "QUEUED";
+    private volatile int progress;
+    private volatile String error;
+    private volatile LocalDateTime finishedAt;
+
+    public RecommendationJob(RecommendationRequestDTO request) {
+        this.request = request;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return request.getUserId();
+    }
+
+    public RecommendationRequestDTO getRequest() {
+        return request;
+    }
+
+    public CompletableFuture<RecommendationResponseDTO> getFuture() {
+        return future;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    public void markRunning() {
+        status = Status.RUNNING;
+        onProgress("STARTED", 0);
+    }
+
+    @Override
+    public void onProgress(String stage, int percent) {
+        this.stage = stage;
+        this.progress = percent;
+        broadcast("progress", false);
+    }
+
+    public void complete(RecommendationResponseDTO result) {
+        stage = "COMPLETED";
+        progress = 100;
+        finishedAt = LocalDateTime.now();
+        status = Status.SUCCEEDED;
+        future.complete(result);
+        broadcast("completed", true);
+    }
+
+    public void fail(Throwable cause) {
+        error = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+        finishedAt = LocalDateTime.now();
+        status = Status.FAILED;
+        future.completeExceptionally(cause);
+        broadcast("failed", true);
+    }
+
+    /**
+     * 注册SSE订阅；任务已结束时立即推送最终状态并关闭
+     */
+    public void subscribe(SseEmitter emitter) {
+        emitters.add(emitter);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(e -> emitters.remove(emitter));
+        if (isDone()) {
+            send(emitter, status == Status.SUCCEEDED ? "completed" : "failed", true);
+        } else {
+            send(emitter, "progress", false);
+        }
+    }
+
+    public RecommendationJobDTO toDTO() {
+        RecommendationJobDTO dto = new RecommendationJobDTO();
+        dto.setJobId(id);
+        dto.setUserId(getUserId());
+        dto.setStatus(status.name());
+        dto.setStage(stage);
+        dto.setProgress(progress);
+        dto.setError(error);
+        dto.setCreatedAt(createdAt);
+        dto.setFinishedAt(finishedAt);
+        if (status == Status.SUCCEEDED) {
+            dto.setResult(future.getNow(null));
+        }
+        return dto;
+    }
+
+    private void broadcast(String event, boolean last) {
+        for (SseEmitter emitter : emitters) {
+            send(emitter, event, last);
+        }
+    }
+
+    private void send(SseEmitter emitter, String event, boolean last) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(toDTO()));
+            if (last) {
+                emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // 客户端已断开
+            emitters.remove(emitter);
+        }
+    }
+}
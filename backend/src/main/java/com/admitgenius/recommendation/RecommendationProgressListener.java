@@ -0,0 +1,18 @@
+package com.admitgenius.recommendation;
+
+/**
+ * 推荐生成进度回调
+ * 在生成推荐的线程上同步调用，实现不应阻塞。
+ */
+@FunctionalInterface
+public interface RecommendationProgressListener {
+
+    RecommendationProgressListener NONE = (stage, percent) -> {
+    };
+
+    /**
+     * @param stage   当前阶段
+     * @param percent 完成百分比(0-100)
+     */
+    void onProgress(String stage, int percent);
+}
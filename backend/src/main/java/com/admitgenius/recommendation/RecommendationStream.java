@@ -0,0 +1,92 @@
+package com.admitgenius.recommendation;
+
+import com.admitgenius.dto.RecommendationResponseDTO;
+import com.admitgenius.dto.RecommendationResponseDTO.RecommendationItemDTO;
+import com.admitgenius.dto.RecommendationStreamFrameDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletionException;
+
+/**
+ * 以NDJSON推送一次推荐任务：进度、逐个推荐项，最后是完整的推荐结果或错误
+ * 任务结束后关闭连接；客户端断开后不再推送，任务本身照常完成并保存。
+ */
+public final class RecommendationStream implements RecommendationStreamListener {
+
+    public static final MediaType NDJSON = new MediaType(MediaType.APPLICATION_NDJSON, StandardCharsets.UTF_8);
+
+    private final RecommendationJob job;
+    private final ResponseBodyEmitter emitter;
+    private final ObjectMapper objectMapper;
+    private boolean open = true;
+
+    public RecommendationStream(RecommendationJob job, ResponseBodyEmitter emitter, ObjectMapper objectMapper) {
+        this.job = job;
+        this.emitter = emitter;
+        this.objectMapper = objectMapper;
+        emitter.onCompletion(this::close);
+        emitter.onTimeout(this::close);
+        emitter.onError(e -> close());
+        job.getFuture().whenComplete(this::finish);
+    }
+
+    @Override
+    public void onProgress(String stage, int percent) {
+        job.onProgress(stage, percent);
+        RecommendationStreamFrameDTO frame = frame("progress");
+        frame.setStage(stage);
+        frame.setProgress(percent);
+        send(frame, false);
+    }
+
+    @Override
+    public void onItem(RecommendationItemDTO item) {
+        RecommendationStreamFrameDTO frame = frame("item");
+        frame.setItem(item);
+        send(frame, false);
+    }
+
+    private void finish(RecommendationResponseDTO result, Throwable cause) {
+        if (cause == null) {
+            RecommendationStreamFrameDTO frame = frame("completed");
+            frame.setResult(result);
+            send(frame, true);
+            return;
+        }
+        Throwable error = cause instanceof CompletionException && cause.getCause() != null ? cause.getCause() : cause;
+        RecommendationStreamFrameDTO frame = frame("failed");
+        frame.setError(error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName());
+        send(frame, true);
+    }
+
+    private RecommendationStreamFrameDTO frame(String type) {
+        RecommendationStreamFrameDTO frame = new RecommendationStreamFrameDTO();
+        frame.setType(type);
+        frame.setJobId(job.getId());
+        return frame;
+    }
+
+    private synchronized void send(RecommendationStreamFrameDTO frame, boolean last) {
+        if (!open) {
+            return;
+        }
+        try {
+            emitter.send(objectMapper.writeValueAsString(frame) + "\n", NDJSON);
+            if (last) {
+                open = false;
+                emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // 客户端已断开
+            open = false;
+        }
+    }
+
+    private synchronized void close() {
+        open = false;
+    }
+}
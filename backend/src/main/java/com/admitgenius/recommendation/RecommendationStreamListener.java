@@ -0,0 +1,16 @@
+package com.admitgenius.recommendation;
+
+import com.admitgenius.dto.RecommendationResponseDTO.RecommendationItemDTO;
+
+/**
+ * 逐项接收推荐结果的回调
+ * 打分完成后先回报排名第一的推荐项，其余推荐项在学校和项目信息加载后依次回报，
+ * 之后才写库；回报的推荐项尚未保存，没有ID。
+ */
+public interface RecommendationStreamListener extends RecommendationProgressListener {
+
+    /**
+     * @param item 按排名顺序回报的推荐项
+     */
+    void onItem(RecommendationItemDTO item);
+}
@@ -0,0 +1,256 @@
+package com.admitgenius.recommendation;
+
+import com.admitgenius.dto.RecommendationRequestDTO;
+import com.admitgenius.dto.ReplayReportDTO;
+import com.admitgenius.index.SchoolFeatureIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * 离线回放：把历史请求交给各个打分变体在线程池上并行排名，
+ * 统计每个变体的吞吐量、单次排名延迟分布，以及以用户实际申请的学校为相关结果的NDCG@k和Recall@k。
+ * 用例按批提交，每批依次交给各个变体（同一时刻只有一个变体在跑），各变体的墙钟时间分开累计。
+ * 由一个线程驱动，不可并发调用。
+ */
+public final class ReplayHarness {
+
+    private final SchoolFeatureIndex.Snapshot catalog;
+    private final List<ScoringVariant> variants;
+    private final int k;
+    private final ExecutorService executor;
+    private final int threads;
+    private final VariantStats[] stats;
+    private int cases;
+    private int evaluatedCases;
+
+    /**
+     * @param catalog  所有变体共用的学校特征快照
+     * @param variants 打分变体，第一个作为一致率的比较基准
+     * @param k        排名与评估深度
+     * @param executor 执行排名的线程池
+     * @param threads  每批切分的任务数（一般等于线程数）
+     */
+    public ReplayHarness(SchoolFeatureIndex.Snapshot catalog, List<ScoringVariant> variants, int k,
+            ExecutorService executor, int threads) {
+        this.catalog = catalog;
+        this.variants = variants;
+        this.k = k;
+        this.executor = executor;
+        this.threads = threads;
+        this.stats = new VariantStats[variants.size()];
+        for (int v = 0; v < stats.length; v++) {
+            stats[v] = new VariantStats();
+        }
+    }
+
+    /**
+     * 回放一批用例
+     */
+    public void replay(List<Case> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long[][][] rankings = new long[variants.size()][][];
+        for (int v = 0; v < variants.size(); v++) {
+            long[] latencies = new long[batch.size()];
+            rankings[v] = new long[batch.size()][];
+            long start = System.nanoTime();
+            run(variants.get(v), batch, rankings[v], latencies);
+            stats[v].wallNanos += System.nanoTime() - start;
+            stats[v].addLatencies(latencies);
+        }
+
+        for (int c = 0; c < batch.size(); c++) {
+            Set<Long> applied = batch.get(c).appliedSchoolIds;
+            for (int v = 0; v < variants.size(); v++) {
+                if (Arrays.equals(rankings[v][c], rankings[0][c])) {
+                    stats[v].agreements++;
+                }
+                if (!applied.isEmpty()) {
+                    stats[v].ndcgSum += ndcg(rankings[v][c], applied);
+                    stats[v].recallSum += recall(rankings[v][c], applied);
+                }
+            }
+            if (!applied.isEmpty()) {
+                evaluatedCases++;
+            }
+        }
+        cases += batch.size();
+    }
+
+    /**
+     * 把一批用例切成threads段并行排名，等待全部完成
+     */
+    private void run(ScoringVariant variant, List<Case> batch, long[][] rankings, long[] latencies) {
+        int chunk = (batch.size() + threads - 1) / threads;
+        List<Future<?>> futures = new ArrayList<>();
+        for (int from = 0; from < batch.size(); from += chunk) {
+            int start = from;
+            int end = Math.min(from + chunk, batch.size());
+            futures.add(executor.submit(() -> {
+                for (int c = start; c < end; c++) {
+                    long begin = System.nanoTime();
+                    rankings[c] = rank(variant, batch.get(c));
+                    latencies[c] = System.nanoTime() - begin;
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> f.cancel(true));
+                throw new RuntimeException("回放被中断", e);
+            } catch (ExecutionException e) {
+                futures.forEach(f -> f.cancel(true));
+                throw new RuntimeException("回放变体 " + variant.getName() + " 执行失败: " + e.getCause().getMessage(),
+                        e.getCause());
+            }
+        }
+    }
+
+    /**
+     * 与在线排名相同：选出前k名并计算匹配原因，返回学校ID
+     */
+    private long[] rank(ScoringVariant variant, Case replayCase) {
+        SchoolMatchScorer scorer = variant.newScorer(catalog, replayCase.request, replayCase.matchedPrograms,
+                replayCase.collaborativeScores, replayCase.candidates);
+        List<TopKSelector.Candidate> top = TopKSelector.select(scorer, k);
+        long[] ids = new long[top.size()];
+        for (int r = 0; r < ids.length; r++) {
+            int position = top.get(r).getPosition();
+            scorer.reasonCodes(position);
+            ids[r] = catalog.ids[position];
+        }
+        return ids;
+    }
+
+    /**
+     * 二元相关度的NDCG：排名r（从1开始）的增益为 1/log2(r+1)
+     */
+    private double ndcg(long[] ranking, Set<Long> applied) {
+        double dcg = 0.0;
+        for (int r = 0; r < ranking.length; r++) {
+            if (applied.contains(ranking[r])) {
+                dcg += 1.0 / log2(r + 2);
+            }
+        }
+        double ideal = 0.0;
+        for (int r = 0; r < Math.min(applied.size(), k); r++) {
+            ideal += 1.0 / log2(r + 2);
+        }
+        return dcg / ideal;
+    }
+
+    private static double recall(long[] ranking, Set<Long> applied) {
+        int hits = 0;
+        for (long id : ranking) {
+            if (applied.contains(id)) {
+                hits++;
+            }
+        }
+        return (double) hits / applied.size();
+    }
+
+    private static double log2(int x) {
+        return Math.log(x) / Math.log(2);
+    }
+
+    public int getCases() {
+        return cases;
+    }
+
+    public int getEvaluatedCases() {
+        return evaluatedCases;
+    }
+
+    /**
+     * 汇总各变体的统计
+     */
+    public List<ReplayReportDTO.VariantReport> report() {
+        List<ReplayReportDTO.VariantReport> reports = new ArrayList<>();
+        for (int v = 0; v < variants.size(); v++) {
+            VariantStats variantStats = stats[v];
+            ReplayReportDTO.VariantReport report = new ReplayReportDTO.VariantReport();
+            report.setName(variants.get(v).getName());
+            if (cases > 0) {
+                long[] latencies = Arrays.copyOf(variantStats.latencies, variantStats.count);
+                Arrays.sort(latencies);
+                report.setThroughput(cases / (variantStats.wallNanos / 1e9));
+                report.setMeanLatencyMs(variantStats.latencySum / 1e6 / cases);
+                report.setP50LatencyMs(percentile(latencies, 0.50) / 1e6);
+                report.setP99LatencyMs(percentile(latencies, 0.99) / 1e6);
+                report.setBaselineAgreement((double) variantStats.agreements / cases);
+            }
+            if (evaluatedCases > 0) {
+                report.setNdcg(variantStats.ndcgSum / evaluatedCases);
+                report.setRecall(variantStats.recallSum / evaluatedCases);
+            }
+            reports.add(report);
+        }
+        return reports;
+    }
+
+    /**
+     * 最近秩法：不小于p比例样本的最小值
+     */
+    private static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    /**
+     * 一条待回放的用例及其预先计算的专业匹配和协同过滤分数（各变体共用，不计入延迟）
+     */
+    public static final class Case {
+        private final RecommendationRequestDTO request;
+        private final String[] matchedPrograms;
+        private final float[] collaborativeScores;
+        private final BitSet candidates;
+        private final Set<Long> appliedSchoolIds;
+
+        /**
+         * @param matchedPrograms     按快照位置对齐的匹配专业名称，无目标专业时为null
+         * @param collaborativeScores 按快照位置对齐的协同过滤分数，用户不在模型中时为null
+         * @param candidates          按快照位置的候选学校（请求的目录筛选），不限制时为null
+         */
+        public Case(RecommendationRequestDTO request, String[] matchedPrograms, float[] collaborativeScores,
+                BitSet candidates, List<Long> appliedSchoolIds) {
+            this.request = request;
+            this.matchedPrograms = matchedPrograms;
+            this.collaborativeScores = collaborativeScores;
+            this.candidates = candidates;
+            this.appliedSchoolIds = new HashSet<>(appliedSchoolIds);
+        }
+    }
+
+    private static final class VariantStats {
+        private long wallNanos;
+        private long[] latencies = new long[1024];
+        private int count;
+        private long latencySum;
+        private int agreements;
+        private double ndcgSum;
+        private double recallSum;
+
+        void addLatencies(long[] batch) {
+            if (count + batch.length > latencies.length) {
+                latencies = Arrays.copyOf(latencies, Math.max(latencies.length * 2, count + batch.length));
+            }
+            System.arraycopy(batch, 0, latencies, count, batch.length);
+            count += batch.length;
+            for (long latency : batch) {
+                latencySum += latency;
+            }
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package com.admitgenius.recommendation;
+
+import com.admitgenius.dto.RecommendationRequestDTO;
+import com.admitgenius.index.SchoolFeatureIndex;
+
+import java.util.BitSet;
+
+/**
+ * 单次推荐请求的学校匹配打分器
+ * 构造时把请求编译为 {@link ScoringPlan}，逐校打分只遍历计划中的有效打分项；
+ * 之后可被多个线程并发调用（只读）
+ */
+public final class SchoolMatchScorer {
+    /** GRE各部分“明显高于”/“符合”原因，用于各项考试之间的原因互斥 */
+    private static final int GRE_HIGH_MASK = ReasonCode.GRE_VERBAL_HIGH.mask() | ReasonCode.GRE_QUANT_HIGH.mask()
+            | ReasonCode.GRE_AW_HIGH.mask();
+    private static final int GRE_MEETS_MASK = ReasonCode.GRE_VERBAL_MEETS.mask() | ReasonCode.GRE_QUANT_MEETS.mask()
+            | ReasonCode.GRE_AW_MEETS.mask();
+
+    private final SchoolFeatureIndex.Snapshot catalog;
+    private final ScoringPlan plan;
+    private final ScoringKernel kernel;
+    /** 按快照位置的候选学校（目录筛选的结果），为null时不限制 */
+    private final BitSet candidates;
+
+    /**
+     * @param catalog         学校特征快照
+     * @param request         推荐请求
+     * @param matchedPrograms 按快照位置对齐的匹配专业名称，无目标专业时为null
+     */
+    public SchoolMatchScorer(SchoolFeatureIndex.Snapshot catalog, RecommendationRequestDTO request,
+            String[] matchedPrograms) {
+        this(catalog, request, matchedPrograms, null);
+    }
+
+    /**
+     * @param catalog         学校特征快照
+     * @param request         推荐请求
+     * @param matchedPrograms 按快照位置对齐的匹配专业名称，无目标专业时为null
+     * @param kernel          批量计算学业分数的内核，为null时逐校标量计算
+     */
+    public SchoolMatchScorer(SchoolFeatureIndex.Snapshot catalog, RecommendationRequestDTO request,
+            String[] matchedPrograms, ScoringKernel kernel) {
+        this(catalog, request, matchedPrograms, kernel, null, 0.0f, ScoringWeights.DEFAULTS);
+    }
+
+    /**
+     * @param catalog             学校特征快照
+     * @param request             推荐请求
+     * @param matchedPrograms     按快照位置对齐的匹配专业名称，无目标专业时为null
+     * @param kernel              批量计算学业分数的内核，为null时逐校标量计算
+     * @param collaborativeScores 按快照位置对齐的协同过滤分数(0-1)，用户不在模型中时为null
+     * @param collaborativeWeight 协同过滤分数的权重
+     * @param weights             其余各项的权重
+     */
+    public SchoolMatchScorer(SchoolFeatureIndex.Snapshot catalog, RecommendationRequestDTO request,
+            String[] matchedPrograms, ScoringKernel kernel, float[] collaborativeScores, float collaborativeWeight,
+            ScoringWeights weights) {
+        this(catalog, request, matchedPrograms, kernel, collaborativeScores, collaborativeWeight, weights, null);
+    }
+
+    /**
+     * @param candidates 按快照位置的候选学校，为null时不限制；只有候选学校参与打分
+     */
+    public SchoolMatchScorer(SchoolFeatureIndex.Snapshot catalog, RecommendationRequestDTO request,
+            String[] matchedPrograms, ScoringKernel kernel, float[] collaborativeScores, float collaborativeWeight,
+            ScoringWeights weights, BitSet candidates) {
+        this.catalog = catalog;
+        this.kernel = kernel;
+        this.candidates = candidates;
+        // 地点得分只与地点节点有关，按地点字典的祖先关系为每个节点预先计算一次
+        float[] locationScores = catalog.locationDictionary.preferenceScores(request.getLocationPreferences());
+        this.plan = ScoringPlan.compile(request, weights, locationScores, matchedPrograms, collaborativeScores,
+                collaborativeWeight);
+    }
+
+    public SchoolFeatureIndex.Snapshot getCatalog() {
+        return catalog;
+    }
+
+    public ScoringPlan getPlan() {
+        return plan;
+    }
+
+    /**
+     * 候选预筛与排名偏好过滤：学校是否参与打分
+     */
+    public boolean accepts(int i) {
+        if (candidates != null && !candidates.get(i)) {
+            return false;
+        }
+        if (!plan.rankingFilter) {
+            return true;
+        }
+        int schoolRanking = catalog.ranking[i];
+        // Skip if school has no ranking data or its ranking is outside the preferred range
+        return schoolRanking != SchoolFeatureIndex.NO_VALUE && schoolRanking >= plan.minRank
+                && schoolRanking <= plan.maxRank;
+    }
+
+    /**
+     * 从位置from起（含）第一个候选学校的位置，之后没有候选时返回快照大小；
+     * 不限制候选时即from。返回的位置仍需经 {@link #accepts} 判断
+     */
+    public int nextCandidate(int from) {
+        if (candidates == null) {
+            return from;
+        }
+        int next = candidates.nextSetBit(from);
+        return next >= 0 ? next : catalog.size;
+    }
+
+    /**
+     * 计算位置i的学校匹配分数
+     *
+     * @param i 快照中的位置
+     * @return 匹配分数
+     */
+    public float score(int i) {
+        return evaluate(i, null);
+    }
+
+    /**
+     * 是否使用批量内核计算分数（见 {@link #scores}）
+     */
+    public boolean isBatched() {
+        return kernel != null;
+    }
+
+    /**
+     * 批量计算区间[from, to)内学校的匹配分数，结果与逐校调用 {@link #score} 逐位相同。
+     * 只有 {@link #accepts} 为true的位置有效。
+     *
+     * @param out 输出数组，out[i - from]对应位置i
+     */
+    public void scores(int from, int to, float[] out) {
+        if (kernel == null) {
+            for (int i = from; i < to; i++) {
+                if (accepts(i)) {
+                    out[i - from] = score(i);
+                }
+            }
+            return;
+        }
+        kernel.academicScores(this, from, to, out);
+        for (int i = from; i < to; i++) {
+            if (accepts(i)) {
+                out[i - from] = completeScore(i, out[i - from]);
+            }
+        }
+    }
+
+    /**
+     * 在学业分数（GPA与标准化考试两项加权和）之上累加计划中的偏好项，
+     * 累加顺序与 {@link #evaluate} 一致，保证浮点结果逐位相同
+     */
+    float completeScore(int i, float score) {
+        ScoringPlan.Component[] components = plan.components;
+        for (int c = plan.firstPreference; c < components.length; c++) {
+            switch (components[c]) {
+                case LOCATION: {
+                    int location = catalog.locationId[i];
+                    if (location != SchoolFeatureIndex.NO_VALUE) {
+                        score += plan.locationScores[location] * plan.locationWeight;
+                    }
+                    break;
+                }
+                case SCHOOL_TYPE:
+                    score += plan.typeScore;
+                    break;
+                case PROGRAM:
+                    if (plan.matchedPrograms[i] != null) {
+                        score += plan.programWeight;
+                    }
+                    break;
+                case COLLABORATIVE:
+                    score += plan.collaborativeScores[i] * plan.collaborativeWeight;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * 计算位置i的学校匹配原因
+     *
+     * @param i 快照中的位置
+     * @return 原因代码掩码，见 {@link ReasonCode}
+     */
+    public int reasonCodes(int i) {
+        int[] codes = new int[1];
+        evaluate(i, codes);
+        return codes[0];
+    }
+
+    /**
+     * 依次执行计划中的打分项
+     *
+     * @param codes 匹配原因输出（长度为1的掩码）；为null时只计算分数
+     */
+    private float evaluate(int i, int[] codes) {
+        float score = 0.0f;
+        int reasons = 0;
+
+        // Add reason if ranking was a factor and school is in range
+        if (plan.rankingFilter) {
+            reasons |= ReasonCode.RANKING_IN_RANGE.mask();
+        }
+
+        for (ScoringPlan.Component component : plan.components) {
+            switch (component) {
+                case GPA: {
+                    double schoolGpa = catalog.averageGPA[i];
+                    if (!Double.isNaN(schoolGpa)) {
+                        float gpaScore = calculateGPAScore(plan.gpa, schoolGpa);
+                        score += gpaScore * plan.gpaWeight;
+
+                        if (gpaScore > 0.7f) {
+                            reasons |= ReasonCode.GPA_STRONG.mask();
+                        } else if (gpaScore > 0.5f) {
+                            reasons |= ReasonCode.GPA_IN_RANGE.mask();
+                        }
+                    }
+                    break;
+                }
+                case TEST: {
+                    // 标准化考试匹配：GRE与GMAT取较高者
+                    float testScore = 0.0f;
+                    if (plan.hasGre) {
+                        float greScoreResult = 0.0f;
+
+                        // GRE语文部分
+                        int schoolVerbal = catalog.averageGREVerbal[i];
+                        if (plan.hasGreVerbal && schoolVerbal != SchoolFeatureIndex.NO_VALUE) {
+                            float greVerbalScore = calculateGREScore(plan.greVerbal, schoolVerbal);
+                            greScoreResult += greVerbalScore * 0.3f;
+
+                            if (greVerbalScore > 0.8f) {
+                                reasons |= ReasonCode.GRE_VERBAL_HIGH.mask();
+                            } else if (greVerbalScore > 0.6f) {
+                                reasons |= ReasonCode.GRE_VERBAL_MEETS.mask();
+                            }
+                        }
+
+                        // GRE数学部分
+                        int schoolQuant = catalog.averageGREQuant[i];
+                        if (plan.hasGreQuant && schoolQuant != SchoolFeatureIndex.NO_VALUE) {
+                            float greQuantScore = calculateGREScore(plan.greQuant, schoolQuant);
+                            greScoreResult += greQuantScore * 0.3f;
+
+                            // 各项考试的原因互斥：前面的考试已有同级原因时不再重复
+                            if (greQuantScore > 0.8f && (reasons & GRE_HIGH_MASK) == 0) {
+                                reasons |= ReasonCode.GRE_QUANT_HIGH.mask();
+                            } else if (greQuantScore > 0.6f && (reasons & GRE_MEETS_MASK) == 0) {
+                                reasons |= ReasonCode.GRE_QUANT_MEETS.mask();
+                            }
+                        }
+
+                        // GRE分析性写作部分
+                        double schoolAW = catalog.averageGREAW[i];
+                        if (plan.hasGreAW && !Double.isNaN(schoolAW)) {
+                            float greAWScore = calculateGREAWScore(plan.greAW, schoolAW);
+                            greScoreResult += greAWScore * 0.4f;
+
+                            if (greAWScore > 0.8f && (reasons & GRE_HIGH_MASK) == 0) {
+                                reasons |= ReasonCode.GRE_AW_HIGH.mask();
+                            } else if (greAWScore > 0.6f && (reasons & GRE_MEETS_MASK) == 0) {
+                                reasons |= ReasonCode.GRE_AW_MEETS.mask();
+                            }
+                        }
+
+                        testScore = Math.max(testScore, greScoreResult);
+                    }
+
+                    // GMAT分数
+                    int schoolGmat = catalog.averageGMAT[i];
+                    if (plan.hasGmat && schoolGmat != SchoolFeatureIndex.NO_VALUE) {
+                        float gmatScore = calculateGMATScore(plan.gmat, schoolGmat);
+                        testScore = Math.max(testScore, gmatScore);
+
+                        if (gmatScore > 0.8f && (reasons & GRE_HIGH_MASK) == 0) {
+                            reasons |= ReasonCode.GMAT_HIGH.mask();
+                        } else if (gmatScore > 0.6f && (reasons & GRE_MEETS_MASK) == 0) {
+                            reasons |= ReasonCode.GMAT_MEETS.mask();
+                        }
+                    }
+
+                    score += testScore * plan.testWeight;
+                    break;
+                }
+                case LOCATION: {
+                    int location = catalog.locationId[i];
+                    if (location != SchoolFeatureIndex.NO_VALUE) {
+                        float locationScore = plan.locationScores[location];
+                        score += locationScore * plan.locationWeight;
+
+                        if (locationScore > 0.9f) {
+                            reasons |= ReasonCode.LOCATION_FULL.mask();
+                        } else if (locationScore > 0.5f) {
+                            reasons |= ReasonCode.LOCATION_PARTIAL.mask();
+                        }
+                    }
+                    break;
+                }
+                case SCHOOL_TYPE:
+                    score += plan.typeScore;
+
+                    // 如果有Ivy League偏好且学校是常春藤
+                    if (plan.ivyPreferred && catalog.ivyLeague[i]) {
+                        reasons |= ReasonCode.IVY_LEAGUE.mask();
+                    }
+                    break;
+                case PROGRAM:
+                    if (plan.matchedPrograms[i] != null) {
+                        score += plan.programWeight;
+                        reasons |= ReasonCode.PROGRAM_OFFERED.mask();
+                    }
+                    break;
+                case COLLABORATIVE: {
+                    // 协同过滤：相似用户的申请/收藏（用户没有反馈时不在计划中）
+                    float collaborativeScore = plan.collaborativeScores[i];
+                    score += collaborativeScore * plan.collaborativeWeight;
+
+                    if (collaborativeScore > 0.5f) {
+                        reasons |= ReasonCode.SIMILAR_APPLICANTS.mask();
+                    }
+                    break;
+                }
+                default:
+                    break;
+            }
+        }
+
+        if (codes != null) {
+            codes[0] = reasons;
+        }
+        return score;
+    }
+
+    public static float calculateGPAScore(double userGPA, double schoolGPA) {
+        // 计算用户GPA与学校GPA的匹配度，返回0-1的分数
+        // 基本逻辑：用户GPA >= 学校GPA时为高匹配，否则按差距减分
+        if (userGPA >= schoolGPA) {
+            return 1.0f;
+        } else {
+            float difference = (float) (schoolGPA - userGPA);
+            // GPA差距每0.3减0.2分
+            return Math.max(0, 1.0f - (difference / 0.3f) * 0.2f);
+        }
+    }
+
+    /**
+     * 计算GRE分数匹配度
+     *
+     * @param userScore 用户GRE分数
+     * @param schoolAvg 学校平均GRE分数
+     * @return 匹配度分数(0-1)
+     */
+    public static float calculateGREScore(int userScore, int schoolAvg) {
+        // GRE各部分分数范围：130-170，计算匹配度
+        if (userScore >= schoolAvg) {
+            return 1.0f;
+        } else {
+            float difference = schoolAvg - userScore;
+            // 差距每5分减0.2分
+            return Math.max(0, 1.0f - (difference / 5.0f) * 0.2f);
+        }
+    }
+
+    /**
+     * 计算GRE分析性写作匹配度
+     *
+     * @param userScore 用户GRE AW分数
+     * @param schoolAvg 学校平均GRE AW分数
+     * @return 匹配度分数(0-1)
+     */
+    public static float calculateGREAWScore(double userScore, double schoolAvg) {
+        // GRE AW分数范围：0.0-6.0，计算匹配度
+        if (userScore >= schoolAvg) {
+            return 1.0f;
+        } else {
+            float difference = (float) (schoolAvg - userScore);
+            // 差距每0.5分减0.2分
+            return Math.max(0, 1.0f - (difference / 0.5f) * 0.2f);
+        }
+    }
+
+    /**
+     * 计算GMAT分数匹配度
+     *
+     * @param userScore 用户GMAT分数
+     * @param schoolAvg 学校平均GMAT分数
+     * @return 匹配度分数(0-1)
+     */
+    public static float calculateGMATScore(int userScore, int schoolAvg) {
+        // GMAT分数范围：200-800，计算匹配度
+        if (userScore >= schoolAvg) {
+            return 1.0f;
+        } else {
+            float difference = schoolAvg - userScore;
+            // 差距每30分减0.2分
+            return Math.max(0, 1.0f - (difference / 30.0f) * 0.2f);
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.admitgenius.recommendation;
+
+import com.admitgenius.dto.RecommendationRequestDTO;
+import com.admitgenius.index.SchoolFeatureIndex;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * 打分引擎版本
+ * recommendation.engine.primary：主版本，服务请求并写入推荐记录的modelVersion；
+ * recommendation.engine.versions：登记的版本，格式 版本=变体描述（见 {@link ScoringVariant}），多个以分号分隔，
+ * 主版本未登记时即当前的打分内核与权重配置。
+ * recommendation.engine.shadow.version：影子版本，为空时不启用。主版本排名后把同一份输入交给影子版本，
+ * 在独立的有界线程池上异步重算排名并与主版本比较；队列满时直接丢弃，不给请求增加延迟。
+ */
+@Component
+public class ScoringEngines {
+    private static final Logger logger = LoggerFactory.getLogger(ScoringEngines.class);
+
+    @Autowired
+    private ScoringKernels scoringKernels;
+
+    @Autowired
+    private ScoringWeights scoringWeights;
+
+    @Autowired
+    private CollaborativeFilteringModel collaborativeFilteringModel;
+
+    @Value("${recommendation.engine.primary:v1}")
+    private String primaryVersion;
+
+    @Value("${recommendation.engine.versions:}")
+    private String versions;
+
+    @Value("${recommendation.engine.shadow.version:}")
+    private String shadowVersion;
+
+    @Value("${recommendation.engine.shadow.pool-size:1}")
+    private int shadowPoolSize;
+
+    @Value("${recommendation.engine.shadow.queue-capacity:100}")
+    private int shadowQueueCapacity;
+
+    @Value("${recommendation.engine.shadow.recent:20}")
+    private int recentLimit;
+
+    private final Map<String, ScoringVariant> engines = new LinkedHashMap<>();
+    private ScoringVariant primary;
+    private volatile ScoringVariant shadow;
+    private ThreadPoolExecutor shadowExecutor;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong compared = new AtomicLong();
+    private final AtomicLong exactMatches = new AtomicLong();
+    private final AtomicLong topMatches = new AtomicLong();
+    private final DoubleAdder overlapSum = new DoubleAdder();
+    private final AtomicLong primaryNanos = new AtomicLong();
+    private final AtomicLong shadowNanos = new AtomicLong();
+    /** 最近的比较结果，最新的在前 */
+    private final Deque<Map<String, Object>> recent = new ArrayDeque<>();
+
+    @PostConstruct
+    public void init() {
+        float collaborativeWeight = collaborativeFilteringModel.getWeight();
+        for (String entry : versions.split(";")) {
+            if (entry.trim().isEmpty()) {
+                continue;
+            }
+            int equals = entry.indexOf('=');
+            if (equals <= 0) {
+                throw new IllegalStateException("recommendation.engine.versions 格式应为 版本=变体描述: " + entry);
+            }
+            String version = entry.substring(0, equals).trim();
+            register(version, ScoringVariant.parse(entry.substring(equals + 1), scoringWeights, collaborativeWeight));
+        }
+        synchronized (engines) {
+            primary = engines.computeIfAbsent(primaryVersion, version -> ScoringVariant.of(version,
+                    scoringKernels.get(), scoringWeights, collaborativeWeight));
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "recommendation-shadow-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            // 影子计算与请求线程争用CPU时让出
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        };
+        shadowExecutor = new ThreadPoolExecutor(shadowPoolSize, shadowPoolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(shadowQueueCapacity), threadFactory,
+                (task, executor) -> dropped.incrementAndGet());
+        setShadowVersion(shadowVersion);
+        logger.info("打分引擎主版本: {}，影子版本: {}", primaryVersion, shadow != null ? shadow.getName() : "无");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shadowExecutor.shutdownNow();
+    }
+
+    /**
+     * 登记一个引擎版本
+     *
+     * @throws IllegalArgumentException 版本号为空或已登记
+     */
+    public void register(String version, ScoringVariant engine) {
+        if (version == null || version.trim().isEmpty()) {
+            throw new IllegalArgumentException("引擎版本号不能为空");
+        }
+        synchronized (engines) {
+            if (engines.containsKey(version)) {
+                throw new IllegalArgumentException("引擎版本已登记: " + version);
+            }
+            engines.put(version, engine.named(version));
+        }
+    }
+
+    /**
+     * 切换影子版本并清零比较统计；为空时停用影子
+     *
+     * @throws IllegalArgumentException 版本未登记或与主版本相同
+     */
+    public void setShadowVersion(String version) {
+        ScoringVariant engine = null;
+        if (version != null && !version.trim().isEmpty()) {
+            if (version.equals(primaryVersion)) {
+                throw new IllegalArgumentException("影子版本不能与主版本相同: " + version);
+            }
+            engine = find(version);
+            if (engine == null) {
+                throw new IllegalArgumentException("未登记的引擎版本: " + version);
+            }
+        }
+        synchronized (recent) {
+            shadow = engine;
+            resetStats();
+        }
+    }
+
+    public String getPrimaryVersion() {
+        return primaryVersion;
+    }
+
+    /**
+     * 服务请求的主版本
+     */
+    public ScoringVariant primary() {
+        return primary;
+    }
+
+    /**
+     * 按版本号查找，未登记时返回null
+     */
+    public ScoringVariant find(String version) {
+        synchronized (engines) {
+            return engines.get(version);
+        }
+    }
+
+    /**
+     * 把主版本的一次排名交给影子版本异步比较；未启用影子或队列已满时立即返回。
+     * 输入数组与请求在提交后不能再被修改。
+     *
+     * @param candidates   主版本使用的候选学校，为null时不限制
+     * @param primaryIds   主版本排名的学校ID（按排名顺序）
+     * @param primaryNanos 主版本排名耗时
+     */
+    public void shadow(SchoolFeatureIndex.Snapshot catalog, RecommendationRequestDTO request,
+            String[] matchedPrograms, float[] collaborativeScores, BitSet candidates, long[] primaryIds,
+            long primaryNanos) {
+        ScoringVariant engine = shadow;
+        if (engine == null) {
+            return;
+        }
+        submitted.incrementAndGet();
+        shadowExecutor.execute(() -> {
+            try {
+                long start = System.nanoTime();
+                long[] shadowIds = rank(engine, catalog, request, matchedPrograms, collaborativeScores,
+                        candidates, primaryIds.length);
+                record(engine, primaryIds, shadowIds, primaryNanos, System.nanoTime() - start);
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+                logger.warn("影子版本 {} 排名失败: {}", engine.getName(), e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 与主版本排名相同的步骤：选出前depth名并计算匹配原因
+     */
+    private static long[] rank(ScoringVariant engine, SchoolFeatureIndex.Snapshot catalog,
+            RecommendationRequestDTO request, String[] matchedPrograms, float[] collaborativeScores,
+            BitSet candidates, int depth) {
+        SchoolMatchScorer scorer = engine.newScorer(catalog, request, matchedPrograms, collaborativeScores,
+                candidates);
+        List<TopKSelector.Candidate> top = TopKSelector.select(scorer, depth);
+        long[] ids = new long[top.size()];
+        for (int r = 0; r < ids.length; r++) {
+            int position = top.get(r).getPosition();
+            scorer.reasonCodes(position);
+            ids[r] = catalog.ids[position];
+        }
+        return ids;
+    }
+
+    private void record(ScoringVariant engine, long[] primaryIds, long[] shadowIds, long primaryTime,
+            long shadowTime) {
+        Set<Long> primarySet = new HashSet<>();
+        for (long id : primaryIds) {
+            primarySet.add(id);
+        }
+        int common = 0;
+        for (long id : shadowIds) {
+            if (primarySet.contains(id)) {
+                common++;
+            }
+        }
+        double overlap = primaryIds.length == 0 ? 1.0 : (double) common / primaryIds.length;
+        boolean exact = Arrays.equals(primaryIds, shadowIds);
+        boolean sameTop = primaryIds.length == 0 ? shadowIds.length == 0
+                : shadowIds.length > 0 && primaryIds[0] == shadowIds[0];
+
+        Map<String, Object> comparison = new LinkedHashMap<>();
+        comparison.put("primary", primaryIds);
+        comparison.put("shadow", shadowIds);
+        comparison.put("overlap", overlap);
+        comparison.put("primaryMs", primaryTime / 1e6);
+        comparison.put("shadowMs", shadowTime / 1e6);
+        synchronized (recent) {
+            // 比较期间影子版本被切换时丢弃旧版本的结果
+            if (shadow != engine) {
+                return;
+            }
+            compared.incrementAndGet();
+            if (exact) {
+                exactMatches.incrementAndGet();
+            }
+            if (sameTop) {
+                topMatches.incrementAndGet();
+            }
+            overlapSum.add(overlap);
+            primaryNanos.addAndGet(primaryTime);
+            shadowNanos.addAndGet(shadowTime);
+            recent.addFirst(comparison);
+            while (recent.size() > recentLimit) {
+                recent.removeLast();
+            }
+        }
+    }
+
+    private void resetStats() {
+        submitted.set(0);
+        dropped.set(0);
+        failed.set(0);
+        compared.set(0);
+        exactMatches.set(0);
+        topMatches.set(0);
+        overlapSum.reset();
+        primaryNanos.set(0);
+        shadowNanos.set(0);
+        recent.clear();
+    }
+
+    /**
+     * 版本与影子比较统计：一致率（前k名完全相同、第一名相同）、平均重合率、
+     * 主版本与影子版本的平均排名耗时及其差值
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("primaryVersion", primaryVersion);
+        synchronized (engines) {
+            stats.put("versions", new ArrayList<>(engines.keySet()));
+        }
+        synchronized (recent) {
+            ScoringVariant engine = shadow;
+            stats.put("shadowVersion", engine != null ? engine.getName() : null);
+            long count = compared.get();
+            stats.put("submitted", submitted.get());
+            stats.put("compared", count);
+            stats.put("dropped", dropped.get());
+            stats.put("failed", failed.get());
+            stats.put("queued", shadowExecutor.getQueue().size());
+            if (count > 0) {
+                double primaryMs = primaryNanos.get() / 1e6 / count;
+                double shadowMs = shadowNanos.get() / 1e6 / count;
+                stats.put("exactAgreement", (double) exactMatches.get() / count);
+                stats.put("topAgreement", (double) topMatches.get() / count);
+                stats.put("meanOverlap", overlapSum.sum() / count);
+                stats.put("meanPrimaryLatencyMs", primaryMs);
+                stats.put("meanShadowLatencyMs", shadowMs);
+                stats.put("meanLatencyDeltaMs", shadowMs - primaryMs);
+            }
+            stats.put("recent", new ArrayList<>(recent));
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,17 @@
+package com.admitgenius.recommendation;
+
+/**
+ * 学业分数批量计算内核
+ * 学业分数指GPA得分×0.3与标准化考试得分×0.3之和，计算方式必须与
+ * {@link SchoolMatchScorer} 的逐校计算逐位相同。
+ */
+public interface ScoringKernel {
+
+    /**
+     * @param scorer 当前请求的打分器（提供快照和展开后的请求参数）
+     * @param from   起始位置（含）
+     * @param to     结束位置（不含）
+     * @param out    输出数组，out[i - from]对应位置i
+     */
+    void academicScores(SchoolMatchScorer scorer, int from, int to, float[] out);
+}
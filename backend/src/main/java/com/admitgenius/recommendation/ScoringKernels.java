@@ -0,0 +1,64 @@
+package com.admitgenius.recommendation;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 打分内核选择
+ * recommendation.scoring.kernel：
+ * auto（默认，JVM启用了jdk.incubator.vector模块时使用向量内核，否则标量）、vector、scalar。
+ * 向量内核依赖孵化模块，运行时需加 --add-modules jdk.incubator.vector。
+ */
+@Component
+public class ScoringKernels {
+    private static final Logger logger = LoggerFactory.getLogger(ScoringKernels.class);
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    @Value("${recommendation.scoring.kernel:auto}")
+    private String mode;
+
+    private ScoringKernel kernel;
+
+    @PostConstruct
+    public void init() {
+        if ("scalar".equalsIgnoreCase(mode)) {
+            kernel = null;
+            return;
+        }
+        kernel = vectorKernel();
+        if (kernel == null && "vector".equalsIgnoreCase(mode)) {
+            logger.warn("{} 模块未启用，推荐打分回退为标量计算", VECTOR_MODULE);
+        }
+    }
+
+    /**
+     * 当前使用的内核；为null表示标量计算
+     */
+    public ScoringKernel get() {
+        return kernel;
+    }
+
+    public String getName() {
+        return kernel != null ? "vector" : "scalar";
+    }
+
+    /**
+     * 创建向量内核；模块未启用时返回null。
+     * 通过反射加载，避免在未启用模块的JVM上解析到孵化API的类。
+     */
+    public static ScoringKernel vectorKernel() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return null;
+        }
+        try {
+            return (ScoringKernel) Class.forName("com.admitgenius.recommendation.VectorScoringKernel")
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
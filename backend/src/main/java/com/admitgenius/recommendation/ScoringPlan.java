@@ -0,0 +1,148 @@
+package com.admitgenius.recommendation;
+
+import com.admitgenius.dto.RecommendationRequestDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 编译后的打分计划
+ * 把推荐请求展开为按累加顺序排列的有效打分项，以及各项用到的基本类型参数和权重；
+ * 请求中没有提供的项不进入计划，逐校打分时不再访问请求对象和集合。
+ * 不可变，可被多个线程共享。
+ */
+public final class ScoringPlan {
+    private static final Logger logger = LoggerFactory.getLogger(ScoringPlan.class);
+
+    /**
+     * 打分项，按累加顺序排列；GPA与标准化考试为学业分数，其余为偏好分数
+     */
+    enum Component {
+        GPA, TEST, LOCATION, SCHOOL_TYPE, PROGRAM, COLLABORATIVE
+    }
+
+    /** 学校类型偏好的默认匹配度（学校暂无类型标签） */
+    private static final float TYPE_SCORE = 0.5f;
+
+    /** 有效打分项，学业项在前 */
+    final Component[] components;
+    /** 第一个偏好项在components中的下标 */
+    final int firstPreference;
+
+    final boolean rankingFilter;
+    final int minRank;
+    final int maxRank;
+
+    // 展开后的考试成绩（缺失时对应的has标记为false）
+    final boolean hasGpa;
+    final double gpa;
+    final boolean hasGre;
+    final boolean hasGreVerbal;
+    final int greVerbal;
+    final boolean hasGreQuant;
+    final int greQuant;
+    final boolean hasGreAW;
+    final double greAW;
+    final boolean hasGmat;
+    final int gmat;
+
+    final boolean ivyPreferred;
+    /** 按地点节点编号的地点得分 */
+    final float[] locationScores;
+    /** 按快照位置对齐的匹配专业名称 */
+    final String[] matchedPrograms;
+    /** 按快照位置对齐的协同过滤分数(0-1) */
+    final float[] collaborativeScores;
+
+    final float gpaWeight;
+    final float testWeight;
+    final float locationWeight;
+    /** 学校类型项的加权得分，对每所学校都相同 */
+    final float typeScore;
+    final float programWeight;
+    final float collaborativeWeight;
+
+    private ScoringPlan(RecommendationRequestDTO request, ScoringWeights weights, float[] locationScores,
+            String[] matchedPrograms, float[] collaborativeScores, float collaborativeWeight) {
+        List<Integer> rankingRange = request.getRankingRange();
+        boolean validRange = false;
+        if (rankingRange != null && !rankingRange.isEmpty()) {
+            if (rankingRange.size() == 2) {
+                validRange = true;
+            } else {
+                logger.warn("排名区间参数长度无效，忽略排名打分: {}", rankingRange.size());
+            }
+        }
+        rankingFilter = validRange;
+        minRank = validRange ? rankingRange.get(0) : 0;
+        maxRank = validRange ? rankingRange.get(1) : 0;
+
+        hasGpa = request.getGpa() != null;
+        gpa = hasGpa ? request.getGpa() : 0.0;
+        hasGre = request.getGreScore() != null;
+        hasGreVerbal = request.getGreVerbal() != null;
+        greVerbal = hasGreVerbal ? request.getGreVerbal() : 0;
+        hasGreQuant = request.getGreQuantitative() != null;
+        greQuant = hasGreQuant ? request.getGreQuantitative() : 0;
+        hasGreAW = request.getGreAnalytical() != null;
+        greAW = hasGreAW ? request.getGreAnalytical() : 0.0;
+        hasGmat = request.getGmatScore() != null;
+        gmat = hasGmat ? request.getGmatScore() : 0;
+
+        boolean typePreference = request.getSchoolTypePreferences() != null
+                && !request.getSchoolTypePreferences().isEmpty();
+        ivyPreferred = typePreference && request.getSchoolTypePreferences().contains("Ivy League");
+        this.locationScores = locationScores;
+        this.matchedPrograms = matchedPrograms;
+        this.collaborativeScores = collaborativeScores;
+
+        gpaWeight = weights.getGpa();
+        testWeight = weights.getTest();
+        locationWeight = weights.getLocation();
+        typeScore = TYPE_SCORE * weights.getSchoolType();
+        programWeight = weights.getProgram();
+        this.collaborativeWeight = collaborativeWeight;
+
+        // 没有成绩的考试项得分恒为0，累加0不改变分数，可以直接省略
+        List<Component> active = new ArrayList<>();
+        if (hasGpa) {
+            active.add(Component.GPA);
+        }
+        if (hasGre || hasGmat) {
+            active.add(Component.TEST);
+        }
+        firstPreference = active.size();
+        if (locationScores != null) {
+            active.add(Component.LOCATION);
+        }
+        if (typePreference) {
+            active.add(Component.SCHOOL_TYPE);
+        }
+        if (matchedPrograms != null) {
+            active.add(Component.PROGRAM);
+        }
+        if (collaborativeScores != null) {
+            active.add(Component.COLLABORATIVE);
+        }
+        components = active.toArray(new Component[0]);
+    }
+
+    /**
+     * 编译打分计划
+     *
+     * @param request             推荐请求
+     * @param weights             各项权重
+     * @param locationScores      按地点节点编号的地点得分，无地点偏好时为null
+     * @param matchedPrograms     按快照位置对齐的匹配专业名称，无目标专业时为null
+     * @param collaborativeScores 按快照位置对齐的协同过滤分数(0-1)，用户不在模型中时为null
+     * @param collaborativeWeight 协同过滤分数的权重
+     */
+    public static ScoringPlan compile(RecommendationRequestDTO request, ScoringWeights weights,
+            float[] locationScores, String[] matchedPrograms, float[] collaborativeScores,
+            float collaborativeWeight) {
+        return new ScoringPlan(request, weights, locationScores, matchedPrograms, collaborativeScores,
+                collaborativeWeight);
+    }
+}
@@ -0,0 +1,153 @@
+package com.admitgenius.recommendation;
+
+import com.admitgenius.dto.RecommendationRequestDTO;
+import com.admitgenius.index.SchoolFeatureIndex;
+
+import java.util.BitSet;
+
+/**
+ * 打分引擎变体：打分内核与各项权重的组合，用于离线回放比较速度和排序质量
+ * 描述格式：内核[:项=权重,...]，内核为scalar或vector；项为gpa、test、location、school-type、program、cf，
+ * 未指定的项沿用当前配置。例如 vector、scalar:gpa=0.35,test=0.25、vector:cf=0
+ * 注意协同过滤模型本身由已申请记录训练，回放的质量指标会偏乐观；比较其他项时可加 cf=0。
+ */
+public final class ScoringVariant {
+    private final String name;
+    private final ScoringKernel kernel;
+    private final ScoringWeights weights;
+    private final float collaborativeWeight;
+
+    private ScoringVariant(String name, ScoringKernel kernel, ScoringWeights weights, float collaborativeWeight) {
+        this.name = name;
+        this.kernel = kernel;
+        this.weights = weights;
+        this.collaborativeWeight = collaborativeWeight;
+    }
+
+    /**
+     * @param name                名称（变体描述或引擎版本号）
+     * @param kernel              批量计算学业分数的内核，为null时逐校标量计算
+     * @param weights             各项权重
+     * @param collaborativeWeight 协同过滤分数的权重，为0时不计入
+     */
+    public static ScoringVariant of(String name, ScoringKernel kernel, ScoringWeights weights,
+            float collaborativeWeight) {
+        return new ScoringVariant(name, kernel, weights, collaborativeWeight);
+    }
+
+    /**
+     * 同一组内核和权重，换一个名称（如登记为引擎版本）
+     */
+    public ScoringVariant named(String name) {
+        return new ScoringVariant(name, kernel, weights, collaborativeWeight);
+    }
+
+    /**
+     * 解析变体描述
+     *
+     * @param spec                变体描述
+     * @param defaults            当前配置的权重
+     * @param collaborativeWeight 当前配置的协同过滤权重
+     * @throws IllegalArgumentException 描述无效，或要求向量内核但JVM未启用向量模块
+     */
+    public static ScoringVariant parse(String spec, ScoringWeights defaults, float collaborativeWeight) {
+        if (spec == null || spec.trim().isEmpty()) {
+            throw new IllegalArgumentException("打分变体不能为空");
+        }
+        String name = spec.trim();
+        int colon = name.indexOf(':');
+        String kernelName = (colon >= 0 ? name.substring(0, colon) : name).trim();
+        ScoringKernel kernel;
+        if ("scalar".equalsIgnoreCase(kernelName)) {
+            kernel = null;
+        } else if ("vector".equalsIgnoreCase(kernelName)) {
+            kernel = ScoringKernels.vectorKernel();
+            if (kernel == null) {
+                throw new IllegalArgumentException("向量内核未启用（需以 --add-modules jdk.incubator.vector 启动）: " + name);
+            }
+        } else {
+            throw new IllegalArgumentException("未知的打分内核: " + kernelName);
+        }
+
+        float gpa = defaults.getGpa();
+        float test = defaults.getTest();
+        float location = defaults.getLocation();
+        float schoolType = defaults.getSchoolType();
+        float program = defaults.getProgram();
+        float cf = collaborativeWeight;
+        if (colon >= 0) {
+            for (String option : name.substring(colon + 1).split(",")) {
+                String[] pair = option.split("=", 2);
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException("打分变体的权重格式应为 项=权重: " + option);
+                }
+                float weight = parseWeight(pair[1].trim(), option);
+                switch (pair[0].trim()) {
+                    case "gpa":
+                        gpa = weight;
+                        break;
+                    case "test":
+                        test = weight;
+                        break;
+                    case "location":
+                        location = weight;
+                        break;
+                    case "school-type":
+                        schoolType = weight;
+                        break;
+                    case "program":
+                        program = weight;
+                        break;
+                    case "cf":
+                        cf = weight;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("未知的权重项: " + pair[0].trim());
+                }
+            }
+        }
+        return new ScoringVariant(name, kernel, new ScoringWeights(gpa, test, location, schoolType, program), cf);
+    }
+
+    private static float parseWeight(String value, String option) {
+        try {
+            float weight = Float.parseFloat(value);
+            if (weight >= 0.0f && !Float.isInfinite(weight)) {
+                return weight;
+            }
+        } catch (NumberFormatException e) {
+            // 与负数一样按无效权重处理
+        }
+        throw new IllegalArgumentException("权重必须是非负数: " + option);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 是否计入协同过滤分数（权重为0时不取用户因子）
+     */
+    public boolean usesCollaborativeScores() {
+        return collaborativeWeight > 0.0f;
+    }
+
+    /**
+     * 按该变体的内核和权重创建打分器
+     *
+     * @param collaborativeScores 按快照位置对齐的协同过滤分数，用户不在模型中或变体不使用时为null
+     */
+    public SchoolMatchScorer newScorer(SchoolFeatureIndex.Snapshot catalog, RecommendationRequestDTO request,
+            String[] matchedPrograms, float[] collaborativeScores) {
+        return newScorer(catalog, request, matchedPrograms, collaborativeScores, null);
+    }
+
+    /**
+     * @param candidates 按快照位置的候选学校（目录筛选的结果），为null时不限制
+     */
+    public SchoolMatchScorer newScorer(SchoolFeatureIndex.Snapshot catalog, RecommendationRequestDTO request,
+            String[] matchedPrograms, float[] collaborativeScores, BitSet candidates) {
+        return new SchoolMatchScorer(catalog, request, matchedPrograms, kernel,
+                usesCollaborativeScores() ? collaborativeScores : null, collaborativeWeight, weights, candidates);
+    }
+}
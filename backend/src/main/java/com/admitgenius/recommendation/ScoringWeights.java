@@ -0,0 +1,72 @@
+package com.admitgenius.recommendation;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 匹配打分各项的权重
+ * recommendation.scoring.weight.*：GPA、标准化考试、地点、学校类型、专业，
+ * 默认0.3/0.3/0.15/0.15/0.1；协同过滤的权重见 recommendation.cf.weight。
+ * 在编译打分计划时读取（见 {@link ScoringPlan}），修改配置后需重启生效。
+ */
+@Component
+public class ScoringWeights {
+    /** 默认权重，供不经过Spring容器创建的打分器使用 */
+    public static final ScoringWeights DEFAULTS = new ScoringWeights(0.3f, 0.3f, 0.15f, 0.15f, 0.1f);
+
+    @Value("${recommendation.scoring.weight.gpa:0.3}")
+    private float gpa;
+
+    @Value("${recommendation.scoring.weight.test:0.3}")
+    private float test;
+
+    @Value("${recommendation.scoring.weight.location:0.15}")
+    private float location;
+
+    @Value("${recommendation.scoring.weight.school-type:0.15}")
+    private float schoolType;
+
+    @Value("${recommendation.scoring.weight.program:0.1}")
+    private float program;
+
+    public ScoringWeights() {
+    }
+
+    public ScoringWeights(float gpa, float test, float location, float schoolType, float program) {
+        this.gpa = gpa;
+        this.test = test;
+        this.location = location;
+        this.schoolType = schoolType;
+        this.program = program;
+    }
+
+    @PostConstruct
+    public void init() {
+        for (float weight : new float[]{gpa, test, location, schoolType, program}) {
+            if (!(weight >= 0.0f) || Float.isInfinite(weight)) {
+                throw new IllegalStateException("recommendation.scoring.weight.* 必须是非负数: " + weight);
+            }
+        }
+    }
+
+    public float getGpa() {
+        return gpa;
+    }
+
+    public float getTest() {
+        return test;
+    }
+
+    public float getLocation() {
+        return location;
+    }
+
+    public float getSchoolType() {
+        return schoolType;
+    }
+
+    public float getProgram() {
+        return program;
+    }
+}
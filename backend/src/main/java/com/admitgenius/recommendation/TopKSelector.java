@@ -0,0 +1,218 @@
+package com.admitgenius.recommendation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 并行Top-K选择
+ * 将目录按位置区间做fork-join切分，每个分片维护大小为K的最小堆，最后合并。
+ * 内存占用只与K和分片数相关，与目录规模无关（批量打分使用每个线程复用的定长块缓冲）。
+ * 排序规则与原先的稳定排序一致：分数降序，同分按目录位置升序。
+ */
+public final class TopKSelector {
+    /** 单个分片处理的最大学校数，小目录不做切分 */
+    static final int SPLIT_THRESHOLD = 4096;
+    /** 批量打分的块大小（向量通道数的整数倍） */
+    static final int BLOCK_SIZE = 2048;
+    /**
+     * 批量打分的块缓冲，每个线程一份：分片扫描期间不会在同一线程上嵌套执行另一个分片，
+     * 选择过程的内存占用因此与目录规模无关
+     */
+    private static final ThreadLocal<float[]> BLOCK_BUFFER = ThreadLocal.withInitial(() -> new float[BLOCK_SIZE]);
+
+    private TopKSelector() {
+    }
+
+    /**
+     * 选出得分最高的K所学校
+     *
+     * @param scorer 打分器
+     * @param k      需要的数量
+     * @return 按分数降序排列的候选（位置和分数）
+     */
+    public static List<Candidate> select(SchoolMatchScorer scorer, int k) {
+        int size = scorer.getCatalog().size;
+        if (k <= 0 || size == 0) {
+            return new ArrayList<>();
+        }
+        ScoreHeap heap = size <= SPLIT_THRESHOLD
+                ? scan(scorer, 0, size, k)
+                : ForkJoinPool.commonPool().invoke(new SelectTask(scorer, 0, size, k));
+        return heap.toSortedList();
+    }
+
+    private static ScoreHeap scan(SchoolMatchScorer scorer, int from, int to, int k) {
+        ScoreHeap heap = new ScoreHeap(k);
+        if (scorer.isBatched()) {
+            // 按块批量打分，块从下一个候选学校开始，没有候选的区间整段跳过
+            float[] scores = BLOCK_BUFFER.get();
+            int start = scorer.nextCandidate(from);
+            while (start < to) {
+                int end = Math.min(start + BLOCK_SIZE, to);
+                scorer.scores(start, end, scores);
+                for (int i = start; i < end; i = scorer.nextCandidate(i + 1)) {
+                    if (scorer.accepts(i)) {
+                        heap.offer(i, scores[i - start]);
+                    }
+                }
+                start = scorer.nextCandidate(end);
+            }
+            return heap;
+        }
+        // 逐校打分时直接跳到下一个候选学校
+        for (int i = scorer.nextCandidate(from); i < to; i = scorer.nextCandidate(i + 1)) {
+            if (scorer.accepts(i)) {
+                heap.offer(i, scorer.score(i));
+            }
+        }
+        return heap;
+    }
+
+    private static final class SelectTask extends RecursiveTask<ScoreHeap> {
+        private final SchoolMatchScorer scorer;
+        private final int from;
+        private final int to;
+        private final int k;
+
+        SelectTask(SchoolMatchScorer scorer, int from, int to, int k) {
+            this.scorer = scorer;
+            this.from = from;
+            this.to = to;
+            this.k = k;
+        }
+
+        @Override
+        protected ScoreHeap compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                return scan(scorer, from, to, k);
+            }
+            int mid = (from + to) >>> 1;
+            SelectTask left = new SelectTask(scorer, from, mid, k);
+            left.fork();
+            ScoreHeap right = new SelectTask(scorer, mid, to, k).compute();
+            ScoreHeap merged = left.join();
+            merged.addAll(right);
+            return merged;
+        }
+    }
+
+    /**
+     * 入选候选：快照位置与分数
+     */
+    public static final class Candidate {
+        private final int position;
+        private final float score;
+
+        Candidate(int position, float score) {
+            this.position = position;
+            this.score = score;
+        }
+
+        public int getPosition() {
+            return position;
+        }
+
+        public float getScore() {
+            return score;
+        }
+    }
+
+    /**
+     * 基本类型数组实现的有界最小堆，堆顶是当前最差的候选
+     */
+    static final class ScoreHeap {
+        private final int[] positions;
+        private final float[] scores;
+        private int size;
+
+        ScoreHeap(int capacity) {
+            this.positions = new int[capacity];
+            this.scores = new float[capacity];
+        }
+
+        void offer(int position, float score) {
+            if (size < positions.length) {
+                positions[size] = position;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (better(position, score, positions[0], scores[0])) {
+                positions[0] = position;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        void addAll(ScoreHeap other) {
+            for (int i = 0; i < other.size; i++) {
+                offer(other.positions[i], other.scores[i]);
+            }
+        }
+
+        /**
+         * 按分数降序输出，会清空堆
+         */
+        List<Candidate> toSortedList() {
+            Candidate[] sorted = new Candidate[size];
+            // 依次弹出堆顶（最差的）放到末尾
+            while (size > 0) {
+                sorted[size - 1] = new Candidate(positions[0], scores[0]);
+                size--;
+                positions[0] = positions[size];
+                scores[0] = scores[size];
+                siftDown(0);
+            }
+            return List.of(sorted);
+        }
+
+        /**
+         * a是否优于b：分数更高，或同分时位置更靠前
+         */
+        private static boolean better(int positionA, float scoreA, int positionB, float scoreB) {
+            if (scoreA != scoreB) {
+                return scoreA > scoreB;
+            }
+            return positionA < positionB;
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (!better(positions[parent], scores[parent], positions[index], scores[index])) {
+                    break;
+                }
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int left = 2 * index + 1;
+                if (left >= size) {
+                    break;
+                }
+                int worst = left;
+                int right = left + 1;
+                if (right < size && better(positions[left], scores[left], positions[right], scores[right])) {
+                    worst = right;
+                }
+                if (!better(positions[index], scores[index], positions[worst], scores[worst])) {
+                    break;
+                }
+                swap(index, worst);
+                index = worst;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int position = positions[a];
+            positions[a] = positions[b];
+            positions[b] = position;
+            float score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+    }
+}
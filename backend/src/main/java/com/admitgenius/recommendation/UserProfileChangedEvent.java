@@ -0,0 +1,16 @@
+package com.admitgenius.recommendation;
+
+/**
+ * 用户档案中影响推荐的字段（GPA、GRE/GMAT成绩、目标专业）发生变化
+ */
+public class UserProfileChangedEvent {
+    private final Long userId;
+
+    public UserProfileChangedEvent(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+}
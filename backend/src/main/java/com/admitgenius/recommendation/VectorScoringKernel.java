@@ -0,0 +1,155 @@
+package com.admitgenius.recommendation;
+
+import com.admitgenius.index.SchoolFeatureIndex;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+
+/**
+ * 基于JDK Vector API(jdk.incubator.vector)的学业分数内核
+ * GPA/GRE/GMAT子分数都是分段线性函数 max(0, 1 - 差距/步长*0.2)，超过学校平均时为1，
+ * 可按通道并行计算。所有向量使用相同的通道数：double列按首选宽度加载，
+ * int/float列使用一半位宽，运算顺序与标量实现相同（不使用FMA），结果逐位一致。
+ * 只能在启用 --add-modules jdk.incubator.vector 时加载，由 {@link ScoringKernels} 通过反射创建。
+ */
+final class VectorScoringKernel implements ScoringKernel {
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> FLOATS =
+            VectorSpecies.of(float.class, VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2));
+    private static final VectorSpecies<Integer> INTS =
+            VectorSpecies.of(int.class, VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2));
+    private static final int LANES = DOUBLES.length();
+
+    // 以下写法都是为了让JDK 17的C2把向量运算编译为SIMD指令而不是装箱对象：
+    // 常量用向量而不是标量参数；不使用带掩码的加载，也不在double与float掩码之间转换
+    // （缺失的double值在转换为float后用 x == x 判断NaN）。
+    private static final FloatVector ZERO = FloatVector.zero(FLOATS);
+    private static final FloatVector ONE = FloatVector.broadcast(FLOATS, 1.0f);
+
+    @Override
+    public void academicScores(SchoolMatchScorer scorer, int from, int to, float[] out) {
+        SchoolFeatureIndex.Snapshot catalog = scorer.getCatalog();
+        ScoringPlan plan = scorer.getPlan();
+        int bound = from + DOUBLES.loopBound(to - from);
+        for (int i = from; i < bound; i += LANES) {
+            greBlock(plan, catalog.averageGREVerbal, catalog.averageGREQuant, catalog.averageGREAW, i, out, i - from);
+        }
+        for (int i = from; i < bound; i += LANES) {
+            totalBlock(plan, catalog.averageGPA, catalog.averageGMAT, i, out, i - from);
+        }
+        if (bound < to) {
+            // 末尾不足一组：复制到补齐缺失值的临时数组中计算，保证与整组使用同一套运算
+            int remaining = to - bound;
+            float[] tail = new float[LANES];
+            greBlock(plan, padded(catalog.averageGREVerbal, bound, remaining),
+                    padded(catalog.averageGREQuant, bound, remaining), padded(catalog.averageGREAW, bound, remaining),
+                    0, tail, 0);
+            totalBlock(plan, padded(catalog.averageGPA, bound, remaining), padded(catalog.averageGMAT, bound, remaining),
+                    0, tail, 0);
+            System.arraycopy(tail, 0, out, bound - from, remaining);
+        }
+    }
+
+    /**
+     * 第一遍：GRE三部分加权和，写入out（分两遍是为了让单个方法足够小，C2能完整内联向量运算）
+     */
+    private static void greBlock(ScoringPlan plan, int[] averageGREVerbal, int[] averageGREQuant,
+            double[] averageGREAW, int i, float[] out, int outOffset) {
+        FloatVector greScore = ZERO;
+        if (plan.hasGre) {
+            if (plan.hasGreVerbal) {
+                IntVector school = IntVector.fromArray(INTS, averageGREVerbal, i);
+                FloatVector verbalScore = piecewise(difference(school, plan.greVerbal), 5.0f);
+                greScore = greScore.add(verbalScore.mul(0.3f), present(school));
+            }
+            if (plan.hasGreQuant) {
+                IntVector school = IntVector.fromArray(INTS, averageGREQuant, i);
+                FloatVector quantScore = piecewise(difference(school, plan.greQuant), 5.0f);
+                greScore = greScore.add(quantScore.mul(0.3f), present(school));
+            }
+            if (plan.hasGreAW) {
+                FloatVector difference = difference(DoubleVector.fromArray(DOUBLES, averageGREAW, i), plan.greAW);
+                greScore = greScore.add(piecewise(difference, 0.5f).mul(0.4f), present(difference));
+            }
+        }
+        greScore.intoArray(out, outOffset);
+    }
+
+    /**
+     * 第二遍：读取GRE得分，与GMAT取较高者作为考试得分，再与GPA得分加权求和
+     */
+    private static void totalBlock(ScoringPlan plan, double[] averageGPA, int[] averageGMAT,
+            int i, float[] out, int outOffset) {
+        FloatVector score = ZERO;
+
+        // GPA匹配
+        if (plan.hasGpa) {
+            FloatVector difference = difference(DoubleVector.fromArray(DOUBLES, averageGPA, i), plan.gpa);
+            score = score.add(piecewise(difference, 0.3f).mul(plan.gpaWeight), present(difference));
+        }
+
+        // 标准化考试匹配
+        FloatVector testScore = ZERO;
+        if (plan.hasGre) {
+            testScore = testScore.max(FloatVector.fromArray(FLOATS, out, outOffset));
+        }
+        if (plan.hasGmat) {
+            IntVector school = IntVector.fromArray(INTS, averageGMAT, i);
+            FloatVector gmatScore = piecewise(difference(school, plan.gmat), 30.0f);
+            testScore = testScore.blend(testScore.max(gmatScore), present(school));
+        }
+
+        score = score.add(testScore.mul(plan.testWeight));
+        score.intoArray(out, outOffset);
+    }
+
+    /**
+     * 学校平均减去用户成绩，与标量实现一样先按double相减再转为float
+     */
+    private static FloatVector difference(DoubleVector school, double user) {
+        return (FloatVector) school.sub(user).convertShape(VectorOperators.D2F, FLOATS, 0);
+    }
+
+    private static FloatVector difference(IntVector school, int user) {
+        return (FloatVector) school.sub(user).convert(VectorOperators.I2F, 0);
+    }
+
+    /**
+     * double列的缺失值为NaN，差值同样为NaN
+     */
+    private static VectorMask<Float> present(FloatVector difference) {
+        return difference.compare(VectorOperators.EQ, difference);
+    }
+
+    private static VectorMask<Float> present(IntVector school) {
+        return school.compare(VectorOperators.NE, SchoolFeatureIndex.NO_VALUE).cast(FLOATS);
+    }
+
+    /**
+     * 差距不大于0（用户成绩不低于学校平均）时为1，否则 max(0, 1 - 差距/步长*0.2)
+     */
+    private static FloatVector piecewise(FloatVector difference, float step) {
+        FloatVector partial = ONE.sub(difference.div(step).mul(0.2f)).max(ZERO);
+        return partial.blend(ONE, difference.compare(VectorOperators.LE, ZERO));
+    }
+
+    private static double[] padded(double[] column, int from, int length) {
+        double[] values = new double[LANES];
+        Arrays.fill(values, Double.NaN);
+        System.arraycopy(column, from, values, 0, length);
+        return values;
+    }
+
+    private static int[] padded(int[] column, int from, int length) {
+        int[] values = new int[LANES];
+        Arrays.fill(values, SchoolFeatureIndex.NO_VALUE);
+        System.arraycopy(column, from, values, 0, length);
+        return values;
+    }
+}
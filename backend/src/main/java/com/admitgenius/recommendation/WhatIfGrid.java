@@ -0,0 +1,286 @@
+package com.admitgenius.recommendation;
+
+import com.admitgenius.index.SchoolFeatureIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 假设分析：在一组假设的GPA/GRE/GMAT取值下重新排名
+ * 各取值点之间只有学业分数不同，地点、类型、专业、协同过滤得分沿用同一个打分器。
+ * 学业分数是各项成绩分段函数的加权和，每所学校按各坐标轴的取值分别算一次分段函数，
+ * 取值点上只做组合，整个网格只扫描目录一次。
+ * 同时跟踪基准请求的前K所学校在每个取值点上的排名和分数。
+ */
+public final class WhatIfGrid {
+
+    private final SchoolMatchScorer scorer;
+    private final SchoolFeatureIndex.Snapshot catalog;
+    private final ScoringPlan plan;
+    private final Double[] gpaValues;
+    private final Integer[] greVerbalValues;
+    private final Integer[] greQuantValues;
+    private final Integer[] gmatValues;
+    private final boolean hasGre;
+    private final int points;
+
+    /**
+     * 各坐标轴的取值，未变化的轴只含基准值（可为null，表示未提供该项成绩）
+     *
+     * @param scorer 基准请求的打分器
+     * @param hasGre 是否计入GRE（与请求中是否提供GRE总分一致；假设了GRE取值时视为已提供）
+     */
+    public WhatIfGrid(SchoolMatchScorer scorer, List<Double> gpaValues, List<Integer> greVerbalValues,
+            List<Integer> greQuantValues, List<Integer> gmatValues, boolean hasGre) {
+        this.scorer = scorer;
+        this.catalog = scorer.getCatalog();
+        this.plan = scorer.getPlan();
+        this.gpaValues = gpaValues.toArray(new Double[0]);
+        this.greVerbalValues = greVerbalValues.toArray(new Integer[0]);
+        this.greQuantValues = greQuantValues.toArray(new Integer[0]);
+        this.gmatValues = gmatValues.toArray(new Integer[0]);
+        this.hasGre = hasGre;
+        this.points = this.gpaValues.length * this.greVerbalValues.length * this.greQuantValues.length
+                * this.gmatValues.length;
+    }
+
+    public int size() {
+        return points;
+    }
+
+    /**
+     * 计算每个取值点的前K名，以及基准前K名在各点的排名
+     *
+     * @param baseline 基准请求的前K名（按排名顺序）
+     * @param k        每个取值点返回的学校数
+     */
+    public List<Point> evaluate(List<TopKSelector.Candidate> baseline, int k) {
+        int tracked = baseline.size();
+        // 1. 基准学校在各取值点的分数，并按分数排序，供扫描时二分计数
+        float[][] trackedScores = new float[points][tracked];
+        Terms terms = new Terms();
+        for (int t = 0; t < tracked; t++) {
+            int position = baseline.get(t).getPosition();
+            terms.load(position);
+            for (int p = 0; p < points; p++) {
+                trackedScores[p][t] = terms.score(position, p);
+            }
+        }
+        int[][] order = new int[points][];
+        float[][] sortedScores = new float[points][tracked];
+        int[][] sortedPositions = new int[points][tracked];
+        for (int p = 0; p < points; p++) {
+            order[p] = sortTracked(baseline, trackedScores[p]);
+            for (int m = 0; m < tracked; m++) {
+                sortedScores[p][m] = trackedScores[p][order[p][m]];
+                sortedPositions[p][m] = baseline.get(order[p][m]).getPosition();
+            }
+        }
+
+        // 2. 一次扫描目录：每所学校的分段函数值算一次，再在所有取值点上组合
+        TopKSelector.ScoreHeap[] heaps = new TopKSelector.ScoreHeap[points];
+        for (int p = 0; p < points; p++) {
+            heaps[p] = new TopKSelector.ScoreHeap(k);
+        }
+        // beaten[p][m]：在点p上优于排序后第m所基准学校、但不优于第m-1所的学校数
+        int[][] beaten = new int[points][tracked + 1];
+        for (int i = 0; i < catalog.size; i++) {
+            if (!scorer.accepts(i)) {
+                continue;
+            }
+            terms.load(i);
+            for (int p = 0; p < points; p++) {
+                float score = terms.score(i, p);
+                heaps[p].offer(i, score);
+                beaten[p][firstBeaten(sortedScores[p], sortedPositions[p], i, score)]++;
+            }
+        }
+
+        // 3. 汇总：基准学校的排名 = 1 + 优于它的学校数
+        List<Point> result = new ArrayList<>(points);
+        for (int p = 0; p < points; p++) {
+            int[] ranks = new int[tracked];
+            int better = 0;
+            for (int m = 0; m < tracked; m++) {
+                better += beaten[p][m];
+                ranks[order[p][m]] = better + 1;
+            }
+            result.add(new Point(gpaValues[gpaIndex(p)], greVerbalValues[greVerbalIndex(p)],
+                    greQuantValues[greQuantIndex(p)], gmatValues[gmatIndex(p)], heaps[p].toSortedList(), ranks,
+                    trackedScores[p]));
+        }
+        return result;
+    }
+
+    /**
+     * 基准学校在点上的排序（分数降序，同分按位置），返回基准下标
+     */
+    private static int[] sortTracked(List<TopKSelector.Candidate> baseline, float[] scores) {
+        Integer[] order = new Integer[scores.length];
+        for (int t = 0; t < order.length; t++) {
+            order[t] = t;
+        }
+        Arrays.sort(order, (a, b) -> a.equals(b) ? 0
+                : better(baseline.get(a).getPosition(), scores[a], baseline.get(b).getPosition(), scores[b]) ? -1 : 1);
+        int[] result = new int[order.length];
+        for (int t = 0; t < order.length; t++) {
+            result[t] = order[t];
+        }
+        return result;
+    }
+
+    /**
+     * 排序后第一所被位置i的学校超过的基准学校下标；一所都没超过时返回基准数
+     */
+    private static int firstBeaten(float[] scores, int[] positions, int position, float score) {
+        int high = scores.length;
+        // 绝大多数学校连最后一名基准学校都不如
+        if (high == 0 || !better(position, score, positions[high - 1], scores[high - 1])) {
+            return high;
+        }
+        int low = 0;
+        high--;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (better(position, score, positions[mid], scores[mid])) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 与排名规则一致：分数更高，或同分时位置更靠前
+     */
+    private static boolean better(int positionA, float scoreA, int positionB, float scoreB) {
+        if (scoreA != scoreB) {
+            return scoreA > scoreB;
+        }
+        return positionA < positionB;
+    }
+
+    private int gpaIndex(int p) {
+        return p / (greVerbalValues.length * greQuantValues.length * gmatValues.length);
+    }
+
+    private int greVerbalIndex(int p) {
+        return p / (greQuantValues.length * gmatValues.length) % greVerbalValues.length;
+    }
+
+    private int greQuantIndex(int p) {
+        return p / gmatValues.length % greQuantValues.length;
+    }
+
+    private int gmatIndex(int p) {
+        return p % gmatValues.length;
+    }
+
+    /**
+     * 一所学校在各坐标轴取值上的加权分段函数值；缺失项记为0，
+     * 组合时与 {@link SchoolMatchScorer} 的累加顺序一致，保证分数逐位相同
+     */
+    private final class Terms {
+        private final float[] gpa = new float[gpaValues.length];
+        private final float[] greVerbal = new float[greVerbalValues.length];
+        private final float[] greQuant = new float[greQuantValues.length];
+        private final float[] gmat = new float[gmatValues.length];
+        private float greAW;
+
+        void load(int i) {
+            double schoolGpa = catalog.averageGPA[i];
+            for (int a = 0; a < gpa.length; a++) {
+                gpa[a] = gpaValues[a] != null && !Double.isNaN(schoolGpa)
+                        ? SchoolMatchScorer.calculateGPAScore(gpaValues[a], schoolGpa) * plan.gpaWeight
+                        : 0.0f;
+            }
+            int schoolVerbal = catalog.averageGREVerbal[i];
+            for (int b = 0; b < greVerbal.length; b++) {
+                greVerbal[b] = hasGre && greVerbalValues[b] != null && schoolVerbal != SchoolFeatureIndex.NO_VALUE
+                        ? SchoolMatchScorer.calculateGREScore(greVerbalValues[b], schoolVerbal) * 0.3f
+                        : 0.0f;
+            }
+            int schoolQuant = catalog.averageGREQuant[i];
+            for (int c = 0; c < greQuant.length; c++) {
+                greQuant[c] = hasGre && greQuantValues[c] != null && schoolQuant != SchoolFeatureIndex.NO_VALUE
+                        ? SchoolMatchScorer.calculateGREScore(greQuantValues[c], schoolQuant) * 0.3f
+                        : 0.0f;
+            }
+            greAW = hasGre && plan.hasGreAW && !Double.isNaN(catalog.averageGREAW[i])
+                    ? SchoolMatchScorer.calculateGREAWScore(plan.greAW, catalog.averageGREAW[i]) * 0.4f
+                    : 0.0f;
+            int schoolGmat = catalog.averageGMAT[i];
+            for (int d = 0; d < gmat.length; d++) {
+                gmat[d] = gmatValues[d] != null && schoolGmat != SchoolFeatureIndex.NO_VALUE
+                        ? SchoolMatchScorer.calculateGMATScore(gmatValues[d], schoolGmat)
+                        : 0.0f;
+            }
+        }
+
+        float score(int i, int p) {
+            float gre = greVerbal[greVerbalIndex(p)] + greQuant[greQuantIndex(p)] + greAW;
+            float test = Math.max(gre, gmat[gmatIndex(p)]);
+            return scorer.completeScore(i, gpa[gpaIndex(p)] + test * plan.testWeight);
+        }
+    }
+
+    /**
+     * 一个取值点的结果
+     */
+    public static final class Point {
+        private final Double gpa;
+        private final Integer greVerbal;
+        private final Integer greQuantitative;
+        private final Integer gmatScore;
+        private final List<TopKSelector.Candidate> top;
+        private final int[] baselineRanks;
+        private final float[] baselineScores;
+
+        Point(Double gpa, Integer greVerbal, Integer greQuantitative, Integer gmatScore,
+                List<TopKSelector.Candidate> top, int[] baselineRanks, float[] baselineScores) {
+            this.gpa = gpa;
+            this.greVerbal = greVerbal;
+            this.greQuantitative = greQuantitative;
+            this.gmatScore = gmatScore;
+            this.top = top;
+            this.baselineRanks = baselineRanks;
+            this.baselineScores = baselineScores;
+        }
+
+        public Double getGpa() {
+            return gpa;
+        }
+
+        public Integer getGreVerbal() {
+            return greVerbal;
+        }
+
+        public Integer getGreQuantitative() {
+            return greQuantitative;
+        }
+
+        public Integer getGmatScore() {
+            return gmatScore;
+        }
+
+        /**
+         * 该点的前K名（按分数降序）
+         */
+        public List<TopKSelector.Candidate> getTop() {
+            return top;
+        }
+
+        /**
+         * 基准第t名学校在该点的排名（从1开始）
+         */
+        public int baselineRank(int t) {
+            return baselineRanks[t];
+        }
+
+        public float baselineScore(int t) {
+            return baselineScores[t];
+        }
+    }
+}
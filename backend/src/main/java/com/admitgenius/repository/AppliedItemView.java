@@ -0,0 +1,10 @@
+package com.admitgenius.repository;
+
+/**
+ * 已申请推荐项的投影（推荐记录、学校）
+ */
+public interface AppliedItemView {
+    Long getRecommendationId();
+
+    Long getSchoolId();
+}
@@ -0,0 +1,12 @@
+package com.admitgenius.repository;
+
+/**
+ * 已申请推荐项的投影（用户、学校），按推荐项ID分块读取
+ */
+public interface AppliedSchoolView {
+    Long getId();
+
+    Long getUserId();
+
+    Long getSchoolId();
+}
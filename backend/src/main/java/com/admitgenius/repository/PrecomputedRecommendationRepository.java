@@ -0,0 +1,9 @@
+package com.admitgenius.repository;
+
+import com.admitgenius.model.PrecomputedRecommendation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PrecomputedRecommendationRepository extends JpaRepository<PrecomputedRecommendation, Long> {
+}
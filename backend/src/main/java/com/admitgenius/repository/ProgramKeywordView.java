@@ -0,0 +1,14 @@
+package com.admitgenius.repository;
+
+/**
+ * 项目及其一个关键词的投影（项目、学校ID、名称、关键词），没有关键词的项目关键词为null
+ */
+public interface ProgramKeywordView {
+    Long getProgramId();
+
+    Long getSchoolId();
+
+    String getName();
+
+    String getKeyword();
+}
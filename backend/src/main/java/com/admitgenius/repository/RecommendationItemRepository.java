@@ -2,9 +2,15 @@ package com.admitgenius.repository;
 
 import com.admitgenius.model.Recommendation;
 import com.admitgenius.model.RecommendationItem;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -12,4 +18,58 @@ public interface RecommendationItemRepository extends JpaRepository<Recommendati
     List<RecommendationItem> findByRecommendation(Recommendation recommendation);
 
     List<RecommendationItem> findByRecommendationOrderByRankAsc(Recommendation recommendation);
-}
\ No newline at end of file
+
+    /**
+     * 一次取回多条推荐记录的推荐项展示字段，按推荐记录和排名排序
+     */
+    @Query("SELECT i.id AS id, i.recommendation.id AS recommendationId, s.id AS schoolId, s.name AS schoolName, " +
+            "s.location AS schoolLocation, s.imageUrl AS schoolLogo, s.ranking AS schoolRanking, " +
+            "p.id AS programId, p.name AS programName, p.department AS department, p.degreeLevel AS degreeLevel, " +
+            "i.matchScore AS matchScore, i.rank AS rank, i.matchReason AS matchReason, " +
+            "i.reasonCodes AS reasonCodes, i.isApplied AS isApplied, i.feedback AS feedback " +
+            "FROM RecommendationItem i JOIN i.school s LEFT JOIN i.program p " +
+            "WHERE i.recommendation.id IN :recommendationIds " +
+            "ORDER BY i.recommendation.id, i.rank")
+    List<RecommendationItemView> findViewsByRecommendationIds(
+            @Param("recommendationIds") Collection<Long> recommendationIds);
+
+    /**
+     * 多条推荐记录的首位推荐项（摘要模式的标题信息）
+     */
+    @Query("SELECT i.id AS id, i.recommendation.id AS recommendationId, s.id AS schoolId, s.name AS schoolName, " +
+            "s.location AS schoolLocation, s.imageUrl AS schoolLogo, s.ranking AS schoolRanking, " +
+            "p.id AS programId, p.name AS programName, p.department AS department, p.degreeLevel AS degreeLevel, " +
+            "i.matchScore AS matchScore, i.rank AS rank, i.matchReason AS matchReason, " +
+            "i.reasonCodes AS reasonCodes, i.isApplied AS isApplied, i.feedback AS feedback " +
+            "FROM RecommendationItem i JOIN i.school s LEFT JOIN i.program p " +
+            "WHERE i.recommendation.id IN :recommendationIds AND i.rank = 1")
+    List<RecommendationItemView> findTopViewsByRecommendationIds(
+            @Param("recommendationIds") Collection<Long> recommendationIds);
+
+    /**
+     * 按推荐项ID顺序分块读取已申请的（用户, 学校），从afterId之后继续
+     */
+    @Query("SELECT i.id AS id, r.student.id AS userId, i.school.id AS schoolId " +
+            "FROM RecommendationItem i JOIN i.recommendation r " +
+            "WHERE i.isApplied = true AND i.id > :afterId ORDER BY i.id")
+    List<AppliedSchoolView> findAppliedAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * 多条推荐记录中已申请的学校
+     */
+    @Query("SELECT i.recommendation.id AS recommendationId, i.school.id AS schoolId " +
+            "FROM RecommendationItem i WHERE i.isApplied = true AND i.recommendation.id IN :recommendationIds")
+    List<AppliedItemView> findAppliedByRecommendationIds(
+            @Param("recommendationIds") Collection<Long> recommendationIds);
+
+    /**
+     * 删除多条推荐记录中未申请且无反馈的推荐项（删除时重新判断，不会删掉刚被申请或反馈的推荐项）
+     *
+     * @return 删除的行数
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RecommendationItem i WHERE i.recommendation.id IN :recommendationIds " +
+            "AND (i.isApplied IS NULL OR i.isApplied = false) AND i.feedback IS NULL")
+    int deleteUnusedByRecommendationIds(@Param("recommendationIds") Collection<Long> recommendationIds);
+}
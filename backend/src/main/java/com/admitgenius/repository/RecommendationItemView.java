@@ -0,0 +1,42 @@
+package com.admitgenius.repository;
+
+import com.admitgenius.model.SchoolProgram;
+
+/**
+ * 推荐项及其学校、项目展示字段的投影，一条查询取回多条推荐记录的全部推荐项
+ */
+public interface RecommendationItemView {
+    Long getId();
+
+    Long getRecommendationId();
+
+    Long getSchoolId();
+
+    String getSchoolName();
+
+    String getSchoolLocation();
+
+    String getSchoolLogo();
+
+    Integer getSchoolRanking();
+
+    Long getProgramId();
+
+    String getProgramName();
+
+    String getDepartment();
+
+    SchoolProgram.DegreeLevel getDegreeLevel();
+
+    Float getMatchScore();
+
+    Integer getRank();
+
+    String getMatchReason();
+
+    Integer getReasonCodes();
+
+    Boolean getIsApplied();
+
+    String getFeedback();
+}
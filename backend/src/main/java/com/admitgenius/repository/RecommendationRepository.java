@@ -2,12 +2,90 @@ package com.admitgenius.repository;
 
 import com.admitgenius.model.Recommendation;
 import com.admitgenius.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface RecommendationRepository extends JpaRepository<Recommendation, Long> {
     List<Recommendation> findByStudentOrderByCreatedAtDesc(User student);
-}
\ No newline at end of file
+
+    /**
+     * 按ID取回推荐记录（按创建时间、ID倒序），推荐项及其学校、项目在同一条查询中取回；
+     * ID先由分页查询选出，避免集合抓取时在内存中分页
+     */
+    @EntityGraph(attributePaths = { "items", "items.school", "items.program" })
+    @Query("SELECT DISTINCT r FROM Recommendation r WHERE r.id IN :ids ORDER BY r.createdAt DESC, r.id DESC")
+    List<Recommendation> findWithItemsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 推荐历史第一页（按创建时间、ID倒序）
+     */
+    @Query("SELECT r.id AS id, r.createdAt AS createdAt, r.recommendationType AS recommendationType, " +
+            "r.inputSummary AS inputSummary, r.modelVersion AS modelVersion, SIZE(r.items) AS itemCount " +
+            "FROM Recommendation r WHERE r.student.id = :userId " +
+            "ORDER BY r.createdAt DESC, r.id DESC")
+    List<RecommendationSummaryView> findHistory(@Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * 推荐历史后续页：从游标（上一页最后一条的创建时间和ID）之后继续
+     */
+    @Query("SELECT r.id AS id, r.createdAt AS createdAt, r.recommendationType AS recommendationType, " +
+            "r.inputSummary AS inputSummary, r.modelVersion AS modelVersion, SIZE(r.items) AS itemCount " +
+            "FROM Recommendation r WHERE r.student.id = :userId " +
+            "AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+            "ORDER BY r.createdAt DESC, r.id DESC")
+    List<RecommendationSummaryView> findHistoryBefore(@Param("userId") Long userId,
+            @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+
+    /**
+     * 按ID顺序分块读取回放用的推荐记录（请求快照、输入摘要），从afterId之后继续
+     */
+    @Query("SELECT r.id AS id, r.student.id AS userId, r.modelVersion AS modelVersion, " +
+            "r.requestSnapshot AS requestSnapshot, r.inputSummary AS inputSummary " +
+            "FROM Recommendation r WHERE r.id > :afterId AND r.createdAt >= :since ORDER BY r.id")
+    List<ReplayRecommendationView> findReplayAfter(@Param("afterId") Long afterId,
+            @Param("since") LocalDateTime since, Pageable pageable);
+
+    /**
+     * 推荐记录数超过keep条的用户，按用户ID顺序从afterUserId之后分块读取
+     */
+    @Query("SELECT r.student.id FROM Recommendation r WHERE r.student.id > :afterUserId " +
+            "GROUP BY r.student.id HAVING COUNT(r.id) > :keep ORDER BY r.student.id")
+    List<Long> findUserIdsWithMoreThan(@Param("afterUserId") Long afterUserId, @Param("keep") long keep,
+            Pageable pageable);
+
+    /**
+     * 可清理的推荐记录：早于游标（保留的最旧一条的创建时间和ID）且早于before，
+     * 没有已申请或有反馈的推荐项；按ID顺序从afterId之后分块读取
+     */
+    @Query("SELECT r.id FROM Recommendation r WHERE r.student.id = :userId AND r.id > :afterId " +
+            "AND r.createdAt < :before " +
+            "AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+            "AND NOT EXISTS (SELECT i.id FROM RecommendationItem i WHERE i.recommendation = r " +
+            "AND (i.isApplied = true OR i.feedback IS NOT NULL)) " +
+            "ORDER BY r.id")
+    List<Long> findPurgeable(@Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id, @Param("before") LocalDateTime before, @Param("afterId") Long afterId,
+            Pageable pageable);
+
+    /**
+     * 删除已没有推荐项的推荐记录（先删推荐项；期间被申请或反馈的推荐项会保留下来，其推荐记录也随之保留）
+     *
+     * @return 删除的行数
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM Recommendation r WHERE r.id IN :ids " +
+            "AND NOT EXISTS (SELECT i.id FROM RecommendationItem i WHERE i.recommendation = r)")
+    int deleteEmptyByIds(@Param("ids") Collection<Long> ids);
+}
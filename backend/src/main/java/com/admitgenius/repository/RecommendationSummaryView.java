@@ -0,0 +1,22 @@
+package com.admitgenius.repository;
+
+import com.admitgenius.model.Recommendation;
+
+import java.time.LocalDateTime;
+
+/**
+ * 推荐记录的标题字段投影（不加载推荐项和关联实体）
+ */
+public interface RecommendationSummaryView {
+    Long getId();
+
+    LocalDateTime getCreatedAt();
+
+    Recommendation.RecommendationType getRecommendationType();
+
+    String getInputSummary();
+
+    String getModelVersion();
+
+    Integer getItemCount();
+}
@@ -0,0 +1,16 @@
+package com.admitgenius.repository;
+
+/**
+ * 回放用的推荐记录投影，按推荐ID分块读取
+ */
+public interface ReplayRecommendationView {
+    Long getId();
+
+    Long getUserId();
+
+    String getModelVersion();
+
+    String getRequestSnapshot();
+
+    String getInputSummary();
+}
@@ -0,0 +1,10 @@
+package com.admitgenius.repository;
+
+/**
+ * 用户收藏学校的投影，按（用户ID, 学校ID）分块读取
+ */
+public interface SavedSchoolView {
+    Long getUserId();
+
+    Long getSchoolId();
+}
@@ -1,9 +1,13 @@
 package com.admitgenius.repository;
 
+import com.admitgenius.config.CatalogCacheConfig;
 import com.admitgenius.model.School;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import com.admitgenius.model.SchoolProgram;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,6 +16,13 @@ import java.util.List;
 public interface SchoolProgramRepository extends JpaRepository<SchoolProgram, Long> {
     List<SchoolProgram> findBySchool(School school);
 
+    /**
+     * 结果（项目ID列表）放入查询缓存，项目实体本身从二级缓存取；school_programs表有写入时失效
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CatalogCacheConfig.PROGRAMS_BY_SCHOOL_REGION)
+    })
     List<SchoolProgram> findBySchoolId(Long schoolId);
 
     List<SchoolProgram> findByDegreeLevel(SchoolProgram.DegreeLevel degreeLevel);
@@ -20,5 +31,13 @@ public interface SchoolProgramRepository extends JpaRepository<SchoolProgram, Lo
             "EXISTS (SELECT k FROM p.keywords k WHERE LOWER(k) LIKE LOWER(CONCAT('%', :keyword, '%')))")
     List<SchoolProgram> findByNameOrKeywordsContaining(String keyword);
 
+    /**
+     * 一次性读取全部项目的ID、学校ID、名称和关键词（用于构建专业倒排索引），每个关键词一行，按项目ID排序；
+     * 学校ID直接取外键列，不加载学校实体
+     */
+    @Query("SELECT p.id AS programId, p.school.id AS schoolId, p.name AS name, k AS keyword " +
+            "FROM SchoolProgram p LEFT JOIN p.keywords k ORDER BY p.id")
+    List<ProgramKeywordView> findAllKeywordRows();
+
     void deleteBySchoolId(Long schoolId);
 }
\ No newline at end of file
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -19,8 +20,6 @@ public interface SchoolRepository extends JpaRepository<School, Long> {
 
     boolean existsByName(String name);
 
-    Page<School> findByNameContainingIgnoreCase(String name, Pageable pageable);
-
     @Query("SELECT s FROM School s WHERE EXISTS (SELECT p FROM s.topPrograms p WHERE LOWER(p) LIKE LOWER(CONCAT('%', :programName, '%')))")
     Page<School> findByProgramName(@Param("programName") String programName, Pageable pageable);
 
@@ -37,35 +36,24 @@ public interface SchoolRepository extends JpaRepository<School, Long> {
     Page<School> findByLocationContainingIgnoreCase(@Param("location") String location, Pageable pageable);
 
     /**
-     * 通过学校专业表查找提供特定专业的学校
-     * 
-     * @param programName 专业名称
-     * @param pageable    分页参数
-     * @return 学校分页列表
-     */
-    @Query("SELECT DISTINCT s FROM School s WHERE s.id IN (SELECT sp.school.id FROM SchoolProgram sp WHERE LOWER(sp.name) LIKE LOWER(CONCAT('%', :programName, '%')))")
-    Page<School> findBySchoolProgramName(@Param("programName") String programName, Pageable pageable);
-
-    /**
-     * 搜索学校（按名称、地区、描述）
-     * 
-     * @param query 搜索关键词
-     * @return 学校列表
+     * 一次性加载全部学校及其热门专业（用于构建全文检索索引）
      */
-    @Query("SELECT s FROM School s WHERE " +
-            "LOWER(s.name) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-            "LOWER(s.location) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-            "LOWER(s.description) LIKE LOWER(CONCAT('%', :query, '%'))")
-    List<School> searchSchools(@Param("query") String query);
+    @Query("SELECT DISTINCT s FROM School s LEFT JOIN FETCH s.topPrograms")
+    List<School> findAllWithTopPrograms();
 
     /**
-     * 获取所有不同的地区（提取location字段中的国家部分）
+     * 获取所有不同的地点原文（未经解析；国家等层级请使用LocationDictionary）
      * 
      * @return 地区列表
      */
     @Query("SELECT DISTINCT s.location FROM School s WHERE s.location IS NOT NULL")
     List<String> findDistinctLocations();
 
+    /**
+     * 按ID集合分页查询学校（国家筛选先在地点字典中确定学校）
+     */
+    Page<School> findByIdIn(Collection<Long> ids, Pageable pageable);
+
     /**
      * 按top programs筛选学校
      * 
@@ -1,8 +1,13 @@
 package com.admitgenius.repository;
 
 import com.admitgenius.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -10,4 +15,13 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
 
     boolean existsByEmail(String email);
-}
\ No newline at end of file
+
+    /**
+     * 按（用户ID, 学校ID）顺序分块读取收藏的学校，从上一块最后一条之后继续
+     */
+    @Query("SELECT u.id AS userId, s AS schoolId FROM User u JOIN u.savedSchoolIds s " +
+            "WHERE u.id > :userId OR (u.id = :userId AND s > :schoolId) " +
+            "ORDER BY u.id, s")
+    List<SavedSchoolView> findSavedSchoolsAfter(@Param("userId") Long userId, @Param("schoolId") Long schoolId,
+            Pageable pageable);
+}
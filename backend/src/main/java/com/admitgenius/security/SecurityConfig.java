@@ -1,5 +1,6 @@
 package com.admitgenius.security;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -67,11 +68,15 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> {
                     logger.info("配置请求授权...");
                     auth
+                            // 流式响应完成时的异步派发：首次请求已鉴权，无状态会话下不再重复检查
+                            .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                             .requestMatchers("/api/auth/**").permitAll()
                             .requestMatchers(HttpMethod.GET, "/api/forum/posts/**").permitAll()
                             .requestMatchers(HttpMethod.GET, "/api/recommendations/schools/**").permitAll()
+                            .requestMatchers(HttpMethod.POST, "/api/recommendations/schools/filter").permitAll()
                             .requestMatchers(HttpMethod.GET, "/api/recommendations/countries").permitAll()
                             .requestMatchers(HttpMethod.GET, "/api/recommendations/programs").permitAll()
+                            .requestMatchers(HttpMethod.GET, "/api/recommendations/facets").permitAll()
                             .requestMatchers(HttpMethod.GET, "/api/files/**").permitAll()
                             .anyRequest().authenticated();
                 });
@@ -0,0 +1,18 @@
+package com.admitgenius.service;
+
+import java.util.Map;
+
+public interface CatalogCacheService {
+    /**
+     * 清空学校目录的二级缓存（实体、集合和按学校查询项目的结果）
+     * 绕过Hibernate直接写表（如批量导入）后调用；经SchoolService的写入由Hibernate按ID失效，无需调用。
+     */
+    void evictAll();
+
+    /**
+     * 各缓存区域的命中、未命中、写入、移除和容量淘汰次数，以及条目上限
+     *
+     * @return 统计
+     */
+    Map<String, Object> getStats();
+}
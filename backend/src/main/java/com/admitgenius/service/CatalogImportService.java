@@ -0,0 +1,32 @@
+package com.admitgenius.service;
+
+import com.admitgenius.dto.CatalogImportReportDTO;
+
+import java.io.InputStream;
+
+public interface CatalogImportService {
+    /**
+     * 导入文件格式
+     */
+    enum Format {
+        /** 每行一个 {@link com.admitgenius.dto.SchoolImportDTO} */
+        NDJSON,
+        /**
+         * 首行为表头，列名为学校字段（与SchoolDTO属性同名）和以 program. 开头的项目字段；
+         * 每行一所学校及至多一个项目，同一学校的多个项目分多行给出；列表字段以分号分隔
+         */
+        CSV
+    }
+
+    /**
+     * 流式导入学校和项目：逐块读取、并行校验，按学校名称批量更新或新增，单行错误不影响其余行；
+     * 每块在独立事务中写入，全部完成后只重建一次目录索引。同一时刻只允许一个导入
+     *
+     * @param format 文件格式
+     * @param input  文件内容
+     * @return 导入报告（含逐行错误）
+     * @throws IllegalArgumentException CSV表头为空或包含未知列
+     * @throws com.admitgenius.exception.TooManyRequestsException 已有导入在运行
+     */
+    CatalogImportReportDTO importCatalog(Format format, InputStream input);
+}
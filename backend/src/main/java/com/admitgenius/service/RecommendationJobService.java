@@ -0,0 +1,61 @@
+package com.admitgenius.service;
+
+import com.admitgenius.dto.RecommendationJobDTO;
+import com.admitgenius.dto.RecommendationRequestDTO;
+import com.admitgenius.dto.RecommendationResponseDTO;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+
+public interface RecommendationJobService {
+    /**
+     * 提交异步推荐任务，立即返回任务ID
+     *
+     * @param request 推荐请求
+     * @return 任务状态（PENDING）
+     * @throws com.admitgenius.exception.TooManyRequestsException 线程池队列已满或该用户进行中的任务过多
+     */
+    RecommendationJobDTO submit(RecommendationRequestDTO request);
+
+    /**
+     * 查询任务状态，完成后包含推荐结果
+     *
+     * @param jobId 任务ID
+     * @return 任务状态
+     * @throws org.springframework.security.access.AccessDeniedException 任务不属于当前用户且当前用户不是顾问角色
+     */
+    RecommendationJobDTO getJob(String jobId);
+
+    /**
+     * 订阅任务进度（SSE），任务结束后连接自动关闭
+     *
+     * @param jobId 任务ID
+     * @return SSE连接
+     * @throws org.springframework.security.access.AccessDeniedException 任务不属于当前用户且当前用户不是顾问角色
+     */
+    SseEmitter subscribe(String jobId);
+
+    /**
+     * 流式生成推荐（NDJSON）：打分完成后立即逐项推送推荐项，排名第一的最先到达，
+     * 写库完成后以完整推荐结果作为最后一帧，同样受准入限制
+     *
+     * @param request 推荐请求
+     * @return NDJSON连接
+     */
+    ResponseBodyEmitter stream(RecommendationRequestDTO request);
+
+    /**
+     * 同步生成推荐：提交任务并等待结果
+     * 与异步任务共用线程池（队列满时同样拒绝），但不计入单用户进行中任务数
+     *
+     * @param request 推荐请求
+     * @return 推荐结果
+     */
+    RecommendationResponseDTO generateAndWait(RecommendationRequestDTO request);
+
+    /**
+     * 线程池与任务统计
+     */
+    Map<String, Object> getStats();
+}
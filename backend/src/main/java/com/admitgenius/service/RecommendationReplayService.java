@@ -0,0 +1,36 @@
+package com.admitgenius.service;
+
+import com.admitgenius.dto.ReplayReportDTO;
+import com.admitgenius.dto.ReplayRequestDTO;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public interface RecommendationReplayService {
+    /**
+     * 离线回放数据库中的历史推荐：按推荐ID顺序分块读取请求，交给各个打分变体并行排名，
+     * 报告吞吐量、延迟分位数和以已申请学校计算的NDCG/召回率；只读，同一时刻只允许一个回放
+     *
+     * @param options 回放参数
+     * @return 回放报告
+     * @throws com.admitgenius.exception.TooManyRequestsException 已有回放在运行
+     */
+    ReplayReportDTO replay(ReplayRequestDTO options);
+
+    /**
+     * 回放导出文件（NDJSON，每行一个 {@link com.admitgenius.dto.ReplayCaseDTO}），逐行读取
+     *
+     * @param options 回放参数（since在此忽略）
+     * @param export  导出文件内容
+     * @return 回放报告
+     */
+    ReplayReportDTO replay(ReplayRequestDTO options, InputStream export);
+
+    /**
+     * 把历史推荐导出为回放用例（NDJSON），分块读取、逐行写出
+     *
+     * @param options 导出范围（since、limit、appliedOnly）
+     * @param out     输出流
+     */
+    void export(ReplayRequestDTO options, OutputStream out);
+}
@@ -0,0 +1,20 @@
+package com.admitgenius.service;
+
+import java.util.Map;
+
+public interface RecommendationRetentionService {
+    /**
+     * 立即执行一轮推荐历史清理（平时由后台定时执行）
+     *
+     * @return 本轮清理的统计
+     * @throws com.admitgenius.exception.TooManyRequestsException 已有清理在运行
+     */
+    Map<String, Object> purge();
+
+    /**
+     * 清理统计：累计回收的推荐记录和推荐项行数、最近一轮的耗时与结果
+     *
+     * @return 统计
+     */
+    Map<String, Object> getStats();
+}
@@ -1,12 +1,21 @@
 package com.admitgenius.service;
 
+import com.admitgenius.dto.CatalogFilterDTO;
+import com.admitgenius.dto.FacetsDTO;
+import com.admitgenius.dto.RecommendationBatchResponseDTO;
+import com.admitgenius.dto.RecommendationHistoryDTO;
 import com.admitgenius.dto.RecommendationRequestDTO;
 import com.admitgenius.dto.RecommendationResponseDTO;
 import com.admitgenius.dto.SchoolDTO;
+import com.admitgenius.dto.SchoolFilterResponseDTO;
+import com.admitgenius.dto.WhatIfRequestDTO;
+import com.admitgenius.dto.WhatIfResponseDTO;
+import com.admitgenius.recommendation.RecommendationProgressListener;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.util.List;
+import java.util.Map;
 
 public interface RecommendationService {
     /**
@@ -18,13 +27,63 @@ public interface RecommendationService {
     RecommendationResponseDTO generateRecommendation(RecommendationRequestDTO request);
 
     /**
-     * 获取用户的所有推荐历史
+     * 基于学生背景生成学校推荐，并在各阶段回报进度
+     * 
+     * @param request  包含学生背景和推荐偏好的请求
+     * @param listener 进度回调
+     * @return 推荐响应，包含推荐学校和匹配原因
+     */
+    RecommendationResponseDTO generateRecommendation(RecommendationRequestDTO request,
+            RecommendationProgressListener listener);
+
+    /**
+     * 批量生成推荐（顾问为多名学生生成）
+     * 所有请求基于同一份学校目录快照并行打分，推荐记录在一个事务中批量写入；
+     * 单个请求无效时只在其结果中返回错误
+     * 
+     * @param requests 推荐请求列表
+     * @return 按请求顺序排列的结果
+     */
+    RecommendationBatchResponseDTO generateRecommendations(List<RecommendationRequestDTO> requests);
+
+    /**
+     * 假设分析：在一组假设的GPA/GRE/GMAT取值下重新排名（只读，不保存推荐）
+     * 
+     * @param whatIf 基准请求与各项成绩的假设取值
+     * @return 基准排名及各取值点的排名、分数变化
+     */
+    WhatIfResponseDTO evaluateWhatIf(WhatIfRequestDTO whatIf);
+
+    /**
+     * 获取用户最近的推荐记录（最多50条，更早的记录通过分页历史获取）
      * 
      * @param userId 用户ID
      * @return 推荐响应列表
      */
     List<RecommendationResponseDTO> getUserRecommendations(Long userId);
 
+    /**
+     * 获取用户最近的推荐记录，匹配原因按指定语言渲染
+     * 
+     * @param userId   用户ID
+     * @param language 匹配原因语言（zh, en）
+     * @return 推荐响应列表
+     */
+    List<RecommendationResponseDTO> getUserRecommendations(Long userId, String language);
+
+    /**
+     * 分页获取用户的推荐历史（按创建时间倒序，游标分页）
+     * 
+     * @param userId   用户ID
+     * @param cursor   上一页返回的游标，第一页为null
+     * @param size     每页条数
+     * @param summary  摘要模式：只返回标题字段，不含推荐项
+     * @param language 匹配原因语言（zh, en）
+     * @return 推荐历史分页
+     */
+    RecommendationHistoryDTO getRecommendationHistory(Long userId, String cursor, int size, boolean summary,
+            String language);
+
     /**
      * 为特定推荐项提供反馈
      * 
@@ -52,12 +111,22 @@ public interface RecommendationService {
 
     /**
      * 为指定用户推荐学校(简化版)
+     * 只读：优先返回预计算结果，结果过期时先返回旧结果并在后台重新计算；
+     * 尚未预计算时同步计算，保存由后台预计算完成
      * 
      * @param userId 用户ID
      * @return 推荐学校列表
      */
     List<SchoolDTO> recommendSchools(Long userId);
 
+    /**
+     * 按用户当前档案计算默认推荐并保存为预计算结果（不写入推荐历史）
+     * 
+     * @param userId 用户ID
+     * @return 推荐学校列表
+     */
+    List<SchoolDTO> precomputeRecommendations(Long userId);
+
     /**
      * 获取所有可用的专业列表
      * 
@@ -73,7 +142,35 @@ public interface RecommendationService {
     List<String> getAvailableCountries();
 
     /**
-     * 按名称搜索学校 (分页)
+     * 获取目录筛选项（专业、国家、地点、学校类型、学位等级）及计数
+     * 
+     * @return 筛选项及计数
+     */
+    FacetsDTO getFacets();
+
+    /**
+     * 当前筛选项版本，目录变更后改变，用作ETag
+     * 
+     * @return 版本号
+     */
+    String getFacetVersion();
+
+    /**
+     * 打分引擎版本与影子比较统计
+     * 
+     * @return 主版本、影子版本、一致率与延迟差
+     */
+    Map<String, Object> getEngineStats();
+
+    /**
+     * 切换影子版本，为空时停用
+     * 
+     * @param version 已登记的引擎版本号
+     */
+    void setShadowVersion(String version);
+
+    /**
+     * 全文搜索学校 (分页)：匹配名称、地区、热门专业和简介，按相关度排序
      * 
      * @param nameQuery 搜索关键词
      * @param pageable  分页信息
@@ -98,4 +195,14 @@ public interface RecommendationService {
      * @return 学校DTO的分页列表
      */
     Page<SchoolDTO> getSchoolsByProgram(String programName, Pageable pageable);
+
+    /**
+     * 按目录筛选条件浏览学校 (分页)，同时返回命中学校在各筛选项上的分布
+     * 
+     * @param filter   筛选条件，为空时不限制
+     * @param pageable 分页信息；未指定排序时按目录顺序分页
+     * @return 一页学校、命中总数和筛选项分布
+     * @throws IllegalArgumentException 排名或学费区间无效
+     */
+    SchoolFilterResponseDTO filterSchools(CatalogFilterDTO filter, Pageable pageable);
 }
\ No newline at end of file
@@ -4,11 +4,14 @@ import com.admitgenius.dto.UserDTO;
 import com.admitgenius.model.User;
 import com.admitgenius.model.UserRole;
 import com.admitgenius.model.UserStatus;
+import com.admitgenius.recommendation.CollaborativeFilteringModel;
+import com.admitgenius.recommendation.UserProfileChangedEvent;
 import com.admitgenius.repository.UserRepository;
 import com.admitgenius.repository.ForumPostRepository;
 import com.admitgenius.repository.CommentRepository;
 import com.admitgenius.repository.PostLikeRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.security.access.AccessDeniedException;
@@ -38,6 +41,12 @@ public class UserService {
     @Autowired
     private ForumPostRepository forumPostRepository;
 
+    @Autowired
+    private CollaborativeFilteringModel collaborativeFilteringModel;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Autowired
     private CommentRepository commentRepository;
 
@@ -88,6 +97,7 @@ public class UserService {
     public UserDTO updateUser(Long id, UserDTO userDTO) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("用户不存在 ID: " + id));
+        String profileBefore = recommendationProfileOf(user);
 
         // 更新用户基本信息
         if (userDTO.getFullName() != null) {
@@ -131,9 +141,20 @@ public class UserService {
         // The updatedAt field should be updated automatically via @PreUpdate in User
         // entity
         User updatedUser = userRepository.save(user);
+        if (!profileBefore.equals(recommendationProfileOf(updatedUser))) {
+            // 影响推荐的字段有变化，后台重新预计算默认推荐
+            eventPublisher.publishEvent(new UserProfileChangedEvent(updatedUser.getId()));
+        }
         return convertToDTO(updatedUser);
     }
 
+    /**
+     * 用户档案中参与推荐打分的字段
+     */
+    private String recommendationProfileOf(User user) {
+        return user.getGpa() + "|" + user.getGreCombined() + "|" + user.getGmatTotal() + "|" + user.getTargetMajor();
+    }
+
     public List<UserDTO> getAllUsers() {
         return userRepository.findAll().stream()
                 .map(this::convertToDTO)
@@ -430,6 +451,7 @@ public class UserService {
         }
 
         userRepository.save(user);
+        collaborativeFilteringModel.markDirty();
     }
 
     /**
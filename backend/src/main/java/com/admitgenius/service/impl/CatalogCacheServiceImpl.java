@@ -0,0 +1,92 @@
+package com.admitgenius.service.impl;
+
+import com.admitgenius.config.CatalogCacheConfig;
+import com.admitgenius.service.CatalogCacheService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cache.spi.CacheImplementor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.cache.CacheManager;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 学校目录二级缓存的统计与整体失效
+ * 统计取自JCache标准的CacheStatistics MBean（区域创建时已开启），未命中即需要查库的次数，
+ * 淘汰次数是区域达到条目上限后被挤出的条目数，持续增长说明上限偏小。
+ */
+@Service
+public class CatalogCacheServiceImpl implements CatalogCacheService {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogCacheServiceImpl.class);
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CacheManager catalogCacheManager;
+
+    @Autowired
+    private CatalogCacheConfig catalogCacheConfig;
+
+    @Override
+    public void evictAll() {
+        CacheImplementor cache = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getCache();
+        for (String region : catalogCacheConfig.catalogRegions().keySet()) {
+            // 查询缓存区域在第一次查询时才创建
+            if (cache.getRegion(region) != null) {
+                cache.evictRegion(region);
+            }
+        }
+        logger.info("已清空学校目录二级缓存");
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Map<String, Object> regions = new LinkedHashMap<>();
+        long hits = 0;
+        long misses = 0;
+        long evictions = 0;
+        for (Map.Entry<String, Long> region : catalogCacheConfig.catalogRegions().entrySet()) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("maxEntries", region.getValue());
+            try {
+                // 与Ehcache注册的名称一致：区域名与缓存管理器URI均不含需转义的字符
+                ObjectName name = new ObjectName("javax.cache:type=CacheStatistics,CacheManager="
+                        + catalogCacheManager.getURI() + ",Cache=" + region.getKey());
+                long regionHits = (Long) server.getAttribute(name, "CacheHits");
+                long regionMisses = (Long) server.getAttribute(name, "CacheMisses");
+                long regionEvictions = (Long) server.getAttribute(name, "CacheEvictions");
+                stats.put("hits", regionHits);
+                stats.put("misses", regionMisses);
+                stats.put("hitRatio", regionHits + regionMisses == 0 ? 0.0
+                        : (double) regionHits / (regionHits + regionMisses));
+                stats.put("puts", server.getAttribute(name, "CachePuts"));
+                stats.put("removals", server.getAttribute(name, "CacheRemovals"));
+                stats.put("evictions", regionEvictions);
+                hits += regionHits;
+                misses += regionMisses;
+                evictions += regionEvictions;
+            } catch (JMException e) {
+                stats.put("error", e.getMessage());
+            }
+            regions.put(region.getKey(), stats);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("hits", hits);
+        result.put("misses", misses);
+        result.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        result.put("evictions", evictions);
+        result.put("regions", regions);
+        return result;
+    }
+}
@@ -0,0 +1,701 @@
+package com.admitgenius.service.impl;
+
+import com.admitgenius.dto.CatalogImportReportDTO;
+import com.admitgenius.dto.SchoolDTO;
+import com.admitgenius.dto.SchoolImportDTO;
+import com.admitgenius.dto.SchoolProgramDTO;
+import com.admitgenius.exception.TooManyRequestsException;
+import com.admitgenius.index.CatalogIndexManager;
+import com.admitgenius.model.School;
+import com.admitgenius.model.SchoolProgram;
+import com.admitgenius.service.CatalogCacheService;
+import com.admitgenius.service.CatalogImportService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.beans.PropertyDescriptor;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+@Service
+public class CatalogImportServiceImpl implements CatalogImportService {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogImportServiceImpl.class);
+
+    /** CSV中项目字段的列名前缀 */
+    private static final String PROGRAM_PREFIX = "program.";
+    /** CSV中以分号分隔的列表字段 */
+    private static final Set<String> LIST_COLUMNS = Set.of("topPrograms", PROGRAM_PREFIX + "keywords");
+    /** CSV列名（忽略大小写）到属性名，学校ID和项目的关联字段不可导入 */
+    private static final Map<String, String> CSV_COLUMNS = csvColumns();
+
+    // 列名与School、SchoolProgram实体映射后的物理列名一致；开头的匹配键列在更新时不改写
+    private static final String[] SCHOOL_COLUMNS = { "name", "location", "ranking", "acceptance_rate",
+            "averagegreverbal", "averagegrequant", "averagegreaw", "averagegmat", "averagegpa", "is_ivy_league",
+            "description", "website", "image_url", "has_scholarship", "tuition_fee", "school_type",
+            "admission_requirements" };
+    private static final int[] SCHOOL_TYPES = { Types.VARCHAR, Types.VARCHAR, Types.INTEGER, Types.DOUBLE,
+            Types.INTEGER, Types.INTEGER, Types.DOUBLE, Types.INTEGER, Types.DOUBLE, Types.BOOLEAN,
+            Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.BOOLEAN, Types.DOUBLE, Types.VARCHAR,
+            Types.VARCHAR };
+    private static final String[] PROGRAM_COLUMNS = { "school_id", "name", "department", "degree_type",
+            "duration_years", "tuition_fee", "scholarship_available", "admission_requirements" };
+    private static final int[] PROGRAM_TYPES = { Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+            Types.INTEGER, Types.VARCHAR, Types.BOOLEAN, Types.VARCHAR };
+
+    private static final int SCHOOL_KEY_COLUMNS = 1;
+    private static final int PROGRAM_KEY_COLUMNS = 3;
+
+    private static final String INSERT_SCHOOL = insertSql("schools", SCHOOL_COLUMNS);
+    private static final String UPDATE_SCHOOL = updateSql("schools", SCHOOL_COLUMNS, SCHOOL_KEY_COLUMNS);
+    private static final String INSERT_PROGRAM = insertSql("school_programs", PROGRAM_COLUMNS);
+    private static final String UPDATE_PROGRAM = updateSql("school_programs", PROGRAM_COLUMNS, PROGRAM_KEY_COLUMNS);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CatalogIndexManager catalogIndexManager;
+
+    @Autowired
+    private CatalogCacheService catalogCacheService;
+
+    @Value("${catalog.import.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${catalog.import.max-errors:1000}")
+    private int maxErrors;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Override
+    public CatalogImportReportDTO importCatalog(Format format, InputStream input) {
+        if (!running.compareAndSet(false, true)) {
+            throw new TooManyRequestsException("已有目录导入在运行，请稍后再试");
+        }
+        try {
+            RowSource source = format == Format.CSV ? new CsvRows(input) : new NdjsonRows(input);
+            return run(source);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private CatalogImportReportDTO run(RowSource source) {
+        CatalogImportReportDTO report = new CatalogImportReportDTO();
+        long start = System.currentTimeMillis();
+        boolean written = false;
+        try {
+            List<ImportRow> chunk;
+            while (!(chunk = source.next(chunkSize)).isEmpty()) {
+                report.setRows(report.getRows() + chunk.size());
+                // 校验不访问数据库，块内并行
+                chunk.parallelStream()
+                        .filter(row -> row.error == null)
+                        .forEach(row -> row.error = validate(row.school));
+                List<ImportRow> valid = chunk.stream().filter(row -> row.error == null).collect(Collectors.toList());
+                if (!valid.isEmpty()) {
+                    try {
+                        ChunkResult result = transactionTemplate.execute(status -> write(valid));
+                        report.setSchoolsInserted(report.getSchoolsInserted() + result.schoolsInserted);
+                        report.setSchoolsUpdated(report.getSchoolsUpdated() + result.schoolsUpdated);
+                        report.setProgramsInserted(report.getProgramsInserted() + result.programsInserted);
+                        report.setProgramsUpdated(report.getProgramsUpdated() + result.programsUpdated);
+                        written = true;
+                    } catch (DataAccessException e) {
+                        // 整块回滚，块内的行都记为失败
+                        logger.warn("目录导入第 {} 行起的一块写入失败: {}", valid.get(0).line, e.getMessage());
+                        String message = "写入失败: " + e.getMostSpecificCause().getMessage();
+                        valid.forEach(row -> row.error = message);
+                    }
+                }
+                for (ImportRow row : chunk) {
+                    if (row.error != null) {
+                        addError(report, row);
+                    }
+                }
+            }
+        } finally {
+            // 绕过了SchoolService逐条写入，所有目录索引在导入结束（包括读取中断）后重建一次，二级缓存同样整体清空
+            if (written) {
+                catalogCacheService.evictAll();
+                catalogIndexManager.rebuildAll();
+            }
+        }
+        report.setElapsedMs(System.currentTimeMillis() - start);
+        logger.info("目录导入完成：{} 行，失败 {} 行，学校新增 {} 更新 {}，项目新增 {} 更新 {}，耗时 {} ms",
+                report.getRows(), report.getFailedRows(), report.getSchoolsInserted(), report.getSchoolsUpdated(),
+                report.getProgramsInserted(), report.getProgramsUpdated(), report.getElapsedMs());
+        return report;
+    }
+
+    private void addError(CatalogImportReportDTO report, ImportRow row) {
+        report.setFailedRows(report.getFailedRows() + 1);
+        if (report.getErrors().size() >= maxErrors) {
+            report.setErrorsTruncated(true);
+            return;
+        }
+        CatalogImportReportDTO.RowError error = new CatalogImportReportDTO.RowError();
+        error.setLine(row.line);
+        error.setName(row.school != null ? row.school.getName() : row.name);
+        error.setMessage(row.error);
+        report.getErrors().add(error);
+    }
+
+    /**
+     * 校验一行，通过时返回null，否则返回错误信息
+     */
+    private String validate(SchoolImportDTO school) {
+        if (school.getName() == null || school.getName().trim().isEmpty()) {
+            return "学校名称不能为空";
+        }
+        if (school.getSchoolType() != null && !school.getSchoolType().isEmpty()) {
+            try {
+                School.SchoolType.valueOf(school.getSchoolType().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return "无效的学校类型: " + school.getSchoolType() + ". 可用值: PUBLIC, PRIVATE";
+            }
+        }
+        Set<ConstraintViolation<School>> violations = validator.validate(toSchool(school));
+        if (!violations.isEmpty()) {
+            return violations.stream().map(ConstraintViolation::getMessage).sorted()
+                    .collect(Collectors.joining("; "));
+        }
+        if (school.getPrograms() != null) {
+            for (SchoolProgramDTO program : school.getPrograms()) {
+                if (program == null || program.getName() == null || program.getName().trim().isEmpty()) {
+                    return "项目名称不能为空";
+                }
+                if (program.getDegreeLevel() != null && !program.getDegreeLevel().isEmpty()) {
+                    try {
+                        SchoolProgram.DegreeLevel.valueOf(program.getDegreeLevel().toUpperCase());
+                    } catch (IllegalArgumentException e) {
+                        return "无效的学位等级: " + program.getDegreeLevel() + ". 可用值: BACHELOR, MASTER, PHD";
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 只用于校验实体上的约束
+     */
+    private static School toSchool(SchoolDTO dto) {
+        School school = new School();
+        school.setName(dto.getName());
+        school.setLocation(dto.getLocation());
+        school.setRanking(dto.getRanking());
+        school.setAcceptanceRate(dto.getAcceptanceRate());
+        school.setAverageGREVerbal(dto.getAverageGREVerbal());
+        school.setAverageGREQuant(dto.getAverageGREQuant());
+        school.setAverageGREAW(dto.getAverageGREAW());
+        school.setAverageGMAT(dto.getAverageGMAT());
+        school.setAverageGPA(dto.getAverageGPA());
+        school.setWebsite(dto.getWebsite());
+        school.setImageUrl(dto.getImageUrl());
+        school.setTuitionFee(dto.getTuitionFee());
+        return school;
+    }
+
+    /**
+     * 在当前事务中写入一块已校验的行：同名学校先在块内合并，再与数据库中的学校按名称匹配，
+     * 学校、热门专业、项目、关键词各以批量语句更新或新增。更新时行中为空的字段保留原值
+     */
+    private ChunkResult write(List<ImportRow> rows) {
+        // 块内同名学校以后出现的行为准，项目累加
+        Map<String, SchoolImportDTO> schools = new LinkedHashMap<>();
+        Map<String, List<String>> topPrograms = new HashMap<>();
+        Map<String, Map<String, SchoolProgramDTO>> programs = new HashMap<>();
+        for (ImportRow row : rows) {
+            SchoolImportDTO school = row.school;
+            school.setName(school.getName().trim());
+            String key = nameKey(school.getName());
+            schools.put(key, school);
+            if (school.getTopPrograms() != null) {
+                topPrograms.put(key, school.getTopPrograms());
+            }
+            if (school.getPrograms() != null) {
+                Map<String, SchoolProgramDTO> byKey = programs.computeIfAbsent(key, k -> new LinkedHashMap<>());
+                for (SchoolProgramDTO program : school.getPrograms()) {
+                    program.setName(program.getName().trim());
+                    byKey.put(programKey(program), program);
+                }
+            }
+        }
+
+        ChunkResult result = new ChunkResult();
+        List<String> names = schools.values().stream().map(SchoolDTO::getName).collect(Collectors.toList());
+        Map<String, Long> schoolIds = findSchoolIds(names);
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>();
+        schools.forEach((key, school) -> {
+            Long id = schoolIds.get(key);
+            if (id != null) {
+                updates.add(updateArgs(schoolArgs(school), SCHOOL_KEY_COLUMNS, id));
+            } else {
+                inserts.add(schoolArgs(school));
+            }
+        });
+        batchUpdate(UPDATE_SCHOOL, updates, updateTypes(SCHOOL_TYPES, SCHOOL_KEY_COLUMNS));
+        batchUpdate(INSERT_SCHOOL, inserts, SCHOOL_TYPES);
+        result.schoolsUpdated = updates.size();
+        result.schoolsInserted = inserts.size();
+        if (!inserts.isEmpty()) {
+            // 取回新增学校的自增ID
+            schoolIds.putAll(findSchoolIds(names));
+        }
+
+        if (!topPrograms.isEmpty()) {
+            List<Long> ids = topPrograms.keySet().stream().map(schoolIds::get).collect(Collectors.toList());
+            namedParameterJdbcTemplate.update("DELETE FROM school_top_programs WHERE school_id IN (:ids)",
+                    Map.of("ids", ids));
+            List<Object[]> values = new ArrayList<>();
+            topPrograms.forEach((key, programNames) -> programNames.forEach(program -> values.add(
+                    new Object[] { schoolIds.get(key), program })));
+            batchUpdate("INSERT INTO school_top_programs (school_id, program) VALUES (?, ?)", values,
+                    new int[] { Types.BIGINT, Types.VARCHAR });
+        }
+
+        if (!programs.isEmpty()) {
+            writePrograms(programs, schoolIds, result);
+        }
+        return result;
+    }
+
+    private void writePrograms(Map<String, Map<String, SchoolProgramDTO>> programs, Map<String, Long> schoolIds,
+            ChunkResult result) {
+        List<Long> ids = programs.keySet().stream().map(schoolIds::get).collect(Collectors.toList());
+        Map<String, Long> programIds = findProgramIds(ids);
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>();
+        Map<String, List<String>> keywords = new HashMap<>();
+        programs.forEach((schoolKey, byKey) -> {
+            Long schoolId = schoolIds.get(schoolKey);
+            byKey.forEach((programKey, program) -> {
+                String key = schoolId + "|" + programKey;
+                Long id = programIds.get(key);
+                if (id != null) {
+                    updates.add(updateArgs(programArgs(schoolId, program, null), PROGRAM_KEY_COLUMNS, id));
+                } else {
+                    inserts.add(programArgs(schoolId, program, Boolean.FALSE));
+                }
+                if (program.getKeywords() != null) {
+                    keywords.put(key, program.getKeywords());
+                }
+            });
+        });
+        batchUpdate(UPDATE_PROGRAM, updates, updateTypes(PROGRAM_TYPES, PROGRAM_KEY_COLUMNS));
+        batchUpdate(INSERT_PROGRAM, inserts, PROGRAM_TYPES);
+        result.programsUpdated = updates.size();
+        result.programsInserted = inserts.size();
+
+        if (!keywords.isEmpty()) {
+            if (!inserts.isEmpty()) {
+                programIds.putAll(findProgramIds(ids));
+            }
+            List<Long> replaced = keywords.keySet().stream().map(programIds::get).collect(Collectors.toList());
+            namedParameterJdbcTemplate.update("DELETE FROM program_keywords WHERE program_id IN (:ids)",
+                    Map.of("ids", replaced));
+            List<Object[]> values = new ArrayList<>();
+            keywords.forEach((key, words) -> words.forEach(word -> values.add(
+                    new Object[] { programIds.get(key), word })));
+            batchUpdate("INSERT INTO program_keywords (program_id, keyword) VALUES (?, ?)", values,
+                    new int[] { Types.BIGINT, Types.VARCHAR });
+        }
+    }
+
+    /**
+     * 按名称查找学校（走名称索引，大小写是否区分取决于数据库的排序规则），
+     * 返回名称键到学校ID；库中有同名学校时取ID最小的一所
+     */
+    private Map<String, Long> findSchoolIds(List<String> names) {
+        Map<String, Long> ids = new HashMap<>();
+        namedParameterJdbcTemplate.query(
+                "SELECT id, name FROM schools WHERE name IN (:names) ORDER BY id",
+                Map.of("names", names),
+                rs -> {
+                    ids.putIfAbsent(nameKey(rs.getString("name")), rs.getLong("id"));
+                });
+        return ids;
+    }
+
+    /**
+     * 学校ID|项目名称|学位等级 到项目ID
+     */
+    private Map<String, Long> findProgramIds(List<Long> schoolIds) {
+        Map<String, Long> ids = new HashMap<>();
+        namedParameterJdbcTemplate.query(
+                "SELECT id, school_id, name, degree_type FROM school_programs WHERE school_id IN (:ids) ORDER BY id",
+                Map.of("ids", schoolIds),
+                rs -> {
+                    String key = rs.getLong("school_id") + "|"
+                            + programKey(rs.getString("name"), rs.getString("degree_type"));
+                    ids.putIfAbsent(key, rs.getLong("id"));
+                });
+        return ids;
+    }
+
+    private void batchUpdate(String sql, List<Object[]> values, int[] types) {
+        if (!values.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, values, types);
+        }
+    }
+
+    private static Object[] schoolArgs(SchoolDTO school) {
+        String schoolType = school.getSchoolType() != null && !school.getSchoolType().isEmpty()
+                ? school.getSchoolType().toUpperCase() : null;
+        return new Object[] { school.getName(), school.getLocation(), school.getRanking(),
+                school.getAcceptanceRate(), school.getAverageGREVerbal(), school.getAverageGREQuant(),
+                school.getAverageGREAW(), school.getAverageGMAT(), school.getAverageGPA(), school.getIsIvyLeague(),
+                school.getDescription(), school.getWebsite(), school.getImageUrl(), school.getHasScholarship(),
+                school.getTuitionFee(), schoolType, school.getAdmissionRequirements() };
+    }
+
+    /**
+     * @param defaultScholarship 未给出是否有奖学金时的取值（新增时与实体默认值一致，更新时为null即保留）
+     */
+    private static Object[] programArgs(Long schoolId, SchoolProgramDTO program, Boolean defaultScholarship) {
+        Boolean scholarship = program.getScholarshipAvailable() != null ? program.getScholarshipAvailable()
+                : defaultScholarship;
+        return new Object[] { schoolId, program.getName(), program.getDepartment(), degreeOf(program),
+                program.getDuration(), program.getTuitionFee(), scholarship, program.getAdmissionRequirements() };
+    }
+
+    private static String degreeOf(SchoolProgramDTO program) {
+        String degree = program.getDegreeLevel();
+        return degree != null && !degree.isEmpty() ? degree.toUpperCase() : null;
+    }
+
+    private static String nameKey(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String programKey(SchoolProgramDTO program) {
+        return programKey(program.getName(), degreeOf(program));
+    }
+
+    private static String programKey(String name, String degree) {
+        return nameKey(name) + "|" + (degree != null ? degree : "");
+    }
+
+    /**
+     * 更新语句的参数：去掉开头的匹配键列，末尾加上ID
+     */
+    private static Object[] updateArgs(Object[] args, int keyColumns, Long id) {
+        Object[] result = Arrays.copyOfRange(args, keyColumns, args.length + 1);
+        result[result.length - 1] = id;
+        return result;
+    }
+
+    private static int[] updateTypes(int[] types, int keyColumns) {
+        int[] result = Arrays.copyOfRange(types, keyColumns, types.length + 1);
+        result[result.length - 1] = Types.BIGINT;
+        return result;
+    }
+
+    private static String insertSql(String table, String[] columns) {
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.length, "?")) + ")";
+    }
+
+    /**
+     * 更新除开头keyColumns个匹配键列以外的列，参数为null时保留原值
+     */
+    private static String updateSql(String table, String[] columns, int keyColumns) {
+        return "UPDATE " + table + " SET " + Arrays.stream(columns, keyColumns, columns.length)
+                .map(column -> column + " = COALESCE(?, " + column + ")")
+                .collect(Collectors.joining(", ")) + " WHERE id = ?";
+    }
+
+    private static Map<String, String> csvColumns() {
+        Map<String, String> columns = new HashMap<>();
+        for (PropertyDescriptor property : BeanUtils.getPropertyDescriptors(SchoolDTO.class)) {
+            if (property.getWriteMethod() != null && !"id".equals(property.getName())) {
+                columns.put(property.getName().toLowerCase(Locale.ROOT), property.getName());
+            }
+        }
+        for (PropertyDescriptor property : BeanUtils.getPropertyDescriptors(SchoolProgramDTO.class)) {
+            String name = property.getName();
+            if (property.getWriteMethod() != null && !"id".equals(name) && !"schoolId".equals(name)
+                    && !"schoolName".equals(name)) {
+                columns.put((PROGRAM_PREFIX + name).toLowerCase(Locale.ROOT), PROGRAM_PREFIX + name);
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * 一块写入的计数，事务提交后才计入报告
+     */
+    private static final class ChunkResult {
+        private int schoolsInserted;
+        private int schoolsUpdated;
+        private int programsInserted;
+        private int programsUpdated;
+    }
+
+    /**
+     * 读取的一行；无法解析时school为null、error为解析错误
+     */
+    private static final class ImportRow {
+        private final int line;
+        private final SchoolImportDTO school;
+        private final String name;
+        private String error;
+
+        ImportRow(int line, SchoolImportDTO school) {
+            this.line = line;
+            this.school = school;
+            this.name = school.getName();
+        }
+
+        ImportRow(int line, String name, String error) {
+            this.line = line;
+            this.school = null;
+            this.name = name;
+            this.error = error;
+        }
+    }
+
+    /**
+     * 按块读取导入行，只持有当前块
+     */
+    private interface RowSource {
+        List<ImportRow> next(int max);
+    }
+
+    private final class NdjsonRows implements RowSource {
+        private final BufferedReader reader;
+        private int lineNumber;
+
+        NdjsonRows(InputStream input) {
+            this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public List<ImportRow> next(int max) {
+            List<ImportRow> rows = new ArrayList<>();
+            try {
+                String line;
+                while (rows.size() < max && (line = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (line.trim().isEmpty()) {
+                        continue;
+                    }
+                    try {
+                        rows.add(new ImportRow(lineNumber, objectMapper.readValue(line, SchoolImportDTO.class)));
+                    } catch (JsonProcessingException e) {
+                        rows.add(new ImportRow(lineNumber, null, "无法解析: " + e.getOriginalMessage()));
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("读取导入文件失败", e);
+            }
+            return rows;
+        }
+    }
+
+    private final class CsvRows implements RowSource {
+        private final CsvReader reader;
+        private final String[] columns;
+
+        CsvRows(InputStream input) {
+            this.reader = new CsvReader(new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)));
+            List<String> header = read();
+            if (header == null || header.stream().allMatch(String::isBlank)) {
+                throw new IllegalArgumentException("CSV文件缺少表头");
+            }
+            columns = new String[header.size()];
+            for (int c = 0; c < columns.length; c++) {
+                String name = header.get(c).trim();
+                columns[c] = CSV_COLUMNS.get(name.toLowerCase(Locale.ROOT));
+                if (columns[c] == null) {
+                    throw new IllegalArgumentException("CSV表头包含未知列: " + name);
+                }
+            }
+        }
+
+        @Override
+        public List<ImportRow> next(int max) {
+            List<ImportRow> rows = new ArrayList<>();
+            List<String> record;
+            while (rows.size() < max && (record = read()) != null) {
+                if (record.stream().allMatch(String::isBlank)) {
+                    continue;
+                }
+                rows.add(toRow(reader.recordLine(), record));
+            }
+            return rows;
+        }
+
+        private List<String> read() {
+            try {
+                return reader.next();
+            } catch (IOException e) {
+                throw new UncheckedIOException("读取导入文件失败", e);
+            }
+        }
+
+        private ImportRow toRow(int line, List<String> record) {
+            ObjectNode school = objectMapper.createObjectNode();
+            ObjectNode program = null;
+            for (int c = 0; c < Math.min(columns.length, record.size()); c++) {
+                String value = record.get(c).trim();
+                if (value.isEmpty()) {
+                    continue;
+                }
+                String column = columns[c];
+                ObjectNode target = school;
+                String property = column;
+                if (column.startsWith(PROGRAM_PREFIX)) {
+                    if (program == null) {
+                        program = objectMapper.createObjectNode();
+                    }
+                    target = program;
+                    property = column.substring(PROGRAM_PREFIX.length());
+                }
+                if (LIST_COLUMNS.contains(column)) {
+                    ArrayNode items = target.putArray(property);
+                    Arrays.stream(value.split(";")).map(String::trim).filter(item -> !item.isEmpty())
+                            .forEach(items::add);
+                } else {
+                    target.put(property, value);
+                }
+            }
+            String name = school.hasNonNull("name") ? school.get("name").asText() : null;
+            if (record.size() > columns.length) {
+                return new ImportRow(line, name, "列数多于表头");
+            }
+            if (program != null) {
+                school.putArray("programs").add(program);
+            }
+            try {
+                return new ImportRow(line, objectMapper.treeToValue(school, SchoolImportDTO.class));
+            } catch (JsonProcessingException e) {
+                return new ImportRow(line, name, "字段格式错误: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    /**
+     * RFC 4180 CSV逐条读取：逗号分隔，双引号包裹的字段可含逗号、换行，字段内的双引号写作两个双引号；
+     * 忽略文件开头的UTF-8 BOM
+     */
+    static final class CsvReader {
+        private final BufferedReader reader;
+        private int line = 1;
+        /** 最近一条记录起始的行号 */
+        private int recordLine;
+        private boolean started;
+
+        CsvReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * 最近一条记录起始的行号（从1开始）
+         */
+        int recordLine() {
+            return recordLine;
+        }
+
+        /**
+         * 下一条记录，读完时返回null
+         */
+        List<String> next() throws IOException {
+            int c = reader.read();
+            if (!started) {
+                started = true;
+                if (c == '\uFEFF') {
+                    c = reader.read();
+                }
+            }
+            if (c == -1) {
+                return null;
+            }
+            recordLine = line;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        // 引号未闭合，到文件末尾为止
+                        fields.add(field.toString());
+                        return fields;
+                    }
+                    if (c == '"') {
+                        int next = reader.read();
+                        if (next != '"') {
+                            quoted = false;
+                            c = next;
+                            continue;
+                        }
+                        field.append('"');
+                    } else {
+                        if (c == '\n') {
+                            line++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == -1) {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    fields.add(field.toString());
+                    return fields;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = reader.read();
+            }
+        }
+    }
+}
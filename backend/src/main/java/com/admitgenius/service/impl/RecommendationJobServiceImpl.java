@@ -0,0 +1,250 @@
+package com.admitgenius.service.impl;
+
+import com.admitgenius.dto.RecommendationJobDTO;
+import com.admitgenius.dto.RecommendationRequestDTO;
+import com.admitgenius.dto.RecommendationResponseDTO;
+import com.admitgenius.exception.ResourceNotFoundException;
+import com.admitgenius.exception.TooManyRequestsException;
+import com.admitgenius.model.User;
+import com.admitgenius.model.UserRole;
+import com.admitgenius.recommendation.RecommendationJob;
+import com.admitgenius.recommendation.RecommendationProgressListener;
+import com.admitgenius.recommendation.RecommendationStream;
+import com.admitgenius.service.RecommendationJobService;
+import com.admitgenius.service.RecommendationService;
+import com.admitgenius.util.AuthUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 异步推荐任务服务
+ * 推荐在有界线程池中执行，队列满或单个用户进行中的任务超过上限时拒绝提交(429)，
+ * 避免大量并发请求占满线程和数据库连接。已结束的任务保留一段时间供轮询，过期后清理。
+ */
+@Service
+public class RecommendationJobServiceImpl implements RecommendationJobService {
+    /** 可以查看任意用户推荐任务的角色 */
+    private static final Set<UserRole> COUNSELOR_ROLES = Set.of(UserRole.ADMIN, UserRole.SCHOOL_ASSISTANT, UserRole.EXPERT);
+
+    @Autowired
+    private RecommendationService recommendationService;
+
+    @Autowired
+    private AuthUtil authUtil;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${recommendation.jobs.pool-size:4}")
+    private int poolSize;
+
+    @Value("${recommendation.jobs.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${recommendation.jobs.max-per-user:3}")
+    private int maxPerUser;
+
+    @Value("${recommendation.jobs.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    @Value("${recommendation.jobs.wait-timeout-seconds:55}")
+    private long waitTimeoutSeconds;
+
+    private ThreadPoolExecutor executor;
+    private final Map<String, RecommendationJob> jobs = new ConcurrentHashMap<>();
+    /** 每个用户排队中和执行中的任务数 */
+    private final Map<Long, Integer> activeByUser = new ConcurrentHashMap<>();
+    private final AtomicLong rejected = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "recommendation-job-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public RecommendationJobDTO submit(RecommendationRequestDTO request) {
+        return enqueue(request, job -> job, true).toDTO();
+    }
+
+    @Override
+    public ResponseBodyEmitter stream(RecommendationRequestDTO request) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(TimeUnit.SECONDS.toMillis(waitTimeoutSeconds));
+        enqueue(request, job -> new RecommendationStream(job, emitter, objectMapper), true);
+        return emitter;
+    }
+
+    @Override
+    public RecommendationJobDTO getJob(String jobId) {
+        return findAccessibleJob(jobId).toDTO();
+    }
+
+    @Override
+    public SseEmitter subscribe(String jobId) {
+        RecommendationJob job = findAccessibleJob(jobId);
+        SseEmitter emitter = new SseEmitter(TimeUnit.SECONDS.toMillis(waitTimeoutSeconds));
+        job.subscribe(emitter);
+        return emitter;
+    }
+
+    @Override
+    public RecommendationResponseDTO generateAndWait(RecommendationRequestDTO request) {
+        RecommendationJob job = enqueue(request, created -> created, false);
+        try {
+            return job.getFuture().get(waitTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            // 保留原异常类型，由全局异常处理映射为对应的状态码
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("推荐生成失败: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new RuntimeException("推荐生成超时，请稍后通过任务ID查询结果: " + job.getId());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("推荐生成被中断");
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("poolSize", executor.getPoolSize());
+        stats.put("activeThreads", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("completedTasks", executor.getCompletedTaskCount());
+        stats.put("rejected", rejected.get());
+        stats.put("trackedJobs", jobs.size());
+        return stats;
+    }
+
+    /**
+     * @param listenerFactory 为任务创建进度回调（默认即任务本身）
+     * @param perUserLimit 是否受单用户进行中任务数限制
+     */
+    private RecommendationJob enqueue(RecommendationRequestDTO request,
+            Function<RecommendationJob, RecommendationProgressListener> listenerFactory, boolean perUserLimit) {
+        if (request == null) {
+            throw new IllegalArgumentException("推荐请求不能为空");
+        }
+        if (request.getUserId() == null) {
+            throw new IllegalArgumentException("用户ID不能为空");
+        }
+        purgeExpired();
+
+        Long userId = request.getUserId();
+        if (perUserLimit) {
+            boolean[] admitted = new boolean[1];
+            activeByUser.compute(userId, (id, count) -> {
+                int current = count != null ? count : 0;
+                if (current >= maxPerUser) {
+                    return count;
+                }
+                admitted[0] = true;
+                return current + 1;
+            });
+            if (!admitted[0]) {
+                rejected.incrementAndGet();
+                throw new TooManyRequestsException("进行中的推荐任务过多，请等待已有任务完成后再试");
+            }
+        }
+
+        RecommendationJob job = new RecommendationJob(request);
+        RecommendationProgressListener listener = listenerFactory.apply(job);
+        // 先登记再提交，任务很快完成时也能立即按ID查询到
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job, listener, perUserLimit));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            if (perUserLimit) {
+                release(userId);
+            }
+            rejected.incrementAndGet();
+            throw new TooManyRequestsException("推荐服务繁忙，请稍后再试");
+        }
+        return job;
+    }
+
+    private void run(RecommendationJob job, RecommendationProgressListener listener, boolean perUserLimit) {
+        try {
+            job.markRunning();
+            job.complete(recommendationService.generateRecommendation(job.getRequest(), listener));
+        } catch (Throwable e) {
+            job.fail(e);
+        } finally {
+            if (perUserLimit) {
+                release(job.getUserId());
+            }
+        }
+    }
+
+    private void release(Long userId) {
+        activeByUser.computeIfPresent(userId, (id, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * 任务结果只对提交者本人和顾问角色（与批量推荐接口相同）可见
+     */
+    private RecommendationJob findAccessibleJob(String jobId) {
+        RecommendationJob job = findJob(jobId);
+        User user = authUtil.getCurrentUser();
+        if (user == null) {
+            throw new AccessDeniedException("用户未认证");
+        }
+        if (!COUNSELOR_ROLES.contains(user.getRole()) && !Objects.equals(job.getUserId(), user.getId())) {
+            throw new AccessDeniedException("无权查看其他用户的推荐任务");
+        }
+        return job;
+    }
+
+    private RecommendationJob findJob(String jobId) {
+        RecommendationJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("推荐任务不存在或已过期: " + jobId);
+        }
+        return job;
+    }
+
+    private void purgeExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minusSeconds(ttlSeconds);
+        jobs.values().removeIf(job -> job.isDone() && job.getFinishedAt() != null
+                && job.getFinishedAt().isBefore(cutoff));
+    }
+}
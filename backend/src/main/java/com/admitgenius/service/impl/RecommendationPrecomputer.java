@@ -0,0 +1,138 @@
+package com.admitgenius.service.impl;
+
+import com.admitgenius.recommendation.PrecomputedRecommendationStaleEvent;
+import com.admitgenius.recommendation.UserProfileChangedEvent;
+import com.admitgenius.service.RecommendationService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 用户档案变化后在后台预计算默认推荐
+ * 同一用户在防抖间隔内的多次修改只计算一次（以最后一次为准）；
+ * 读取时发现预计算结果过期的用户也在这里排队重新计算。
+ * 计算线程数固定，避免批量修改档案时占满数据库连接。
+ */
+@Component
+public class RecommendationPrecomputer {
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationPrecomputer.class);
+
+    @Autowired
+    private RecommendationService recommendationService;
+
+    @Value("${recommendation.precompute.enabled:true}")
+    private boolean enabled;
+
+    @Value("${recommendation.precompute.debounce-ms:2000}")
+    private long debounceMs;
+
+    @Value("${recommendation.precompute.concurrency:2}")
+    private int concurrency;
+
+    private ScheduledThreadPoolExecutor executor;
+    /** 每个用户等待执行的预计算，新的修改会取消并替换尚未开始的任务 */
+    private final Map<Long, PendingTask> pending = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "recommendation-precompute-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        executor = new ScheduledThreadPoolExecutor(concurrency, threadFactory);
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 档案修改提交后触发；不在事务中发布时立即处理
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProfileChanged(UserProfileChangedEvent event) {
+        if (!enabled || event.getUserId() == null) {
+            return;
+        }
+        schedule(event.getUserId(), true);
+    }
+
+    /**
+     * 预计算结果缺失或过期时触发；已有等待中的计算时不重复排队，
+     * 避免频繁读取不断推迟计算
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecommendationStale(PrecomputedRecommendationStaleEvent event) {
+        if (!enabled || event.getUserId() == null) {
+            return;
+        }
+        schedule(event.getUserId(), false);
+    }
+
+    /**
+     * 等待执行的预计算数量
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * @param replace 是否取消并替换该用户尚未开始的计算（重新开始防抖计时）
+     */
+    private void schedule(Long userId, boolean replace) {
+        pending.compute(userId, (key, previous) -> {
+            if (previous != null) {
+                if (!replace) {
+                    return previous;
+                }
+                previous.cancel();
+            }
+            // 登记项在调度之前创建，任务无论何时开始都能按它移除自己
+            PendingTask task = new PendingTask();
+            task.future = executor.schedule(() -> precompute(userId, task), debounceMs, TimeUnit.MILLISECONDS);
+            return task;
+        });
+    }
+
+    private void precompute(Long userId, PendingTask task) {
+        // 只移除自己：执行期间到达的新修改已登记了下一次计算
+        pending.remove(userId, task);
+        try {
+            recommendationService.precomputeRecommendations(userId);
+        } catch (RuntimeException e) {
+            // 预计算失败时，用户访问推荐页会同步计算
+            logger.warn("用户 {} 的推荐预计算失败: {}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * 某个用户等待执行的一次预计算
+     */
+    private static final class PendingTask {
+        private volatile ScheduledFuture<?> future;
+
+        void cancel() {
+            ScheduledFuture<?> scheduled = future;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package com.admitgenius.service.impl;
+
+import com.admitgenius.dto.RecommendationRequestDTO;
+import com.admitgenius.dto.ReplayCaseDTO;
+import com.admitgenius.dto.ReplayReportDTO;
+import com.admitgenius.dto.ReplayRequestDTO;
+import com.admitgenius.exception.TooManyRequestsException;
+import com.admitgenius.index.CatalogBitmaps;
+import com.admitgenius.index.FacetIndex;
+import com.admitgenius.index.ProgramIndex;
+import com.admitgenius.index.SchoolFeatureIndex;
+import com.admitgenius.recommendation.CollaborativeFilteringModel;
+import com.admitgenius.recommendation.ReplayHarness;
+import com.admitgenius.recommendation.ScoringEngines;
+import com.admitgenius.recommendation.ScoringVariant;
+import com.admitgenius.recommendation.ScoringWeights;
+import com.admitgenius.repository.AppliedItemView;
+import com.admitgenius.repository.RecommendationItemRepository;
+import com.admitgenius.repository.RecommendationRepository;
+import com.admitgenius.repository.ReplayRecommendationView;
+import com.admitgenius.service.RecommendationReplayService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+@Service
+public class RecommendationReplayServiceImpl implements RecommendationReplayService {
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationReplayServiceImpl.class);
+
+    /** 未指定起始时间时从最早的记录开始 */
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final String LOCATIONS_PREFIX = ", 地区偏好: ";
+
+    @Autowired
+    private RecommendationRepository recommendationRepository;
+
+    @Autowired
+    private RecommendationItemRepository recommendationItemRepository;
+
+    @Autowired
+    private SchoolFeatureIndex schoolFeatureIndex;
+
+    @Autowired
+    private ProgramIndex programIndex;
+
+    @Autowired
+    private FacetIndex facetIndex;
+
+    @Autowired
+    private CollaborativeFilteringModel collaborativeFilteringModel;
+
+    @Autowired
+    private ScoringEngines scoringEngines;
+
+    @Autowired
+    private ScoringWeights scoringWeights;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${recommendation.replay.max-cases:10000}")
+    private int maxCases;
+
+    @Value("${recommendation.replay.threads:4}")
+    private int threads;
+
+    @Value("${recommendation.replay.batch-size:500}")
+    private int batchSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Override
+    public ReplayReportDTO replay(ReplayRequestDTO options) {
+        DatabaseCases cases = new DatabaseCases(options);
+        ReplayReportDTO report = run(options, cases);
+        report.setLegacyCases(cases.legacyCases);
+        return report;
+    }
+
+    @Override
+    public ReplayReportDTO replay(ReplayRequestDTO options, InputStream export) {
+        return run(options, new ExportedCases(export, Boolean.TRUE.equals(options.getAppliedOnly())));
+    }
+
+    @Override
+    public void export(ReplayRequestDTO options, OutputStream out) {
+        DatabaseCases cases = new DatabaseCases(options);
+        int remaining = limitOf(options);
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        try {
+            while (remaining > 0) {
+                List<ReplayCaseDTO> batch = cases.next(Math.min(batchSize, remaining));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                for (ReplayCaseDTO replayCase : batch) {
+                    writer.write(objectMapper.writeValueAsString(replayCase));
+                    writer.write('\n');
+                }
+                writer.flush();
+                remaining -= batch.size();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("回放用例导出失败", e);
+        }
+    }
+
+    private ReplayReportDTO run(ReplayRequestDTO options, CaseSource source) {
+        List<ScoringVariant> variants = variantsOf(options);
+        int k = options.getK() != null ? options.getK() : 10;
+        int remaining = limitOf(options);
+        if (!running.compareAndSet(false, true)) {
+            throw new TooManyRequestsException("已有离线回放在运行，请稍后再试");
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "recommendation-replay-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            // 所有变体和用例共用同一份目录快照与协同过滤模型，相同目标专业的匹配只计算一次
+            SchoolFeatureIndex.Snapshot catalog = schoolFeatureIndex.snapshot();
+            CollaborativeFilteringModel.Factors cfModel = variants.stream()
+                    .anyMatch(ScoringVariant::usesCollaborativeScores) ? collaborativeFilteringModel.current() : null;
+            Map<String, String[]> programNames = new HashMap<>();
+            CatalogBitmaps bitmaps = facetIndex.bitmaps(catalog);
+            ReplayHarness harness = new ReplayHarness(catalog, variants, k, executor, threads);
+
+            long start = System.currentTimeMillis();
+            while (remaining > 0) {
+                List<ReplayCaseDTO> batch = source.next(Math.min(batchSize, remaining));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                List<ReplayHarness.Case> cases = new ArrayList<>(batch.size());
+                for (ReplayCaseDTO replayCase : batch) {
+                    RecommendationRequestDTO request = replayCase.getRequest();
+                    String major = request.getTargetMajor();
+                    String[] matched = major == null || major.isEmpty() ? null
+                            : programNames.computeIfAbsent(major.toLowerCase(), key -> ProgramIndex
+                                    .namesByPosition(catalog, programIndex.matchBySchool(major)));
+                    float[] collaborativeScores = cfModel != null ? cfModel.scores(request.getUserId(), catalog) : null;
+                    cases.add(new ReplayHarness.Case(request, matched, collaborativeScores,
+                            bitmaps.candidates(request.getCatalogFilter(), request.getRankingRange()),
+                            replayCase.getAppliedSchoolIds()));
+                }
+                harness.replay(cases);
+                remaining -= batch.size();
+            }
+            logger.info("离线回放完成：{} 条用例，{} 个变体，耗时 {} ms", harness.getCases(), variants.size(),
+                    System.currentTimeMillis() - start);
+
+            ReplayReportDTO report = new ReplayReportDTO();
+            report.setCases(harness.getCases());
+            report.setEvaluatedCases(harness.getEvaluatedCases());
+            report.setK(k);
+            report.setThreads(threads);
+            report.setCatalogSize(catalog.size);
+            report.setVariants(harness.report());
+            return report;
+        } finally {
+            executor.shutdownNow();
+            running.set(false);
+        }
+    }
+
+    /**
+     * 解析变体描述，未指定时只回放当前配置
+     */
+    private List<ScoringVariant> variantsOf(ReplayRequestDTO options) {
+        if (options.getVariants() == null || options.getVariants().isEmpty()) {
+            return List.of(scoringEngines.primary());
+        }
+        float cfWeight = collaborativeFilteringModel.getWeight();
+        // 已登记的引擎版本号直接取该版本，否则按变体描述解析
+        return options.getVariants().stream()
+                .map(spec -> {
+                    ScoringVariant engine = scoringEngines.find(spec.trim());
+                    return engine != null ? engine : ScoringVariant.parse(spec, scoringWeights, cfWeight);
+                })
+                .collect(Collectors.toList());
+    }
+
+    private int limitOf(ReplayRequestDTO options) {
+        return options.getLimit() != null ? Math.min(options.getLimit(), maxCases) : maxCases;
+    }
+
+    /**
+     * 由旧记录的输入摘要（见推荐服务的generateInputSummary）尽量还原请求：
+     * 只含GPA、GRE总分、GMAT、目标专业和地区偏好，没有的项保持为空
+     */
+    static RecommendationRequestDTO requestFromSummary(String summary) {
+        RecommendationRequestDTO request = new RecommendationRequestDTO();
+        if (summary == null) {
+            return request;
+        }
+        // 地区偏好总在最后，其中也以逗号分隔
+        int locations = summary.indexOf(LOCATIONS_PREFIX);
+        if (locations >= 0) {
+            request.setLocationPreferences(new ArrayList<>(
+                    Arrays.asList(summary.substring(locations + LOCATIONS_PREFIX.length()).split(", "))));
+            summary = summary.substring(0, locations);
+        }
+        for (String part : summary.split(", ")) {
+            int colon = part.indexOf(": ");
+            if (colon < 0) {
+                continue;
+            }
+            String value = part.substring(colon + 2).trim();
+            if (value.isEmpty() || "null".equals(value)) {
+                continue;
+            }
+            try {
+                switch (part.substring(0, colon)) {
+                    case "GPA":
+                        request.setGpa(Double.parseDouble(value));
+                        break;
+                    case "GRE":
+                        request.setGreScore(Integer.parseInt(value));
+                        break;
+                    case "GMAT":
+                        request.setGmatScore(Integer.parseInt(value));
+                        break;
+                    case "目标专业":
+                        request.setTargetMajor(value);
+                        break;
+                    default:
+                        break;
+                }
+            } catch (NumberFormatException e) {
+                // 无法识别的值按未提供处理
+            }
+        }
+        return request;
+    }
+
+    /**
+     * 分批提供回放用例；返回空列表表示没有更多用例
+     */
+    private interface CaseSource {
+        List<ReplayCaseDTO> next(int max);
+    }
+
+    /**
+     * 按推荐ID顺序分块读取数据库中的历史推荐，每块另用一次查询取回已申请的学校
+     */
+    private final class DatabaseCases implements CaseSource {
+        private final LocalDateTime since;
+        private final boolean appliedOnly;
+        private long afterId;
+        private boolean exhausted;
+        private int legacyCases;
+
+        DatabaseCases(ReplayRequestDTO options) {
+            this.since = options.getSince() != null ? options.getSince() : EPOCH;
+            this.appliedOnly = Boolean.TRUE.equals(options.getAppliedOnly());
+        }
+
+        @Override
+        public List<ReplayCaseDTO> next(int max) {
+            List<ReplayCaseDTO> cases = new ArrayList<>();
+            // 只回放有申请的推荐时，一块中可能大部分被过滤，继续读下一块直到凑满或读完
+            while (cases.size() < max && !exhausted) {
+                List<ReplayRecommendationView> rows = recommendationRepository.findReplayAfter(afterId, since,
+                        PageRequest.of(0, max - cases.size()));
+                if (rows.isEmpty()) {
+                    exhausted = true;
+                    break;
+                }
+                afterId = rows.get(rows.size() - 1).getId();
+                Map<Long, List<Long>> applied = recommendationItemRepository
+                        .findAppliedByRecommendationIds(rows.stream()
+                                .map(ReplayRecommendationView::getId)
+                                .collect(Collectors.toList()))
+                        .stream()
+                        .collect(Collectors.groupingBy(AppliedItemView::getRecommendationId,
+                                Collectors.mapping(AppliedItemView::getSchoolId, Collectors.toList())));
+                for (ReplayRecommendationView row : rows) {
+                    List<Long> schoolIds = applied.getOrDefault(row.getId(), new ArrayList<>());
+                    if (appliedOnly && schoolIds.isEmpty()) {
+                        continue;
+                    }
+                    ReplayCaseDTO replayCase = new ReplayCaseDTO();
+                    replayCase.setRecommendationId(row.getId());
+                    replayCase.setModelVersion(row.getModelVersion());
+                    replayCase.setRequest(requestOf(row));
+                    replayCase.setAppliedSchoolIds(schoolIds);
+                    cases.add(replayCase);
+                }
+            }
+            return cases;
+        }
+
+        private RecommendationRequestDTO requestOf(ReplayRecommendationView row) {
+            RecommendationRequestDTO request = null;
+            if (row.getRequestSnapshot() != null) {
+                try {
+                    request = objectMapper.readValue(row.getRequestSnapshot(), RecommendationRequestDTO.class);
+                } catch (JsonProcessingException e) {
+                    logger.warn("推荐 {} 的请求快照无法解析，改用输入摘要: {}", row.getId(), e.getMessage());
+                }
+            }
+            if (request == null) {
+                request = requestFromSummary(row.getInputSummary());
+                legacyCases++;
+            }
+            request.setUserId(row.getUserId());
+            return request;
+        }
+    }
+
+    /**
+     * 逐行读取导出文件
+     */
+    private final class ExportedCases implements CaseSource {
+        private final BufferedReader reader;
+        private final boolean appliedOnly;
+        private int lineNumber;
+
+        ExportedCases(InputStream export, boolean appliedOnly) {
+            this.reader = new BufferedReader(new InputStreamReader(export, StandardCharsets.UTF_8));
+            this.appliedOnly = appliedOnly;
+        }
+
+        @Override
+        public List<ReplayCaseDTO> next(int max) {
+            List<ReplayCaseDTO> cases = new ArrayList<>();
+            try {
+                String line;
+                while (cases.size() < max && (line = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (line.trim().isEmpty()) {
+                        continue;
+                    }
+                    ReplayCaseDTO replayCase = parse(line);
+                    if (appliedOnly && replayCase.getAppliedSchoolIds().isEmpty()) {
+                        continue;
+                    }
+                    cases.add(replayCase);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("读取回放文件失败", e);
+            }
+            return cases;
+        }
+
+        private ReplayCaseDTO parse(String line) {
+            ReplayCaseDTO replayCase;
+            try {
+                replayCase = objectMapper.readValue(line, ReplayCaseDTO.class);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("回放文件第 " + lineNumber + " 行无法解析: " + e.getOriginalMessage());
+            }
+            if (replayCase.getRequest() == null) {
+                throw new IllegalArgumentException("回放文件第 " + lineNumber + " 行缺少request");
+            }
+            if (replayCase.getAppliedSchoolIds() == null) {
+                replayCase.setAppliedSchoolIds(new ArrayList<>());
+            }
+            return replayCase;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.admitgenius.service.impl;
+
+import com.admitgenius.exception.TooManyRequestsException;
+import com.admitgenius.repository.RecommendationItemRepository;
+import com.admitgenius.repository.RecommendationRepository;
+import com.admitgenius.repository.RecommendationSummaryView;
+import com.admitgenius.service.RecommendationRetentionService;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 推荐历史保留策略：每个用户保留最近keep-per-user条推荐记录，
+ * 另外保留有已申请或有反馈推荐项的记录（协同过滤训练和离线回放依赖它们），以及min-age-hours内生成的记录。
+ * 后台按块删除：每块最多chunk-size条推荐记录，推荐项和推荐记录各用一条短事务删除，块之间暂停pause-ms，
+ * 不长时间持锁，也不把大量冷数据读进缓冲池。
+ */
+@Service
+public class RecommendationRetentionServiceImpl implements RecommendationRetentionService {
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationRetentionServiceImpl.class);
+
+    @Autowired
+    private RecommendationRepository recommendationRepository;
+
+    @Autowired
+    private RecommendationItemRepository recommendationItemRepository;
+
+    @Value("${recommendation.retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${recommendation.retention.keep-per-user:20}")
+    private int keepPerUser;
+
+    @Value("${recommendation.retention.min-age-hours:24}")
+    private long minAgeHours;
+
+    @Value("${recommendation.retention.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${recommendation.retention.pause-ms:50}")
+    private long pauseMs;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong recommendationsDeleted = new AtomicLong();
+    private final AtomicLong itemsDeleted = new AtomicLong();
+    private volatile Map<String, Object> lastRun;
+
+    @PostConstruct
+    public void init() {
+        if (keepPerUser < 1) {
+            throw new IllegalStateException("recommendation.retention.keep-per-user 必须至少为1");
+        }
+        if (chunkSize < 1) {
+            throw new IllegalStateException("recommendation.retention.chunk-size 必须至少为1");
+        }
+    }
+
+    @Scheduled(initialDelayString = "${recommendation.retention.initial-delay-ms:300000}",
+            fixedDelayString = "${recommendation.retention.interval-ms:3600000}")
+    public void scheduledPurge() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            purge();
+        } catch (TooManyRequestsException e) {
+            // 手动触发的清理仍在运行，本轮跳过
+        } catch (RuntimeException e) {
+            logger.warn("推荐历史清理失败: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> purge() {
+        if (!running.compareAndSet(false, true)) {
+            throw new TooManyRequestsException("已有推荐历史清理在运行，请稍后再试");
+        }
+        LocalDateTime startedAt = LocalDateTime.now();
+        long start = System.currentTimeMillis();
+        PurgeRun run = new PurgeRun();
+        try {
+            purgeAll(run, startedAt.minusHours(minAgeHours));
+            runs.incrementAndGet();
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            throw e;
+        } finally {
+            running.set(false);
+            Map<String, Object> result = run.toMap();
+            result.put("startedAt", startedAt);
+            result.put("durationMs", System.currentTimeMillis() - start);
+            lastRun = result;
+        }
+        if (run.recommendations > 0) {
+            logger.info("推荐历史清理完成: 删除推荐记录 {} 条、推荐项 {} 条，涉及用户 {} 个，耗时 {}ms",
+                    run.recommendations, run.items, run.users, System.currentTimeMillis() - start);
+        }
+        return lastRun;
+    }
+
+    private void purgeAll(PurgeRun run, LocalDateTime before) {
+        Long afterUserId = 0L;
+        while (true) {
+            List<Long> userIds = recommendationRepository.findUserIdsWithMoreThan(afterUserId, keepPerUser,
+                    PageRequest.of(0, chunkSize));
+            for (Long userId : userIds) {
+                purgeUser(run, userId, before);
+            }
+            if (userIds.size() < chunkSize) {
+                return;
+            }
+            afterUserId = userIds.get(userIds.size() - 1);
+        }
+    }
+
+    /**
+     * 以该用户保留的最旧一条（第keep-per-user新的记录）为游标，分块删除更早的可清理记录
+     */
+    private void purgeUser(PurgeRun run, Long userId, LocalDateTime before) {
+        List<RecommendationSummaryView> oldestKept = recommendationRepository.findHistory(userId,
+                PageRequest.of(keepPerUser - 1, 1));
+        if (oldestKept.isEmpty()) {
+            return;
+        }
+        RecommendationSummaryView cursor = oldestKept.get(0);
+        run.users++;
+        Long afterId = 0L;
+        while (true) {
+            List<Long> ids = recommendationRepository.findPurgeable(userId, cursor.getCreatedAt(), cursor.getId(),
+                    before, afterId, PageRequest.of(0, chunkSize));
+            if (ids.isEmpty()) {
+                return;
+            }
+            int items = recommendationItemRepository.deleteUnusedByRecommendationIds(ids);
+            int recommendations = recommendationRepository.deleteEmptyByIds(ids);
+            run.chunks++;
+            run.items += items;
+            run.recommendations += recommendations;
+            itemsDeleted.addAndGet(items);
+            recommendationsDeleted.addAndGet(recommendations);
+            if (ids.size() < chunkSize) {
+                return;
+            }
+            afterId = ids.get(ids.size() - 1);
+            pause();
+        }
+    }
+
+    private void pause() {
+        if (pauseMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(pauseMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("推荐历史清理被中断", e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("keepPerUser", keepPerUser);
+        stats.put("minAgeHours", minAgeHours);
+        stats.put("running", running.get());
+        stats.put("runs", runs.get());
+        stats.put("failures", failures.get());
+        stats.put("recommendationsDeleted", recommendationsDeleted.get());
+        stats.put("itemsDeleted", itemsDeleted.get());
+        stats.put("rowsReclaimed", recommendationsDeleted.get() + itemsDeleted.get());
+        stats.put("lastRun", lastRun);
+        return stats;
+    }
+
+    /**
+     * 一轮清理的计数，仅由执行清理的线程修改
+     */
+    private static final class PurgeRun {
+        private int users;
+        private int chunks;
+        private long recommendations;
+        private long items;
+
+        Map<String, Object> toMap() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("users", users);
+            result.put("chunks", chunks);
+            result.put("recommendationsDeleted", recommendations);
+            result.put("itemsDeleted", items);
+            return result;
+        }
+    }
+}
@@ -1,32 +1,77 @@
 package com.admitgenius.service.impl;
 
+import com.admitgenius.dto.CatalogFilterDTO;
+import com.admitgenius.dto.FacetsDTO;
+import com.admitgenius.dto.RecommendationBatchResponseDTO;
+import com.admitgenius.dto.RecommendationBatchResultDTO;
+import com.admitgenius.dto.RecommendationHistoryDTO;
 import com.admitgenius.dto.RecommendationRequestDTO;
 import com.admitgenius.dto.RecommendationResponseDTO;
 import com.admitgenius.dto.RecommendationResponseDTO.RecommendationItemDTO;
+import com.admitgenius.dto.RecommendationSummaryDTO;
 import com.admitgenius.dto.SchoolDTO;
+import com.admitgenius.dto.SchoolFilterResponseDTO;
+import com.admitgenius.dto.WhatIfRequestDTO;
+import com.admitgenius.dto.WhatIfResponseDTO;
+import com.admitgenius.index.CatalogBitmaps;
+import com.admitgenius.index.CatalogIndexManager;
+import com.admitgenius.index.FacetIndex;
+import com.admitgenius.index.LocationDictionary;
+import com.admitgenius.index.ProgramIndex;
+import com.admitgenius.index.SchoolFeatureIndex;
+import com.admitgenius.index.SchoolSearchIndex;
+import com.admitgenius.recommendation.CollaborativeFilteringModel;
+import com.admitgenius.recommendation.PrecomputedRecommendationStaleEvent;
+import com.admitgenius.recommendation.RankedSchool;
+import com.admitgenius.recommendation.RecommendationProgressListener;
+import com.admitgenius.recommendation.RecommendationStreamListener;
+import com.admitgenius.recommendation.ReasonCode;
+import com.admitgenius.recommendation.RecommendationCache;
+import com.admitgenius.recommendation.SchoolMatchScorer;
+import com.admitgenius.recommendation.ScoringEngines;
+import com.admitgenius.recommendation.TopKSelector;
+import com.admitgenius.recommendation.WhatIfGrid;
 import com.admitgenius.model.User;
 import com.admitgenius.model.School;
 import com.admitgenius.model.SchoolProgram;
 import com.admitgenius.model.Recommendation;
+import com.admitgenius.model.PrecomputedRecommendation;
 import com.admitgenius.model.RecommendationItem;
 import com.admitgenius.repository.UserRepository;
 import com.admitgenius.repository.SchoolRepository;
 import com.admitgenius.repository.SchoolProgramRepository;
+import com.admitgenius.repository.PrecomputedRecommendationRepository;
 import com.admitgenius.repository.RecommendationRepository;
 import com.admitgenius.repository.RecommendationItemRepository;
+import com.admitgenius.repository.RecommendationItemView;
+import com.admitgenius.repository.RecommendationSummaryView;
 import com.admitgenius.service.RecommendationService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Service
 public class RecommendationServiceImpl implements RecommendationService {
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationServiceImpl.class);
+
     @Autowired
     private UserRepository userRepository;
 
@@ -42,98 +87,299 @@ public class RecommendationServiceImpl implements RecommendationService {
     @Autowired
     private RecommendationItemRepository recommendationItemRepository;
 
+    @Autowired
+    private SchoolFeatureIndex schoolFeatureIndex;
+
+    @Autowired
+    private ProgramIndex programIndex;
+
+    @Autowired
+    private RecommendationWriter recommendationWriter;
+
+    @Autowired
+    private RecommendationCache recommendationCache;
+
+    @Autowired
+    private CatalogIndexManager catalogIndexManager;
+
+    @Autowired
+    private FacetIndex facetIndex;
+
+    @Autowired
+    private PrecomputedRecommendationRepository precomputedRecommendationRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ScoringEngines scoringEngines;
+
+    @Autowired
+    private SchoolSearchIndex schoolSearchIndex;
+
+    @Autowired
+    private CollaborativeFilteringModel collaborativeFilteringModel;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${recommendation.precompute.enabled:true}")
+    private boolean precomputeEnabled;
+
+    @Value("${recommendation.batch.max-size:500}")
+    private int maxBatchSize;
+
+    @Value("${recommendation.what-if.max-points:100}")
+    private int maxWhatIfPoints;
+
+    /** 打分时至少选取的排名深度（与请求数量上限一致） */
+    private static final int RANKING_DEPTH = 20;
+
+    /** 推荐历史每页最大条数 */
+    private static final int MAX_HISTORY_PAGE_SIZE = 50;
+
+    /** 用户推荐列表返回的最近记录数 */
+    private static final int MAX_USER_RECOMMENDATIONS = 50;
+
+    /** 简化推荐返回的学校数 */
+    private static final int SIMPLE_RECOMMENDATION_COUNT = 10;
+
+    private static final TypeReference<List<SchoolDTO>> SCHOOL_LIST_TYPE = new TypeReference<>() {
+    };
+
     @Override
-    @Transactional
     public RecommendationResponseDTO generateRecommendation(RecommendationRequestDTO request) {
+        return generateRecommendation(request, RecommendationProgressListener.NONE);
+    }
+
+    @Override
+    public RecommendationResponseDTO generateRecommendation(RecommendationRequestDTO request,
+            RecommendationProgressListener listener) {
         // 输入验证
         if (request == null) {
             throw new IllegalArgumentException("推荐请求不能为空");
         }
-        if (request.getUserId() == null) {
-            throw new IllegalArgumentException("用户ID不能为空");
-        }
-        if (request.getCount() == null || request.getCount() <= 0) {
-            request.setCount(10); // 默认推荐10所学校
-        }
-        if (request.getRecommendationType() == null || request.getRecommendationType().trim().isEmpty()) {
-            request.setRecommendationType("ACADEMIC"); // 默认学术推荐
-        }
+        applyDefaults(request);
 
         // 1. 验证用户存在
         User user = userRepository.findById(request.getUserId())
                 .orElseThrow(() -> new RuntimeException("用户不存在"));
 
         // 2. 创建推荐记录
-        Recommendation recommendation = new Recommendation();
-        recommendation.setStudent(user);
-        recommendation.setCreatedAt(LocalDateTime.now());
-        recommendation.setInputSummary(generateInputSummary(request));
-
-        try {
-            recommendation.setRecommendationType(
-                    Recommendation.RecommendationType.valueOf(request.getRecommendationType().toUpperCase()));
-        } catch (IllegalArgumentException e) {
-            throw new IllegalArgumentException("无效的推荐类型: " + request.getRecommendationType());
+        Recommendation recommendation = newRecommendation(user, request);
+
+        // 3. 获取排名：相同条件的请求直接复用缓存，未命中时基于学校特征索引打分
+        listener.onProgress("SCORING", 10);
+        List<RankedSchool> topMatches = topMatches(rankSchools(request, new ScoringContext()), request);
+
+        // 4-5. 只为入选学校及其匹配项目加载实体并创建推荐项目；流式请求先单独加载排名第一的学校并推送
+        listener.onProgress("LOADING", 60);
+        if (listener instanceof RecommendationStreamListener && !topMatches.isEmpty()) {
+            RecommendationStreamListener stream = (RecommendationStreamListener) listener;
+            addItems(recommendation, topMatches.subList(0, 1), request, stream);
+            addItems(recommendation, topMatches.subList(1, topMatches.size()), request, stream);
+        } else {
+            addItems(recommendation, topMatches, request, null);
         }
 
-        recommendation = recommendationRepository.save(recommendation);
+        // 6. 推荐记录与推荐项一次批量写入
+        listener.onProgress("SAVING", 80);
+        recommendation = recommendationWriter.save(recommendation);
+        return convertToResponseDTO(recommendation, request); // Pass request for DTO conversion context
+    }
 
-        // 3. 获取所有学校
-        List<School> allSchools = schoolRepository.findAll();
-        if (allSchools.isEmpty()) {
-            // throw new RuntimeException("系统中暂无学校数据，无法生成推荐");
-            // Return empty recommendation instead of throwing error if no schools
-            return convertToResponseDTO(recommendation, request); // Pass request for DTO conversion context
+    @Override
+    public RecommendationBatchResponseDTO generateRecommendations(List<RecommendationRequestDTO> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("批量推荐请求不能为空");
+        }
+        if (requests.size() > maxBatchSize) {
+            throw new IllegalArgumentException("批量推荐一次最多" + maxBatchSize + "个请求");
         }
 
-        // 4. 计算匹配分数并排序
-        List<SchoolMatchResult> matchResults = calculateMatchScores(allSchools, request);
-
-        // 5. 获取排名靠前的N所学校
-        List<SchoolMatchResult> topMatches = matchResults.stream()
-                .sorted(Comparator.comparing(SchoolMatchResult::getMatchScore).reversed())
-                .limit(request.getCount())
-                .collect(Collectors.toList());
-
-        // 6. 创建推荐项目
-        List<RecommendationItem> items = new ArrayList<>();
-        int rank = 1;
-
-        for (SchoolMatchResult result : topMatches) {
-            RecommendationItem item = new RecommendationItem();
-            item.setRecommendation(recommendation);
-            item.setSchool(result.getSchool());
-
-            // 如果需要匹配项目，查找最匹配的项目
-            if (request.getTargetMajor() != null && !request.getTargetMajor().trim().isEmpty()) {
-                Optional<SchoolProgram> bestProgram = findBestProgram(result.getSchool(), request.getTargetMajor());
-                bestProgram.ifPresent(item::setProgram);
+        // 1. 逐个校验，失败的请求只记录错误，不影响其他请求
+        int size = requests.size();
+        RecommendationBatchResultDTO[] results = new RecommendationBatchResultDTO[size];
+        List<Integer> accepted = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            RecommendationRequestDTO request = requests.get(i);
+            RecommendationBatchResultDTO result = new RecommendationBatchResultDTO();
+            result.setIndex(i);
+            result.setUserId(request != null ? request.getUserId() : null);
+            results[i] = result;
+            String error = validateBatchRequest(request);
+            if (error != null) {
+                result.setError(error);
+            } else {
+                accepted.add(i);
             }
+        }
 
-            item.setMatchScore(result.getMatchScore());
-            item.setRank(rank++);
-            item.setMatchReason(result.getMatchReason());
-            item.setIsApplied(false);
+        // 2. 所有用户一次查询
+        Map<Long, User> users = userRepository.findAllById(accepted.stream()
+                .map(i -> requests.get(i).getUserId())
+                .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(User::getId, user -> user));
+
+        // 3. 所有请求基于同一份目录快照并行打分
+        ScoringContext context = new ScoringContext();
+        Recommendation[] recommendations = new Recommendation[size];
+        List<List<RankedSchool>> rankings = new ArrayList<>(Collections.nCopies(size, null));
+        accepted.parallelStream().forEach(i -> {
+            RecommendationRequestDTO request = requests.get(i);
+            try {
+                User user = users.get(request.getUserId());
+                if (user == null) {
+                    results[i].setError("用户不存在");
+                    return;
+                }
+                Recommendation recommendation = newRecommendation(user, request);
+                rankings.set(i, topMatches(rankSchools(request, context), request));
+                recommendations[i] = recommendation;
+            } catch (RuntimeException e) {
+                results[i].setError(e.getMessage());
+            }
+        });
 
-            items.add(recommendationItemRepository.save(item));
+        // 4. 所有入选学校和项目各一次查询
+        List<RankedSchool> allMatches = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (recommendations[i] != null) {
+                allMatches.addAll(rankings.get(i));
+            }
+        }
+        Map<Long, School> topSchools = loadSchools(allMatches);
+        Map<Long, SchoolProgram> topPrograms = loadPrograms(allMatches);
+
+        // 5. 全部推荐记录在一个事务中批量写入
+        List<Integer> indexes = new ArrayList<>();
+        List<Recommendation> pending = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (recommendations[i] != null) {
+                addItems(recommendations[i], rankings.get(i), topSchools, topPrograms);
+                indexes.add(i);
+                pending.add(recommendations[i]);
+            }
         }
+        List<Recommendation> saved = pending.isEmpty() ? pending : recommendationWriter.saveAll(pending);
 
-        recommendation.setItems(items); // Set items back to recommendation before converting DTO
-        return convertToResponseDTO(recommendation, request); // Pass request for DTO conversion context
+        RecommendationBatchResponseDTO response = new RecommendationBatchResponseDTO();
+        for (int k = 0; k < saved.size(); k++) {
+            int i = indexes.get(k);
+            results[i].setSuccess(true);
+            results[i].setRecommendation(convertToResponseDTO(saved.get(k), requests.get(i)));
+        }
+        response.setResults(Arrays.asList(results));
+        response.setTotal(size);
+        response.setSucceeded(saved.size());
+        response.setFailed(size - saved.size());
+        return response;
     }
 
     @Override
     public List<RecommendationResponseDTO> getUserRecommendations(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("用户不存在"));
+        return getUserRecommendations(userId, null);
+    }
 
-        List<Recommendation> recommendations = recommendationRepository.findByStudentOrderByCreatedAtDesc(user);
+    @Override
+    @Transactional(readOnly = true)
+    public List<RecommendationResponseDTO> getUserRecommendations(Long userId, String language) {
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("用户不存在");
+        }
+        // 只取最近的记录：先用分页投影选出ID，再连同推荐项一次取回；更早的记录通过分页历史接口获取
+        List<Long> ids = recommendationRepository.findHistory(userId, PageRequest.of(0, MAX_USER_RECOMMENDATIONS))
+                .stream()
+                .map(RecommendationSummaryView::getId)
+                .collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Recommendation> recommendations = recommendationRepository.findWithItemsByIdIn(ids);
 
         return recommendations.stream()
-                .map(rec -> convertToResponseDTO(rec, null)) // Pass null or a default request for DTO conversion
+                .map(rec -> convertToResponseDTO(rec, null, language)) // Pass null or a default request for DTO conversion
                 .collect(Collectors.toList());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public RecommendationHistoryDTO getRecommendationHistory(Long userId, String cursor, int size,
+            boolean summary, String language) {
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("用户不存在");
+        }
+        int pageSize = Math.min(Math.max(size, 1), MAX_HISTORY_PAGE_SIZE);
+        // 多取一条用于判断是否还有下一页
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+
+        List<RecommendationSummaryView> rows;
+        if (cursor == null || cursor.isEmpty()) {
+            rows = recommendationRepository.findHistory(userId, limit);
+        } else {
+            int separator = cursor.lastIndexOf('_');
+            LocalDateTime createdAt;
+            Long id;
+            try {
+                createdAt = LocalDateTime.parse(cursor.substring(0, separator));
+                id = Long.parseLong(cursor.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("无效的分页游标: " + cursor);
+            }
+            rows = recommendationRepository.findHistoryBefore(userId, createdAt, id, limit);
+        }
+
+        RecommendationHistoryDTO history = new RecommendationHistoryDTO();
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+        history.setHasMore(hasMore);
+        if (rows.isEmpty()) {
+            return history;
+        }
+
+        // 推荐项（摘要模式只取首位）一次查询取回，按推荐记录分组
+        List<Long> ids = rows.stream().map(RecommendationSummaryView::getId).collect(Collectors.toList());
+        List<RecommendationItemView> itemViews = summary
+                ? recommendationItemRepository.findTopViewsByRecommendationIds(ids)
+                : recommendationItemRepository.findViewsByRecommendationIds(ids);
+        Map<Long, List<RecommendationItemView>> itemsByRecommendation = itemViews.stream()
+                .collect(Collectors.groupingBy(RecommendationItemView::getRecommendationId));
+
+        for (RecommendationSummaryView row : rows) {
+            RecommendationSummaryDTO dto = new RecommendationSummaryDTO();
+            dto.setId(row.getId());
+            dto.setCreatedAt(row.getCreatedAt());
+            dto.setRecommendationType(row.getRecommendationType() != null ? row.getRecommendationType().name() : null);
+            dto.setInputSummary(row.getInputSummary());
+            dto.setModelVersion(row.getModelVersion());
+            dto.setItemCount(row.getItemCount());
+
+            List<RecommendationItemView> views = itemsByRecommendation.getOrDefault(row.getId(), List.of());
+            if (!views.isEmpty()) {
+                dto.setTopSchoolName(views.get(0).getSchoolName());
+                dto.setTopMatchScore(views.get(0).getMatchScore());
+            }
+            if (!summary) {
+                dto.setItems(views.stream()
+                        .map(view -> convertToItemDTO(view, language))
+                        .collect(Collectors.toList()));
+            }
+            history.getRecommendations().add(dto);
+        }
+
+        if (hasMore) {
+            RecommendationSummaryView last = rows.get(rows.size() - 1);
+            history.setNextCursor(last.getCreatedAt() + "_" + last.getId());
+        }
+        return history;
+    }
+
     @Override
     public void provideFeedback(Long itemId, String feedback, boolean applied) {
         RecommendationItem item = recommendationItemRepository.findById(itemId)
@@ -146,285 +392,351 @@ public class RecommendationServiceImpl implements RecommendationService {
         }
 
         recommendationItemRepository.save(item);
+        collaborativeFilteringModel.markDirty();
     }
 
-    // 计算学校匹配分数
-    private List<SchoolMatchResult> calculateMatchScores(List<School> schools, RecommendationRequestDTO request) {
-        List<SchoolMatchResult> results = new ArrayList<>();
-        List<Integer> requestedRankingRange = request.getRankingRange();
-
-        for (School school : schools) {
-            if (school == null)
-                continue;
-            Integer schoolRanking = school.getRanking();
+    @Override
+    public WhatIfResponseDTO evaluateWhatIf(WhatIfRequestDTO whatIf) {
+        if (whatIf == null || whatIf.getRequest() == null) {
+            throw new IllegalArgumentException("推荐请求不能为空");
+        }
+        RecommendationRequestDTO request = whatIf.getRequest();
+        applyDefaults(request);
+        List<Double> gpaValues = whatIfAxis(whatIf.getGpaValues(), request.getGpa(), 0.0, 4.0, "GPA");
+        List<Integer> greVerbalValues = whatIfAxis(whatIf.getGreVerbalValues(), request.getGreVerbal(), 130, 170,
+                "GRE语文");
+        List<Integer> greQuantValues = whatIfAxis(whatIf.getGreQuantitativeValues(), request.getGreQuantitative(),
+                130, 170, "GRE数学");
+        List<Integer> gmatValues = whatIfAxis(whatIf.getGmatValues(), request.getGmatScore(), 200, 800, "GMAT");
+        long points = (long) gpaValues.size() * greVerbalValues.size() * greQuantValues.size() * gmatValues.size();
+        if (points > maxWhatIfPoints) {
+            throw new IllegalArgumentException("假设分析最多" + maxWhatIfPoints + "个取值点，当前为" + points);
+        }
+        // 假设了GRE分项成绩时视为提交了GRE
+        boolean hasGre = request.getGreScore() != null
+                || !isEmpty(whatIf.getGreVerbalValues()) || !isEmpty(whatIf.getGreQuantitativeValues());
+
+        // 基准排名与正常推荐相同；各取值点只重算学业分数，整个网格扫描一次目录，不写库
+        ScoringContext context = new ScoringContext();
+        SchoolMatchScorer scorer = newScorer(request, context, collaborativeFactorsOf(request.getUserId()));
+        List<TopKSelector.Candidate> baseline = TopKSelector.select(scorer, request.getCount());
+        List<WhatIfGrid.Point> results = new WhatIfGrid(scorer, gpaValues, greVerbalValues, greQuantValues,
+                gmatValues, hasGre).evaluate(baseline, request.getCount());
+
+        long[] ids = context.catalog.ids;
+        Set<Long> schoolIds = new HashSet<>();
+        baseline.forEach(candidate -> schoolIds.add(ids[candidate.getPosition()]));
+        results.forEach(point -> point.getTop().forEach(candidate -> schoolIds.add(ids[candidate.getPosition()])));
+        Map<Long, String> names = new HashMap<>();
+        if (!schoolIds.isEmpty()) {
+            schoolRepository.findAllById(schoolIds).forEach(school -> names.put(school.getId(), school.getName()));
+        }
 
-            // 1. Ranking Preference Filter
-            if (requestedRankingRange != null && !requestedRankingRange.isEmpty()) {
-                if (requestedRankingRange.size() == 2) { // Ensure range is valid
-                    if (schoolRanking == null) {
-                        continue; // Skip if school has no ranking data when range is specified
-                    }
-                    int minRank = requestedRankingRange.get(0);
-                    int maxRank = requestedRankingRange.get(1);
-                    if (schoolRanking < minRank || schoolRanking > maxRank) {
-                        continue; // Skip school if its ranking is outside the preferred range
-                    }
-                } else {
-                    // Handle invalid rankingRange size, perhaps log a warning or ignore
-                    System.err.println("Warning: received invalid rankingRange size: " + requestedRankingRange.size());
-                }
+        WhatIfResponseDTO response = new WhatIfResponseDTO();
+        response.setBaseline(whatIfScores(baseline, ids, names));
+        for (WhatIfGrid.Point result : results) {
+            WhatIfResponseDTO.Point point = new WhatIfResponseDTO.Point();
+            point.setGpa(result.getGpa());
+            point.setGreVerbal(result.getGreVerbal());
+            point.setGreQuantitative(result.getGreQuantitative());
+            point.setGmatScore(result.getGmatScore());
+            point.setTopSchools(whatIfScores(result.getTop(), ids, names));
+            for (int t = 0; t < baseline.size(); t++) {
+                long schoolId = ids[baseline.get(t).getPosition()];
+                WhatIfResponseDTO.Movement movement = new WhatIfResponseDTO.Movement();
+                movement.setSchoolId(schoolId);
+                movement.setSchoolName(names.get(schoolId));
+                movement.setRank(result.baselineRank(t));
+                movement.setRankChange(t + 1 - result.baselineRank(t));
+                movement.setScore(result.baselineScore(t));
+                movement.setScoreChange(result.baselineScore(t) - baseline.get(t).getScore());
+                point.getMovements().add(movement);
             }
+            response.getPoints().add(point);
+        }
+        return response;
+    }
 
-            float score = 0.0f;
-            List<String> reasons = new ArrayList<>();
-
-            // Add reason if ranking was a factor and school is in range
-            if (requestedRankingRange != null && !requestedRankingRange.isEmpty() && requestedRankingRange.size() == 2
-                    &&
-                    schoolRanking != null && schoolRanking >= requestedRankingRange.get(0)
-                    && schoolRanking <= requestedRankingRange.get(1)) {
-                reasons.add("学校排名在您的偏好范围内 (" + requestedRankingRange.get(0) + "-" + requestedRankingRange.get(1) + ")");
-                // Optional: Add a base score for ranking match, e.g., score += 0.1f;
+    /**
+     * 假设分析某项成绩的取值：未给出时沿用基准值（可为null），给出时去重并校验范围
+     */
+    private <T extends Number> List<T> whatIfAxis(List<T> values, T base, T min, T max, String name) {
+        if (isEmpty(values)) {
+            return Collections.singletonList(base);
+        }
+        List<T> axis = new ArrayList<>();
+        for (T value : values) {
+            if (value == null || value.doubleValue() < min.doubleValue() || value.doubleValue() > max.doubleValue()) {
+                throw new IllegalArgumentException(name + "假设取值应在" + min + "到" + max + "之间: " + value);
             }
-
-            // GPA匹配 (权重：30%)
-            if (request.getGpa() != null && school.getAverageGPA() != null) {
-                float gpaScore = calculateGPAScore(request.getGpa(), school.getAverageGPA());
-                score += gpaScore * 0.3f;
-
-                if (gpaScore > 0.7f) {
-                    reasons.add("您的GPA与该校招生要求非常匹配");
-                } else if (gpaScore > 0.5f) {
-                    reasons.add("您的GPA在该校招生范围内");
-                }
+            if (!axis.contains(value)) {
+                axis.add(value);
             }
+        }
+        return axis;
+    }
 
-            // 标准化考试匹配 (权重：30%)
-            float testScore = 0.0f;
-
-            // GRE分数
-            if (request.getGreScore() != null) {
-                float greScoreResult = 0.0f;
+    private static boolean isEmpty(List<?> values) {
+        return values == null || values.isEmpty();
+    }
 
-                // GRE语文部分
-                if (request.getGreVerbal() != null && school.getAverageGREVerbal() != null) {
-                    float greVerbalScore = calculateGREScore(request.getGreVerbal(), school.getAverageGREVerbal());
-                    greScoreResult += greVerbalScore * 0.3f;
+    private List<WhatIfResponseDTO.SchoolScore> whatIfScores(List<TopKSelector.Candidate> candidates, long[] ids,
+            Map<Long, String> names) {
+        List<WhatIfResponseDTO.SchoolScore> scores = new ArrayList<>();
+        int rank = 1;
+        for (TopKSelector.Candidate candidate : candidates) {
+            WhatIfResponseDTO.SchoolScore score = new WhatIfResponseDTO.SchoolScore();
+            score.setSchoolId(ids[candidate.getPosition()]);
+            score.setSchoolName(names.get(score.getSchoolId()));
+            score.setRank(rank++);
+            score.setScore(candidate.getScore());
+            scores.add(score);
+        }
+        return scores;
+    }
 
-                    if (greVerbalScore > 0.8f) {
-                        reasons.add("您的GRE语文分数明显高于该校平均水平");
-                    } else if (greVerbalScore > 0.6f) {
-                        reasons.add("您的GRE语文分数符合该校招生要求");
-                    }
-                }
+    /**
+     * 填充请求默认值并校验，无效时抛出IllegalArgumentException
+     */
+    private void applyDefaults(RecommendationRequestDTO request) {
+        if (request.getUserId() == null) {
+            throw new IllegalArgumentException("用户ID不能为空");
+        }
+        if (request.getCount() == null || request.getCount() <= 0) {
+            request.setCount(10); // 默认推荐10所学校
+        }
+        if (request.getRecommendationType() == null || request.getRecommendationType().trim().isEmpty()) {
+            request.setRecommendationType("ACADEMIC"); // 默认学术推荐
+        }
+        parseRecommendationType(request);
+    }
 
-                // GRE数学部分
-                if (request.getGreQuantitative() != null && school.getAverageGREQuant() != null) {
-                    float greQuantScore = calculateGREScore(request.getGreQuantitative(), school.getAverageGREQuant());
-                    greScoreResult += greQuantScore * 0.3f;
+    /**
+     * 批量请求的单项校验（Bean Validation约束与默认值）
+     *
+     * @return 错误信息，校验通过时返回null
+     */
+    private String validateBatchRequest(RecommendationRequestDTO request) {
+        if (request == null) {
+            return "推荐请求不能为空";
+        }
+        Set<ConstraintViolation<RecommendationRequestDTO>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+        try {
+            applyDefaults(request);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
 
-                    if (greQuantScore > 0.8f && !reasons.contains("您的GRE语文分数明显高于该校平均水平")) {
-                        reasons.add("您的GRE数学分数明显高于该校平均水平");
-                    } else if (greQuantScore > 0.6f && !reasons.contains("您的GRE语文分数符合该校招生要求")) {
-                        reasons.add("您的GRE数学分数符合该校招生要求");
-                    }
-                }
+    private Recommendation.RecommendationType parseRecommendationType(RecommendationRequestDTO request) {
+        try {
+            return Recommendation.RecommendationType.valueOf(request.getRecommendationType().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("无效的推荐类型: " + request.getRecommendationType());
+        }
+    }
 
-                // GRE分析性写作部分
-                if (request.getGreAnalytical() != null && school.getAverageGREAW() != null) {
-                    float greAWScore = calculateGREAWScore(request.getGreAnalytical(), school.getAverageGREAW());
-                    greScoreResult += greAWScore * 0.4f;
-
-                    if (greAWScore > 0.8f && !reasons.contains("您的GRE语文分数明显高于该校平均水平")
-                            && !reasons.contains("您的GRE数学分数明显高于该校平均水平")) {
-                        reasons.add("您的GRE分析性写作分数明显高于该校平均水平");
-                    } else if (greAWScore > 0.6f && !reasons.contains("您的GRE语文分数符合该校招生要求")
-                            && !reasons.contains("您的GRE数学分数符合该校招生要求")) {
-                        reasons.add("您的GRE分析性写作分数符合该校招生要求");
-                    }
-                }
+    private Recommendation newRecommendation(User user, RecommendationRequestDTO request) {
+        Recommendation recommendation = new Recommendation();
+        recommendation.setStudent(user);
+        recommendation.setCreatedAt(LocalDateTime.now());
+        recommendation.setInputSummary(generateInputSummary(request));
+        recommendation.setRequestSnapshot(requestSnapshotOf(request));
+        recommendation.setModelVersion(scoringEngines.getPrimaryVersion());
+        recommendation.setRecommendationType(parseRecommendationType(request));
+        return recommendation;
+    }
 
-                testScore = Math.max(testScore, greScoreResult);
-            }
+    private List<RankedSchool> topMatches(List<RankedSchool> ranking, RecommendationRequestDTO request) {
+        return ranking.subList(0, Math.min(request.getCount(), ranking.size()));
+    }
 
-            // GMAT分数
-            if (request.getGmatScore() != null && school.getAverageGMAT() != null) {
-                float gmatScore = calculateGMATScore(request.getGmatScore(), school.getAverageGMAT());
-                testScore = Math.max(testScore, gmatScore);
-
-                if (gmatScore > 0.8f && !reasons.contains("您的GRE语文分数明显高于该校平均水平")
-                        && !reasons.contains("您的GRE数学分数明显高于该校平均水平")
-                        && !reasons.contains("您的GRE分析性写作分数明显高于该校平均水平")) {
-                    reasons.add("您的GMAT分数明显高于该校平均水平");
-                } else if (gmatScore > 0.6f && !reasons.contains("您的GRE语文分数符合该校招生要求")
-                        && !reasons.contains("您的GRE数学分数符合该校招生要求")
-                        && !reasons.contains("您的GRE分析性写作分数符合该校招生要求")) {
-                    reasons.add("您的GMAT分数符合该校招生要求");
-                }
-            }
+    private boolean hasTargetMajor(RecommendationRequestDTO request) {
+        return request.getTargetMajor() != null && !request.getTargetMajor().trim().isEmpty();
+    }
 
-            score += testScore * 0.3f;
+    private Map<Long, School> loadSchools(List<RankedSchool> matches) {
+        Set<Long> schoolIds = matches.stream()
+                .map(RankedSchool::getSchoolId)
+                .collect(Collectors.toSet());
+        if (schoolIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        return schoolRepository.findAllById(schoolIds)
+                .stream()
+                .collect(Collectors.toMap(School::getId, school -> school));
+    }
 
-            // 地点偏好匹配 (权重：15%)
-            if (request.getLocationPreferences() != null && !request.getLocationPreferences().isEmpty()
-                    && school.getLocation() != null) {
-                float locationScore = calculateLocationScore(school.getLocation(), request.getLocationPreferences());
-                score += locationScore * 0.15f;
+    private Map<Long, SchoolProgram> loadPrograms(List<RankedSchool> matches) {
+        Set<Long> programIds = matches.stream()
+                .map(RankedSchool::getProgramId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, SchoolProgram> programs = new HashMap<>();
+        if (!programIds.isEmpty()) {
+            schoolProgramRepository.findAllById(programIds)
+                    .forEach(program -> programs.put(program.getId(), program));
+        }
+        return programs;
+    }
 
-                if (locationScore > 0.9f) {
-                    reasons.add("学校位置完全符合您的地区偏好");
-                } else if (locationScore > 0.5f) {
-                    reasons.add("学校位置与您的部分地区偏好相符");
-                }
+    /**
+     * 加载入选学校及其匹配项目（各一次查询）并创建推荐项，逐项回报给流式回调
+     */
+    private void addItems(Recommendation recommendation, List<RankedSchool> matches, RecommendationRequestDTO request,
+            RecommendationStreamListener stream) {
+        if (matches.isEmpty()) {
+            return;
+        }
+        int first = recommendation.getItems().size();
+        Map<Long, School> schools = loadSchools(matches);
+        Map<Long, SchoolProgram> programs = hasTargetMajor(request) ? loadPrograms(matches) : new HashMap<>();
+        addItems(recommendation, matches, schools, programs);
+        if (stream != null) {
+            List<RecommendationItem> items = recommendation.getItems();
+            for (int i = first; i < items.size(); i++) {
+                stream.onItem(convertToItemDTO(items.get(i), request, request.getLanguage()));
             }
+        }
+    }
 
-            // 学校类型偏好匹配 (权重：15%)
-            if (request.getSchoolTypePreferences() != null && !request.getSchoolTypePreferences().isEmpty()) {
-                // 假设学校有一个tag或type字段
-                float typeScore = 0.5f; // 默认中等匹配
-                score += typeScore * 0.15f;
+    private void addItems(Recommendation recommendation, List<RankedSchool> topMatches, Map<Long, School> schools,
+            Map<Long, SchoolProgram> programs) {
+        // 接着已有推荐项编号，分段添加时排名连续
+        int rank = recommendation.getItems().size() + 1;
 
-                // 如果有Ivy League偏好且学校是常春藤
-                if (request.getSchoolTypePreferences().contains("Ivy League") &&
-                        Boolean.TRUE.equals(school.getIsIvyLeague())) {
-                    reasons.add("常春藤联盟院校符合您的学校类型偏好");
-                }
+        for (RankedSchool result : topMatches) {
+            School school = schools.get(result.getSchoolId());
+            if (school == null) {
+                continue; // 学校在打分后被删除
             }
+            RecommendationItem item = new RecommendationItem();
+            item.setSchool(school);
 
-            // 专业匹配 (权重：10%)
-            if (request.getTargetMajor() != null && !request.getTargetMajor().isEmpty()) {
-                Optional<SchoolProgram> bestProgram = findBestProgram(school, request.getTargetMajor());
-                if (bestProgram.isPresent()) {
-                    score += 0.1f;
-                    reasons.add("学校提供您感兴趣的 " + bestProgram.get().getName() + " 专业");
+            // 如果需要匹配项目，使用最匹配的项目
+            if (result.getProgramId() != null) {
+                SchoolProgram bestProgram = programs.get(result.getProgramId());
+                if (bestProgram != null) {
+                    item.setProgram(bestProgram);
                 }
             }
 
-            // 创建匹配结果
-            SchoolMatchResult result = new SchoolMatchResult();
-            result.setSchool(school);
-            result.setMatchScore(score);
-            result.setMatchReason(String.join("；", reasons));
+            item.setMatchScore(result.getMatchScore());
+            item.setRank(rank++);
+            item.setReasonCodes(result.getReasonCodes());
+            item.setIsApplied(false);
 
-            results.add(result);
+            recommendation.addItem(item);
         }
-
-        return results;
     }
 
-    private float calculateGPAScore(double userGPA, double schoolGPA) {
-        // 计算用户GPA与学校GPA的匹配度，返回0-1的分数
-        // 基本逻辑：用户GPA >= 学校GPA时为高匹配，否则按差距减分
-        if (userGPA >= schoolGPA) {
-            return 1.0f;
-        } else {
-            float difference = (float) (schoolGPA - userGPA);
-            // GPA差距每0.3减0.2分
-            return Math.max(0, 1.0f - (difference / 0.3f) * 0.2f);
+    /**
+     * 计算请求的学校排名（至少 {@link #RANKING_DEPTH} 名，便于不同数量的请求共享缓存）
+     */
+    private List<RankedSchool> rankSchools(RecommendationRequestDTO request, ScoringContext context) {
+        int depth = Math.max(request.getCount(), RANKING_DEPTH);
+        String fingerprint = RecommendationCache.fingerprint(request);
+        // 有协同过滤因子的用户排名因人而异，缓存键加上用户和该用户的协同过滤版本；
+        // 不在模型中的用户共享缓存，重新训练不影响其缓存
+        CollaborativeFilteringModel.Factors cfModel = collaborativeFactorsOf(request.getUserId());
+        if (cfModel != null) {
+            fingerprint += "|cf=" + request.getUserId() + "@" + cfModel.getUserVersion(request.getUserId());
         }
+        List<RankedSchool> cached = recommendationCache.get(fingerprint, context.catalogVersion, depth);
+        if (cached != null) {
+            return cached;
+        }
+
+        SchoolFeatureIndex.Snapshot catalog = context.catalog;
+        Map<Long, ProgramIndex.ProgramMatch> programMatches = context.programMatches(request.getTargetMajor());
+        String[] matchedPrograms = matchedProgramNames(catalog, request.getTargetMajor(), programMatches);
+        float[] collaborativeScores = cfModel != null ? cfModel.scores(request.getUserId(), catalog) : null;
+        BitSet candidates = candidatesOf(request, catalog);
+
+        long start = System.nanoTime();
+        SchoolMatchScorer scorer = scoringEngines.primary().newScorer(catalog, request, matchedPrograms,
+                collaborativeScores, candidates);
+        List<RankedSchool> ranking = new ArrayList<>();
+        for (TopKSelector.Candidate candidate : TopKSelector.select(scorer, depth)) {
+            long schoolId = catalog.ids[candidate.getPosition()];
+            ProgramIndex.ProgramMatch programMatch = programMatches.get(schoolId);
+            ranking.add(new RankedSchool(schoolId, programMatch != null ? programMatch.getProgramId() : null,
+                    candidate.getScore(), scorer.reasonCodes(candidate.getPosition())));
+        }
+        long elapsed = System.nanoTime() - start;
+        recommendationCache.put(fingerprint, context.catalogVersion, depth, ranking);
+
+        // 影子版本用同一份输入异步重算并比较，队列满时丢弃
+        scoringEngines.shadow(catalog, request, matchedPrograms, collaborativeScores, candidates,
+                ranking.stream().mapToLong(RankedSchool::getSchoolId).toArray(), elapsed);
+        return ranking;
     }
 
     /**
-     * 计算GRE分数匹配度
-     * 
-     * @param userScore 用户GRE分数
-     * @param schoolAvg 学校平均GRE分数
-     * @return 匹配度分数(0-1)
+     * 用户的协同过滤因子；模型未训练或用户不在模型中时返回null
      */
-    private float calculateGREScore(int userScore, int schoolAvg) {
-        // GRE各部分分数范围：130-170，计算匹配度
-        if (userScore >= schoolAvg) {
-            return 1.0f;
-        } else {
-            float difference = schoolAvg - userScore;
-            // 差距每5分减0.2分
-            return Math.max(0, 1.0f - (difference / 5.0f) * 0.2f);
-        }
+    private CollaborativeFilteringModel.Factors collaborativeFactorsOf(Long userId) {
+        CollaborativeFilteringModel.Factors cfModel = collaborativeFilteringModel.current();
+        return cfModel != null && cfModel.hasUser(userId) ? cfModel : null;
     }
 
     /**
-     * 计算GRE分析性写作匹配度
-     * 
-     * @param userScore 用户GRE AW分数
-     * @param schoolAvg 学校平均GRE AW分数
-     * @return 匹配度分数(0-1)
+     * 该用户的协同过滤版本（其反馈最后一次变化时的模型版本）；用户不在模型中时为null
      */
-    private float calculateGREAWScore(double userScore, double schoolAvg) {
-        // GRE AW分数范围：0.0-6.0，计算匹配度
-        if (userScore >= schoolAvg) {
-            return 1.0f;
-        } else {
-            float difference = (float) (schoolAvg - userScore);
-            // 差距每0.5分减0.2分
-            return Math.max(0, 1.0f - (difference / 0.5f) * 0.2f);
-        }
+    private Long collaborativeModelVersion(Long userId) {
+        CollaborativeFilteringModel.Factors cfModel = collaborativeFactorsOf(userId);
+        return cfModel != null ? cfModel.getUserVersion(userId) : null;
+    }
+
+    private SchoolMatchScorer newScorer(RecommendationRequestDTO request, ScoringContext context,
+            CollaborativeFilteringModel.Factors cfModel) {
+        SchoolFeatureIndex.Snapshot catalog = context.catalog;
+        Map<Long, ProgramIndex.ProgramMatch> programMatches = context.programMatches(request.getTargetMajor());
+        return scoringEngines.primary().newScorer(catalog, request,
+                matchedProgramNames(catalog, request.getTargetMajor(), programMatches),
+                cfModel != null ? cfModel.scores(request.getUserId(), catalog) : null,
+                candidatesOf(request, catalog));
     }
 
     /**
-     * 计算GMAT分数匹配度
-     * 
-     * @param userScore 用户GMAT分数
-     * @param schoolAvg 学校平均GMAT分数
-     * @return 匹配度分数(0-1)
+     * 按目录筛选和排名偏好在位图上预筛的候选学校，不限制时返回null
      */
-    private float calculateGMATScore(int userScore, int schoolAvg) {
-        // GMAT分数范围：200-800，计算匹配度
-        if (userScore >= schoolAvg) {
-            return 1.0f;
-        } else {
-            float difference = schoolAvg - userScore;
-            // 差距每30分减0.2分
-            return Math.max(0, 1.0f - (difference / 30.0f) * 0.2f);
+    private BitSet candidatesOf(RecommendationRequestDTO request, SchoolFeatureIndex.Snapshot catalog) {
+        if (request.getCatalogFilter() == null && (request.getRankingRange() == null
+                || request.getRankingRange().size() != 2)) {
+            return null;
         }
+        return facetIndex.bitmaps(catalog).candidates(request.getCatalogFilter(), request.getRankingRange());
     }
 
-    private float calculateLocationScore(String schoolLocation, List<String> preferredLocations) {
-        if (schoolLocation == null || preferredLocations == null || preferredLocations.isEmpty()) {
-            return 0.0f; // Return 0 if essential data is missing
-        }
-        if (preferredLocations.contains(schoolLocation)) {
-            return 1.0f;
-        }
-
-        // 处理状态/地区部分匹配的情况
-        for (String location : preferredLocations) {
-            if (schoolLocation.contains(location) || location.contains(schoolLocation)) {
-                return 0.7f;
-            }
+    /**
+     * 把专业匹配结果按快照位置展开，无目标专业时返回null
+     */
+    private String[] matchedProgramNames(SchoolFeatureIndex.Snapshot catalog, String targetMajor,
+            Map<Long, ProgramIndex.ProgramMatch> programMatches) {
+        if (targetMajor == null || targetMajor.isEmpty()) {
+            return null;
         }
-
-        return 0.0f;
+        return ProgramIndex.namesByPosition(catalog, programMatches);
     }
 
-    private Optional<SchoolProgram> findBestProgram(School school, String targetMajor) {
-        if (school == null || targetMajor == null || targetMajor.trim().isEmpty()) {
-            return Optional.empty();
-        }
-        // 假设学校与其专业之间有一对多关系
-        List<SchoolProgram> programs = schoolProgramRepository.findBySchool(school);
-        if (programs == null || programs.isEmpty()) {
-            return Optional.empty();
+    /**
+     * 完整请求的JSON快照，供离线回放重建请求；序列化失败时不保存（回放退回到解析输入摘要）
+     */
+    private String requestSnapshotOf(RecommendationRequestDTO request) {
+        try {
+            return objectMapper.writeValueAsString(request);
+        } catch (JsonProcessingException e) {
+            logger.warn("推荐请求快照序列化失败: {}", e.getMessage());
+            return null;
         }
-
-        String targetMajorLower = targetMajor.toLowerCase();
-
-        return programs.stream()
-                .filter(program -> {
-                    if (program == null)
-                        return false;
-                    boolean nameMatch = false;
-                    if (program.getName() != null) {
-                        nameMatch = program.getName().toLowerCase().contains(targetMajorLower);
-                    }
-                    boolean keywordMatch = false;
-                    if (program.getKeywords() != null) {
-                        keywordMatch = program.getKeywords().stream()
-                                .filter(Objects::nonNull) // Ensure keyword itself is not null
-                                .anyMatch(keyword -> keyword.toLowerCase().contains(targetMajorLower));
-                    }
-                    return nameMatch || keywordMatch;
-                })
-                .findFirst();
     }
 
     private String generateInputSummary(RecommendationRequestDTO request) {
@@ -450,7 +762,8 @@ public class RecommendationServiceImpl implements RecommendationService {
         return summary.toString();
     }
 
-    private RecommendationItemDTO convertToItemDTO(RecommendationItem item, RecommendationRequestDTO requestContext) {
+    private RecommendationItemDTO convertToItemDTO(RecommendationItem item, RecommendationRequestDTO requestContext,
+            String language) {
         RecommendationItemDTO dto = new RecommendationItemDTO();
         School school = item.getSchool();
 
@@ -479,13 +792,59 @@ public class RecommendationServiceImpl implements RecommendationService {
 
         dto.setMatchScore(item.getMatchScore());
         dto.setRank(item.getRank());
-        dto.setMatchReason(item.getMatchReason());
+        applyMatchReason(dto, item.getReasonCodes(), item.getMatchReason(), rankRangeOf(requestContext), language);
         dto.setIsApplied(item.getIsApplied());
         dto.setFeedback(item.getFeedback());
 
         return dto;
     }
 
+    /**
+     * 只为返回的推荐项渲染原因文本；历史记录没有请求上下文，不显示排名区间。
+     * 没有原因代码的旧数据直接使用保存的文本。
+     */
+    private void applyMatchReason(RecommendationItemDTO dto, Integer reasonCodes, String storedReason,
+            String rankRange, String language) {
+        if (reasonCodes == null) {
+            dto.setMatchReason(storedReason);
+            return;
+        }
+        dto.setMatchReason(ReasonCode.render(reasonCodes, language, rankRange, dto.getProgramName()));
+        dto.setReasonCodes(ReasonCode.decode(reasonCodes).stream()
+                .map(Enum::name)
+                .collect(Collectors.toList()));
+    }
+
+    private RecommendationItemDTO convertToItemDTO(RecommendationItemView view, String language) {
+        RecommendationItemDTO dto = new RecommendationItemDTO();
+        dto.setId(view.getId());
+        dto.setSchoolId(view.getSchoolId());
+        dto.setSchoolName(view.getSchoolName());
+        dto.setSchoolLocation(view.getSchoolLocation());
+        dto.setSchoolLogo(view.getSchoolLogo());
+        dto.setSchoolRanking(view.getSchoolRanking());
+        dto.setProgramId(view.getProgramId());
+        dto.setProgramName(view.getProgramName());
+        dto.setDepartment(view.getDepartment());
+        if (view.getDegreeLevel() != null) {
+            dto.setDegreeLevel(view.getDegreeLevel().toString());
+        }
+        dto.setMatchScore(view.getMatchScore());
+        dto.setRank(view.getRank());
+        applyMatchReason(dto, view.getReasonCodes(), view.getMatchReason(), null, language);
+        dto.setIsApplied(view.getIsApplied());
+        dto.setFeedback(view.getFeedback());
+        return dto;
+    }
+
+    private String rankRangeOf(RecommendationRequestDTO requestContext) {
+        if (requestContext == null || requestContext.getRankingRange() == null
+                || requestContext.getRankingRange().size() != 2) {
+            return null;
+        }
+        return requestContext.getRankingRange().get(0) + "-" + requestContext.getRankingRange().get(1);
+    }
+
     private Map<String, Object> generateStatistics(List<RecommendationItemDTO> items) {
         Map<String, Object> stats = new HashMap<>();
 
@@ -526,6 +885,12 @@ public class RecommendationServiceImpl implements RecommendationService {
 
     private RecommendationResponseDTO convertToResponseDTO(Recommendation recommendation,
             RecommendationRequestDTO requestContext) {
+        return convertToResponseDTO(recommendation, requestContext,
+                requestContext != null ? requestContext.getLanguage() : null);
+    }
+
+    private RecommendationResponseDTO convertToResponseDTO(Recommendation recommendation,
+            RecommendationRequestDTO requestContext, String language) {
         RecommendationResponseDTO dto = new RecommendationResponseDTO();
         dto.setId(recommendation.getId());
         dto.setUserId(recommendation.getStudent().getId());
@@ -533,7 +898,7 @@ public class RecommendationServiceImpl implements RecommendationService {
         dto.setExplanation("Generated recommendations based on your profile.");
 
         List<RecommendationItemDTO> itemDTOs = recommendation.getItems().stream()
-                .map(item -> convertToItemDTO(item, requestContext))
+                .map(item -> convertToItemDTO(item, requestContext, language))
                 .collect(Collectors.toList());
 
         dto.setItems(itemDTOs);
@@ -546,54 +911,93 @@ public class RecommendationServiceImpl implements RecommendationService {
         return dto;
     }
 
-    // 辅助内部类，用于存储匹配结果
-    private static class SchoolMatchResult {
-        private School school;
-        private float matchScore;
-        private String matchReason;
-
-        public School getSchool() {
-            return school;
-        }
-
-        public void setSchool(School school) {
-            this.school = school;
-        }
-
-        public float getMatchScore() {
-            return matchScore;
-        }
-
-        public void setMatchScore(float matchScore) {
-            this.matchScore = matchScore;
-        }
-
-        public String getMatchReason() {
-            return matchReason;
+    @Override
+    @Transactional(readOnly = true)
+    public List<SchoolDTO> recommendSchools(Long userId) {
+        // 档案变化后已在后台预计算，这里只按主键读取一行，不写库
+        Optional<PrecomputedRecommendation> precomputed = precomputedRecommendationRepository.findById(userId);
+        if (precomputed.isPresent()) {
+            PrecomputedRecommendation row = precomputed.get();
+            boolean fresh = Objects.equals(row.getCatalogVersion(), catalogIndexManager.getCatalogVersion())
+                    && Objects.equals(row.getModelVersion(), collaborativeModelVersion(userId));
+            // 目录或协同过滤模型变化后先返回旧结果，在后台重新计算；未启用预计算时只能同步计算
+            if (fresh || precomputeEnabled) {
+                try {
+                    List<SchoolDTO> schools = objectMapper.readValue(row.getSchoolsJson(), SCHOOL_LIST_TYPE);
+                    if (!fresh) {
+                        eventPublisher.publishEvent(new PrecomputedRecommendationStaleEvent(userId));
+                    }
+                    return schools;
+                } catch (JsonProcessingException e) {
+                    logger.warn("用户 {} 的预计算推荐无法解析，重新计算: {}", userId, e.getMessage());
+                }
+            }
         }
+        // 没有可用的预计算结果：本次同步计算，保存交给后台预计算
+        eventPublisher.publishEvent(new PrecomputedRecommendationStaleEvent(userId));
+        return defaultRecommendations(findUser(userId), new ScoringContext());
+    }
 
-        public void setMatchReason(String matchReason) {
-            this.matchReason = matchReason;
+    @Override
+    @Transactional
+    public List<SchoolDTO> precomputeRecommendations(Long userId) {
+        User user = findUser(userId);
+        // 版本在打分之前读取：打分期间发生的变更会使这一行在下次读取时过期
+        Long modelVersion = collaborativeModelVersion(userId);
+        ScoringContext context = new ScoringContext();
+        List<SchoolDTO> result = defaultRecommendations(user, context);
+
+        PrecomputedRecommendation precomputed = new PrecomputedRecommendation();
+        precomputed.setUserId(userId);
+        try {
+            precomputed.setSchoolsJson(objectMapper.writeValueAsString(result));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("推荐结果序列化失败: " + e.getMessage(), e);
         }
+        precomputed.setCatalogVersion(context.catalogVersion);
+        precomputed.setModelVersion(modelVersion);
+        precomputed.setComputedAt(LocalDateTime.now());
+        precomputedRecommendationRepository.save(precomputed);
+        return result;
     }
 
-    @Override
-    @Transactional(readOnly = true)
-    public List<SchoolDTO> recommendSchools(Long userId) {
-        User user = userRepository.findById(userId)
+    private User findUser(Long userId) {
+        return userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("用户不存在: " + userId));
+    }
 
-        List<School> allSchools = schoolRepository.findAll(); // This could be large
+    /**
+     * 按用户档案计算默认推荐（只读）
+     */
+    private List<SchoolDTO> defaultRecommendations(User user, ScoringContext context) {
+        RecommendationRequestDTO request = defaultRequest(user);
+        List<RankedSchool> topMatches = topMatches(rankSchools(request, context), request);
+        Map<Long, School> schools = loadSchools(topMatches);
+        List<SchoolDTO> result = new ArrayList<>();
+        for (RankedSchool match : topMatches) {
+            School school = schools.get(match.getSchoolId());
+            if (school != null) {
+                result.add(convertToSchoolDTO(school));
+            }
+        }
+        return result;
+    }
 
-        // Simple logic for now: filter top N schools by some criteria or random
-        // Placeholder: In a real scenario, this would involve a more complex matching
-        // algorithm
-        List<School> matchingSchools = allSchools.stream()
-                // .filter(school -> isGoodMatch(user, school)) // Hypothetical matching logic
-                .sorted(Comparator.comparing(School::getRanking, Comparator.nullsLast(Comparator.naturalOrder())))
-                .limit(10) // Limit to 10 for simplicity
-                .collect(Collectors.toList());
-        return matchingSchools.stream().map(this::convertToSchoolDTO).collect(Collectors.toList());
+    /**
+     * 由用户档案构造默认推荐请求
+     */
+    private RecommendationRequestDTO defaultRequest(User user) {
+        RecommendationRequestDTO request = new RecommendationRequestDTO();
+        request.setUserId(user.getId());
+        request.setGpa(user.getGpa());
+        request.setGreScore(user.getGreCombined());
+        request.setGreVerbal(user.getGreVerbal());
+        request.setGreQuantitative(user.getGreQuant());
+        request.setGreAnalytical(user.getGreWriting());
+        request.setGmatScore(user.getGmatTotal());
+        request.setTargetMajor(user.getTargetMajor());
+        request.setCount(SIMPLE_RECOMMENDATION_COUNT);
+        return request;
     }
 
     private SchoolDTO convertToSchoolDTO(School school) {
@@ -636,52 +1040,151 @@ public class RecommendationServiceImpl implements RecommendationService {
     }
 
     @Override
-    @Transactional(readOnly = true)
     public List<String> getAvailablePrograms() {
-        return schoolProgramRepository.findAll().stream()
-                .map(SchoolProgram::getName)
-                .filter(name -> name != null && !name.trim().isEmpty())
-                .distinct()
-                .sorted()
-                .collect(Collectors.toList());
+        return facetIndex.view().names(FacetIndex.Facet.PROGRAM);
     }
 
     @Override
-    @Transactional(readOnly = true)
     public List<String> getAvailableCountries() {
-        return schoolRepository.findAll().stream()
-                .map(School::getLocation) // Assuming location primarily holds country, or needs parsing
-                .filter(location -> location != null && !location.trim().isEmpty())
-                .distinct()
-                .sorted()
-                .collect(Collectors.toList());
+        return facetIndex.view().names(FacetIndex.Facet.COUNTRY);
+    }
+
+    @Override
+    public FacetsDTO getFacets() {
+        return facetIndex.view().getFacets();
+    }
+
+    @Override
+    public String getFacetVersion() {
+        return facetIndex.view().getVersion();
+    }
+
+    @Override
+    public Map<String, Object> getEngineStats() {
+        return scoringEngines.getStats();
+    }
+
+    @Override
+    public void setShadowVersion(String version) {
+        scoringEngines.setShadowVersion(version);
+        logger.info("打分引擎影子版本切换为: {}", version == null || version.isEmpty() ? "无" : version);
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<SchoolDTO> searchSchoolsByName(String nameQuery, Pageable pageable) {
-        Page<School> schoolPage = schoolRepository.findByNameContainingIgnoreCase(nameQuery, pageable);
-        return schoolPage.map(this::convertToSchoolDTO);
+        if (nameQuery == null || nameQuery.trim().isEmpty()) {
+            return schoolRepository.findAll(pageable).map(this::convertToSchoolDTO);
+        }
+        int offset = pageable.isPaged() ? (int) pageable.getOffset() : 0;
+        int limit = pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE;
+        SchoolSearchIndex.SearchResult result = schoolSearchIndex.search(nameQuery, offset, limit);
+        if (result.getSchoolIds().isEmpty()) {
+            return new PageImpl<>(Collections.emptyList(), pageable, result.getTotal());
+        }
+        // 按相关度顺序输出，忽略分页参数中的排序
+        Map<Long, School> schools = schoolRepository.findAllById(result.getSchoolIds()).stream()
+                .collect(Collectors.toMap(School::getId, school -> school));
+        List<SchoolDTO> content = result.getSchoolIds().stream()
+                .map(schools::get)
+                .filter(Objects::nonNull)
+                .map(this::convertToSchoolDTO)
+                .collect(Collectors.toList());
+        return new PageImpl<>(content, pageable, result.getTotal());
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<SchoolDTO> getSchoolsByCountry(String country, Pageable pageable) {
-        // Current SchoolRepository.findByLocationContainingIgnoreCase might be too
-        // broad.
-        // If School entity had a dedicated 'country' field, it would be
-        // SchoolRepository.findByCountryIgnoreCase(country, pageable)
-        Page<School> schoolPage = schoolRepository.findByLocationContainingIgnoreCase(country, pageable);
-        return schoolPage.map(this::convertToSchoolDTO);
+        SchoolFeatureIndex.Snapshot catalog = schoolFeatureIndex.snapshot();
+        LocationDictionary dictionary = catalog.locationDictionary;
+        int countryId = dictionary.findCountry(country);
+        if (countryId == LocationDictionary.NO_LOCATION) {
+            // 字典中没有的国家名称，退化为地点文本匹配
+            Page<School> schoolPage = schoolRepository.findByLocationContainingIgnoreCase(country, pageable);
+            return schoolPage.map(this::convertToSchoolDTO);
+        }
+        CatalogFilterDTO filter = new CatalogFilterDTO();
+        filter.getCountries().add(dictionary.nameOf(countryId));
+        CatalogBitmaps bitmaps = facetIndex.bitmaps(catalog);
+        return pageOf(bitmaps.select(filter), pageable);
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<SchoolDTO> getSchoolsByProgram(String programName, Pageable pageable) {
-        System.out.println("正在查找专业: " + programName);
-        // 通过学校专业表查找学校，然后分页返回
-        Page<School> schools = schoolRepository.findBySchoolProgramName(programName, pageable);
-        System.out.println("找到学校数量: " + schools.getTotalElements());
-        return schools.map(this::convertToSchoolDTO);
+        CatalogBitmaps bitmaps = facetIndex.bitmaps(schoolFeatureIndex.snapshot());
+        // 名称包含关键词的专业取并集
+        List<String> programs = bitmaps.valuesContaining(FacetIndex.Facet.PROGRAM, programName);
+        if (programs.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        CatalogFilterDTO filter = new CatalogFilterDTO();
+        filter.setPrograms(programs);
+        return pageOf(bitmaps.select(filter), pageable);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public SchoolFilterResponseDTO filterSchools(CatalogFilterDTO filter, Pageable pageable) {
+        CatalogBitmaps bitmaps = facetIndex.bitmaps(schoolFeatureIndex.snapshot());
+        CatalogBitmaps.Selection selection = bitmaps.select(filter);
+        Page<SchoolDTO> page = pageOf(selection, pageable);
+
+        SchoolFilterResponseDTO response = new SchoolFilterResponseDTO();
+        response.setSchools(page.getContent());
+        response.setTotal(page.getTotalElements());
+        response.setPage(pageable.isPaged() ? pageable.getPageNumber() : 0);
+        response.setSize(page.getContent().size());
+        response.setFacets(bitmaps.facets(selection));
+        return response;
+    }
+
+    /**
+     * 筛选结果分页：未指定排序时直接在位图上按目录顺序取一页，只加载这一页的学校；否则交给数据库排序
+     */
+    private Page<SchoolDTO> pageOf(CatalogBitmaps.Selection selection, Pageable pageable) {
+        int total = selection.cardinality();
+        if (total == 0) {
+            return Page.empty(pageable);
+        }
+        if (pageable.getSort().isSorted()) {
+            List<Long> schoolIds = selection.schoolIds(0, total);
+            return schoolRepository.findByIdIn(schoolIds, pageable).map(this::convertToSchoolDTO);
+        }
+        int offset = pageable.isPaged() ? (int) pageable.getOffset() : 0;
+        int limit = pageable.isPaged() ? pageable.getPageSize() : total;
+        List<Long> schoolIds = selection.schoolIds(offset, limit);
+        Map<Long, School> schools = schoolRepository.findAllById(schoolIds).stream()
+                .collect(Collectors.toMap(School::getId, school -> school));
+        List<SchoolDTO> content = schoolIds.stream()
+                .map(schools::get)
+                .filter(Objects::nonNull)
+                .map(this::convertToSchoolDTO)
+                .collect(Collectors.toList());
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    /**
+     * 一次打分使用的目录快照及其版本；批量推荐中所有请求共享同一份，相同目标专业的匹配结果只计算一次
+     */
+    private final class ScoringContext {
+        private final long catalogVersion;
+        private final SchoolFeatureIndex.Snapshot catalog;
+        private final Map<String, Map<Long, ProgramIndex.ProgramMatch>> programMatches = new ConcurrentHashMap<>();
+
+        ScoringContext() {
+            // 先读版本再读快照，缓存条目的版本不会比其数据更新
+            this.catalogVersion = catalogIndexManager.getCatalogVersion();
+            this.catalog = schoolFeatureIndex.snapshot();
+        }
+
+        Map<Long, ProgramIndex.ProgramMatch> programMatches(String targetMajor) {
+            if (targetMajor == null || targetMajor.isEmpty()) {
+                return Collections.emptyMap();
+            }
+            return programMatches.computeIfAbsent(targetMajor.toLowerCase(),
+                    key -> programIndex.matchBySchool(targetMajor));
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,31 @@
+package com.admitgenius.service.impl;
+
+import com.admitgenius.model.Recommendation;
+import com.admitgenius.repository.RecommendationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * 推荐结果写入
+ * 推荐记录与推荐项通过级联一起持久化；ID按号段预分配，提交时推荐项以一条JDBC批量语句写入。
+ * 打分在事务之外完成，这里的事务只覆盖写库本身。
+ */
+@Component
+public class RecommendationWriter {
+
+    @Autowired
+    private RecommendationRepository recommendationRepository;
+
+    @Transactional
+    public Recommendation save(Recommendation recommendation) {
+        return recommendationRepository.save(recommendation);
+    }
+
+    @Transactional
+    public List<Recommendation> saveAll(List<Recommendation> recommendations) {
+        return recommendationRepository.saveAll(recommendations);
+    }
+}
@@ -4,6 +4,7 @@ import com.admitgenius.dto.SchoolDTO;
 import com.admitgenius.dto.SchoolProgramDTO;
 import com.admitgenius.exception.ResourceNotFoundException;
 import com.admitgenius.exception.UnauthorizedAccessException;
+import com.admitgenius.index.CatalogIndexManager;
 import com.admitgenius.model.School;
 import com.admitgenius.model.SchoolProgram;
 import com.admitgenius.model.User;
@@ -16,6 +17,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -31,6 +33,9 @@ public class SchoolServiceImpl implements SchoolService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private CatalogIndexManager catalogIndexManager;
+
     // --- School Management ---
 
     @Override
@@ -42,6 +47,7 @@ public class SchoolServiceImpl implements SchoolService {
         }
         School school = convertToSchoolEntity(schoolDTO);
         school = schoolRepository.save(school);
+        catalogIndexManager.schoolSaved(school);
         return convertToSchoolDTO(school);
     }
 
@@ -75,6 +81,7 @@ public class SchoolServiceImpl implements SchoolService {
         school.setTopPrograms(schoolDTO.getTopPrograms());
 
         school = schoolRepository.save(school);
+        catalogIndexManager.schoolSaved(school);
         return convertToSchoolDTO(school);
     }
 
@@ -94,6 +101,7 @@ public class SchoolServiceImpl implements SchoolService {
         // delete them manually if needed.
         schoolProgramRepository.deleteBySchoolId(id); // Example of manual deletion if not cascaded
         schoolRepository.deleteById(id);
+        catalogIndexManager.schoolDeleted(id);
     }
 
     @Override
@@ -102,6 +110,7 @@ public class SchoolServiceImpl implements SchoolService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public SchoolDTO getSchoolById(Long id) {
         School school = schoolRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("未找到ID为 " + id + " 的学校"));
@@ -122,6 +131,7 @@ public class SchoolServiceImpl implements SchoolService {
 
         SchoolProgram program = convertToProgramEntity(programDTO, school);
         program = schoolProgramRepository.save(program);
+        catalogIndexManager.programSaved(program);
         return convertToProgramDTO(program);
     }
 
@@ -157,6 +167,7 @@ public class SchoolServiceImpl implements SchoolService {
         // deleting and re-adding.
 
         program = schoolProgramRepository.save(program);
+        catalogIndexManager.programSaved(program);
         return convertToProgramDTO(program);
     }
 
@@ -171,9 +182,11 @@ public class SchoolServiceImpl implements SchoolService {
             throw new ResourceNotFoundException("未找到ID为 " + programId + " 的项目");
         }
         schoolProgramRepository.deleteById(programId);
+        catalogIndexManager.programDeleted(programId);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public SchoolProgramDTO getSchoolProgramById(Long programId) {
         SchoolProgram program = schoolProgramRepository.findById(programId)
                 .orElseThrow(() -> new ResourceNotFoundException("未找到ID为 " + programId + " 的项目"));
@@ -181,8 +194,10 @@ public class SchoolServiceImpl implements SchoolService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<SchoolProgramDTO> getAllProgramsBySchool(Long schoolId) {
-        if (!schoolRepository.existsById(schoolId)) {
+        // existsById是一条count查询，findById可以直接命中二级缓存
+        if (schoolRepository.findById(schoolId).isEmpty()) {
             throw new ResourceNotFoundException("未找到ID为 " + schoolId + " 的学校");
         }
         List<SchoolProgram> programs = schoolProgramRepository.findBySchoolId(schoolId);
@@ -215,7 +230,8 @@ public class SchoolServiceImpl implements SchoolService {
         dto.setHasScholarship(school.getHasScholarship());
         dto.setTuitionFee(school.getTuitionFee());
         dto.setAdmissionRequirements(school.getAdmissionRequirements());
-        dto.setTopPrograms(school.getTopPrograms());
+        // 复制出集合：在读事务内完成加载（命中二级缓存时不查库），DTO也不持有Hibernate的集合代理
+        dto.setTopPrograms(school.getTopPrograms() != null ? new ArrayList<>(school.getTopPrograms()) : null);
         // Consider adding a list of SchoolProgramDTOs here if needed for detailed
         // school view
         return dto;
@@ -260,7 +276,7 @@ public class SchoolServiceImpl implements SchoolService {
         dto.setTuitionFee(program.getTuitionFee());
         dto.setScholarshipAvailable(program.getScholarshipAvailable());
         dto.setAdmissionRequirements(program.getAdmissionRequirements());
-        dto.setKeywords(program.getKeywords());
+        dto.setKeywords(program.getKeywords() != null ? new ArrayList<>(program.getKeywords()) : null);
         return dto;
     }
 
@@ -0,0 +1,259 @@
+package com.admitgenius.index;
+
+import com.admitgenius.dto.CatalogFilterDTO;
+import com.admitgenius.dto.FacetsDTO;
+import com.admitgenius.model.School;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 目录筛选位图：与逐校判断条件的结果一致（列表内为或、条件间为且、anyOf嵌套），分页按快照位置顺序
+ */
+class CatalogBitmapsTest {
+    private static final int SCHOOLS = 1000;
+    private static final String[] COUNTRIES = {"美国", "英国", "加拿大"};
+    private static final String[] TYPES = {"PUBLIC", "PRIVATE"};
+    private static final String[] PROGRAMS = {"计算机科学", "金融学", "法学", "数据科学", "建筑学"};
+    private static final String[] DEGREES = {"MASTER", "PHD"};
+
+    private final String[] country = new String[SCHOOLS];
+    private final String[] location = new String[SCHOOLS];
+    private final String[] type = new String[SCHOOLS];
+    private final List<Set<String>> programs = new ArrayList<>();
+    private final List<Set<String>> degrees = new ArrayList<>();
+    private final double[] tuition = new double[SCHOOLS];
+    private final boolean[] scholarship = new boolean[SCHOOLS];
+    private final SchoolFeatureIndex.Snapshot catalog;
+    private final CatalogBitmaps bitmaps;
+
+    CatalogBitmapsTest() {
+        Random random = new Random(11L);
+        LocationDictionary locationDictionary = new LocationDictionary();
+        List<SchoolFeatureIndex.SchoolFeatures> rows = new ArrayList<>();
+        for (int i = 0; i < SCHOOLS; i++) {
+            School school = new School();
+            // ID与位置不同，分页结果须按位置顺序映射为ID
+            school.setId(10_000L - i);
+            school.setRanking(random.nextInt(8) == 0 ? null : 1 + random.nextInt(400));
+            school.setIsIvyLeague(random.nextInt(25) == 0);
+            rows.add(SchoolFeatureIndex.SchoolFeatures.of(school, locationDictionary));
+
+            country[i] = random.nextInt(10) == 0 ? null : COUNTRIES[random.nextInt(COUNTRIES.length)];
+            // 地点取值多、各自很稀疏
+            location[i] = "城市" + random.nextInt(300);
+            type[i] = TYPES[random.nextInt(TYPES.length)];
+            Set<String> offered = new HashSet<>();
+            Set<String> levels = new HashSet<>();
+            for (int p = random.nextInt(4); p > 0; p--) {
+                offered.add(PROGRAMS[random.nextInt(PROGRAMS.length)]);
+                levels.add(DEGREES[random.nextInt(DEGREES.length)]);
+            }
+            programs.add(offered);
+            degrees.add(levels);
+            tuition[i] = random.nextInt(10) == 0 ? Double.NaN : random.nextInt(80) * 1000.0;
+            scholarship[i] = random.nextBoolean();
+        }
+        catalog = SchoolFeatureIndex.Snapshot.of(rows, locationDictionary);
+
+        CatalogBitmaps.Builder builder = new CatalogBitmaps.Builder(catalog, "v1");
+        for (int i = 0; i < SCHOOLS; i++) {
+            builder.add(FacetIndex.Facet.COUNTRY, country[i], i);
+            builder.add(FacetIndex.Facet.LOCATION, location[i], i);
+            builder.add(FacetIndex.Facet.SCHOOL_TYPE, type[i], i);
+            for (String program : programs.get(i)) {
+                builder.add(FacetIndex.Facet.PROGRAM, program, i);
+            }
+            for (String degree : degrees.get(i)) {
+                builder.add(FacetIndex.Facet.DEGREE_LEVEL, degree, i);
+            }
+            if (!Double.isNaN(tuition[i])) {
+                builder.tuition(i, tuition[i]);
+            }
+            if (scholarship[i]) {
+                builder.scholarship(i);
+            }
+        }
+        bitmaps = builder.build();
+    }
+
+    @Test
+    void valuesWithinListAreOredAndConditionsAreAnded() {
+        CatalogFilterDTO filter = new CatalogFilterDTO();
+        filter.setCountries(List.of("美国", "加拿大"));
+        filter.setPrograms(List.of("计算机科学", "数据科学"));
+        filter.setSchoolTypes(List.of("PRIVATE"));
+        assertMatches(filter, i -> ("美国".equals(country[i]) || "加拿大".equals(country[i]))
+                && (programs.get(i).contains("计算机科学") || programs.get(i).contains("数据科学"))
+                && "PRIVATE".equals(type[i]));
+
+        CatalogFilterDTO sparse = new CatalogFilterDTO();
+        sparse.setLocations(List.of("城市7", " 城市42 ", "不存在的城市"));
+        assertMatches(sparse, i -> "城市7".equals(location[i]) || "城市42".equals(location[i]));
+
+        CatalogFilterDTO unknown = new CatalogFilterDTO();
+        unknown.setDegreeLevels(List.of("BACHELOR"));
+        assertMatches(unknown, i -> false);
+
+        assertMatches(new CatalogFilterDTO(), i -> true);
+    }
+
+    @Test
+    void rangesCheckValuesInsidePartialBuckets() {
+        CatalogFilterDTO ranking = new CatalogFilterDTO();
+        ranking.setMinRanking(20);
+        ranking.setMaxRanking(120);
+        assertMatches(ranking, i -> catalog.ranking[i] != SchoolFeatureIndex.NO_VALUE
+                && catalog.ranking[i] >= 20 && catalog.ranking[i] <= 120);
+
+        CatalogFilterDTO openEnded = new CatalogFilterDTO();
+        openEnded.setMinRanking(250);
+        assertMatches(openEnded, i -> catalog.ranking[i] != SchoolFeatureIndex.NO_VALUE
+                && catalog.ranking[i] >= 250);
+
+        CatalogFilterDTO fees = new CatalogFilterDTO();
+        fees.setMinTuition(15000.0);
+        fees.setMaxTuition(40000.0);
+        assertMatches(fees, i -> !Double.isNaN(tuition[i]) && tuition[i] >= 15000.0 && tuition[i] <= 40000.0);
+
+        CatalogFilterDTO invalid = new CatalogFilterDTO();
+        invalid.setMinRanking(50);
+        invalid.setMaxRanking(10);
+        assertThrows(IllegalArgumentException.class, () -> bitmaps.select(invalid));
+        CatalogFilterDTO invalidFees = new CatalogFilterDTO();
+        invalidFees.setMinTuition(5000.0);
+        invalidFees.setMaxTuition(100.0);
+        assertThrows(IllegalArgumentException.class, () -> bitmaps.select(invalidFees));
+    }
+
+    @Test
+    void flagsSelectTrueOrFalse() {
+        CatalogFilterDTO ivy = new CatalogFilterDTO();
+        ivy.setIvyLeague(true);
+        assertMatches(ivy, i -> catalog.ivyLeague[i]);
+
+        CatalogFilterDTO noScholarship = new CatalogFilterDTO();
+        noScholarship.setHasScholarship(false);
+        noScholarship.setIvyLeague(false);
+        assertMatches(noScholarship, i -> !scholarship[i] && !catalog.ivyLeague[i]);
+    }
+
+    @Test
+    void anyOfBranchesAreOredThenAnded() {
+        CatalogFilterDTO usPrivate = new CatalogFilterDTO();
+        usPrivate.setCountries(List.of("美国"));
+        usPrivate.setSchoolTypes(List.of("PRIVATE"));
+        CatalogFilterDTO cheapUk = new CatalogFilterDTO();
+        cheapUk.setCountries(List.of("英国"));
+        cheapUk.setMaxTuition(20000.0);
+        CatalogFilterDTO nested = new CatalogFilterDTO();
+        CatalogFilterDTO phd = new CatalogFilterDTO();
+        phd.setDegreeLevels(List.of("PHD"));
+        CatalogFilterDTO ivy = new CatalogFilterDTO();
+        ivy.setIvyLeague(true);
+        nested.setAnyOf(List.of(phd, ivy));
+        nested.setCountries(List.of("加拿大"));
+
+        CatalogFilterDTO filter = new CatalogFilterDTO();
+        filter.setAnyOf(List.of(usPrivate, cheapUk, nested));
+        filter.setHasScholarship(true);
+        assertMatches(filter, i -> scholarship[i]
+                && ("美国".equals(country[i]) && "PRIVATE".equals(type[i])
+                || "英国".equals(country[i]) && !Double.isNaN(tuition[i]) && tuition[i] <= 20000.0
+                || "加拿大".equals(country[i]) && (degrees.get(i).contains("PHD") || catalog.ivyLeague[i])));
+    }
+
+    @Test
+    void pagesFollowSnapshotPositions() {
+        CatalogFilterDTO filter = new CatalogFilterDTO();
+        filter.setCountries(List.of("英国"));
+        List<Long> expected = expectedIds(i -> "英国".equals(country[i]));
+        CatalogBitmaps.Selection selection = bitmaps.select(filter);
+
+        assertEquals(expected, selection.schoolIds(0, SCHOOLS));
+        assertEquals(expected.subList(0, 10), selection.schoolIds(0, 10));
+        assertEquals(expected.subList(63, 130), selection.schoolIds(63, 67));
+        assertEquals(List.of(), selection.schoolIds(expected.size(), 10));
+        assertEquals(expected.subList(expected.size() - 3, expected.size()),
+                selection.schoolIds(expected.size() - 3, 10));
+    }
+
+    @Test
+    void candidatesIntersectFilterAndRankingPreference() {
+        assertNull(bitmaps.candidates(null, null));
+        assertNull(bitmaps.candidates(null, List.of(1, 2, 3)));
+
+        CatalogFilterDTO filter = new CatalogFilterDTO();
+        filter.setPrograms(List.of("法学"));
+        BitSet candidates = bitmaps.candidates(filter, List.of(30, 90));
+        BitSet expected = new BitSet();
+        for (int i = 0; i < SCHOOLS; i++) {
+            if (programs.get(i).contains("法学") && catalog.ranking[i] >= 30 && catalog.ranking[i] <= 90) {
+                expected.set(i);
+            }
+        }
+        assertEquals(expected, candidates);
+
+        BitSet ranked = bitmaps.candidates(null, List.of(1, 10));
+        assertEquals(bitmaps.rankingBetween(1, 10).toBitSet(), ranked);
+    }
+
+    @Test
+    void facetCountsMatchSelection() {
+        CatalogFilterDTO filter = new CatalogFilterDTO();
+        filter.setSchoolTypes(List.of("PUBLIC"));
+        CatalogBitmaps.Selection selection = bitmaps.select(filter);
+        FacetsDTO facets = bitmaps.facets(selection);
+
+        assertEquals("v1", facets.getVersion());
+        for (FacetsDTO.FacetValue value : facets.getCountries()) {
+            String name = value.getValue();
+            assertEquals(expectedIds(i -> "PUBLIC".equals(type[i]) && name.equals(country[i])).size(),
+                    value.getCount(), name);
+        }
+        for (FacetsDTO.FacetValue value : facets.getPrograms()) {
+            String name = value.getValue();
+            assertEquals(expectedIds(i -> "PUBLIC".equals(type[i]) && programs.get(i).contains(name)).size(),
+                    value.getCount(), name);
+        }
+        assertEquals(List.of(new FacetsDTO.FacetValue("PUBLIC", selection.cardinality())), facets.getSchoolTypes());
+        int ivy = expectedIds(i -> "PUBLIC".equals(type[i]) && catalog.ivyLeague[i]).size();
+        assertEquals(ivy, facets.getIvyLeague().get(0).getCount());
+        assertEquals(selection.cardinality() - ivy, facets.getIvyLeague().get(1).getCount());
+
+        // 各排名段计数之和为有排名的选中学校数
+        int ranked = 0;
+        for (FacetsDTO.FacetValue bucket : facets.getRankingRanges()) {
+            ranked += bucket.getCount();
+        }
+        assertEquals(expectedIds(i -> "PUBLIC".equals(type[i]) && catalog.ranking[i] != SchoolFeatureIndex.NO_VALUE)
+                .size(), ranked);
+    }
+
+    private void assertMatches(CatalogFilterDTO filter, IntPredicate expected) {
+        CatalogBitmaps.Selection selection = bitmaps.select(filter);
+        List<Long> ids = expectedIds(expected);
+        assertEquals(ids.size(), selection.cardinality());
+        assertEquals(ids, selection.schoolIds(0, SCHOOLS));
+    }
+
+    private List<Long> expectedIds(IntPredicate expected) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < SCHOOLS; i++) {
+            if (expected.test(i)) {
+                ids.add(catalog.ids[i]);
+            }
+        }
+        return ids;
+    }
+}
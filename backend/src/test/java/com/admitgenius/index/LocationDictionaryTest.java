@@ -0,0 +1,143 @@
+package com.admitgenius.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 地点字典：中英文地点解析为“国家/州/城市”路径，别名归一，祖先关系与偏好匹配度
+ */
+class LocationDictionaryTest {
+
+    @Test
+    void parsesChineseWithoutSeparators() {
+        assertPath("美国马萨诸塞州剑桥市", "美国:COUNTRY", "马萨诸塞州:STATE", "剑桥市:CITY");
+        assertPath("中国广东省深圳市", "中国:COUNTRY", "广东省:STATE", "深圳市:CITY");
+        // 后缀后紧跟另一个后缀字符时不切分
+        assertPath("广州市", "广州市:CITY");
+    }
+
+    @Test
+    void parsesEnglishSmallestFirst() {
+        assertPath("Cambridge, MA, USA", "美国:COUNTRY", "马萨诸塞州:STATE", "Cambridge:CITY");
+        assertPath("Cambridge, UK", "英国:COUNTRY", "Cambridge:CITY");
+        assertPath("波士顿, 马萨诸塞州", "美国:COUNTRY", "马萨诸塞州:STATE", "波士顿:CITY");
+    }
+
+    @Test
+    void stateAliasesCompleteTheCountry() {
+        assertPath("加州", "美国:COUNTRY", "加利福尼亚州:STATE");
+        assertPath("California", "美国:COUNTRY", "加利福尼亚州:STATE");
+        assertPath("麻省", "美国:COUNTRY", "马萨诸塞州:STATE");
+        assertPath("United States", "美国:COUNTRY");
+    }
+
+    @Test
+    void blankLocationsAreNotInterned() {
+        LocationDictionary dictionary = new LocationDictionary();
+        assertTrue(LocationDictionary.parse(null).isEmpty());
+        assertTrue(LocationDictionary.parse("  ").isEmpty());
+        assertEquals(LocationDictionary.NO_LOCATION, dictionary.intern(null));
+        assertEquals(LocationDictionary.NO_LOCATION, dictionary.intern(""));
+        assertEquals(0, dictionary.size());
+    }
+
+    @Test
+    void aliasesInternToTheSameNode() {
+        LocationDictionary dictionary = new LocationDictionary();
+        int english = dictionary.intern("Cambridge, MA, USA");
+        int chinese = dictionary.intern("美国马萨诸塞州Cambridge");
+        assertEquals(english, chinese);
+        assertEquals(dictionary.intern("马萨诸塞州"), dictionary.intern("Massachusetts"));
+        assertEquals(3, dictionary.size());
+    }
+
+    @Test
+    void nodesKnowTheirAncestors() {
+        LocationDictionary dictionary = new LocationDictionary();
+        int city = dictionary.intern("Cambridge, MA, USA");
+        int state = dictionary.parentOf(city);
+        int country = dictionary.parentOf(state);
+
+        assertEquals("Cambridge", dictionary.nameOf(city));
+        assertEquals(LocationDictionary.Level.CITY, dictionary.levelOf(city));
+        assertEquals("马萨诸塞州", dictionary.nameOf(state));
+        assertEquals(LocationDictionary.Level.STATE, dictionary.levelOf(state));
+        assertEquals("美国", dictionary.nameOf(country));
+        assertEquals(LocationDictionary.NO_LOCATION, dictionary.parentOf(country));
+
+        assertTrue(dictionary.isAncestorOrSelf(country, city));
+        assertTrue(dictionary.isAncestorOrSelf(state, city));
+        assertTrue(dictionary.isAncestorOrSelf(city, city));
+        assertFalse(dictionary.isAncestorOrSelf(city, state));
+        assertEquals(country, dictionary.countryOf(city));
+        assertEquals(country, dictionary.findCountry("USA"));
+        assertEquals(LocationDictionary.NO_LOCATION, dictionary.findCountry("马萨诸塞州"));
+        assertEquals(LocationDictionary.NO_LOCATION, dictionary.findCountry("加拿大"));
+        assertEquals(LocationDictionary.NO_LOCATION, dictionary.countryOf(dictionary.intern("某市")));
+    }
+
+    @Test
+    void resolveMatchesPathOrSameNamedCities() {
+        LocationDictionary dictionary = new LocationDictionary();
+        int cambridgeMa = dictionary.intern("Cambridge, MA, USA");
+        int cambridgeUk = dictionary.intern("Cambridge, UK");
+        int size = dictionary.size();
+
+        assertArrayEquals(new int[]{cambridgeMa}, dictionary.resolve("Cambridge, Massachusetts"));
+        int[] both = dictionary.resolve("Cambridge");
+        Arrays.sort(both);
+        assertArrayEquals(new int[]{cambridgeMa, cambridgeUk}, both);
+        assertEquals(0, dictionary.resolve("Toronto, Canada").length);
+        // 解析偏好不驻留新节点
+        assertEquals(size, dictionary.size());
+    }
+
+    @Test
+    void preferenceScoresFollowAncestry() {
+        LocationDictionary dictionary = new LocationDictionary();
+        int cambridge = dictionary.intern("Cambridge, MA, USA");
+        int massachusetts = dictionary.intern("马萨诸塞州");
+        int usa = dictionary.intern("美国");
+        int california = dictionary.intern("加州");
+        int london = dictionary.intern("London, UK");
+
+        assertNull(dictionary.preferenceScores(null));
+        assertNull(dictionary.preferenceScores(new ArrayList<>()));
+
+        float[] state = dictionary.preferenceScores(List.of("Massachusetts"));
+        assertEquals(LocationDictionary.FULL_MATCH, state[cambridge]);
+        assertEquals(LocationDictionary.FULL_MATCH, state[massachusetts]);
+        assertEquals(LocationDictionary.PARTIAL_MATCH, state[usa]);
+        assertEquals(0.0f, state[california]);
+        assertEquals(0.0f, state[london]);
+
+        // 偏好城市不在字典中时，已知的上级部分匹配
+        float[] city = dictionary.preferenceScores(List.of("Boston, MA"));
+        assertEquals(0.0f, city[cambridge]);
+        assertEquals(LocationDictionary.PARTIAL_MATCH, city[massachusetts]);
+        assertEquals(LocationDictionary.PARTIAL_MATCH, city[usa]);
+
+        float[] several = dictionary.preferenceScores(List.of("UK", "加利福尼亚州"));
+        assertEquals(LocationDictionary.FULL_MATCH, several[london]);
+        assertEquals(LocationDictionary.FULL_MATCH, several[california]);
+        assertEquals(LocationDictionary.PARTIAL_MATCH, several[usa]);
+        assertEquals(0.0f, several[cambridge]);
+    }
+
+    private static void assertPath(String location, String... expected) {
+        List<String> actual = new ArrayList<>();
+        for (LocationDictionary.Part part : LocationDictionary.parse(location)) {
+            actual.add(part.name + ":" + part.level);
+        }
+        assertEquals(Arrays.asList(expected), actual, location);
+    }
+}
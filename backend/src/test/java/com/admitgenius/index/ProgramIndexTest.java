@@ -0,0 +1,172 @@
+package com.admitgenius.index;
+
+import com.admitgenius.model.School;
+import com.admitgenius.repository.ProgramKeywordView;
+import com.admitgenius.repository.SchoolProgramRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 专业倒排索引：二元组求交得到候选后按子串校验，匹配语义与逐项目 contains 一致
+ */
+class ProgramIndexTest {
+
+    @Test
+    void matchesNameAndKeywordsIgnoringCase() {
+        ProgramIndex index = indexOf(
+                ProgramIndex.ProgramEntry.of(1L, 10L, "Computer Science", List.of("AI")),
+                ProgramIndex.ProgramEntry.of(2L, 20L, "电子工程", List.of("Machine Learning", "集成电路")),
+                ProgramIndex.ProgramEntry.of(3L, 30L, "金融学", List.of("量化")));
+
+        assertEquals(Map.of(10L, 1L), programIds(index.matchBySchool("computer")));
+        assertEquals(Map.of(20L, 2L), programIds(index.matchBySchool("LEARNING")));
+        assertEquals(Map.of(20L, 2L), programIds(index.matchBySchool("集成")));
+        assertTrue(index.matchBySchool("生物").isEmpty());
+    }
+
+    @Test
+    void bigramCandidatesAreVerifiedBySubstring() {
+        // “数据”“据科”两个二元组分别出现在名称和关键词中，但没有任何字段包含“数据科”
+        ProgramIndex index = indexOf(
+                ProgramIndex.ProgramEntry.of(1L, 10L, "大数据", List.of("证据科学")),
+                ProgramIndex.ProgramEntry.of(2L, 20L, "数据科学", List.of()),
+                ProgramIndex.ProgramEntry.of(3L, 30L, "ab cd", List.of("bc")));
+
+        assertEquals(Map.of(20L, 2L), programIds(index.matchBySchool("数据科")));
+        assertTrue(index.matchBySchool("abcd").isEmpty());
+    }
+
+    @Test
+    void singleCharacterQueryScansAllPrograms() {
+        ProgramIndex index = indexOf(
+                ProgramIndex.ProgramEntry.of(1L, 10L, "法学", List.of()),
+                ProgramIndex.ProgramEntry.of(2L, 20L, "国际法", List.of()),
+                ProgramIndex.ProgramEntry.of(3L, 30L, "经济学", List.of()));
+
+        assertEquals(Map.of(10L, 1L, 20L, 2L), programIds(index.matchBySchool("法")));
+    }
+
+    @Test
+    void lowestProgramIdWinsPerSchool() {
+        ProgramIndex index = indexOf(
+                ProgramIndex.ProgramEntry.of(7L, 10L, "数据科学", List.of()),
+                ProgramIndex.ProgramEntry.of(3L, 10L, "应用数据科学", List.of()),
+                ProgramIndex.ProgramEntry.of(5L, 20L, "统计", List.of("数据科学")));
+
+        Map<Long, ProgramIndex.ProgramMatch> matches = index.matchBySchool("数据科学");
+        assertEquals(Map.of(10L, 3L, 20L, 5L), programIds(matches));
+        assertEquals("应用数据科学", matches.get(10L).getProgramName());
+    }
+
+    @Test
+    void programsWithoutSchoolNeverMatch() {
+        ProgramIndex index = indexOf(ProgramIndex.ProgramEntry.of(1L, null, "数据科学", List.of()));
+        assertTrue(index.matchBySchool("数据").isEmpty());
+    }
+
+    @Test
+    void writesUpdatePostings() {
+        ProgramIndex index = indexOf(
+                ProgramIndex.ProgramEntry.of(1L, 10L, "金融学", List.of()),
+                ProgramIndex.ProgramEntry.of(2L, 20L, "金融工程", List.of()),
+                ProgramIndex.ProgramEntry.of(3L, 20L, "会计", List.of()));
+
+        index.upsert(ProgramIndex.ProgramEntry.of(1L, 10L, "经济学", List.of()));
+        assertEquals(Map.of(20L, 2L), programIds(index.matchBySchool("金融")));
+        assertEquals(Map.of(10L, 1L), programIds(index.matchBySchool("经济")));
+
+        index.remove(2L);
+        assertTrue(index.matchBySchool("金融").isEmpty());
+
+        index.removeBySchool(20L);
+        assertTrue(index.matchBySchool("会计").isEmpty());
+        assertEquals(Map.of(10L, 1L), programIds(index.matchBySchool("经济")));
+    }
+
+    @Test
+    void lazyLoadGroupsKeywordRowsByProgram() {
+        SchoolProgramRepository repository = mock(SchoolProgramRepository.class);
+        when(repository.findAllKeywordRows()).thenReturn(Arrays.asList(
+                row(1L, 10L, "计算机科学", "人工智能"),
+                row(1L, 10L, "计算机科学", "软件工程"),
+                row(2L, 20L, "法学", null),
+                row(3L, 20L, "金融学", "量化")));
+        ProgramIndex index = new ProgramIndex();
+        ReflectionTestUtils.setField(index, "schoolProgramRepository", repository);
+
+        assertEquals(Map.of(10L, 1L), programIds(index.matchBySchool("软件")));
+        assertEquals(Map.of(10L, 1L), programIds(index.matchBySchool("人工智能")));
+        assertEquals(Map.of(20L, 2L), programIds(index.matchBySchool("法学")));
+        assertEquals(Map.of(20L, 3L), programIds(index.matchBySchool("量化")));
+        verify(repository, times(1)).findAllKeywordRows();
+    }
+
+    @Test
+    void namesByPositionFollowsSnapshotOrder() {
+        LocationDictionary locationDictionary = new LocationDictionary();
+        List<SchoolFeatureIndex.SchoolFeatures> rows = new ArrayList<>();
+        for (long id : new long[]{30L, 10L}) {
+            School school = new School();
+            school.setId(id);
+            rows.add(SchoolFeatureIndex.SchoolFeatures.of(school, locationDictionary));
+        }
+        SchoolFeatureIndex.Snapshot catalog = SchoolFeatureIndex.Snapshot.of(rows, locationDictionary);
+        ProgramIndex index = indexOf(
+                ProgramIndex.ProgramEntry.of(1L, 10L, "数据科学", List.of()),
+                ProgramIndex.ProgramEntry.of(2L, 99L, "数据科学", List.of()));
+
+        String[] names = ProgramIndex.namesByPosition(catalog, index.matchBySchool("数据"));
+        assertNull(names[0]);
+        assertEquals("数据科学", names[1]);
+    }
+
+    private static ProgramIndex indexOf(ProgramIndex.ProgramEntry... entries) {
+        ProgramIndex index = new ProgramIndex();
+        index.rebuild(Arrays.asList(entries));
+        return index;
+    }
+
+    private static Map<Long, Long> programIds(Map<Long, ProgramIndex.ProgramMatch> matches) {
+        Map<Long, Long> ids = new HashMap<>();
+        matches.forEach((schoolId, match) -> ids.put(schoolId, match.getProgramId()));
+        return ids;
+    }
+
+    private static ProgramKeywordView row(Long programId, Long schoolId, String name, String keyword) {
+        return new ProgramKeywordView() {
+            @Override
+            public Long getProgramId() {
+                return programId;
+            }
+
+            @Override
+            public Long getSchoolId() {
+                return schoolId;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public String getKeyword() {
+                return keyword;
+            }
+        };
+    }
+}
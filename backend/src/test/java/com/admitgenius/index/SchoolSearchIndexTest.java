@@ -0,0 +1,121 @@
+package com.admitgenius.index;
+
+import com.admitgenius.model.School;
+import com.admitgenius.repository.SchoolRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 学校全文检索：中英文切词、全部查询词命中、末尾前缀匹配、BM25F排序与分页
+ */
+class SchoolSearchIndexTest {
+    private final List<School> schools = new ArrayList<>();
+    private SchoolSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        schools.add(school(1L, "Stanford University", "Stanford, CA", "private research university",
+                "Computer Science"));
+        schools.add(school(2L, "Harvard University", "Cambridge, MA", "Ivy League research university in Cambridge",
+                "Law", "Economics"));
+        schools.add(school(3L, "麻省理工学院", "Cambridge, MA", "Massachusetts Institute of Technology", "计算机科学"));
+        schools.add(school(4L, "斯坦福大学中国中心", "北京", null));
+        schools.add(school(5L, "Cambridge College", "Boston, MA", null));
+
+        SchoolRepository repository = mock(SchoolRepository.class);
+        when(repository.findAllWithTopPrograms()).thenReturn(schools);
+        index = new SchoolSearchIndex();
+        ReflectionTestUtils.setField(index, "schoolRepository", repository);
+    }
+
+    @Test
+    void tokenizesEnglishWordsAndCjkBigrams() {
+        assertEquals(Arrays.asList("stanford", "university", "斯坦", "坦福", "福大", "大学"),
+                SchoolSearchIndex.tokenize("Stanford University 斯坦福大学"));
+        assertEquals(Arrays.asList("mit", "2024", "哈"), SchoolSearchIndex.tokenize("MIT-2024 哈"));
+        assertEquals(Arrays.asList("a", "大", "b"), SchoolSearchIndex.tokenize("a大b"));
+        assertTrue(SchoolSearchIndex.tokenize(null).isEmpty());
+        assertTrue(SchoolSearchIndex.tokenize(" ,.- ").isEmpty());
+    }
+
+    @Test
+    void allQueryTermsMustMatch() {
+        assertEquals(List.of(1L), ids("computer stanford"));
+        assertEquals(List.of(3L), ids("计算机"));
+        assertEquals(List.of(), ids("计算机 Stanford"));
+        assertEquals(List.of(4L), ids("斯坦福大学"));
+        assertEquals(0, index.search("", 0, 10).getTotal());
+    }
+
+    @Test
+    void lastEnglishWordAndSingleHanMatchAsPrefix() {
+        assertEquals(List.of(1L), ids("stan"));
+        assertEquals(List.of(1L, 2L), ids("univ"));
+        assertEquals(List.of(4L), ids("斯"));
+        // 只有末尾的词按前缀匹配；末尾是标点时不展开
+        assertEquals(List.of(), ids("stan univ"));
+        assertEquals(List.of(2L), ids("harv "));
+        assertEquals(List.of(), ids("harv."));
+        assertEquals(List.of(2L), ids("harvard."));
+    }
+
+    @Test
+    void rankingFollowsFieldBoostAndLength() {
+        // 名称权重最高；同为地点命中时，简介中也出现的排前
+        assertEquals(List.of(5L, 2L, 3L), ids("cambridge"));
+        // 名称相同长度时，简介更短的排前
+        assertEquals(List.of(1L, 2L), ids("university"));
+    }
+
+    @Test
+    void tiesOrderByIdAndPagesAreStable() {
+        schools.clear();
+        for (long id = 14; id >= 10; id--) {
+            schools.add(school(id, "Twin College", "Boston, MA", null));
+        }
+        SchoolSearchIndex.SearchResult all = index.search("twin", 0, 10);
+        assertEquals(5, all.getTotal());
+        assertEquals(List.of(10L, 11L, 12L, 13L, 14L), all.getSchoolIds());
+
+        SchoolSearchIndex.SearchResult page = index.search("twin", 2, 2);
+        assertEquals(5, page.getTotal());
+        assertEquals(List.of(12L, 13L), page.getSchoolIds());
+        assertEquals(List.of(), index.search("twin", 5, 2).getSchoolIds());
+        assertEquals(0, index.search("twin", 0, 0).getTotal());
+    }
+
+    @Test
+    void writesUpdateTheIndex() {
+        assertEquals(List.of(1L), ids("stanford"));
+        index.upsert(SchoolSearchIndex.SearchDocument.of(school(1L, "Leland University", "Palo Alto, CA", null)));
+        assertEquals(List.of(), ids("stanford"));
+        assertEquals(List.of(1L), ids("leland"));
+
+        index.remove(2L);
+        assertEquals(List.of(5L, 3L), ids("cambridge"));
+    }
+
+    private List<Long> ids(String query) {
+        return index.search(query, 0, 10).getSchoolIds();
+    }
+
+    private static School school(Long id, String name, String location, String description, String... programs) {
+        School school = new School();
+        school.setId(id);
+        school.setName(name);
+        school.setLocation(location);
+        school.setDescription(description);
+        school.setTopPrograms(new ArrayList<>(Arrays.asList(programs)));
+        return school;
+    }
+}
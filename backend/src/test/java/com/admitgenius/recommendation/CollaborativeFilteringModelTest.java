@@ -0,0 +1,197 @@
+package com.admitgenius.recommendation;
+
+import com.admitgenius.repository.AppliedSchoolView;
+import com.admitgenius.repository.RecommendationItemRepository;
+import com.admitgenius.repository.SavedSchoolView;
+import com.admitgenius.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 协同过滤模型：分块读取反馈训练ALS，同组用户申请过的学校得分更高；
+ * 用户版本只随该用户自己的反馈变化，分数向量在同一版模型和目录快照内复用
+ */
+class CollaborativeFilteringModelTest {
+    private static final int CHUNK_SIZE = 2;
+
+    private final List<AppliedSchoolView> applied = new ArrayList<>();
+    private final List<SavedSchoolView> saved = new ArrayList<>();
+    private CollaborativeFilteringModel model;
+    private RecommendationItemRepository recommendationItemRepository;
+
+    @BeforeEach
+    void setUp() {
+        recommendationItemRepository = mock(RecommendationItemRepository.class);
+        UserRepository userRepository = mock(UserRepository.class);
+        // 按键集分页返回，与数据库查询的语义一致
+        when(recommendationItemRepository.findAppliedAfter(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            Pageable page = invocation.getArgument(1);
+            return applied.stream().filter(row -> row.getId() > afterId).limit(page.getPageSize()).toList();
+        });
+        when(userRepository.findSavedSchoolsAfter(anyLong(), anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            long afterUserId = invocation.getArgument(0);
+            long afterSchoolId = invocation.getArgument(1);
+            Pageable page = invocation.getArgument(2);
+            return saved.stream()
+                    .filter(row -> row.getUserId() > afterUserId
+                            || (row.getUserId() == afterUserId && row.getSchoolId() > afterSchoolId))
+                    .limit(page.getPageSize())
+                    .toList();
+        });
+
+        model = new CollaborativeFilteringModel();
+        ReflectionTestUtils.setField(model, "recommendationItemRepository", recommendationItemRepository);
+        ReflectionTestUtils.setField(model, "userRepository", userRepository);
+        ReflectionTestUtils.setField(model, "enabled", true);
+        ReflectionTestUtils.setField(model, "weight", 0.1f);
+        ReflectionTestUtils.setField(model, "factorCount", 4);
+        ReflectionTestUtils.setField(model, "iterations", 15);
+        ReflectionTestUtils.setField(model, "incrementalIterations", 3);
+        ReflectionTestUtils.setField(model, "regularization", 0.1);
+        ReflectionTestUtils.setField(model, "alpha", 20.0);
+        ReflectionTestUtils.setField(model, "chunkSize", CHUNK_SIZE);
+        ReflectionTestUtils.setField(model, "scoreCacheSize", 8);
+
+        // 两组用户：1-3申请学校1、2，4-6申请学校3、4；用户7只申请了学校1，收藏了学校5
+        for (long user = 1; user <= 3; user++) {
+            apply(user, 1L);
+            apply(user, 2L);
+        }
+        for (long user = 4; user <= 6; user++) {
+            apply(user, 3L);
+            apply(user, 4L);
+        }
+        apply(7L, 1L);
+        saved.add(saved(7L, 5L));
+    }
+
+    @Test
+    void coAppliedSchoolScoresHigherThanOtherGroup() {
+        model.train();
+        CollaborativeFilteringModel.Factors factors = model.current();
+        SyntheticCatalog synthetic = new SyntheticCatalog(10, 1L);
+
+        float[] scores = factors.scores(7L, synthetic.catalog);
+
+        // 目录位置i对应学校ID i+1
+        assertTrue(scores[1] > scores[2], "school 2 should beat school 3");
+        assertTrue(scores[1] > scores[3], "school 2 should beat school 4");
+        for (float score : scores) {
+            assertTrue(score >= 0.0f && score <= 1.0f);
+        }
+        // 没有任何反馈的学校得分为0
+        assertEquals(0.0f, scores[9]);
+        // 反馈按块读取，不会一次取回全部行
+        verify(recommendationItemRepository, atLeast(applied.size() / CHUNK_SIZE))
+                .findAppliedAfter(anyLong(), any(Pageable.class));
+    }
+
+    @Test
+    void usersWithoutFeedbackAreOutsideModel() {
+        model.train();
+        CollaborativeFilteringModel.Factors factors = model.current();
+
+        assertFalse(factors.hasUser(99L));
+        assertNull(factors.getUserVersion(99L));
+        assertNull(factors.scores(99L, new SyntheticCatalog(10, 1L).catalog));
+    }
+
+    @Test
+    void userVersionOnlyChangesWithOwnFeedback() {
+        model.train();
+        CollaborativeFilteringModel.Factors first = model.current();
+
+        apply(4L, 5L);
+        model.train();
+        CollaborativeFilteringModel.Factors second = model.current();
+
+        assertNotEquals(first.getVersion(), second.getVersion());
+        assertEquals(first.getUserVersion(7L), second.getUserVersion(7L));
+        assertEquals(first.getUserVersion(1L), second.getUserVersion(1L));
+        assertEquals(second.getVersion(), second.getUserVersion(4L));
+    }
+
+    @Test
+    void scoreVectorIsReusedForSameCatalogSnapshot() {
+        model.train();
+        CollaborativeFilteringModel.Factors factors = model.current();
+        SyntheticCatalog catalog = new SyntheticCatalog(10, 1L);
+
+        float[] first = factors.scores(7L, catalog.catalog);
+        assertSame(first, factors.scores(7L, catalog.catalog));
+
+        // 目录快照替换后重新计算
+        float[] rebuilt = factors.scores(7L, new SyntheticCatalog(10, 1L).catalog);
+        assertNotSame(first, rebuilt);
+        assertEquals(first[1], rebuilt[1]);
+    }
+
+    @Test
+    void noModelWithoutFeedbackOrWhenDisabled() {
+        applied.clear();
+        saved.clear();
+        model.train();
+        assertNull(model.current());
+
+        apply(1L, 1L);
+        model.train();
+        assertNotNull(model.current());
+        ReflectionTestUtils.setField(model, "enabled", false);
+        assertNull(model.current());
+    }
+
+    private void apply(Long userId, Long schoolId) {
+        long id = applied.size() + 1;
+        applied.add(new AppliedSchoolView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getUserId() {
+                return userId;
+            }
+
+            @Override
+            public Long getSchoolId() {
+                return schoolId;
+            }
+        });
+    }
+
+    private static SavedSchoolView saved(Long userId, Long schoolId) {
+        return new SavedSchoolView() {
+            @Override
+            public Long getUserId() {
+                return userId;
+            }
+
+            @Override
+            public Long getSchoolId() {
+                return schoolId;
+            }
+        };
+    }
+}
@@ -0,0 +1,91 @@
+package com.admitgenius.recommendation;
+
+import com.admitgenius.dto.RecommendationRequestDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 推荐排名缓存：指纹只取决于影响打分的字段，目录版本变化、过期、深度不足和容量淘汰都使条目失效
+ */
+class RecommendationCacheTest {
+
+    private RecommendationCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new RecommendationCache();
+        ReflectionTestUtils.setField(cache, "maxEntries", 2);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 600L);
+    }
+
+    @Test
+    void fingerprintIgnoresPreferenceOrderAndCase() {
+        RecommendationRequestDTO first = SyntheticCatalog.fullRequest();
+        first.setTargetMajor("Computer Science");
+        first.setLocationPreferences(List.of("纽约州", "加利福尼亚州", "纽约州"));
+        RecommendationRequestDTO second = SyntheticCatalog.fullRequest();
+        second.setTargetMajor("computer science");
+        second.setLocationPreferences(List.of("加利福尼亚州", "纽约州"));
+        second.setCount(5);
+
+        assertEquals(RecommendationCache.fingerprint(first), RecommendationCache.fingerprint(second));
+
+        second.setGpa(3.7);
+        assertNotEquals(RecommendationCache.fingerprint(first), RecommendationCache.fingerprint(second));
+    }
+
+    @Test
+    void catalogVersionChangeInvalidatesEntry() {
+        List<RankedSchool> ranking = ranking(3);
+        cache.put("key", 1L, 20, ranking);
+
+        assertEquals(ranking, cache.get("key", 1L, 10));
+        assertNull(cache.get("key", 2L, 10));
+        // 失效的条目已被移除，回到旧版本也不会再命中
+        assertNull(cache.get("key", 1L, 10));
+    }
+
+    @Test
+    void shallowerEntryDoesNotServeDeeperRequest() {
+        cache.put("key", 1L, 10, ranking(10));
+
+        assertNull(cache.get("key", 1L, 20));
+        assertEquals(10, cache.get("key", 1L, 10).size());
+    }
+
+    @Test
+    void expiredEntryMisses() {
+        ReflectionTestUtils.setField(cache, "ttlSeconds", -1L);
+        cache.put("key", 1L, 20, ranking(3));
+
+        assertNull(cache.get("key", 1L, 20));
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        List<RankedSchool> first = ranking(1);
+        cache.put("a", 1L, 20, first);
+        cache.put("b", 1L, 20, ranking(2));
+        cache.get("a", 1L, 20);
+        cache.put("c", 1L, 20, ranking(3));
+
+        assertEquals(first, cache.get("a", 1L, 20));
+        assertNull(cache.get("b", 1L, 20));
+        assertEquals(2, cache.getStats().get("size"));
+    }
+
+    private static List<RankedSchool> ranking(int size) {
+        RankedSchool[] schools = new RankedSchool[size];
+        for (int i = 0; i < size; i++) {
+            schools[i] = new RankedSchool(i + 1, null, 1.0f - i * 0.1f, 0);
+        }
+        return List.of(schools);
+    }
+}
@@ -0,0 +1,126 @@
+package com.admitgenius.recommendation;
+
+import com.admitgenius.dto.RecommendationRequestDTO;
+import com.admitgenius.dto.RecommendationResponseDTO;
+import com.admitgenius.dto.RecommendationResponseDTO.RecommendationItemDTO;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * NDJSON推送：每次写出一个以换行结尾的完整JSON对象，推荐项按回报顺序到达，
+ * 以completed或failed结束并关闭连接；客户端断开后不再写出
+ */
+class RecommendationStreamTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void framesArriveInOrderAndStreamCompletes() throws IOException {
+        CapturingEmitter emitter = new CapturingEmitter();
+        RecommendationJob job = new RecommendationJob(new RecommendationRequestDTO());
+        RecommendationStream stream = new RecommendationStream(job, emitter, objectMapper);
+
+        stream.onProgress("SCORING", 10);
+        stream.onItem(item("Harvard University"));
+        stream.onItem(item("Stanford University"));
+        RecommendationResponseDTO result = new RecommendationResponseDTO();
+        result.setId(42L);
+        job.complete(result);
+        stream.onProgress("LATE", 100);
+
+        List<JsonNode> frames = frames(emitter);
+        assertEquals(List.of("progress", "item", "item", "completed"),
+                frames.stream().map(frame -> frame.get("type").asText()).toList());
+        frames.forEach(frame -> assertEquals(job.getId(), frame.get("jobId").asText()));
+        assertEquals("SCORING", frames.get(0).get("stage").asText());
+        assertEquals("Harvard University", frames.get(1).get("item").get("schoolName").asText());
+        assertEquals("Stanford University", frames.get(2).get("item").get("schoolName").asText());
+        assertEquals(42L, frames.get(3).get("result").get("id").asLong());
+        assertEquals(1, emitter.completions);
+    }
+
+    @Test
+    void failedJobEndsWithErrorFrame() throws IOException {
+        CapturingEmitter emitter = new CapturingEmitter();
+        RecommendationJob job = new RecommendationJob(new RecommendationRequestDTO());
+        new RecommendationStream(job, emitter, objectMapper);
+
+        job.fail(new IllegalArgumentException("无效的推荐类型: FOO"));
+
+        List<JsonNode> frames = frames(emitter);
+        assertEquals(1, frames.size());
+        assertEquals("failed", frames.get(0).get("type").asText());
+        assertEquals("无效的推荐类型: FOO", frames.get(0).get("error").asText());
+        assertEquals(1, emitter.completions);
+    }
+
+    @Test
+    void disconnectedClientStopsReceivingFrames() {
+        CapturingEmitter emitter = new CapturingEmitter();
+        RecommendationJob job = new RecommendationJob(new RecommendationRequestDTO());
+        RecommendationStream stream = new RecommendationStream(job, emitter, objectMapper);
+
+        stream.onProgress("SCORING", 10);
+        emitter.disconnected = true;
+        stream.onItem(item("Harvard University"));
+        emitter.disconnected = false;
+        stream.onItem(item("Stanford University"));
+        job.complete(new RecommendationResponseDTO());
+
+        // 断开后的推荐项和结束帧都不再写出，任务本身照常完成
+        assertEquals(1, emitter.chunks.size());
+        assertEquals(0, emitter.completions);
+        assertTrue(job.isDone());
+    }
+
+    private List<JsonNode> frames(CapturingEmitter emitter) throws IOException {
+        List<JsonNode> frames = new ArrayList<>();
+        for (String chunk : emitter.chunks) {
+            // 每次写出恰好一行
+            assertTrue(chunk.endsWith("\n"));
+            assertEquals(chunk.length() - 1, chunk.indexOf('\n'));
+            frames.add(objectMapper.readTree(chunk));
+        }
+        return frames;
+    }
+
+    private static RecommendationItemDTO item(String schoolName) {
+        RecommendationItemDTO item = new RecommendationItemDTO();
+        item.setSchoolName(schoolName);
+        item.setMatchScore(0.8f);
+        return item;
+    }
+
+    /**
+     * 记录写出的内容；disconnected时模拟客户端断开
+     */
+    private static final class CapturingEmitter extends ResponseBodyEmitter {
+        private final List<String> chunks = new ArrayList<>();
+        private int completions;
+        private boolean disconnected;
+
+        @Override
+        public void send(Object object, MediaType mediaType) throws IOException {
+            if (disconnected) {
+                throw new IOException("Broken pipe");
+            }
+            assertEquals(RecommendationStream.NDJSON, mediaType);
+            chunks.add((String) object);
+        }
+
+        @Override
+        public void complete() {
+            completions++;
+        }
+    }
+}
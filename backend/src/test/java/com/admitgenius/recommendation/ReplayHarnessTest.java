@@ -0,0 +1,128 @@
+package com.admitgenius.recommendation;
+
+import com.admitgenius.dto.RecommendationRequestDTO;
+import com.admitgenius.dto.ReplayReportDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 离线回放：以已申请学校为相关结果计算NDCG@k与Recall@k，没有申请记录的用例只计吞吐和延迟；
+ * 与基准变体排名完全相同的用例计入一致率
+ */
+class ReplayHarnessTest {
+    private static final int K = 5;
+    private static final double EPSILON = 1e-9;
+
+    private final SyntheticCatalog synthetic = new SyntheticCatalog(500, 7L);
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final ScoringVariant baseline = ScoringVariant.of("scalar", null, ScoringWeights.DEFAULTS, 0.0f);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void ndcgAndRecallAgainstAppliedSchools() {
+        RecommendationRequestDTO request = SyntheticCatalog.fullRequest();
+        long[] top = ranking(request);
+        // 申请了第1名、第3名和一所不在前K名的学校
+        long outside = outsideTop(top);
+        List<Long> applied = List.of(top[0], top[2], outside);
+
+        ReplayHarness harness = harness(List.of(baseline));
+        harness.replay(List.of(replayCase(request, applied), replayCase(request, List.of())));
+
+        ReplayReportDTO.VariantReport report = harness.report().get(0);
+        double dcg = 1.0 / log2(2) + 1.0 / log2(4);
+        double ideal = 1.0 / log2(2) + 1.0 / log2(3) + 1.0 / log2(4);
+        assertEquals(2, harness.getCases());
+        assertEquals(1, harness.getEvaluatedCases());
+        assertEquals(dcg / ideal, report.getNdcg(), EPSILON);
+        assertEquals(2.0 / 3.0, report.getRecall(), EPSILON);
+        assertTrue(report.getThroughput() > 0);
+        assertTrue(report.getP99LatencyMs() >= report.getP50LatencyMs());
+    }
+
+    @Test
+    void perfectRankingScoresOne() {
+        RecommendationRequestDTO request = SyntheticCatalog.fullRequest();
+        long[] top = ranking(request);
+        List<Long> applied = new ArrayList<>();
+        for (long id : top) {
+            applied.add(id);
+        }
+
+        ReplayHarness harness = harness(List.of(baseline));
+        harness.replay(List.of(replayCase(request, applied)));
+
+        ReplayReportDTO.VariantReport report = harness.report().get(0);
+        assertEquals(1.0, report.getNdcg(), EPSILON);
+        assertEquals(1.0, report.getRecall(), EPSILON);
+    }
+
+    @Test
+    void agreementComparesEachVariantWithBaseline() {
+        ScoringVariant same = baseline.named("copy");
+        ScoringVariant testOnly = ScoringVariant.of("test-only", null, new ScoringWeights(0.0f, 1.0f, 0.0f, 0.0f, 0.0f),
+                0.0f);
+        List<ReplayHarness.Case> batch = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            RecommendationRequestDTO request = SyntheticCatalog.fullRequest();
+            request.setGpa(2.0 + i * 0.1);
+            batch.add(replayCase(request, List.of()));
+        }
+
+        ReplayHarness harness = harness(List.of(baseline, same, testOnly));
+        harness.replay(batch);
+
+        List<ReplayReportDTO.VariantReport> reports = harness.report();
+        assertEquals(1.0, reports.get(0).getBaselineAgreement(), EPSILON);
+        assertEquals(1.0, reports.get(1).getBaselineAgreement(), EPSILON);
+        assertTrue(reports.get(2).getBaselineAgreement() < 1.0);
+        assertEquals(0, harness.getEvaluatedCases());
+    }
+
+    private ReplayHarness harness(List<ScoringVariant> variants) {
+        return new ReplayHarness(synthetic.catalog, variants, K, executor, 2);
+    }
+
+    private ReplayHarness.Case replayCase(RecommendationRequestDTO request, List<Long> applied) {
+        return new ReplayHarness.Case(request, synthetic.matchedPrograms, null, null, applied);
+    }
+
+    private long[] ranking(RecommendationRequestDTO request) {
+        List<TopKSelector.Candidate> top = TopKSelector.select(
+                baseline.newScorer(synthetic.catalog, request, synthetic.matchedPrograms, null), K);
+        long[] ids = new long[top.size()];
+        for (int r = 0; r < ids.length; r++) {
+            ids[r] = synthetic.catalog.ids[top.get(r).getPosition()];
+        }
+        return ids;
+    }
+
+    private long outsideTop(long[] top) {
+        for (long id : synthetic.catalog.ids) {
+            boolean inTop = false;
+            for (long ranked : top) {
+                inTop |= ranked == id;
+            }
+            if (!inTop) {
+                return id;
+            }
+        }
+        throw new IllegalStateException("目录不足K所学校");
+    }
+
+    private static double log2(int x) {
+        return Math.log(x) / Math.log(2);
+    }
+}
@@ -0,0 +1,168 @@
+package com.admitgenius.recommendation;
+
+import com.admitgenius.dto.RecommendationRequestDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 影子版本：与主版本排名相同的影子一致率为1，权重不同的影子计入差异；
+ * 影子队列已满时直接丢弃，不阻塞请求线程
+ */
+class ScoringEnginesTest {
+    private static final int K = 5;
+    private static final double EPSILON = 1e-9;
+
+    private final SyntheticCatalog synthetic = new SyntheticCatalog(500, 11L);
+    private ScoringEngines engines;
+
+    @AfterEach
+    void tearDown() {
+        engines.shutdown();
+    }
+
+    @Test
+    void identicalShadowAgreesWithPrimary() throws InterruptedException {
+        engines = engines(1, 100);
+        engines.register("v1-copy", engines.primary());
+        engines.setShadowVersion("v1-copy");
+
+        for (int i = 0; i < 5; i++) {
+            submit(request(i));
+        }
+
+        Map<String, Object> stats = awaitCompared(5);
+        assertEquals("v1", stats.get("primaryVersion"));
+        assertEquals("v1-copy", stats.get("shadowVersion"));
+        assertEquals(5L, stats.get("submitted"));
+        assertEquals(0L, stats.get("dropped"));
+        assertEquals(1.0, (double) stats.get("exactAgreement"), EPSILON);
+        assertEquals(1.0, (double) stats.get("topAgreement"), EPSILON);
+        assertEquals(1.0, (double) stats.get("meanOverlap"), EPSILON);
+        assertTrue((double) stats.get("meanShadowLatencyMs") > 0);
+        assertEquals(5, ((List<?>) stats.get("recent")).size());
+    }
+
+    @Test
+    void differentWeightsAreCountedAsDisagreement() throws InterruptedException {
+        engines = engines(1, 100);
+        engines.register("test-only", ScoringVariant.of("test-only", null,
+                new ScoringWeights(0.0f, 1.0f, 0.0f, 0.0f, 0.0f), 0.0f));
+        engines.setShadowVersion("test-only");
+
+        for (int i = 0; i < 20; i++) {
+            submit(request(i));
+        }
+
+        Map<String, Object> stats = awaitCompared(20);
+        assertTrue((double) stats.get("exactAgreement") < 1.0);
+        assertTrue((double) stats.get("meanOverlap") < 1.0);
+        // 最近比较结果按recommendation.engine.shadow.recent截断
+        assertEquals(10, ((List<?>) stats.get("recent")).size());
+    }
+
+    @Test
+    void fullQueueDropsShadowWork() throws InterruptedException {
+        engines = engines(1, 1);
+        engines.register("v1-copy", engines.primary());
+        engines.setShadowVersion("v1-copy");
+        // 占住唯一的影子线程
+        CountDownLatch release = new CountDownLatch(1);
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) ReflectionTestUtils.getField(engines, "shadowExecutor");
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        for (int i = 0; i < 3; i++) {
+            submit(request(i));
+        }
+        Map<String, Object> blocked = engines.getStats();
+        assertEquals(3L, blocked.get("submitted"));
+        assertEquals(2L, blocked.get("dropped"));
+        assertEquals(1, blocked.get("queued"));
+
+        release.countDown();
+        Map<String, Object> stats = awaitCompared(1);
+        assertEquals(2L, stats.get("dropped"));
+    }
+
+    @Test
+    void shadowVersionMustBeRegisteredAndDifferFromPrimary() {
+        engines = engines(1, 100);
+
+        assertThrows(IllegalArgumentException.class, () -> engines.setShadowVersion("v1"));
+        assertThrows(IllegalArgumentException.class, () -> engines.setShadowVersion("missing"));
+        assertThrows(IllegalArgumentException.class, () -> engines.register("v1", engines.primary()));
+
+        // 未启用影子时提交直接返回，不计数
+        submit(request(0));
+        Map<String, Object> stats = engines.getStats();
+        assertNull(stats.get("shadowVersion"));
+        assertEquals(0L, stats.get("submitted"));
+        assertFalse(stats.containsKey("exactAgreement"));
+    }
+
+    private ScoringEngines engines(int poolSize, int queueCapacity) {
+        ScoringEngines result = new ScoringEngines();
+        ReflectionTestUtils.setField(result, "scoringKernels", mock(ScoringKernels.class));
+        ReflectionTestUtils.setField(result, "scoringWeights", ScoringWeights.DEFAULTS);
+        ReflectionTestUtils.setField(result, "collaborativeFilteringModel", mock(CollaborativeFilteringModel.class));
+        ReflectionTestUtils.setField(result, "primaryVersion", "v1");
+        ReflectionTestUtils.setField(result, "versions", "");
+        ReflectionTestUtils.setField(result, "shadowVersion", "");
+        ReflectionTestUtils.setField(result, "shadowPoolSize", poolSize);
+        ReflectionTestUtils.setField(result, "shadowQueueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(result, "recentLimit", 10);
+        result.init();
+        return result;
+    }
+
+    private static RecommendationRequestDTO request(int i) {
+        RecommendationRequestDTO request = SyntheticCatalog.fullRequest();
+        request.setGpa(2.0 + i * 0.1);
+        return request;
+    }
+
+    /**
+     * 按主版本排名后把同一份输入交给影子版本，与推荐服务的调用方式相同
+     */
+    private void submit(RecommendationRequestDTO request) {
+        long start = System.nanoTime();
+        List<TopKSelector.Candidate> top = TopKSelector.select(
+                engines.primary().newScorer(synthetic.catalog, request, synthetic.matchedPrograms, null), K);
+        long[] ids = new long[top.size()];
+        for (int r = 0; r < ids.length; r++) {
+            ids[r] = synthetic.catalog.ids[top.get(r).getPosition()];
+        }
+        engines.shadow(synthetic.catalog, request, synthetic.matchedPrograms, null, null, ids,
+                System.nanoTime() - start);
+    }
+
+    private Map<String, Object> awaitCompared(long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            Map<String, Object> stats = engines.getStats();
+            if ((long) stats.get("compared") >= count) {
+                return stats;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("影子比较未在期限内完成");
+    }
+}
@@ -0,0 +1,236 @@
+package com.admitgenius.recommendation;
+
+import com.admitgenius.dto.RecommendationRequestDTO;
+import com.admitgenius.index.SchoolFeatureIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 编译后的打分计划与编译前逐项判断请求的打分公式（默认权重）分数逐位相同、匹配原因相同
+ */
+class ScoringPlanTest {
+    private static final SyntheticCatalog CATALOG = new SyntheticCatalog(1500, 29L);
+    private static final float COLLABORATIVE_WEIGHT = 0.2f;
+
+    private static final int GRE_HIGH_MASK = ReasonCode.GRE_VERBAL_HIGH.mask() | ReasonCode.GRE_QUANT_HIGH.mask()
+            | ReasonCode.GRE_AW_HIGH.mask();
+    private static final int GRE_MEETS_MASK = ReasonCode.GRE_VERBAL_MEETS.mask() | ReasonCode.GRE_QUANT_MEETS.mask()
+            | ReasonCode.GRE_AW_MEETS.mask();
+
+    @Test
+    void compiledPlanMatchesBaselineFormula() {
+        for (RecommendationRequestDTO request : requests()) {
+            for (float[] collaborativeScores : new float[][]{null, CATALOG.collaborativeScores}) {
+                for (String[] matchedPrograms : new String[][]{null, CATALOG.matchedPrograms}) {
+                    SchoolMatchScorer scorer = new SchoolMatchScorer(CATALOG.catalog, request, matchedPrograms, null,
+                            collaborativeScores, COLLABORATIVE_WEIGHT, ScoringWeights.DEFAULTS);
+                    BaselineFormula baseline = new BaselineFormula(request, matchedPrograms, collaborativeScores);
+                    for (int i = 0; i < CATALOG.catalog.size; i++) {
+                        int[] reasons = new int[1];
+                        float expected = baseline.evaluate(i, reasons);
+                        assertEquals(Float.floatToRawIntBits(expected), Float.floatToRawIntBits(scorer.score(i)),
+                                "位置" + i + ": " + expected + " != " + scorer.score(i));
+                        assertEquals(reasons[0], scorer.reasonCodes(i), "位置" + i + "的匹配原因");
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void missingItemsAreLeftOutOfThePlan() {
+        RecommendationRequestDTO request = SyntheticCatalog.fullRequest();
+        ScoringPlan full = ScoringPlan.compile(request, ScoringWeights.DEFAULTS, new float[1], new String[1],
+                new float[1], COLLABORATIVE_WEIGHT);
+        assertArrayEquals(ScoringPlan.Component.values(), full.components);
+        assertEquals(2, full.firstPreference);
+
+        request.setGpa(null);
+        request.setGreScore(null);
+        request.setGmatScore(null);
+        request.setSchoolTypePreferences(new ArrayList<>());
+        ScoringPlan sparse = ScoringPlan.compile(request, ScoringWeights.DEFAULTS, null, new String[1], null, 0.0f);
+        assertArrayEquals(new ScoringPlan.Component[]{ScoringPlan.Component.PROGRAM}, sparse.components);
+        assertEquals(0, sparse.firstPreference);
+    }
+
+    @Test
+    void configuredWeightsApplyToEachItem() {
+        RecommendationRequestDTO request = SyntheticCatalog.fullRequest();
+        request.setGreScore(null);
+        request.setGmatScore(null);
+        request.setLocationPreferences(new ArrayList<>());
+        request.setSchoolTypePreferences(new ArrayList<>());
+        ScoringWeights weights = new ScoringWeights(0.5f, 0.0f, 0.0f, 0.0f, 0.25f);
+        SchoolMatchScorer scorer = new SchoolMatchScorer(CATALOG.catalog, request, CATALOG.matchedPrograms, null,
+                null, 0.0f, weights);
+        SchoolFeatureIndex.Snapshot catalog = CATALOG.catalog;
+        for (int i = 0; i < catalog.size; i++) {
+            float expected = 0.0f;
+            if (!Double.isNaN(catalog.averageGPA[i])) {
+                expected += SchoolMatchScorer.calculateGPAScore(request.getGpa(), catalog.averageGPA[i]) * 0.5f;
+            }
+            if (CATALOG.matchedPrograms[i] != null) {
+                expected += 0.25f;
+            }
+            assertEquals(expected, scorer.score(i), "位置" + i);
+        }
+    }
+
+    private static List<RecommendationRequestDTO> requests() {
+        List<RecommendationRequestDTO> requests = new ArrayList<>();
+        requests.add(SyntheticCatalog.fullRequest());
+
+        RecommendationRequestDTO gmatOnly = SyntheticCatalog.fullRequest();
+        gmatOnly.setGreScore(null);
+        gmatOnly.setSchoolTypePreferences(new ArrayList<>(List.of("Public")));
+        requests.add(gmatOnly);
+
+        RecommendationRequestDTO partial = SyntheticCatalog.fullRequest();
+        partial.setGpa(null);
+        partial.setGreVerbal(null);
+        partial.setGmatScore(null);
+        partial.setLocationPreferences(new ArrayList<>());
+        partial.setSchoolTypePreferences(new ArrayList<>());
+        partial.setRankingRange(new ArrayList<>(List.of(5, 120)));
+        requests.add(partial);
+
+        RecommendationRequestDTO low = SyntheticCatalog.fullRequest();
+        low.setGpa(3.1);
+        low.setGreVerbal(152);
+        low.setGreQuantitative(155);
+        low.setGreAnalytical(3.5);
+        low.setGmatScore(600);
+        requests.add(low);
+        return requests;
+    }
+
+    /**
+     * 编译打分计划之前的打分公式：逐校直接判断请求中的各项，权重固定为0.3/0.3/0.15/0.15/0.1
+     */
+    private static final class BaselineFormula {
+        private final RecommendationRequestDTO request;
+        private final SchoolFeatureIndex.Snapshot catalog = CATALOG.catalog;
+        private final boolean rankingFilter;
+        private final float[] locationScores;
+        private final String[] matchedPrograms;
+        private final float[] collaborativeScores;
+        private final boolean typePreference;
+        private final boolean ivyPreferred;
+
+        BaselineFormula(RecommendationRequestDTO request, String[] matchedPrograms, float[] collaborativeScores) {
+            this.request = request;
+            this.matchedPrograms = matchedPrograms;
+            this.collaborativeScores = collaborativeScores;
+            rankingFilter = request.getRankingRange() != null && request.getRankingRange().size() == 2;
+            locationScores = catalog.locationDictionary.preferenceScores(request.getLocationPreferences());
+            typePreference = request.getSchoolTypePreferences() != null
+                    && !request.getSchoolTypePreferences().isEmpty();
+            ivyPreferred = typePreference && request.getSchoolTypePreferences().contains("Ivy League");
+        }
+
+        float evaluate(int i, int[] codes) {
+            float score = 0.0f;
+            int reasons = 0;
+            if (rankingFilter) {
+                reasons |= ReasonCode.RANKING_IN_RANGE.mask();
+            }
+
+            if (request.getGpa() != null && !Double.isNaN(catalog.averageGPA[i])) {
+                float gpaScore = SchoolMatchScorer.calculateGPAScore(request.getGpa(), catalog.averageGPA[i]);
+                score += gpaScore * 0.3f;
+                if (gpaScore > 0.7f) {
+                    reasons |= ReasonCode.GPA_STRONG.mask();
+                } else if (gpaScore > 0.5f) {
+                    reasons |= ReasonCode.GPA_IN_RANGE.mask();
+                }
+            }
+
+            float testScore = 0.0f;
+            if (request.getGreScore() != null) {
+                float greScoreResult = 0.0f;
+                if (request.getGreVerbal() != null && catalog.averageGREVerbal[i] != SchoolFeatureIndex.NO_VALUE) {
+                    float greVerbalScore = SchoolMatchScorer.calculateGREScore(request.getGreVerbal(),
+                            catalog.averageGREVerbal[i]);
+                    greScoreResult += greVerbalScore * 0.3f;
+                    if (greVerbalScore > 0.8f) {
+                        reasons |= ReasonCode.GRE_VERBAL_HIGH.mask();
+                    } else if (greVerbalScore > 0.6f) {
+                        reasons |= ReasonCode.GRE_VERBAL_MEETS.mask();
+                    }
+                }
+                if (request.getGreQuantitative() != null
+                        && catalog.averageGREQuant[i] != SchoolFeatureIndex.NO_VALUE) {
+                    float greQuantScore = SchoolMatchScorer.calculateGREScore(request.getGreQuantitative(),
+                            catalog.averageGREQuant[i]);
+                    greScoreResult += greQuantScore * 0.3f;
+                    if (greQuantScore > 0.8f && (reasons & GRE_HIGH_MASK) == 0) {
+                        reasons |= ReasonCode.GRE_QUANT_HIGH.mask();
+                    } else if (greQuantScore > 0.6f && (reasons & GRE_MEETS_MASK) == 0) {
+                        reasons |= ReasonCode.GRE_QUANT_MEETS.mask();
+                    }
+                }
+                if (request.getGreAnalytical() != null && !Double.isNaN(catalog.averageGREAW[i])) {
+                    float greAWScore = SchoolMatchScorer.calculateGREAWScore(request.getGreAnalytical(),
+                            catalog.averageGREAW[i]);
+                    greScoreResult += greAWScore * 0.4f;
+                    if (greAWScore > 0.8f && (reasons & GRE_HIGH_MASK) == 0) {
+                        reasons |= ReasonCode.GRE_AW_HIGH.mask();
+                    } else if (greAWScore > 0.6f && (reasons & GRE_MEETS_MASK) == 0) {
+                        reasons |= ReasonCode.GRE_AW_MEETS.mask();
+                    }
+                }
+                testScore = Math.max(testScore, greScoreResult);
+            }
+            if (request.getGmatScore() != null && catalog.averageGMAT[i] != SchoolFeatureIndex.NO_VALUE) {
+                float gmatScore = SchoolMatchScorer.calculateGMATScore(request.getGmatScore(), catalog.averageGMAT[i]);
+                testScore = Math.max(testScore, gmatScore);
+                if (gmatScore > 0.8f && (reasons & GRE_HIGH_MASK) == 0) {
+                    reasons |= ReasonCode.GMAT_HIGH.mask();
+                } else if (gmatScore > 0.6f && (reasons & GRE_MEETS_MASK) == 0) {
+                    reasons |= ReasonCode.GMAT_MEETS.mask();
+                }
+            }
+            score += testScore * 0.3f;
+
+            if (locationScores != null && catalog.locationId[i] != SchoolFeatureIndex.NO_VALUE) {
+                float locationScore = locationScores[catalog.locationId[i]];
+                score += locationScore * 0.15f;
+                if (locationScore > 0.9f) {
+                    reasons |= ReasonCode.LOCATION_FULL.mask();
+                } else if (locationScore > 0.5f) {
+                    reasons |= ReasonCode.LOCATION_PARTIAL.mask();
+                }
+            }
+
+            if (typePreference) {
+                float typeScore = 0.5f;
+                score += typeScore * 0.15f;
+                if (ivyPreferred && catalog.ivyLeague[i]) {
+                    reasons |= ReasonCode.IVY_LEAGUE.mask();
+                }
+            }
+
+            if (matchedPrograms != null && matchedPrograms[i] != null) {
+                score += 0.1f;
+                reasons |= ReasonCode.PROGRAM_OFFERED.mask();
+            }
+
+            if (collaborativeScores != null) {
+                float collaborativeScore = collaborativeScores[i];
+                score += collaborativeScore * COLLABORATIVE_WEIGHT;
+                if (collaborativeScore > 0.5f) {
+                    reasons |= ReasonCode.SIMILAR_APPLICANTS.mask();
+                }
+            }
+
+            codes[0] = reasons;
+            return score;
+        }
+    }
+}
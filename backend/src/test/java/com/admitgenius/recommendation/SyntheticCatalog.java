@@ -0,0 +1,68 @@
+package com.admitgenius.recommendation;
+
+import com.admitgenius.dto.RecommendationRequestDTO;
+import com.admitgenius.index.LocationDictionary;
+import com.admitgenius.index.SchoolFeatureIndex;
+import com.admitgenius.model.School;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 打分测试用的合成学校目录
+ * 固定随机种子生成，各项成绩有缺失值、重复取值（制造同分）和地点层级，覆盖打分的各个分支。
+ */
+final class SyntheticCatalog {
+    private static final String[] LOCATIONS = {
+            "加利福尼亚州", "马萨诸塞州", "纽约州", "宾夕法尼亚州", "伊利诺伊州",
+            "Boston, MA", "New York, NY", "San Francisco, CA", "Toronto, Canada", "London, UK"
+    };
+
+    final SchoolFeatureIndex.Snapshot catalog;
+    /** 按快照位置对齐的匹配专业名称，约三分之一的学校开设 */
+    final String[] matchedPrograms;
+    /** 按快照位置对齐的协同过滤分数 */
+    final float[] collaborativeScores;
+
+    SyntheticCatalog(int schools, long seed) {
+        Random random = new Random(seed);
+        LocationDictionary locationDictionary = new LocationDictionary();
+        List<SchoolFeatureIndex.SchoolFeatures> rows = new ArrayList<>(schools);
+        matchedPrograms = new String[schools];
+        collaborativeScores = new float[schools];
+        for (int i = 0; i < schools; i++) {
+            School school = new School();
+            school.setId((long) i + 1);
+            school.setLocation(random.nextInt(10) == 0 ? null : LOCATIONS[random.nextInt(LOCATIONS.length)]);
+            school.setRanking(random.nextInt(10) == 0 ? null : 1 + random.nextInt(300));
+            school.setAverageGPA(random.nextInt(20) == 0 ? null : 3.0 + random.nextInt(11) * 0.1);
+            school.setAverageGREVerbal(random.nextInt(15) == 0 ? null : 150 + random.nextInt(21));
+            school.setAverageGREQuant(random.nextInt(15) == 0 ? null : 150 + random.nextInt(21));
+            school.setAverageGREAW(random.nextInt(15) == 0 ? null : 3.0 + random.nextInt(7) * 0.5);
+            school.setAverageGMAT(random.nextInt(3) == 0 ? null : 550 + random.nextInt(24) * 10);
+            school.setIsIvyLeague(random.nextInt(20) == 0);
+            rows.add(SchoolFeatureIndex.SchoolFeatures.of(school, locationDictionary));
+            matchedPrograms[i] = random.nextInt(3) == 0 ? "计算机科学" : null;
+            collaborativeScores[i] = random.nextInt(4) * 0.25f;
+        }
+        catalog = SchoolFeatureIndex.Snapshot.of(rows, locationDictionary);
+    }
+
+    /**
+     * 各项成绩和偏好都提供的请求
+     */
+    static RecommendationRequestDTO fullRequest() {
+        RecommendationRequestDTO request = new RecommendationRequestDTO();
+        request.setGpa(3.6);
+        request.setGreScore(325);
+        request.setGreVerbal(158);
+        request.setGreQuantitative(167);
+        request.setGreAnalytical(4.0);
+        request.setGmatScore(700);
+        request.setTargetMajor("计算机");
+        request.setLocationPreferences(List.of("加利福尼亚州", "纽约", "Boston"));
+        request.setSchoolTypePreferences(List.of("Ivy League"));
+        return request;
+    }
+}
@@ -0,0 +1,92 @@
+package com.admitgenius.recommendation;
+
+import com.admitgenius.dto.RecommendationRequestDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Top-K选择与稳定全排序一致：分数降序，同分按目录位置升序，跨fork-join分片也不例外
+ */
+class TopKSelectorTest {
+
+    @Test
+    void heapKeepsLowestPositionsAmongTies() {
+        TopKSelector.ScoreHeap heap = new TopKSelector.ScoreHeap(3);
+        for (int position : new int[]{9, 4, 7, 1, 8, 2}) {
+            heap.offer(position, 0.5f);
+        }
+        heap.offer(6, 0.7f);
+        assertPositions(List.of(6, 1, 2), heap.toSortedList());
+    }
+
+    @Test
+    void mergedHeapsKeepTieOrderAcrossSplit() {
+        // 模拟fork-join：右半分片先合并进左半分片，再反过来，结果都应与整体扫描相同
+        TopKSelector.ScoreHeap left = new TopKSelector.ScoreHeap(4);
+        TopKSelector.ScoreHeap right = new TopKSelector.ScoreHeap(4);
+        for (int position = 0; position < 10; position++) {
+            left.offer(position, position % 2 == 0 ? 1.0f : 0.5f);
+        }
+        for (int position = 10; position < 20; position++) {
+            right.offer(position, 1.0f);
+        }
+        right.addAll(left);
+        assertPositions(List.of(0, 2, 4, 6), right.toSortedList());
+
+        left = new TopKSelector.ScoreHeap(4);
+        right = new TopKSelector.ScoreHeap(4);
+        for (int position = 0; position < 3; position++) {
+            left.offer(position, 0.5f);
+        }
+        for (int position = 10; position < 20; position++) {
+            right.offer(position, 0.5f);
+        }
+        left.addAll(right);
+        assertPositions(List.of(0, 1, 2, 10), left.toSortedList());
+    }
+
+    @Test
+    void parallelSelectionMatchesStableSort() {
+        // 目录超过切分阈值，走fork-join；成绩取值离散，同分学校很多
+        SyntheticCatalog catalog = new SyntheticCatalog(TopKSelector.SPLIT_THRESHOLD * 5 + 123, 3L);
+        RecommendationRequestDTO request = SyntheticCatalog.fullRequest();
+        request.setLocationPreferences(new ArrayList<>());
+        request.setTargetMajor(null);
+        SchoolMatchScorer scorer = new SchoolMatchScorer(catalog.catalog, request, null);
+
+        List<Integer> sorted = new ArrayList<>();
+        for (int i = 0; i < catalog.catalog.size; i++) {
+            sorted.add(i);
+        }
+        sorted.sort((a, b) -> Float.compare(scorer.score(b), scorer.score(a)));
+
+        for (int k : new int[]{1, 20, 500}) {
+            List<TopKSelector.Candidate> selected = TopKSelector.select(scorer, k);
+            assertPositions(sorted.subList(0, k), selected);
+            for (int t = 0; t < k; t++) {
+                assertEquals(scorer.score(sorted.get(t)), selected.get(t).getScore());
+            }
+        }
+        assertTrue(scorer.score(sorted.get(0)) == scorer.score(sorted.get(1)), "合成目录应产生同分学校");
+    }
+
+    @Test
+    void kLargerThanCatalogReturnsAll() {
+        TopKSelector.ScoreHeap heap = new TopKSelector.ScoreHeap(10);
+        heap.offer(2, 0.1f);
+        heap.offer(0, 0.3f);
+        heap.offer(1, 0.3f);
+        assertPositions(List.of(0, 1, 2), heap.toSortedList());
+    }
+
+    private static void assertPositions(List<Integer> expected, List<TopKSelector.Candidate> actual) {
+        List<Integer> positions = new ArrayList<>();
+        actual.forEach(candidate -> positions.add(candidate.getPosition()));
+        assertEquals(expected, positions);
+    }
+}
@@ -0,0 +1,128 @@
+package com.admitgenius.recommendation;
+
+import com.admitgenius.dto.RecommendationRequestDTO;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 向量内核与标量打分逐位一致：覆盖缺失成绩、缺失请求项、排名过滤和不足一组的末尾
+ */
+class VectorScoringKernelTest {
+    private static final SyntheticCatalog CATALOG = new SyntheticCatalog(1037, 7L);
+
+    private static ScoringKernel vectorKernel;
+
+    @BeforeAll
+    static void loadKernel() {
+        vectorKernel = ScoringKernels.vectorKernel();
+        assumeTrue(vectorKernel != null, "需要 --add-modules jdk.incubator.vector");
+    }
+
+    @Test
+    void batchedScoresMatchScalarBitForBit() {
+        for (RecommendationRequestDTO request : requests()) {
+            SchoolMatchScorer scalar = new SchoolMatchScorer(CATALOG.catalog, request, CATALOG.matchedPrograms);
+            SchoolMatchScorer vector = new SchoolMatchScorer(CATALOG.catalog, request, CATALOG.matchedPrograms,
+                    vectorKernel, CATALOG.collaborativeScores, 0.2f, ScoringWeights.DEFAULTS);
+            SchoolMatchScorer scalarWithCf = new SchoolMatchScorer(CATALOG.catalog, request, CATALOG.matchedPrograms,
+                    null, CATALOG.collaborativeScores, 0.2f, ScoringWeights.DEFAULTS);
+            assertSameScores(scalar, new SchoolMatchScorer(CATALOG.catalog, request, CATALOG.matchedPrograms,
+                    vectorKernel));
+            assertSameScores(scalarWithCf, vector);
+        }
+    }
+
+    @Test
+    void unalignedRangesMatchScalar() {
+        RecommendationRequestDTO request = SyntheticCatalog.fullRequest();
+        SchoolMatchScorer scalar = new SchoolMatchScorer(CATALOG.catalog, request, CATALOG.matchedPrograms);
+        SchoolMatchScorer vector = new SchoolMatchScorer(CATALOG.catalog, request, CATALOG.matchedPrograms,
+                vectorKernel);
+        int[][] ranges = {{0, 1}, {3, 10}, {5, 6}, {17, 1037}, {1030, 1037}};
+        for (int[] range : ranges) {
+            int length = range[1] - range[0];
+            float[] expected = new float[length];
+            float[] actual = new float[length];
+            scalar.scores(range[0], range[1], expected);
+            vector.scores(range[0], range[1], actual);
+            for (int i = 0; i < length; i++) {
+                assertEquals(Float.floatToRawIntBits(expected[i]), Float.floatToRawIntBits(actual[i]),
+                        "区间" + range[0] + "-" + range[1] + " 位置" + (range[0] + i));
+            }
+        }
+    }
+
+    @Test
+    void topKIsIdentical() {
+        RecommendationRequestDTO request = SyntheticCatalog.fullRequest();
+        List<TopKSelector.Candidate> expected = TopKSelector.select(
+                new SchoolMatchScorer(CATALOG.catalog, request, CATALOG.matchedPrograms), 50);
+        List<TopKSelector.Candidate> actual = TopKSelector.select(
+                new SchoolMatchScorer(CATALOG.catalog, request, CATALOG.matchedPrograms, vectorKernel), 50);
+        assertEquals(expected.size(), actual.size());
+        for (int t = 0; t < expected.size(); t++) {
+            assertEquals(expected.get(t).getPosition(), actual.get(t).getPosition());
+            assertEquals(expected.get(t).getScore(), actual.get(t).getScore());
+        }
+    }
+
+    private static void assertSameScores(SchoolMatchScorer scalar, SchoolMatchScorer vector) {
+        int size = CATALOG.catalog.size;
+        float[] expected = new float[size];
+        float[] actual = new float[size];
+        scalar.scores(0, size, expected);
+        vector.scores(0, size, actual);
+        for (int i = 0; i < size; i++) {
+            assertEquals(scalar.accepts(i), vector.accepts(i));
+            if (scalar.accepts(i)) {
+                assertEquals(Float.floatToRawIntBits(scalar.score(i)), Float.floatToRawIntBits(expected[i]));
+                assertEquals(Float.floatToRawIntBits(expected[i]), Float.floatToRawIntBits(actual[i]),
+                        "位置" + i + ": " + expected[i] + " != " + actual[i]);
+            }
+        }
+    }
+
+    /**
+     * 各项成绩依次缺失的请求，以及带排名过滤的请求
+     */
+    private static List<RecommendationRequestDTO> requests() {
+        List<RecommendationRequestDTO> requests = new ArrayList<>();
+        requests.add(SyntheticCatalog.fullRequest());
+
+        RecommendationRequestDTO noGpa = SyntheticCatalog.fullRequest();
+        noGpa.setGpa(null);
+        requests.add(noGpa);
+
+        RecommendationRequestDTO gmatOnly = SyntheticCatalog.fullRequest();
+        gmatOnly.setGreScore(null);
+        requests.add(gmatOnly);
+
+        RecommendationRequestDTO partialGre = SyntheticCatalog.fullRequest();
+        partialGre.setGreQuantitative(null);
+        partialGre.setGreAnalytical(null);
+        partialGre.setGmatScore(null);
+        requests.add(partialGre);
+
+        RecommendationRequestDTO noScores = SyntheticCatalog.fullRequest();
+        noScores.setGpa(null);
+        noScores.setGreScore(null);
+        noScores.setGmatScore(null);
+        requests.add(noScores);
+
+        RecommendationRequestDTO lowScores = SyntheticCatalog.fullRequest();
+        lowScores.setGpa(2.9);
+        lowScores.setGreVerbal(145);
+        lowScores.setGreQuantitative(148);
+        lowScores.setGreAnalytical(3.0);
+        lowScores.setGmatScore(560);
+        lowScores.setRankingRange(new ArrayList<>(List.of(20, 150)));
+        requests.add(lowScores);
+        return requests;
+    }
+}
@@ -0,0 +1,123 @@
+package com.admitgenius.recommendation;
+
+import com.admitgenius.dto.RecommendationRequestDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 假设分析网格：每个取值点的前K名、基准学校的排名和分数，与按该点成绩重新完整排名的结果一致
+ */
+class WhatIfGridTest {
+    private static final SyntheticCatalog CATALOG = new SyntheticCatalog(2000, 17L);
+    private static final int K = 10;
+
+    @Test
+    void gridPointsMatchFullRanking() {
+        RecommendationRequestDTO base = SyntheticCatalog.fullRequest();
+        assertGridMatches(base, Arrays.asList(3.0, 3.4, 3.9), Arrays.asList(150, 160, 170),
+                Arrays.asList(155, 168), Arrays.asList(620, 740), true);
+    }
+
+    @Test
+    void hypotheticalGreWithoutBaselineGre() {
+        RecommendationRequestDTO base = SyntheticCatalog.fullRequest();
+        base.setGreScore(null);
+        base.setGreVerbal(null);
+        base.setGreQuantitative(null);
+        base.setGmatScore(null);
+        base.setRankingRange(new ArrayList<>(List.of(10, 200)));
+        assertGridMatches(base, Collections.singletonList(3.6), Arrays.asList(152, 165),
+                Arrays.asList(150, 170), Collections.singletonList(null), true);
+    }
+
+    @Test
+    void unchangedAxesKeepMissingScores() {
+        RecommendationRequestDTO base = SyntheticCatalog.fullRequest();
+        base.setGpa(null);
+        base.setGreScore(null);
+        assertGridMatches(base, Collections.singletonList(null), Collections.singletonList(158),
+                Collections.singletonList(167), Arrays.asList(560, 650, 780), false);
+    }
+
+    private static void assertGridMatches(RecommendationRequestDTO base, List<Double> gpaValues,
+            List<Integer> greVerbalValues, List<Integer> greQuantValues, List<Integer> gmatValues, boolean hasGre) {
+        SchoolMatchScorer scorer = scorer(base);
+        List<TopKSelector.Candidate> baseline = TopKSelector.select(scorer, K);
+        WhatIfGrid grid = new WhatIfGrid(scorer, gpaValues, greVerbalValues, greQuantValues, gmatValues, hasGre);
+        List<WhatIfGrid.Point> points = grid.evaluate(baseline, K);
+        assertEquals(gpaValues.size() * greVerbalValues.size() * greQuantValues.size() * gmatValues.size(),
+                points.size());
+
+        for (WhatIfGrid.Point point : points) {
+            RecommendationRequestDTO request = copy(base);
+            request.setGpa(point.getGpa());
+            request.setGreVerbal(point.getGreVerbal());
+            request.setGreQuantitative(point.getGreQuantitative());
+            request.setGmatScore(point.getGmatScore());
+            if (hasGre && request.getGreScore() == null) {
+                request.setGreScore(0);
+            }
+            SchoolMatchScorer pointScorer = scorer(request);
+            List<Integer> ranking = fullRanking(pointScorer);
+            String label = point.getGpa() + "/" + point.getGreVerbal() + "/" + point.getGreQuantitative() + "/"
+                    + point.getGmatScore();
+
+            List<TopKSelector.Candidate> top = point.getTop();
+            assertEquals(Math.min(K, ranking.size()), top.size(), label);
+            for (int t = 0; t < top.size(); t++) {
+                int position = ranking.get(t);
+                assertEquals(position, top.get(t).getPosition(), label + " 第" + (t + 1) + "名");
+                assertEquals(Float.floatToRawIntBits(pointScorer.score(position)),
+                        Float.floatToRawIntBits(top.get(t).getScore()), label + " 第" + (t + 1) + "名分数");
+            }
+            for (int t = 0; t < baseline.size(); t++) {
+                int position = baseline.get(t).getPosition();
+                assertEquals(ranking.indexOf(position) + 1, point.baselineRank(t), label + " 基准第" + (t + 1) + "名");
+                assertEquals(Float.floatToRawIntBits(pointScorer.score(position)),
+                        Float.floatToRawIntBits(point.baselineScore(t)), label + " 基准第" + (t + 1) + "名分数");
+            }
+        }
+    }
+
+    private static SchoolMatchScorer scorer(RecommendationRequestDTO request) {
+        return new SchoolMatchScorer(CATALOG.catalog, request, CATALOG.matchedPrograms, null,
+                CATALOG.collaborativeScores, 0.2f, ScoringWeights.DEFAULTS);
+    }
+
+    /**
+     * 对所有参与打分的学校完整排序（分数降序，同分按位置），返回位置
+     */
+    private static List<Integer> fullRanking(SchoolMatchScorer scorer) {
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < CATALOG.catalog.size; i++) {
+            if (scorer.accepts(i)) {
+                positions.add(i);
+            }
+        }
+        float[] scores = new float[CATALOG.catalog.size];
+        positions.forEach(i -> scores[i] = scorer.score(i));
+        positions.sort((a, b) -> scores[a] != scores[b] ? Float.compare(scores[b], scores[a]) : Integer.compare(a, b));
+        return positions;
+    }
+
+    private static RecommendationRequestDTO copy(RecommendationRequestDTO base) {
+        RecommendationRequestDTO request = new RecommendationRequestDTO();
+        request.setGpa(base.getGpa());
+        request.setGreScore(base.getGreScore());
+        request.setGreVerbal(base.getGreVerbal());
+        request.setGreQuantitative(base.getGreQuantitative());
+        request.setGreAnalytical(base.getGreAnalytical());
+        request.setGmatScore(base.getGmatScore());
+        request.setTargetMajor(base.getTargetMajor());
+        request.setLocationPreferences(base.getLocationPreferences());
+        request.setSchoolTypePreferences(base.getSchoolTypePreferences());
+        request.setRankingRange(base.getRankingRange());
+        return request;
+    }
+}
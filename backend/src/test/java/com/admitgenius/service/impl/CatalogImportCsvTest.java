@@ -0,0 +1,91 @@
+package com.admitgenius.service.impl;
+
+import com.admitgenius.dto.CatalogImportReportDTO;
+import com.admitgenius.model.School;
+import com.admitgenius.model.SchoolProgram;
+import com.admitgenius.repository.SchoolProgramRepository;
+import com.admitgenius.repository.SchoolRepository;
+import com.admitgenius.service.CatalogImportService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * CSV目录导入：带BOM的表头、跨行的引号字段、双写引号，以及列数多于表头的行单独报错
+ * 使用内存H2
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:catalog-import;MODE=MySQL;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"recommendation.precompute.enabled=false",
+		"recommendation.retention.enabled=false"
+})
+class CatalogImportCsvTest {
+
+	@Autowired
+	private CatalogImportService catalogImportService;
+
+	@Autowired
+	private SchoolRepository schoolRepository;
+
+	@Autowired
+	private SchoolProgramRepository schoolProgramRepository;
+
+	@Test
+	void importsQuotedFieldsAndReportsRowsWithExtraColumns() {
+		String csv = "\uFEFFName,location,ranking,description,program.name\n"
+				+ "\"CSV测试大学, 北校区\",\"Boston, MA\",42,\"第一行\n第二行\",数据科学\n"
+				+ "多列测试学院,Boston,7,简介,金融学,多余的列\n"
+				+ "\"引号\"\"测试\"\"学院\",New York,,\"他说\"\"你好\"\"\",\n";
+
+		CatalogImportReportDTO report = catalogImportService.importCatalog(CatalogImportService.Format.CSV,
+				new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+		assertEquals(3, report.getRows());
+		assertEquals(1, report.getFailedRows());
+		assertEquals(2, report.getSchoolsInserted());
+		assertEquals(1, report.getProgramsInserted());
+		CatalogImportReportDTO.RowError error = report.getErrors().get(0);
+		// 表头在第1行，第一所学校的简介跨第2、3行
+		assertEquals(4, error.getLine());
+		assertEquals("多列测试学院", error.getName());
+		assertEquals("列数多于表头", error.getMessage());
+
+		School quoted = findSchool("CSV测试大学, 北校区");
+		assertEquals("Boston, MA", quoted.getLocation());
+		assertEquals(42, quoted.getRanking());
+		assertEquals("第一行\n第二行", quoted.getDescription());
+		List<SchoolProgram> programs = schoolProgramRepository.findBySchoolId(quoted.getId());
+		assertEquals(1, programs.size());
+		assertEquals("数据科学", programs.get(0).getName());
+
+		School doubled = findSchool("引号\"测试\"学院");
+		assertEquals("他说\"你好\"", doubled.getDescription());
+		assertEquals(0, schoolRepository.findAll().stream().filter(s -> "多列测试学院".equals(s.getName())).count());
+	}
+
+	@Test
+	void unknownHeaderColumnIsRejected() {
+		String csv = "name,campus\nX大学,北校区\n";
+		assertThrows(IllegalArgumentException.class, () -> catalogImportService.importCatalog(
+				CatalogImportService.Format.CSV, new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8))));
+	}
+
+	private School findSchool(String name) {
+		return schoolRepository.findAll().stream()
+				.filter(school -> name.equals(school.getName()))
+				.findFirst()
+				.orElseThrow(() -> new AssertionError("未导入: " + name));
+	}
+}
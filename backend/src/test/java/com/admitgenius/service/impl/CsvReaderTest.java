@@ -0,0 +1,74 @@
+package com.admitgenius.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 导入用的CSV读取：引号内的逗号、换行和双写引号，CRLF，BOM，以及记录起始行号
+ */
+class CsvReaderTest {
+
+    @Test
+    void quotedFieldsKeepCommasNewlinesAndDoubledQuotes() throws IOException {
+        CatalogImportServiceImpl.CsvReader reader = reader(
+                "name,description\n"
+                        + "\"Stanford, CA\",\"第一行\n第二行\"\n"
+                        + "\"他说\"\"你好\"\"\",\"\"\"\"\n");
+
+        assertEquals(List.of("name", "description"), reader.next());
+        assertEquals(1, reader.recordLine());
+        assertEquals(List.of("Stanford, CA", "第一行\n第二行"), reader.next());
+        assertEquals(2, reader.recordLine());
+        assertEquals(List.of("他说\"你好\"", "\""), reader.next());
+        // 上一条记录的引号字段跨了两行
+        assertEquals(4, reader.recordLine());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void emptyFieldsAndCrlfLineEndings() throws IOException {
+        assertEquals(List.of(List.of("a", "", "c"), List.of("", ""), List.of("x")),
+                readAll("a,,c\r\n,\r\nx"));
+        assertEquals(List.of(List.of("a", "b")), readAll("a,b\n"));
+        assertEquals(List.of(), readAll(""));
+    }
+
+    @Test
+    void leadingBomIsSkippedOnlyAtStart() throws IOException {
+        assertEquals(List.of(List.of("name", "ranking"), List.of("\uFEFFx", "1")),
+                readAll("\uFEFFname,ranking\n\uFEFFx,1\n"));
+        assertEquals(List.of(List.of("")), readAll("\uFEFF\n"));
+    }
+
+    @Test
+    void quotesInsideUnquotedFieldsAreLiteral() throws IOException {
+        assertEquals(List.of(List.of("5\"10", "b")), readAll("5\"10,b\n"));
+    }
+
+    @Test
+    void unclosedQuoteRunsToEndOfFile() throws IOException {
+        assertEquals(List.of(List.of("a", "b,\nc\n")), readAll("a,\"b,\nc\n"));
+    }
+
+    private static CatalogImportServiceImpl.CsvReader reader(String content) {
+        return new CatalogImportServiceImpl.CsvReader(new BufferedReader(new StringReader(content)));
+    }
+
+    private static List<List<String>> readAll(String content) throws IOException {
+        CatalogImportServiceImpl.CsvReader reader = reader(content);
+        List<List<String>> records = new ArrayList<>();
+        List<String> record;
+        while ((record = reader.next()) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+}
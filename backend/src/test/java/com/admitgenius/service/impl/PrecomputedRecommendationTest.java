@@ -0,0 +1,128 @@
+package com.admitgenius.service.impl;
+
+import com.admitgenius.dto.SchoolDTO;
+import com.admitgenius.index.CatalogIndexManager;
+import com.admitgenius.model.PrecomputedRecommendation;
+import com.admitgenius.model.User;
+import com.admitgenius.repository.PrecomputedRecommendationRepository;
+import com.admitgenius.repository.UserRepository;
+import com.admitgenius.service.RecommendationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 预计算推荐：版本一致时直接返回预计算行；目录变化后先返回旧结果并在后台排队重新计算；
+ * 读取推荐从不写库。防抖间隔设得很长，后台计算在测试期间不会执行。
+ * 使用内存H2和DataInitializer写入的示例数据
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:precomputed-recommendation;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "recommendation.precompute.enabled=true",
+        "recommendation.precompute.debounce-ms=600000",
+        "recommendation.retention.enabled=false"
+})
+class PrecomputedRecommendationTest {
+
+    @Autowired
+    private RecommendationService recommendationService;
+
+    @Autowired
+    private RecommendationPrecomputer recommendationPrecomputer;
+
+    @Autowired
+    private PrecomputedRecommendationRepository precomputedRecommendationRepository;
+
+    @Autowired
+    private CatalogIndexManager catalogIndexManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void precomputedRowRecordsCurrentVersions() {
+        Long userId = newUser();
+
+        List<SchoolDTO> computed = recommendationService.precomputeRecommendations(userId);
+
+        PrecomputedRecommendation row = precomputedRecommendationRepository.findById(userId).orElseThrow();
+        assertFalse(computed.isEmpty());
+        assertEquals(catalogIndexManager.getCatalogVersion(), row.getCatalogVersion());
+        // 没有协同过滤反馈的用户不记录模型版本，模型重新训练不影响这一行
+        assertNull(row.getModelVersion());
+    }
+
+    @Test
+    void freshRowIsServedWithoutRecompute() {
+        Long userId = newUser();
+        List<SchoolDTO> computed = recommendationService.precomputeRecommendations(userId);
+        PrecomputedRecommendation before = precomputedRecommendationRepository.findById(userId).orElseThrow();
+        int pending = recommendationPrecomputer.getPendingCount();
+
+        List<SchoolDTO> served = recommendationService.recommendSchools(userId);
+
+        assertEquals(ids(computed), ids(served));
+        assertEquals(pending, recommendationPrecomputer.getPendingCount());
+        assertEquals(before.getComputedAt(),
+                precomputedRecommendationRepository.findById(userId).orElseThrow().getComputedAt());
+    }
+
+    @Test
+    void staleRowIsServedAndRecomputedInBackground() {
+        Long userId = newUser();
+        List<SchoolDTO> computed = recommendationService.precomputeRecommendations(userId);
+        long staleVersion = catalogIndexManager.getCatalogVersion();
+        catalogIndexManager.rebuildAll();
+        int pending = recommendationPrecomputer.getPendingCount();
+
+        List<SchoolDTO> served = recommendationService.recommendSchools(userId);
+
+        assertEquals(ids(computed), ids(served));
+        assertEquals(pending + 1, recommendationPrecomputer.getPendingCount());
+        // 读取路径不写库
+        assertEquals(staleVersion, precomputedRecommendationRepository.findById(userId).orElseThrow()
+                .getCatalogVersion());
+
+        // 已在排队时再次读取不重复排队
+        recommendationService.recommendSchools(userId);
+        assertEquals(pending + 1, recommendationPrecomputer.getPendingCount());
+    }
+
+    @Test
+    void missingRowIsComputedWithoutWriting() {
+        Long userId = newUser();
+        int pending = recommendationPrecomputer.getPendingCount();
+
+        List<SchoolDTO> served = recommendationService.recommendSchools(userId);
+
+        assertFalse(served.isEmpty());
+        assertTrue(precomputedRecommendationRepository.findById(userId).isEmpty());
+        assertEquals(pending + 1, recommendationPrecomputer.getPendingCount());
+    }
+
+    private Long newUser() {
+        User user = new User();
+        user.setEmail("precompute-" + UUID.randomUUID() + "@example.com");
+        user.setPassword("password");
+        user.setGpa(3.6);
+        user.setTargetMajor("计算机科学");
+        return userRepository.save(user).getId();
+    }
+
+    private static List<Long> ids(List<SchoolDTO> schools) {
+        return schools.stream().map(SchoolDTO::getId).toList();
+    }
+}
@@ -0,0 +1,102 @@
+package com.admitgenius.service.impl;
+
+import com.admitgenius.dto.RecommendationBatchResponseDTO;
+import com.admitgenius.dto.RecommendationBatchResultDTO;
+import com.admitgenius.dto.RecommendationRequestDTO;
+import com.admitgenius.repository.RecommendationRepository;
+import com.admitgenius.repository.UserRepository;
+import com.admitgenius.service.RecommendationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 批量推荐：失败的请求只记录在自己的结果中，其余请求照常打分并一次写入，结果按提交顺序返回
+ * 使用内存H2和DataInitializer写入的示例数据
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:recommendation-batch;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "recommendation.batch.max-size=10",
+        "recommendation.precompute.enabled=false",
+        "recommendation.retention.enabled=false"
+})
+class RecommendationBatchTest {
+
+    @Autowired
+    private RecommendationService recommendationService;
+
+    @Autowired
+    private RecommendationRepository recommendationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void failedRequestsDoNotAffectOthers() {
+        Long adminId = userRepository.findByEmail("admin@admitgenius.com").orElseThrow().getId();
+        RecommendationRequestDTO invalidType = request(adminId);
+        invalidType.setRecommendationType("UNKNOWN");
+        RecommendationRequestDTO invalidGpa = request(adminId);
+        invalidGpa.setGpa(5.0);
+        List<RecommendationRequestDTO> requests = Arrays.asList(
+                request(adminId), request(999_999L), invalidType, null, invalidGpa, request(adminId));
+        long before = recommendationRepository.count();
+
+        RecommendationBatchResponseDTO response = recommendationService.generateRecommendations(requests);
+
+        assertEquals(6, response.getTotal());
+        assertEquals(2, response.getSucceeded());
+        assertEquals(4, response.getFailed());
+        List<RecommendationBatchResultDTO> results = response.getResults();
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).getIndex());
+        }
+        for (int i : new int[]{0, 5}) {
+            RecommendationBatchResultDTO result = results.get(i);
+            assertTrue(result.isSuccess());
+            assertNull(result.getError());
+            assertNotNull(result.getRecommendation().getId());
+            assertEquals(3, result.getRecommendation().getItems().size());
+        }
+        for (int i : new int[]{1, 2, 3, 4}) {
+            assertFalse(results.get(i).isSuccess());
+            assertNotNull(results.get(i).getError());
+        }
+        assertEquals("用户不存在", results.get(1).getError());
+        assertEquals(before + 2, recommendationRepository.count());
+    }
+
+    @Test
+    void oversizedBatchIsRejected() {
+        List<RecommendationRequestDTO> requests = new ArrayList<>(Collections.nCopies(11, request(1L)));
+
+        assertThrows(IllegalArgumentException.class, () -> recommendationService.generateRecommendations(requests));
+        assertThrows(IllegalArgumentException.class, () -> recommendationService.generateRecommendations(List.of()));
+    }
+
+    private static RecommendationRequestDTO request(Long userId) {
+        RecommendationRequestDTO request = new RecommendationRequestDTO();
+        request.setUserId(userId);
+        request.setGpa(3.7);
+        request.setRecommendationType("SCHOOL");
+        request.setCount(3);
+        return request;
+    }
+}
@@ -0,0 +1,155 @@
+package com.admitgenius.service.impl;
+
+import com.admitgenius.dto.RecommendationJobDTO;
+import com.admitgenius.dto.RecommendationRequestDTO;
+import com.admitgenius.dto.RecommendationResponseDTO;
+import com.admitgenius.exception.TooManyRequestsException;
+import com.admitgenius.model.User;
+import com.admitgenius.model.UserRole;
+import com.admitgenius.recommendation.RecommendationProgressListener;
+import com.admitgenius.service.RecommendationService;
+import com.admitgenius.util.AuthUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 异步推荐任务：单用户进行中任务数与队列容量的准入限制、同步接口不占用户配额、
+ * 提交后立即可查询、等待超时以及任务的访问控制
+ */
+class RecommendationJobServiceImplTest {
+    private static final long USER_ID = 7L;
+    /** GPA为该值的请求会阻塞到release打开 */
+    private static final double BLOCKING_GPA = 1.0;
+
+    private RecommendationService recommendationService;
+    private AuthUtil authUtil;
+    private RecommendationJobServiceImpl jobService;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        recommendationService = mock(RecommendationService.class);
+        authUtil = mock(AuthUtil.class);
+        when(recommendationService.generateRecommendation(any(RecommendationRequestDTO.class),
+                any(RecommendationProgressListener.class))).thenAnswer(invocation -> {
+                    RecommendationRequestDTO request = invocation.getArgument(0);
+                    if (request.getGpa() != null && request.getGpa() == BLOCKING_GPA) {
+                        release.await(10, TimeUnit.SECONDS);
+                    }
+                    RecommendationResponseDTO response = new RecommendationResponseDTO();
+                    response.setUserId(request.getUserId());
+                    return response;
+                });
+        jobService = service(2, 10, 1, 5);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        jobService.shutdown();
+    }
+
+    @Test
+    void perUserLimitRejectsAsyncJobsButNotSynchronousGenerate() {
+        jobService.submit(request(BLOCKING_GPA));
+
+        assertThrows(TooManyRequestsException.class, () -> jobService.submit(request(3.5)));
+        // 同步接口只共用线程池，不受单用户任务数限制
+        RecommendationResponseDTO response = jobService.generateAndWait(request(3.5));
+        assertEquals(USER_ID, response.getUserId());
+        assertEquals(1L, jobService.getStats().get("rejected"));
+    }
+
+    @Test
+    void fullQueueRejectsSubmission() {
+        jobService.shutdown();
+        jobService = service(1, 1, 10, 5);
+        jobService.submit(request(BLOCKING_GPA));
+        jobService.submit(request(BLOCKING_GPA));
+
+        assertThrows(TooManyRequestsException.class, () -> jobService.submit(request(BLOCKING_GPA)));
+    }
+
+    @Test
+    void submittedJobCanBePolledUntilItCompletes() throws Exception {
+        when(authUtil.getCurrentUser()).thenReturn(user(USER_ID, UserRole.USER));
+        RecommendationJobDTO submitted = jobService.submit(request(BLOCKING_GPA));
+
+        RecommendationJobDTO pending = jobService.getJob(submitted.getJobId());
+        assertTrue(pending.getStatus().equals("PENDING") || pending.getStatus().equals("RUNNING"));
+
+        release.countDown();
+        RecommendationJobDTO finished = pending;
+        for (int i = 0; i < 100 && !"SUCCEEDED".equals(finished.getStatus()); i++) {
+            Thread.sleep(20);
+            finished = jobService.getJob(submitted.getJobId());
+        }
+        assertEquals("SUCCEEDED", finished.getStatus());
+        assertNotNull(finished.getResult());
+    }
+
+    @Test
+    void otherStudentsCannotSeeJob() {
+        RecommendationJobDTO submitted = jobService.submit(request(3.5));
+
+        when(authUtil.getCurrentUser()).thenReturn(user(USER_ID + 1, UserRole.USER));
+        assertThrows(AccessDeniedException.class, () -> jobService.getJob(submitted.getJobId()));
+
+        when(authUtil.getCurrentUser()).thenReturn(user(USER_ID + 1, UserRole.EXPERT));
+        assertEquals(submitted.getJobId(), jobService.getJob(submitted.getJobId()).getJobId());
+    }
+
+    @Test
+    void synchronousGenerateTimesOut() {
+        jobService.shutdown();
+        jobService = service(2, 10, 1, 0);
+
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> jobService.generateAndWait(request(BLOCKING_GPA)));
+        assertTrue(error.getMessage().contains("超时"));
+    }
+
+    private RecommendationJobServiceImpl service(int poolSize, int queueCapacity, int maxPerUser,
+            long waitTimeoutSeconds) {
+        RecommendationJobServiceImpl service = new RecommendationJobServiceImpl();
+        ReflectionTestUtils.setField(service, "recommendationService", recommendationService);
+        ReflectionTestUtils.setField(service, "authUtil", authUtil);
+        ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(service, "poolSize", poolSize);
+        ReflectionTestUtils.setField(service, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(service, "maxPerUser", maxPerUser);
+        ReflectionTestUtils.setField(service, "ttlSeconds", 600L);
+        ReflectionTestUtils.setField(service, "waitTimeoutSeconds", waitTimeoutSeconds);
+        service.init();
+        return service;
+    }
+
+    private static RecommendationRequestDTO request(double gpa) {
+        RecommendationRequestDTO request = new RecommendationRequestDTO();
+        request.setUserId(USER_ID);
+        request.setGpa(gpa);
+        return request;
+    }
+
+    private static User user(Long id, UserRole role) {
+        User user = new User();
+        user.setId(id);
+        user.setRole(role);
+        return user;
+    }
+}
@@ -0,0 +1,95 @@
+package com.admitgenius.service.impl;
+
+import com.admitgenius.recommendation.PrecomputedRecommendationStaleEvent;
+import com.admitgenius.recommendation.UserProfileChangedEvent;
+import com.admitgenius.service.RecommendationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 后台预计算：防抖间隔内的多次修改只计算一次，任务开始时移除自己的登记项；
+ * 读取时发现过期只在没有等待中的计算时排队
+ */
+class RecommendationPrecomputerTest {
+
+    private final RecommendationService recommendationService = mock(RecommendationService.class);
+    private RecommendationPrecomputer precomputer;
+
+    @AfterEach
+    void tearDown() {
+        precomputer.shutdown();
+    }
+
+    @Test
+    void rapidEditsAreCoalesced() throws InterruptedException {
+        precomputer = precomputer(200);
+        for (int i = 0; i < 5; i++) {
+            precomputer.onProfileChanged(new UserProfileChangedEvent(1L));
+        }
+        precomputer.onProfileChanged(new UserProfileChangedEvent(2L));
+        assertEquals(2, precomputer.getPendingCount());
+
+        verify(recommendationService, timeout(2000)).precomputeRecommendations(1L);
+        verify(recommendationService, timeout(2000)).precomputeRecommendations(2L);
+        Thread.sleep(300);
+        verify(recommendationService, times(1)).precomputeRecommendations(1L);
+        assertEquals(0, precomputer.getPendingCount());
+    }
+
+    @Test
+    void immediateTaskRemovesItsOwnEntry() {
+        precomputer = precomputer(0);
+        for (long userId = 1; userId <= 50; userId++) {
+            precomputer.onProfileChanged(new UserProfileChangedEvent(userId));
+        }
+
+        for (long userId = 1; userId <= 50; userId++) {
+            verify(recommendationService, timeout(2000)).precomputeRecommendations(userId);
+        }
+        long deadline = System.currentTimeMillis() + 2000;
+        while (precomputer.getPendingCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(0, precomputer.getPendingCount());
+    }
+
+    @Test
+    void staleReadDoesNotPostponePendingComputation() throws InterruptedException {
+        precomputer = precomputer(600);
+        precomputer.onProfileChanged(new UserProfileChangedEvent(1L));
+        Thread.sleep(300);
+        precomputer.onRecommendationStale(new PrecomputedRecommendationStaleEvent(1L));
+
+        // 过期读取没有重新开始计时，计算按档案修改时的防抖间隔执行
+        verify(recommendationService, timeout(450)).precomputeRecommendations(1L);
+    }
+
+    @Test
+    void disabledPrecomputerIgnoresEvents() {
+        precomputer = precomputer(0);
+        ReflectionTestUtils.setField(precomputer, "enabled", false);
+        precomputer.onProfileChanged(new UserProfileChangedEvent(1L));
+        precomputer.onRecommendationStale(new PrecomputedRecommendationStaleEvent(1L));
+
+        assertEquals(0, precomputer.getPendingCount());
+        verify(recommendationService, never()).precomputeRecommendations(1L);
+    }
+
+    private RecommendationPrecomputer precomputer(long debounceMs) {
+        RecommendationPrecomputer result = new RecommendationPrecomputer();
+        ReflectionTestUtils.setField(result, "recommendationService", recommendationService);
+        ReflectionTestUtils.setField(result, "enabled", true);
+        ReflectionTestUtils.setField(result, "debounceMs", debounceMs);
+        ReflectionTestUtils.setField(result, "concurrency", 2);
+        result.init();
+        return result;
+    }
+}
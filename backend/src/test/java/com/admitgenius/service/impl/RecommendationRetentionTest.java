@@ -0,0 +1,144 @@
+package com.admitgenius.service.impl;
+
+import com.admitgenius.model.Recommendation;
+import com.admitgenius.model.RecommendationItem;
+import com.admitgenius.model.School;
+import com.admitgenius.model.User;
+import com.admitgenius.repository.RecommendationItemRepository;
+import com.admitgenius.repository.RecommendationRepository;
+import com.admitgenius.repository.SchoolRepository;
+import com.admitgenius.repository.UserRepository;
+import com.admitgenius.service.RecommendationRetentionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 推荐历史保留：每个用户保留最近keep-per-user条，另外保留有已申请或有反馈推荐项的记录和min-age-hours内的记录，
+ * 其余记录连同推荐项分块删除并计入回收行数
+ * 使用内存H2和DataInitializer写入的示例数据
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:recommendation-retention;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "recommendation.precompute.enabled=false",
+        "recommendation.retention.enabled=false",
+        "recommendation.retention.keep-per-user=3",
+        "recommendation.retention.min-age-hours=24",
+        "recommendation.retention.chunk-size=2",
+        "recommendation.retention.pause-ms=0"
+})
+class RecommendationRetentionTest {
+    private static final int ITEMS_PER_RECOMMENDATION = 2;
+
+    @Autowired
+    private RecommendationRetentionService recommendationRetentionService;
+
+    @Autowired
+    private RecommendationRepository recommendationRepository;
+
+    @Autowired
+    private RecommendationItemRepository recommendationItemRepository;
+
+    @Autowired
+    private SchoolRepository schoolRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void keepsNewestAppliedFeedbackAndRecentRecommendations() {
+        LocalDateTime now = LocalDateTime.now();
+        User user = newUser();
+        List<Long> ids = new ArrayList<>();
+        // 最近3条保留；第4条不在最近3条内，但生成不足24小时，也保留
+        for (int hours : new int[]{1, 2, 3, 5}) {
+            ids.add(save(user, now.minusHours(hours), false, null));
+        }
+        Long purged1 = save(user, now.minusHours(48), false, null);
+        Long applied = save(user, now.minusHours(49), true, null);
+        Long purged2 = save(user, now.minusHours(50), false, null);
+        Long feedback = save(user, now.minusHours(51), false, "很合适");
+        Long purged3 = save(user, now.minusHours(52), false, null);
+        Long purged4 = save(user, now.minusHours(53), false, null);
+        ids.add(applied);
+        ids.add(feedback);
+
+        // 记录数不超过keep-per-user的用户不受影响，即使记录很旧
+        User small = newUser();
+        Long smallOld = save(small, now.minusHours(100), false, null);
+
+        Map<String, Object> before = recommendationRetentionService.getStats();
+        Map<String, Object> run = recommendationRetentionService.purge();
+
+        for (Long id : ids) {
+            assertTrue(recommendationRepository.existsById(id), "应保留推荐记录 " + id);
+        }
+        assertTrue(recommendationRepository.existsById(smallOld));
+        for (Long id : List.of(purged1, purged2, purged3, purged4)) {
+            assertFalse(recommendationRepository.existsById(id), "应删除推荐记录 " + id);
+        }
+        // 有已申请或反馈推荐项的记录整条保留，包括其中未使用的推荐项
+        assertEquals(ITEMS_PER_RECOMMENDATION, itemCount(applied));
+        assertEquals(ITEMS_PER_RECOMMENDATION, itemCount(feedback));
+
+        assertEquals(1, run.get("users"));
+        assertEquals(2, run.get("chunks"));
+        assertEquals(4L, run.get("recommendationsDeleted"));
+        assertEquals(4L * ITEMS_PER_RECOMMENDATION, run.get("itemsDeleted"));
+        Map<String, Object> after = recommendationRetentionService.getStats();
+        assertEquals(4L + 4L * ITEMS_PER_RECOMMENDATION,
+                (long) after.get("rowsReclaimed") - (long) before.get("rowsReclaimed"));
+
+        // 再次清理没有可删除的记录
+        Map<String, Object> again = recommendationRetentionService.purge();
+        assertEquals(0L, again.get("recommendationsDeleted"));
+        assertEquals(0L, again.get("itemsDeleted"));
+    }
+
+    private User newUser() {
+        User user = new User();
+        user.setEmail("retention-" + UUID.randomUUID() + "@example.com");
+        user.setPassword("password");
+        return userRepository.save(user);
+    }
+
+    private Long save(User user, LocalDateTime createdAt, boolean applied, String feedback) {
+        List<School> schools = schoolRepository.findAll();
+        Recommendation recommendation = new Recommendation();
+        recommendation.setStudent(user);
+        recommendation.setCreatedAt(createdAt);
+        recommendation.setRecommendationType(Recommendation.RecommendationType.SCHOOL);
+        for (int rank = 0; rank < ITEMS_PER_RECOMMENDATION; rank++) {
+            RecommendationItem item = new RecommendationItem();
+            item.setSchool(schools.get(rank));
+            item.setRank(rank + 1);
+            item.setMatchScore(0.8f);
+            // 只有第一项被申请或反馈
+            item.setIsApplied(rank == 0 && applied);
+            item.setFeedback(rank == 0 ? feedback : null);
+            recommendation.addItem(item);
+        }
+        return recommendationRepository.save(recommendation).getId();
+    }
+
+    private long itemCount(Long recommendationId) {
+        return recommendationItemRepository.findAll().stream()
+                .filter(item -> item.getRecommendation().getId().equals(recommendationId))
+                .count();
+    }
+}
@@ -0,0 +1,124 @@
+package com.admitgenius.service.impl;
+
+import com.admitgenius.dto.RecommendationRequestDTO;
+import com.admitgenius.dto.RecommendationResponseDTO;
+import com.admitgenius.model.Recommendation;
+import com.admitgenius.model.RecommendationItem;
+import com.admitgenius.model.School;
+import com.admitgenius.model.User;
+import com.admitgenius.repository.RecommendationItemRepository;
+import com.admitgenius.repository.SchoolRepository;
+import com.admitgenius.repository.UserRepository;
+import com.admitgenius.service.RecommendationService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 推荐结果写入：推荐记录与推荐项级联保存，号段分配ID后推荐项以一条批量语句插入
+ * 使用内存H2和DataInitializer写入的示例数据
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:recommendation-writer;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "recommendation.precompute.enabled=false",
+        "recommendation.retention.enabled=false"
+})
+class RecommendationWriterTest {
+    /** 与单次推荐的数量上限一致 */
+    private static final int ITEM_COUNT = 20;
+
+    @Autowired
+    private RecommendationWriter recommendationWriter;
+
+    @Autowired
+    private RecommendationService recommendationService;
+
+    @Autowired
+    private RecommendationItemRepository recommendationItemRepository;
+
+    @Autowired
+    private SchoolRepository schoolRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private User admin;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        admin = userRepository.findByEmail("admin@admitgenius.com").orElseThrow();
+    }
+
+    @Test
+    void generatedRecommendationIsPersistedWithRankedItems() {
+        RecommendationRequestDTO request = new RecommendationRequestDTO();
+        request.setUserId(admin.getId());
+        request.setGpa(3.7);
+        request.setRecommendationType("SCHOOL");
+        request.setCount(3);
+
+        RecommendationResponseDTO response = recommendationService.generateRecommendation(request);
+
+        assertNotNull(response.getId());
+        assertEquals(3, response.getItems().size());
+        List<RecommendationItem> items = recommendationItemRepository.findAll().stream()
+                .filter(item -> response.getId().equals(item.getRecommendation().getId()))
+                .toList();
+        assertEquals(3, items.size());
+        assertEquals(List.of(1, 2, 3), items.stream().map(RecommendationItem::getRank).sorted().toList());
+    }
+
+    @Test
+    void itemsAreInsertedInOneBatchedStatement() {
+        List<School> schools = schoolRepository.findAll();
+        // 先写入一次取得号段，之后同一号段内不再访问序列
+        recommendationWriter.save(recommendation(schools));
+
+        statistics.clear();
+        Recommendation saved = recommendationWriter.save(recommendation(schools));
+
+        assertNotNull(saved.getId());
+        saved.getItems().forEach(item -> assertNotNull(item.getId()));
+        assertEquals(1 + ITEM_COUNT, statistics.getEntityInsertCount());
+        // 推荐记录一条、推荐项一条（批量执行），号段刚开始分配时可能再取一次序列；与推荐项数量无关
+        assertTrue(statistics.getPrepareStatementCount() <= 3);
+    }
+
+    private Recommendation recommendation(List<School> schools) {
+        Recommendation recommendation = new Recommendation();
+        recommendation.setStudent(admin);
+        recommendation.setCreatedAt(LocalDateTime.now());
+        recommendation.setRecommendationType(Recommendation.RecommendationType.SCHOOL);
+        for (int rank = 1; rank <= ITEM_COUNT; rank++) {
+            RecommendationItem item = new RecommendationItem();
+            item.setSchool(schools.get(rank % schools.size()));
+            item.setMatchScore(0.5f);
+            item.setRank(rank);
+            recommendation.addItem(item);
+        }
+        return recommendation;
+    }
+}
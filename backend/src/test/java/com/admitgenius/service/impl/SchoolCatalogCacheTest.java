@@ -0,0 +1,118 @@
+package com.admitgenius.service.impl;
+
+import com.admitgenius.dto.SchoolDTO;
+import com.admitgenius.dto.SchoolProgramDTO;
+import com.admitgenius.model.School;
+import com.admitgenius.repository.SchoolRepository;
+import com.admitgenius.repository.UserRepository;
+import com.admitgenius.service.CatalogCacheService;
+import com.admitgenius.service.SchoolService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 学校目录二级缓存：缓存预热后的目录读取不再发出SQL，经SchoolService的写入只失效被写入的学校
+ * 使用内存H2和DataInitializer写入的示例数据
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:catalog-cache;MODE=MySQL;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"recommendation.precompute.enabled=false",
+		"recommendation.retention.enabled=false"
+})
+class SchoolCatalogCacheTest {
+
+	@Autowired
+	private SchoolService schoolService;
+
+	@Autowired
+	private SchoolRepository schoolRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private CatalogCacheService catalogCacheService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		catalogCacheService.evictAll();
+	}
+
+	@Test
+	void warmCatalogReadsIssueNoSql() {
+		Long schoolId = schoolWithPrograms();
+		schoolService.getSchoolById(schoolId);
+		schoolService.getAllProgramsBySchool(schoolId);
+
+		statistics.clear();
+		SchoolDTO school = schoolService.getSchoolById(schoolId);
+		List<SchoolProgramDTO> programs = schoolService.getAllProgramsBySchool(schoolId);
+
+		assertEquals(0, statistics.getPrepareStatementCount());
+		assertFalse(school.getTopPrograms().isEmpty());
+		assertFalse(programs.isEmpty());
+		assertTrue(statistics.getSecondLevelCacheHitCount() > 0);
+		assertEquals(0, statistics.getSecondLevelCacheMissCount());
+	}
+
+	@Test
+	void schoolUpdateInvalidatesOnlyThatSchool() {
+		List<School> schools = schoolRepository.findAll();
+		Long updatedId = schools.get(0).getId();
+		Long otherId = schools.get(1).getId();
+		schoolService.getSchoolById(updatedId);
+		schoolService.getSchoolById(otherId);
+
+		SchoolDTO update = schoolService.getSchoolById(updatedId);
+		update.setRanking(update.getRanking() + 100);
+		update.setTopPrograms(new ArrayList<>(Arrays.asList("数据科学")));
+		Long adminId = userRepository.findByEmail("admin@admitgenius.com").orElseThrow().getId();
+		schoolService.updateSchool(updatedId, update, adminId);
+
+		statistics.clear();
+		schoolService.getSchoolById(otherId);
+		assertEquals(0, statistics.getPrepareStatementCount());
+
+		SchoolDTO reread = schoolService.getSchoolById(updatedId);
+		assertEquals(update.getRanking(), reread.getRanking());
+		assertEquals(Arrays.asList("数据科学"), reread.getTopPrograms());
+
+		Map<String, Object> stats = catalogCacheService.getStats();
+		assertTrue((Long) stats.get("hits") > 0);
+	}
+
+	private Long schoolWithPrograms() {
+		for (School school : schoolRepository.findAll()) {
+			if (!schoolService.getAllProgramsBySchool(school.getId()).isEmpty()) {
+				return school.getId();
+			}
+		}
+		throw new IllegalStateException("示例数据中没有带项目的学校");
+	}
+}